@@ -0,0 +1,5 @@
+#!/bin/bash
+
+MAPPER="ro.ulbsibiu.acaps.mapper.ga.ea.IslandGeneticAlgorithmMapper"
+export MAPPER=$MAPPER
+exec ./map-app-zamolxe.sh $@
@@ -0,0 +1,5 @@
+#!/bin/bash
+
+MAPPER="ro.ulbsibiu.acaps.mapper.ga.ea.EnergyAwareMemeticAlgorithmMapper"
+export MAPPER=$MAPPER
+exec ./map-e3s-zamolxe.sh
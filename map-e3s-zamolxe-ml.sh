@@ -0,0 +1,5 @@
+#!/bin/bash
+
+MAPPER="ro.ulbsibiu.acaps.mapper.ml.MultilevelMapper"
+export MAPPER=$MAPPER
+exec ./map-e3s-zamolxe.sh
@@ -222,25 +222,8 @@ public class SMSEMOA extends Algorithm {
      * @return HV contributions
      */
     private double[] hvContributions(double[][] front) {
-        int numberOfObjectives = problem_.getNumberOfObjectives();
-        double[] contributions = new double[front.length];
-        double[][] frontSubset = new double[front.length - 1][front[0].length];
-        LinkedList<double[]> frontCopy = new LinkedList<double[]>();
-        for (double[] point : front) {
-            frontCopy.add(point);
-        }
-        double[][] totalFront = frontCopy.toArray(frontSubset);
-        double totalVolume = hv_.calculateHypervolume(totalFront, totalFront.length, numberOfObjectives);
-        for (int i = 0; i < front.length; i++) {
-            double[] evaluatedPoint = frontCopy.remove(i);
-            frontSubset = frontCopy.toArray(frontSubset);
-            // STEP4. The hypervolume (control is passed to java version of Zitzler code)
-            double hv = hv_.calculateHypervolume(frontSubset, frontSubset.length, numberOfObjectives);
-            double contribution = totalVolume - hv;
-            contributions[i] = contribution;
-            // put point back
-            frontCopy.add(i, evaluatedPoint);
-        }
-        return contributions;
+        // the engine computes the contributions in a single sweep when there
+        // are two objectives
+        return hv_.calculateContributions(front, front.length, problem_.getNumberOfObjectives());
     }
 } // SMSEMOA
@@ -127,7 +127,24 @@ public class Hypervolume {
     return n;
   } // ReduceNondominatedSet
 
+  /**
+   * Returns the hypervolume dominated by the points referenced by 
+   * 'front[0..noPoints-1]' (maximization, the reference point is the origin), 
+   * with respect to the first 'noObjectives' objectives. Two and three 
+   * objectives are handled by O(n log n) sweep algorithms, which don't change 
+   * 'front'; for more objectives, the recursive algorithm of Zitzler is used 
+   * (it resorts 'front').
+   */
   public double calculateHypervolume(double [][] front, int  noPoints,int  noObjectives){
+    if (noObjectives == 2)
+      return calculateHypervolume2D(front, noPoints);
+    if (noObjectives == 3)
+      return calculateHypervolume3D(front, noPoints);
+    return calculateHypervolumeHSO(front, noPoints, noObjectives);
+  } // CalculateHypervolume
+
+  /* the recursive (hypervolume by slicing objectives) algorithm of Zitzler */
+  double  calculateHypervolumeHSO(double [][] front, int  noPoints,int  noObjectives){
     int     n;
     double  volume, distance;
 
@@ -156,7 +173,151 @@ public class Hypervolume {
       n = reduceNondominatedSet(front, n, noObjectives - 1, distance);
     }
     return volume;
-  } // CalculateHypervolume
+  } // CalculateHypervolumeHSO
+
+  /* true if the box spanned by 'point' (and the origin) has a volume */
+  boolean  isPositive(double [] point, int  noObjectives) {
+    for (int i = 0; i < noObjectives; i++)
+      if (!(point[i] > 0))
+        return false;
+    return true;
+  } // IsPositive
+
+  /* the indexes of the points from 'front[0..noPoints-1]' which dominate some
+     volume, sorted descending after 'objective' and then after the objective
+     'tieObjective' */
+  Integer [] sortDescending(final double [][] front, int  noPoints, 
+                            int noObjectives, final int  objective, 
+                            final int  tieObjective) {
+    List<Integer> indexes = new ArrayList<Integer>(noPoints);
+    for (int i = 0; i < noPoints; i++)
+      if (isPositive(front[i], noObjectives))
+        indexes.add(i);
+    Integer [] order = indexes.toArray(new Integer[indexes.size()]);
+    Arrays.sort(order, new Comparator<Integer>() {
+      public int compare(Integer o1, Integer o2) {
+        double [] point1 = front[o1.intValue()];
+        double [] point2 = front[o2.intValue()];
+        int flag = Double.compare(point2[objective], point1[objective]);
+        if (flag == 0)
+          flag = Double.compare(point2[tieObjective], point1[tieObjective]);
+        return flag;
+      }
+    });
+    return order;
+  } // SortDescending
+
+  /* two objectives: the points are swept descending after the first 
+     objective; each point adds the stripe between its second objective and 
+     the highest second objective seen before it */
+  double  calculateHypervolume2D(double [][] front, int  noPoints) {
+    Integer [] order = sortDescending(front, noPoints, 2, 0, 1);
+    double  volume = 0;
+    double  maxY = 0;
+    for (int i = 0; i < order.length; i++) {
+      double [] point = front[order[i].intValue()];
+      if (point[1] > maxY) {
+        volume += point[0] * (point[1] - maxY);
+        maxY = point[1];
+      }
+    }
+    return volume;
+  } // CalculateHypervolume2D
+
+  /* three objectives: the points are swept descending after the third 
+     objective, while the area dominated by the points seen so far (in the 
+     first two objectives) is kept up to date in a staircase (ordered 
+     ascending after the first objective, descending after the second one) */
+  double  calculateHypervolume3D(double [][] front, int  noPoints) {
+    Integer [] order = sortDescending(front, noPoints, 3, 2, 0);
+    TreeMap<Double, Double> staircase = new TreeMap<Double, Double>();
+    double  volume = 0;
+    double  area = 0;
+    double  z = order.length == 0 ? 0 : front[order[0].intValue()][2];
+    for (int i = 0; i < order.length; i++) {
+      double [] point = front[order[i].intValue()];
+      volume += area * (z - point[2]);
+      z = point[2];
+      area += addToStaircase(staircase, point[0], point[1]);
+    }
+    volume += area * z;
+    return volume;
+  } // CalculateHypervolume3D
+
+  /* adds the point (x, y) to the staircase; the area it adds is returned */
+  double  addToStaircase(TreeMap<Double, Double> staircase, double  x, double  y) {
+    Map.Entry<Double, Double> right = staircase.ceilingEntry(x);
+    double  height = 0;
+    if (right != null) {
+      if (right.getValue() >= y)
+        return 0; // (x, y) is dominated
+      height = right.getValue();
+      if (right.getKey() == x)
+        staircase.remove(right.getKey());
+    }
+    double  gain = 0;
+    double  currentX = x;
+    Map.Entry<Double, Double> left = staircase.lowerEntry(x);
+    while (left != null && left.getValue() <= y) {
+      // the point (left) is dominated by (x, y)
+      gain += (currentX - left.getKey()) * (y - height);
+      currentX = left.getKey();
+      height = left.getValue();
+      staircase.remove(left.getKey());
+      left = staircase.lowerEntry(currentX);
+    }
+    gain += (currentX - (left == null ? 0 : left.getKey())) * (y - height);
+    staircase.put(x, y);
+    return gain;
+  } // AddToStaircase
+
+  /**
+   * Returns how much hypervolume each point from 'front[0..noPoints-1]' 
+   * dominates exclusively (the hypervolume lost if the point is removed). 
+   * With two objectives, when no point is weakly dominated by another one, 
+   * all the contributions are computed in a single sweep; otherwise, the 
+   * hypervolume is computed again without each point. 'front' is not changed.
+   */
+  public double [] calculateContributions(double [][] front, int  noPoints, 
+                                          int  noObjectives) {
+    if (noObjectives == 2) {
+      double [] contributions = calculateContributions2D(front, noPoints);
+      if (contributions != null)
+        return contributions;
+    }
+
+    double [] contributions = new double[noPoints];
+    double [][] subset = new double[noPoints][];
+    System.arraycopy(front, 0, subset, 0, noPoints);
+    double  totalVolume = calculateHypervolume(subset, noPoints, noObjectives);
+    for (int i = 0; i < noPoints; i++) {
+      int n = 0;
+      for (int j = 0; j < noPoints; j++)
+        if (j != i)
+          subset[n++] = front[j];
+      contributions[i] = totalVolume - calculateHypervolume(subset, n, noObjectives);
+    }
+    return contributions;
+  } // CalculateContributions
+
+  /* two objectives: in the staircase of the points (descending after the 
+     first objective, ascending after the second one), each point exclusively 
+     dominates the rectangle up to its neighbours; null is returned if a point
+     is weakly dominated by another one */
+  double [] calculateContributions2D(double [][] front, int  noPoints) {
+    Integer [] order = sortDescending(front, noPoints, 2, 0, 1);
+    double [] contributions = new double[noPoints];
+    double  previousY = 0;
+    for (int i = 0; i < order.length; i++) {
+      double [] point = front[order[i].intValue()];
+      if (point[1] <= previousY)
+        return null;
+      double  nextX = i + 1 < order.length ? front[order[i + 1].intValue()][0] : 0;
+      contributions[order[i].intValue()] = (point[0] - nextX) * (point[1] - previousY);
+      previousY = point[1];
+    }
+    return contributions;
+  } // CalculateContributions2D
 
    
   /* merge two fronts */
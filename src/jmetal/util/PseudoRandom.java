@@ -20,19 +20,20 @@ public class PseudoRandom {
 //  private static RandomGenerator random = null;
   
   /**
-   * other generator used to obtain the random values
+   * other generator used to obtain the random values (each thread has its
+   * own generator, so that concurrent mappers don't share their seeds)
    */
-  private static java.util.Random randomJava = null;
+  private static final ThreadLocal<java.util.Random> randomJava = new ThreadLocal<java.util.Random>();
              
   /** 
    * Constructor.
    * Creates a new instance of PseudoRandom.
    */
   private PseudoRandom() {
-    if (randomJava == null){
+    if (randomJava.get() == null){
       //this.random = new java.util.Random((long)seed);
 //      random = new RandomGenerator(null);
-      randomJava = new java.util.Random();            
+      randomJava.set(new java.util.Random());
     }
   } // PseudoRandom
   
@@ -46,9 +47,9 @@ public class PseudoRandom {
 	private PseudoRandom(Long seed) {
 //		random = new RandomGenerator(seed);
 		if (seed == null) {
-			randomJava = new java.util.Random();
+			randomJava.set(new java.util.Random());
 		} else {
-			randomJava = new java.util.Random(seed);
+			randomJava.set(new java.util.Random(seed));
 		}
 	}
 	
@@ -68,10 +69,10 @@ public class PseudoRandom {
    * @return A random int value.
    */
   public static int randInt() {
-    if (randomJava == null) {
+    if (randomJava.get() == null) {
       new PseudoRandom();
     }
-    return randomJava.nextInt();
+    return randomJava.get().nextInt();
   } // randInt
     
   /** 
@@ -79,11 +80,11 @@ public class PseudoRandom {
    * Returns A random double value.
    */
   public static double randDouble() {
-    if (randomJava == null) {
+    if (randomJava.get() == null) {
       new PseudoRandom();
     }
 //    return random.rndreal(0.0,1.0);
-    return randomJava.nextDouble();
+    return randomJava.get().nextDouble();
   } // randDouble
     
   /** 
@@ -94,11 +95,11 @@ public class PseudoRandom {
    * Return A pseudo random int value between minBound and maxBound.
    */
   public static int randInt(int minBound, int maxBound) {
-    if (randomJava == null) {
+    if (randomJava.get() == null) {
       new PseudoRandom();
     }
 //    return random.rnd(minBound,maxBound);
-    return minBound + randomJava.nextInt(maxBound-minBound+1);
+    return minBound + randomJava.get().nextInt(maxBound-minBound+1);
   } // randInt
     
   /** Returns a random double value between a minimum bound and a maximum bound
@@ -108,10 +109,10 @@ public class PseudoRandom {
    * @return A pseudo random double value between minBound and maxBound
    */
   public static double randDouble(double minBound, double maxBound) {
-    if (randomJava == null) {
+    if (randomJava.get() == null) {
       new PseudoRandom();
     }
 //    return random.rndreal(minBound,maxBound);
-    return minBound + (maxBound - minBound)*randomJava.nextDouble();
+    return minBound + (maxBound - minBound)*randomJava.get().nextDouble();
   } // randDouble    
 } // PseudoRandom
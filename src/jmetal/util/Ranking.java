@@ -7,10 +7,11 @@
 
 package jmetal.util;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
+import jmetal.base.Solution;
 import jmetal.base.SolutionSet;
-import jmetal.base.operator.comparator.OverallConstraintViolationComparator;
-import jmetal.base.operator.comparator.DominanceComparator;
-import java.util.*;
 
 /**
  * This class implements some facilities for ranking solutions.
@@ -20,6 +21,16 @@ import java.util.*;
  * numbering starts from 1); thus, subset 0 contains the non-dominated 
  * solutions, subset 1 contains the non-dominated solutions after removing those
  * belonging to subset 0, and so on.
+ * <p>
+ * The objectives and the overall constraint violations are copied into 
+ * primitive arrays, so that the dominance tests don't go through 
+ * <code>Comparator</code>s. When there are exactly two objectives and no 
+ * solution violates the constraints, the fronts are found in O(n log n) time, 
+ * by sorting the solutions after the first objective and placing each one into 
+ * the first front (found through a binary search) which doesn't dominate it. 
+ * Otherwise, the fast non dominated sorting algorithm of NSGA-II is used. 
+ * Inside each front, the solutions keep their order from the ranked set.
+ * </p>
  */
 public class Ranking {
   
@@ -34,15 +45,20 @@ public class Ranking {
   private SolutionSet[] ranking_  ;
   
   /**
-   * stores a <code>Comparator</code> for dominance checking
+   * The objectives of the solutions (the objective j of the solution i is 
+   * objectives_[i * numberOfObjectives_ + j])
+   */
+  private double [] objectives_ ;
+  
+  /**
+   * The overall constraint violation of each solution
    */
-  private static final Comparator dominance_ = new DominanceComparator();
+  private double [] violations_ ;
   
   /**
-   * stores a <code>Comparator</code> for Overal Constraint Violation Comparator
-   * checking
+   * The number of objectives
    */
-  private static final Comparator constraint_ = new OverallConstraintViolationComparator();
+  private int numberOfObjectives_ ;
     
   /** 
    * Constructor.
@@ -50,81 +66,222 @@ public class Ranking {
    */       
   public Ranking(SolutionSet solutionSet) {        
     solutionSet_ = solutionSet ;
+    
+    int size = solutionSet_.size();
+    numberOfObjectives_ = size == 0 ? 0 : solutionSet_.get(0).numberOfObjectives();
+    objectives_ = new double[size * numberOfObjectives_];
+    violations_ = new double[size];
+    boolean feasible = true;
+    for (int i = 0; i < size; i++) {
+      Solution solution = solutionSet_.get(i);
+      for (int j = 0; j < numberOfObjectives_; j++) {
+        objectives_[i * numberOfObjectives_ + j] = solution.getObjective(j);
+      }
+      violations_[i] = solution.getOverallConstraintViolation();
+      if (violations_[i] < 0) {
+        feasible = false;
+      }
+    }
 
-    // dominateMe[i] contains the number of solutions dominating i        
-    int [] dominateMe = new int[solutionSet_.size()];
-
-    // iDominate[k] contains the list of solutions dominated by k
-    List<Integer> [] iDominate = new List[solutionSet_.size()];
+    // rank[i] is the front of the solution i
+    int [] rank = new int[size];
+    if (numberOfObjectives_ == 2 && feasible) {
+      rankTwoObjectives(rank);
+    } else {
+      fastNonDominatedSort(rank);
+    }
 
-    // front[i] contains the list of individuals belonging to the front i
-    List<Integer> [] front = new List[solutionSet_.size()+1];
-        
-    // flagDominate is an auxiliar variable
-    int flagDominate;    
+    int numberOfFronts = 0;
+    for (int i = 0; i < size; i++) {
+      numberOfFronts = Math.max(numberOfFronts, rank[i] + 1);
+    }
+    int [] frontSizes = new int[numberOfFronts];
+    for (int i = 0; i < size; i++) {
+      frontSizes[rank[i]]++;
+    }
+    
+    ranking_ = new SolutionSet[numberOfFronts];
+    //0,1,2,....,i-1 are front, then i fronts
+    for (int j = 0; j < numberOfFronts; j++) {
+      ranking_[j] = new SolutionSet(frontSizes[j]);
+    }
+    for (int i = 0; i < size; i++) {
+      solutionSet_.get(i).setRank(rank[i]);
+      ranking_[rank[i]].add(solutionSet_.get(i));
+    }
+    
+    objectives_ = null;
+    violations_ = null;
+  } // Ranking
 
-    // Initialize the fronts 
-    for (int i = 0; i < front.length; i++)
-      front[i] = new LinkedList<Integer>();
-        
-    //-> Fast non dominated sorting algorithm
-    for (int p = 0; p < solutionSet_.size(); p++) {
-    // Initialice the list of individuals that i dominate and the number
-    // of individuals that dominate me
-      iDominate[p] = new LinkedList<Integer>();
-      dominateMe[p] = 0;            
-      // For all q individuals , calculate if p dominates q or vice versa
-      for (int q = 0; q < solutionSet_.size(); q++) {
-        flagDominate =constraint_.compare(solutionSet.get(p),solutionSet.get(q));
-        if (flagDominate == 0) {
-          flagDominate =dominance_.compare(solutionSet.get(p),solutionSet.get(q));                                
+  /**
+   * Compares two solutions exactly like the 
+   * <code>OverallConstraintViolationComparator</code> followed by the 
+   * <code>DominanceComparator</code> do.
+   * @param p The first solution
+   * @param q The second solution
+   * @return -1 if p dominates q, 1 if q dominates p, 0 otherwise
+   */
+  private int compare(int p, int q) {
+    double overall1 = violations_[p];
+    double overall2 = violations_[q];
+    if (overall1 < 0 || overall2 < 0) {
+      if (overall1 < 0 && overall2 < 0) {
+        if (overall1 > overall2) {
+          return -1;
+        } else if (overall2 > overall1) {
+          return 1;
         }
-        
+      } else if (overall1 == 0) {
+        return -1;
+      } else if (overall2 == 0) {
+        return 1;
+      }
+      return 0;
+    }
+
+    boolean dominate1 = false;
+    boolean dominate2 = false;
+    int offset1 = p * numberOfObjectives_;
+    int offset2 = q * numberOfObjectives_;
+    for (int i = 0; i < numberOfObjectives_; i++) {
+      double value1 = objectives_[offset1 + i];
+      double value2 = objectives_[offset2 + i];
+      if (value1 < value2) {
+        dominate1 = true;
+      } else if (value1 > value2) {
+        dominate2 = true;
+      }
+    }
+    if (dominate1 == dominate2) {
+      return 0; //No one dominate the other
+    }
+    return dominate1 ? -1 : 1;
+  } // compare
+
+  /**
+   * The fast non dominated sorting algorithm of NSGA-II (each pair of 
+   * solutions is compared only once).
+   * @param rank Stores the front of each solution
+   */
+  private void fastNonDominatedSort(int [] rank) {
+    int size = rank.length;
+    
+    // dominateMe[i] contains the number of solutions dominating i        
+    int [] dominateMe = new int[size];
+    
+    // iDominate[k][0 .. iDominateSize[k] - 1] are the solutions dominated by k
+    int [][] iDominate = new int[size][];
+    int [] iDominateSize = new int[size];
+    
+    for (int p = 0; p < size; p++) {
+      for (int q = p + 1; q < size; q++) {
+        int flagDominate = compare(p, q);
         if (flagDominate == -1) {
-          iDominate[p].add(new Integer(q));
+          add(iDominate, iDominateSize, p, q);
+          dominateMe[q]++;
         } else if (flagDominate == 1) {
-                    dominateMe[p]++;   
+          add(iDominate, iDominateSize, q, p);
+          dominateMe[p]++;
         }
       }
-            
+    }
+    
+    // the solutions of the current front, followed by those of the next front
+    int [] front = new int[size];
+    int frontStart = 0;
+    int frontEnd = 0;
+    for (int p = 0; p < size; p++) {
       // If nobody dominates p, p belongs to the first front
       if (dominateMe[p] == 0) {
-        front[0].add(new Integer(p));
-        solutionSet.get(p).setRank(0);
-      }            
+        front[frontEnd++] = p;
+        rank[p] = 0;
+      }
     }
-        
+    
     //Obtain the rest of fronts
     int i = 0;
-    Iterator<Integer> it1, it2 ; // Iterators
-    while (front[i].size()!= 0) {
+    while (frontStart < frontEnd) {
       i++;
-      it1 = front[i-1].iterator();
-      while (it1.hasNext()) {
-        it2 = iDominate[it1.next().intValue()].iterator();
-        while (it2.hasNext()) {
-          int index = it2.next().intValue();
+      int nextEnd = frontEnd;
+      for (int k = frontStart; k < frontEnd; k++) {
+        int p = front[k];
+        for (int j = 0; j < iDominateSize[p]; j++) {
+          int index = iDominate[p][j];
           dominateMe[index]--;
-          if (dominateMe[index]==0) {
-            front[i].add(new Integer(index));
-            solutionSet_.get(index).setRank(i);
+          if (dominateMe[index] == 0) {
+            front[nextEnd++] = index;
+            rank[index] = i;
           }
         }
       }
+      frontStart = frontEnd;
+      frontEnd = nextEnd;
     }
-    //<-
-        
-    ranking_ = new SolutionSet[i];
-    //0,1,2,....,i-1 are front, then i fronts
-    for (int j = 0; j < i; j++) {
-      ranking_[j] = new SolutionSet(front[j].size());
-      it1 = front[j].iterator();
-      while (it1.hasNext()) {
-                ranking_[j].add(solutionSet.get(it1.next().intValue()));       
-      }
+  } // fastNonDominatedSort
+
+  private static void add(int [][] lists, int [] sizes, int list, int value) {
+    if (lists[list] == null) {
+      lists[list] = new int[4];
+    } else if (sizes[list] == lists[list].length) {
+      int [] grown = new int[2 * sizes[list]];
+      System.arraycopy(lists[list], 0, grown, 0, sizes[list]);
+      lists[list] = grown;
     }
+    lists[list][sizes[list]++] = value;
+  } // add
+
+  /**
+   * Ranks feasible solutions with two objectives, in O(n log n) time. The 
+   * solutions are visited in lexicographic order of their objectives, so a 
+   * solution can be dominated only by solutions visited before it. Inside each 
+   * front, the second objective decreases in the visiting order, hence a front 
+   * dominates a solution iff its last added solution does. If a front doesn't 
+   * dominate a solution, none of the next fronts does, so the front of each 
+   * solution is found through a binary search.
+   * @param rank Stores the front of each solution
+   */
+  private void rankTwoObjectives(int [] rank) {
+    int size = rank.length;
     
-  } // Ranking
+    Integer [] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      public int compare(Integer o1, Integer o2) {
+        int p = o1.intValue();
+        int q = o2.intValue();
+        int flag = Double.compare(objectives_[2 * p], objectives_[2 * q]);
+        if (flag == 0) {
+          flag = Double.compare(objectives_[2 * p + 1], objectives_[2 * q + 1]);
+        }
+        return flag;
+      }
+    });
+    
+    // last[k] is the last solution added to front k
+    int [] last = new int[size];
+    int numberOfFronts = 0;
+    for (int i = 0; i < size; i++) {
+      int p = order[i].intValue();
+      int low = 0;
+      int high = numberOfFronts;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (compare(last[middle], p) == -1) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      rank[p] = low;
+      last[low] = p;
+      if (low == numberOfFronts) {
+        numberOfFronts++;
+      }
+    }
+  } // rankTwoObjectives
 
   /**
    * Returns a <code>SolutionSet</code> containing the solutions of a given rank. 
@@ -0,0 +1,585 @@
+/**
+ * NDTreeArchive.java
+ *
+ * @author cradu
+ * @version 1.0
+ */
+package jmetal.util.archive;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import jmetal.base.Solution;
+
+/**
+ * This class implements a bounded archive of non-dominated solutions which
+ * keeps the solutions in an ND-tree (A. Jaszkiewicz, T. Lust, ND-Tree-Based
+ * Update: A Fast Algorithm for the Dynamic Nondominance Problem, IEEE
+ * Transactions on Evolutionary Computation, vol. 22, no. 5, 2018). Each node
+ * of the tree knows (bounds of) the ideal and the nadir points of its
+ * solutions, so the dominance checks of a new solution skip the subtrees
+ * which can neither dominate it nor be dominated by it. When the archive is
+ * full, the solution with the smallest crowding distance (as defined in
+ * NSGA-II) is removed, exactly like in {@link CrowdingArchive}. The crowding
+ * distances are maintained incrementally: the solutions are kept sorted after
+ * each objective and only the neighbours of an added or removed solution are
+ * updated (all the distances are recomputed only when the extreme value of an
+ * objective changes).
+ * <p>
+ * The solutions are compared by their objectives only (constraint violations
+ * are not considered). A solution equal (in the objective space) to an
+ * archived one is discarded. The order of the solutions in the archive is not
+ * kept when solutions are removed (the last solution takes the place of the
+ * removed one).
+ * </p>
+ */
+public class NDTreeArchive extends Archive {
+
+  private static final long serialVersionUID = 5391647408251736129L;
+
+  /**
+   * The default maximum number of solutions kept in a leaf of the tree.
+   */
+  public static final int DEFAULT_MAX_LEAF_SIZE = 20;
+
+  /**
+   * Stores the maximum size of the archive.
+   */
+  private int maxSize_;
+
+  /**
+   * stores the number of the objectives.
+   */
+  private int objectives_;
+
+  /**
+   * Stores the maximum number of solutions kept in a leaf.
+   */
+  private int maxLeafSize_;
+
+  /**
+   * Stores the number of children of a split leaf.
+   */
+  private int numberOfChildren_;
+
+  /**
+   * The root of the tree (null when the archive is empty).
+   */
+  private Node root_;
+
+  /**
+   * entries_.get(i) is the entry of the i-th solution of the archive.
+   */
+  private List<Entry> entries_;
+
+  /**
+   * The entries, sorted after each objective.
+   */
+  private List<TreeSet<Entry>> sorted_;
+
+  /**
+   * The entries, sorted ascending after their crowding distance (the newest
+   * entry comes first among entries with equal distances).
+   */
+  private TreeSet<Entry> crowding_;
+
+  /**
+   * The ID of the next added entry.
+   */
+  private long nextId_;
+
+  /**
+   * An archived solution.
+   */
+  private static class Entry {
+    private Solution solution_;
+
+    /** the objectives of the solution, read when the solution is added */
+    private double [] objectives_;
+
+    private long id_;
+
+    /** the position of the solution in the archive */
+    private int index_;
+
+    private double crowding_;
+
+    /** the leaf holding this entry */
+    private Node leaf_;
+  } // Entry
+
+  /**
+   * A node of the ND-tree. A leaf has entries, an internal node has children.
+   * The ideal and the nadir points are bounds: they are updated when an entry
+   * is added, but not when an entry is removed.
+   */
+  private static class Node {
+    private Node parent_;
+
+    private List<Node> children_;
+
+    private List<Entry> entries_;
+
+    private double [] ideal_;
+
+    private double [] nadir_;
+
+    private Node(Node parent, double [] objectives) {
+      parent_ = parent;
+      entries_ = new ArrayList<Entry>();
+      ideal_ = objectives.clone();
+      nadir_ = objectives.clone();
+    }
+
+    private boolean isLeaf() {
+      return children_ == null;
+    }
+
+    private boolean isEmpty() {
+      return isLeaf() ? entries_.isEmpty() : children_.isEmpty();
+    }
+
+    private void extend(double [] objectives) {
+      for (int i = 0; i < objectives.length; i++) {
+        ideal_[i] = Math.min(ideal_[i], objectives[i]);
+        nadir_[i] = Math.max(nadir_[i], objectives[i]);
+      }
+    }
+
+    /** the squared distance from the objectives to the middle of the node */
+    private double distance(double [] objectives) {
+      double distance = 0;
+      for (int i = 0; i < objectives.length; i++) {
+        double d = objectives[i] - (ideal_[i] + nadir_[i]) / 2;
+        distance += d * d;
+      }
+      return distance;
+    }
+  } // Node
+
+  /**
+   * Constructor.
+   * @param maxSize The maximum size of the archive.
+   * @param numberOfObjectives The number of objectives.
+   */
+  public NDTreeArchive(int maxSize, int numberOfObjectives) {
+    this(maxSize, numberOfObjectives, DEFAULT_MAX_LEAF_SIZE,
+        numberOfObjectives + 1);
+  } // NDTreeArchive
+
+  /**
+   * Constructor.
+   * @param maxSize The maximum size of the archive.
+   * @param numberOfObjectives The number of objectives.
+   * @param maxLeafSize The maximum number of solutions kept in a leaf.
+   * @param numberOfChildren The number of children of a split leaf (at least
+   *        2 and at most maxLeafSize + 1).
+   */
+  public NDTreeArchive(int maxSize, int numberOfObjectives, int maxLeafSize,
+      int numberOfChildren) {
+    super(maxSize);
+    maxSize_          = maxSize;
+    objectives_       = numberOfObjectives;
+    maxLeafSize_      = maxLeafSize;
+    numberOfChildren_ = Math.max(2, Math.min(numberOfChildren, maxLeafSize + 1));
+    entries_          = new ArrayList<Entry>();
+    sorted_           = new ArrayList<TreeSet<Entry>>(numberOfObjectives);
+    for (int i = 0; i < numberOfObjectives; i++) {
+      final int objective = i;
+      sorted_.add(new TreeSet<Entry>(new Comparator<Entry>() {
+        public int compare(Entry entry1, Entry entry2) {
+          int flag = Double.compare(entry1.objectives_[objective],
+              entry2.objectives_[objective]);
+          return flag != 0 ? flag : compareIds(entry1, entry2);
+        }
+      }));
+    }
+    crowding_ = new TreeSet<Entry>(new Comparator<Entry>() {
+      public int compare(Entry entry1, Entry entry2) {
+        int flag = Double.compare(entry1.crowding_, entry2.crowding_);
+        return flag != 0 ? flag : compareIds(entry2, entry1);
+      }
+    });
+  } // NDTreeArchive
+
+  private static int compareIds(Entry entry1, Entry entry2) {
+    return entry1.id_ < entry2.id_ ? -1 : (entry1.id_ == entry2.id_ ? 0 : 1);
+  } // compareIds
+
+  /**
+   * Adds a <code>Solution</code> to the archive. If the <code>Solution</code>
+   * is dominated by (or equal to) any member of the archive, then it is
+   * discarded. If the <code>Solution</code> dominates some members of the
+   * archive, these are removed. If the archive is full and the
+   * <code>Solution</code> has to be inserted, the solution having the minimum
+   * crowding distance value is removed.
+   * @param solution The <code>Solution</code>
+   * @return true if the <code>Solution</code> has been inserted, false
+   * otherwise.
+   */
+  public boolean add(Solution solution) {
+    double [] objectives = new double[objectives_];
+    for (int i = 0; i < objectives_; i++) {
+      objectives[i] = solution.getObjective(i);
+    }
+
+    if (root_ != null) {
+      List<Entry> dominated = new ArrayList<Entry>();
+      if (!update(root_, objectives, dominated)) {
+        return false;
+      }
+      for (int i = 0; i < dominated.size(); i++) {
+        removeEntry(dominated.get(i));
+      }
+    }
+
+    Entry entry = new Entry();
+    entry.solution_ = solution;
+    entry.objectives_ = objectives;
+    entry.id_ = nextId_++;
+    insert(entry);
+
+    if (size() > maxSize_) { // The archive is full
+      removeEntry(crowding_.first());
+    }
+    return true;
+  } // add
+
+  /**
+   * Checks the objectives against the entries from a subtree.
+   * @param node The root of the subtree
+   * @param objectives The objectives
+   * @param dominated Collects the entries dominated by the objectives
+   * @return false if an entry dominates (or is equal to) the objectives, true
+   * otherwise
+   */
+  private boolean update(Node node, double [] objectives,
+      List<Entry> dominated) {
+    if (weaklyDominates(node.nadir_, objectives)) {
+      return false; // every entry of the node dominates the objectives
+    }
+    if (weaklyDominates(objectives, node.ideal_)
+        && !equal(objectives, node.ideal_)) {
+      collect(node, dominated); // the objectives dominate every entry
+      return true;
+    }
+    if (weaklyDominates(node.ideal_, objectives)
+        || weaklyDominates(objectives, node.nadir_)) {
+      if (node.isLeaf()) {
+        for (int i = 0; i < node.entries_.size(); i++) {
+          Entry entry = node.entries_.get(i);
+          if (weaklyDominates(entry.objectives_, objectives)) {
+            return false;
+          } else if (weaklyDominates(objectives, entry.objectives_)) {
+            dominated.add(entry);
+          }
+        }
+      } else {
+        for (int i = 0; i < node.children_.size(); i++) {
+          if (!update(node.children_.get(i), objectives, dominated)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  } // update
+
+  private void collect(Node node, List<Entry> entries) {
+    if (node.isLeaf()) {
+      entries.addAll(node.entries_);
+    } else {
+      for (int i = 0; i < node.children_.size(); i++) {
+        collect(node.children_.get(i), entries);
+      }
+    }
+  } // collect
+
+  private static boolean weaklyDominates(double [] point1, double [] point2) {
+    for (int i = 0; i < point1.length; i++) {
+      if (point1[i] > point2[i]) {
+        return false;
+      }
+    }
+    return true;
+  } // weaklyDominates
+
+  private static boolean equal(double [] point1, double [] point2) {
+    for (int i = 0; i < point1.length; i++) {
+      if (point1[i] != point2[i]) {
+        return false;
+      }
+    }
+    return true;
+  } // equal
+
+  /**
+   * Inserts a (non-dominated) entry into the tree, the archive and the sorted
+   * sets.
+   * @param entry The entry
+   */
+  private void insert(Entry entry) {
+    if (root_ == null) {
+      root_ = new Node(null, entry.objectives_);
+    }
+    Node node = root_;
+    while (true) {
+      node.extend(entry.objectives_);
+      if (node.isLeaf()) {
+        break;
+      }
+      // descend into the closest child
+      Node closest = node.children_.get(0);
+      for (int i = 1; i < node.children_.size(); i++) {
+        if (node.children_.get(i).distance(entry.objectives_)
+            < closest.distance(entry.objectives_)) {
+          closest = node.children_.get(i);
+        }
+      }
+      node = closest;
+    }
+    node.entries_.add(entry);
+    entry.leaf_ = node;
+    if (node.entries_.size() > maxLeafSize_) {
+      split(node);
+    }
+
+    entry.index_ = entries_.size();
+    entries_.add(entry);
+    solutionsList_.add(entry.solution_);
+
+    boolean extreme = false;
+    for (int i = 0; i < objectives_; i++) {
+      TreeSet<Entry> sorted = sorted_.get(i);
+      sorted.add(entry);
+      extreme |= sorted.first() == entry || sorted.last() == entry;
+    }
+    if (extreme) {
+      updateAllCrowdingDistances();
+    } else {
+      updateCrowdingDistance(entry);
+      for (int i = 0; i < objectives_; i++) {
+        updateCrowdingDistance(sorted_.get(i).lower(entry));
+        updateCrowdingDistance(sorted_.get(i).higher(entry));
+      }
+    }
+  } // insert
+
+  /**
+   * Splits a full leaf into numberOfChildren_ leaves. The first entry of each
+   * new leaf is the entry the most distant from the entries already placed
+   * into leaves; every other entry goes into the closest leaf.
+   * @param leaf The leaf
+   */
+  private void split(Node leaf) {
+    List<Entry> entries = leaf.entries_;
+    leaf.entries_ = null;
+    leaf.children_ = new ArrayList<Node>(numberOfChildren_);
+
+    int size = entries.size();
+    double [][] distances = new double[size][size];
+    for (int i = 0; i < size; i++) {
+      for (int j = i + 1; j < size; j++) {
+        double distance = 0;
+        for (int k = 0; k < objectives_; k++) {
+          double d = entries.get(i).objectives_[k] - entries.get(j).objectives_[k];
+          distance += d * d;
+        }
+        distances[i][j] = distances[j][i] = Math.sqrt(distance);
+      }
+    }
+
+    boolean [] placed = new boolean[size];
+    List<Integer> seeds = new ArrayList<Integer>(numberOfChildren_);
+    while (seeds.size() < numberOfChildren_) {
+      int farthest = -1;
+      double farthestDistance = -1;
+      for (int i = 0; i < size; i++) {
+        if (placed[i]) {
+          continue;
+        }
+        double distance = 0;
+        for (int j = 0; j < size; j++) {
+          if (seeds.isEmpty() || placed[j]) {
+            distance += distances[i][j];
+          }
+        }
+        if (distance > farthestDistance) {
+          farthest = i;
+          farthestDistance = distance;
+        }
+      }
+      placed[farthest] = true;
+      seeds.add(farthest);
+      Node child = new Node(leaf, entries.get(farthest).objectives_);
+      child.entries_.add(entries.get(farthest));
+      entries.get(farthest).leaf_ = child;
+      leaf.children_.add(child);
+    }
+
+    for (int i = 0; i < size; i++) {
+      if (placed[i]) {
+        continue;
+      }
+      Entry entry = entries.get(i);
+      Node closest = leaf.children_.get(0);
+      for (int j = 1; j < leaf.children_.size(); j++) {
+        if (leaf.children_.get(j).distance(entry.objectives_)
+            < closest.distance(entry.objectives_)) {
+          closest = leaf.children_.get(j);
+        }
+      }
+      closest.extend(entry.objectives_);
+      closest.entries_.add(entry);
+      entry.leaf_ = closest;
+    }
+  } // split
+
+  /**
+   * Removes an entry from the tree, the archive and the sorted sets.
+   * @param entry The entry
+   */
+  private void removeEntry(Entry entry) {
+    Node node = entry.leaf_;
+    node.entries_.remove(entry);
+    // remove the empty nodes and the internal nodes with only one child
+    while (node.isEmpty() && node.parent_ != null) {
+      node.parent_.children_.remove(node);
+      node = node.parent_;
+    }
+    if (node.isEmpty()) {
+      root_ = null;
+    } else if (!node.isLeaf() && node.children_.size() == 1) {
+      Node child = node.children_.get(0);
+      child.parent_ = node.parent_;
+      if (node.parent_ == null) {
+        root_ = child;
+      } else {
+        List<Node> siblings = node.parent_.children_;
+        siblings.set(siblings.indexOf(node), child);
+      }
+    }
+
+    Entry last = entries_.remove(entries_.size() - 1);
+    solutionsList_.remove(solutionsList_.size() - 1);
+    if (last != entry) {
+      last.index_ = entry.index_;
+      entries_.set(last.index_, last);
+      solutionsList_.set(last.index_, last.solution_);
+    }
+
+    crowding_.remove(entry);
+    boolean extreme = false;
+    List<Entry> neighbours = new ArrayList<Entry>(2 * objectives_);
+    for (int i = 0; i < objectives_; i++) {
+      TreeSet<Entry> sorted = sorted_.get(i);
+      extreme |= sorted.first() == entry || sorted.last() == entry;
+      neighbours.add(sorted.lower(entry));
+      neighbours.add(sorted.higher(entry));
+      sorted.remove(entry);
+    }
+    if (extreme) {
+      updateAllCrowdingDistances();
+    } else {
+      for (int i = 0; i < neighbours.size(); i++) {
+        updateCrowdingDistance(neighbours.get(i));
+      }
+    }
+  } // removeEntry
+
+  /**
+   * Computes the crowding distance of an entry, like
+   * {@link jmetal.util.Distance#crowdingDistanceAssignment} does.
+   */
+  private double crowdingDistance(Entry entry) {
+    for (int i = 0; i < objectives_; i++) {
+      TreeSet<Entry> sorted = sorted_.get(i);
+      if (sorted.first() == entry || sorted.last() == entry) {
+        return Double.POSITIVE_INFINITY;
+      }
+    }
+    double distance = 0.0;
+    for (int i = 0; i < objectives_; i++) {
+      TreeSet<Entry> sorted = sorted_.get(i);
+      distance += (sorted.higher(entry).objectives_[i] - sorted.lower(entry).objectives_[i])
+          / (sorted.last().objectives_[i] - sorted.first().objectives_[i]);
+    }
+    return distance;
+  } // crowdingDistance
+
+  private void updateCrowdingDistance(Entry entry) {
+    if (entry == null) {
+      return;
+    }
+    crowding_.remove(entry);
+    entry.crowding_ = crowdingDistance(entry);
+    entry.solution_.setCrowdingDistance(entry.crowding_);
+    crowding_.add(entry);
+  } // updateCrowdingDistance
+
+  private void updateAllCrowdingDistances() {
+    crowding_.clear();
+    for (int i = 0; i < entries_.size(); i++) {
+      Entry entry = entries_.get(i);
+      entry.crowding_ = crowdingDistance(entry);
+      entry.solution_.setCrowdingDistance(entry.crowding_);
+      crowding_.add(entry);
+    }
+  } // updateAllCrowdingDistances
+
+  /**
+   * Deletes the <code>Solution</code> at position i in the archive (the last
+   * solution takes its place).
+   * @param i The position of the solution to remove.
+   */
+  public void remove(int i) {
+    removeEntry(entries_.get(i));
+  } // remove
+
+  /**
+   * Replaces a solution by a new one (the new solution is added like
+   * {@link #add(Solution)} does, so it may be discarded)
+   * @param position The position of the solution to replace
+   * @param solution The new solution
+   */
+  public void replace(int position, Solution solution) {
+    remove(position);
+    add(solution);
+  } // replace
+
+  /**
+   * Empties the archive
+   */
+  public void clear() {
+    super.clear();
+    entries_.clear();
+    for (int i = 0; i < objectives_; i++) {
+      sorted_.get(i).clear();
+    }
+    crowding_.clear();
+    root_ = null;
+  } // clear
+
+  /**
+   * Sorts the solutions of the archive
+   * @param comparator The <code>Comparator</code> used to sort.
+   */
+  // SolutionSet.sort takes a raw Comparator, so the override must take one too
+  @SuppressWarnings("rawtypes")
+  public void sort(Comparator comparator) {
+    super.sort(comparator);
+    Map<Solution, Entry> entries = new IdentityHashMap<Solution, Entry>();
+    for (int i = 0; i < entries_.size(); i++) {
+      entries.put(entries_.get(i).solution_, entries_.get(i));
+    }
+    for (int i = 0; i < solutionsList_.size(); i++) {
+      Entry entry = entries.get(solutionsList_.get(i));
+      entry.index_ = i;
+      entries_.set(i, entry);
+    }
+  } // sort
+} // NDTreeArchive
@@ -1,20 +1,26 @@
 package ro.ulbsibiu.acaps.mapper;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
 
 import org.apache.log4j.Logger;
 
@@ -26,9 +32,18 @@ import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.ctg.xml.mapping.MapType;
 import ro.ulbsibiu.acaps.ctg.xml.mapping.MappingType;
 import ro.ulbsibiu.acaps.mapper.sa.Core;
+import ro.ulbsibiu.acaps.mapper.util.ApcgIndex;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationGraph;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationGraphReader;
+import ro.ulbsibiu.acaps.mapper.util.GridTopologyProvider;
 import ro.ulbsibiu.acaps.mapper.util.HeapUsageMonitor;
+import ro.ulbsibiu.acaps.mapper.util.JaxbUtils;
 import ro.ulbsibiu.acaps.mapper.util.MathUtils;
+import ro.ulbsibiu.acaps.mapper.util.MeshSymmetry;
 import ro.ulbsibiu.acaps.mapper.util.TimeUtils;
+import ro.ulbsibiu.acaps.mapper.util.TopologyProvider;
+import ro.ulbsibiu.acaps.mapper.util.TopologySnapshot;
 import ro.ulbsibiu.acaps.noc.xml.link.LinkType;
 import ro.ulbsibiu.acaps.noc.xml.node.NodeType;
 import ro.ulbsibiu.acaps.noc.xml.node.ObjectFactory;
@@ -98,16 +113,16 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 	private static final String LINK_OUT = "out";
 	
 	/** energy consumption per bit read */
-	private float bufReadEBit;
+	protected float bufReadEBit;
 
 	/** energy consumption per bit write */
-	private float bufWriteEBit;
+	protected float bufWriteEBit;
 	
 	/** energy consumed by a router when it switches a bit */
-	private float switchEBit;
+	protected float switchEBit;
 	
 	/** energy consumed by a link when it transports a bit */
-	private float linkEBit;
+	protected float linkEBit;
 
 	/**
 	 * whether or not to build routing table too. When the SA algorithm builds
@@ -199,6 +214,72 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 	
 	private Integer[] nodeColumns;
 	
+	/**
+	 * the energy consumed for sending one bit from a node to another (using
+	 * the current routing tables), nodeEnergyPerBit[srcNode][dstNode]
+	 */
+	private double[][] nodeEnergyPerBit = null;
+	
+	/**
+	 * the maximum difference between two values from {@link #nodeEnergyPerBit}
+	 * (the diagonal is not considered)
+	 */
+	private double nodeEnergyPerBitSpread;
+	
+	/**
+	 * the distinct cores with which each core communicates (sorted in
+	 * decreasing order of the communication volume)
+	 */
+	protected int[][] corePartners = null;
+	
+	/**
+	 * the volume of communication sent by each core to its partners
+	 * (corePartnersToCommunication[core][i] is sent to corePartners[core][i])
+	 */
+	protected long[][] corePartnersToCommunication = null;
+	
+	/**
+	 * the volume of communication received by each core from its partners
+	 * (corePartnersFromCommunication[core][i] is received from corePartners[core][i])
+	 */
+	protected long[][] corePartnersFromCommunication = null;
+	
+	/**
+	 * the volume of communication (to and from) of each core with its
+	 * partners, starting from a given partner
+	 * (corePartnersRemainingVolume[core][i] = the volume with corePartners[core][i],
+	 * corePartners[core][i + 1], ...)
+	 */
+	private long[][] corePartnersRemainingVolume = null;
+	
+	/** identifies the checkpoint files (the ASCII codes of "ACPS") */
+	private static final int CHECKPOINT_MAGIC = 0x41435053;
+	
+	/** the version of the checkpoint files format */
+	private static final int CHECKPOINT_VERSION = 1;
+	
+	/**
+	 * the file where the search state is periodically saved (<tt>null</tt>
+	 * means that checkpointing is disabled)
+	 */
+	private File checkpointFile = null;
+	
+	/** the minimum time between two consecutive checkpoints, in milliseconds */
+	private long checkpointInterval;
+	
+	/** when the last checkpoint was saved (or when the mapping started) */
+	private long lastCheckpointTime;
+	
+	/** whether or not the search must continue from {@link #checkpointFile} */
+	private boolean resume = false;
+	
+	/**
+	 * whether or not the search state was restored from a checkpoint. Mappers
+	 * supporting checkpoints must check this flag in {@link #doMapping()} and
+	 * must not reinitialize their restored state.
+	 */
+	protected boolean resumed = false;
+	
 	/**
 	 * Default constructor
 	 * <p>
@@ -278,12 +359,22 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 			int coresNumber, double linkBandwidth, boolean buildRoutingTable,
 			LegalTurnSet legalTurnSet, float bufReadEBit, float bufWriteEBit,
 			float switchEBit, float linkEBit) throws JAXBException {
-		if (topologyDir == null) {
-			logger.error("Please specify the NoC topology directory! Stopping...");
-			System.exit(0);
-		}
-		if (!topologyDir.isDirectory()) {
-			logger.error("The specified NoC topology directory does not exist or is not a directory! Stopping...");
+		boolean generated = topologyDir == null
+				|| !new File(topologyDir, "nodes").isDirectory();
+		if (generated
+				&& GridTopologyProvider.create(topologyName, topologySize) == null) {
+			if (topologyDir == null) {
+				logger.error("Please specify the NoC topology directory! Stopping...");
+				System.exit(0);
+			}
+			if (!topologyDir.isDirectory()) {
+				logger.error("The specified NoC topology directory does not exist or is not a directory! Stopping...");
+				System.exit(0);
+			}
+			logger.error("The NoC topology directory " + topologyDir
+					+ " has no nodes subdirectory and the " + topologyName
+					+ " topology of size " + topologySize
+					+ " cannot be generated! Stopping...");
 			System.exit(0);
 		}
 		
@@ -305,6 +396,8 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 		}
 		this.bufReadEBit = bufReadEBit;
 		this.bufWriteEBit = bufWriteEBit;
+		this.switchEBit = switchEBit;
+		this.linkEBit = linkEBit;
 
 		initializeNocTopology(switchEBit, linkEBit);
 		initializeCores();
@@ -321,10 +414,28 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 	}
 	
 	/**
-	 * Initializes the NoC topology for XML files. These files are split into
-	 * two categories: nodes and links. The nodes are expected to be located
-	 * into the "nodes" subdirectory, and the links into the "links"
-	 * subdirectory.
+	 * Creates the provider of the NoC topology. When the topology directory
+	 * has a "nodes" subdirectory, the topology is read from its XML files (the
+	 * nodes from the "nodes" subdirectory and the links from the "links"
+	 * subdirectory), through a {@link TopologySnapshot}. Otherwise, 2D meshes
+	 * and 2D tori are generated from their size.
+	 * 
+	 * @return the topology provider
+	 * @throws JAXBException
+	 */
+	protected TopologyProvider createTopologyProvider() throws JAXBException {
+		if (topologyDir != null && new File(topologyDir, "nodes").isDirectory()) {
+			// the XML files are parsed only when the topology snapshot is out of date
+			return TopologySnapshot.load(topologyDir, new File(
+					TopologySnapshot.DEFAULT_SNAPSHOT_PATH));
+		}
+		logger.info("Generating the " + topologyName + " topology of size "
+				+ topologySize + " (no XML files found in " + topologyDir + ")");
+		return GridTopologyProvider.create(topologyName, topologySize);
+	}
+
+	/**
+	 * Initializes the NoC topology (see {@link #createTopologyProvider()}).
 	 * 
 	 * @param switchEBit
 	 *            the energy consumed for switching a bit of data
@@ -333,18 +444,11 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 	 * @throws JAXBException 
 	 */
 	private void initializeNocTopology(float switchEBit, float linkEBit) throws JAXBException {
+		TopologyProvider topology = createTopologyProvider();
 		// initialize nodes
-		File nodesDir = new File(topologyDir, "nodes");
-		logger.assertLog(nodesDir.isDirectory(), nodesDir.getName() + " is not a directory!");
-		File[] nodeXmls = nodesDir.listFiles(new FileFilter() {
-			
-			@Override
-			public boolean accept(File pathname) {
-				return pathname.getName().endsWith(".xml");
-			}
-		});
-		logger.debug("Found " + nodeXmls.length + " nodes");
-		nodes = new NodeType[nodeXmls.length];
+		NodeType[] nodeTypes = topology.getNodes();
+		logger.debug("Found " + nodeTypes.length + " nodes");
+		nodes = new NodeType[nodeTypes.length];
 		nodeRows = new Integer[nodes.length];
 		nodeColumns = new Integer[nodes.length];
 		try {
@@ -353,37 +457,19 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 			logger.fatal("Could not determine the size of the 2D mesh! Stopping...", e);
 			System.exit(0);
 		}
-		for (int i = 0; i < nodeXmls.length; i++) {
-			JAXBContext jaxbContext = JAXBContext
-					.newInstance("ro.ulbsibiu.acaps.noc.xml.node");
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-			@SuppressWarnings("unchecked")
-			NodeType node = ((JAXBElement<NodeType>) unmarshaller
-					.unmarshal(nodeXmls[i])).getValue();
+		for (int i = 0; i < nodeTypes.length; i++) {
+			NodeType node = nodeTypes[i];
 			
 			node.setCore(Integer.toString(-1));
 			node.setCost((double)switchEBit);
 			nodes[Integer.valueOf(node.getId())] = node;
 		}
 		// initialize links
-		File linksDir = new File(topologyDir, "links");
-		logger.assertLog(linksDir.isDirectory(), linksDir.getName() + " is not a directory!");
-		File[] linkXmls = linksDir.listFiles(new FileFilter() {
-			
-			@Override
-			public boolean accept(File pathname) {
-				return pathname.getName().endsWith(".xml");
-			}
-		});
-		logger.debug("Found " + linkXmls.length + " links");
-		links = new LinkType[linkXmls.length];
-		for (int i = 0; i < linkXmls.length; i++) {
-			JAXBContext jaxbContext = JAXBContext
-					.newInstance("ro.ulbsibiu.acaps.noc.xml.link");
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-			@SuppressWarnings("unchecked")
-			LinkType link = ((JAXBElement<LinkType>) unmarshaller
-					.unmarshal(linkXmls[i])).getValue();
+		LinkType[] linkTypes = topology.getLinks();
+		logger.debug("Found " + linkTypes.length + " links");
+		links = new LinkType[linkTypes.length];
+		for (int i = 0; i < linkTypes.length; i++) {
+			LinkType link = linkTypes[i];
 			
 			link.setBandwidth(linkBandwidth);
 			link.setCost((double)linkEBit);
@@ -403,12 +489,13 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 		if (this.buildRoutingTable == true) {
 			linkUsageList = null;
 		} else {
-			// Allocate the space for the link usage table
-			int[][][] linkUsageMatrix = new int[nodes.length][nodes.length][links.length];
-
-			// Setting up the link usage matrix
+			// Build the link usage list by following the routes (a link usage
+			// matrix would need nodes x nodes x links entries, which is too
+			// much for large NoCs)
+			linkUsageList = new ArrayList[nodes.length][nodes.length];
 			for (int srcId = 0; srcId < nodes.length; srcId++) {
 				for (int dstId = 0; dstId < nodes.length; dstId++) {
+					linkUsageList[srcId][dstId] = new ArrayList<Integer>();
 					if (srcId == dstId) {
 						continue;
 					}
@@ -416,7 +503,9 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 					while (Integer.valueOf(currentNode.getId()) != dstId) {
 						int linkId = routingTables[Integer.valueOf(currentNode.getId())][srcId][dstId];
 						LinkType link = links[linkId];
-						linkUsageMatrix[srcId][dstId][linkId] = 1;
+						if (!linkUsageList[srcId][dstId].contains(linkId)) {
+							linkUsageList[srcId][dstId].add(linkId);
+						}
 						String node = "-1";
 						// we work with with bidirectional links
 						if (currentNode.getId().equals(link.getFirstNode())) {
@@ -428,22 +517,8 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 						}
 						currentNode = nodes[Integer.valueOf(node)];
 					}
-				}
-			}
-
-			// Now build the link usage list
-			linkUsageList = new ArrayList[nodes.length][nodes.length];
-			for (int src = 0; src < nodes.length; src++) {
-				for (int dst = 0; dst < nodes.length; dst++) {
-					linkUsageList[src][dst] = new ArrayList<Integer>();
-					if (src == dst) {
-						continue;
-					}
-					for (int linkId = 0; linkId < links.length; linkId++) {
-						if (linkUsageMatrix[src][dst][linkId] == 1) {
-							linkUsageList[src][dst].add(linkId);
-						}
-					}
+					// the links are listed in the order of their IDs
+					Collections.sort(linkUsageList[srcId][dstId]);
 				}
 			}
 
@@ -494,6 +569,34 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 		return value;
 	}
 	
+	/**
+	 * @return whether the NoC is a 2D torus (its rows and columns are rings)
+	 */
+	protected boolean isTorus() {
+		return GridTopologyProvider.TORUS_2D.equals(topologyName);
+	}
+
+	/**
+	 * Tells in what direction an XY route goes along a row or along a column.
+	 * On a torus, the shorter way around the ring is taken (forward, when both
+	 * ways are equally long).
+	 * 
+	 * @param from
+	 *            the current position (row or column)
+	 * @param to
+	 *            the destination position
+	 * @param size
+	 *            the number of positions (columns or rows)
+	 * @return <tt>true</tt> if the position must be decremented
+	 */
+	private boolean isBackwardStep(int from, int to, int size) {
+		if (isTorus()) {
+			int forward = (to - from + size) % size;
+			return forward > size - forward;
+		}
+		return from > to;
+	}
+
 	public void generateXYRoutingTable() {
 		for (int n = 0; n < nodes.length; n++) {
 			NodeType node = nodes[n];
@@ -517,18 +620,23 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 					int nextStepCol = column;
 		
 					if (dstCol != column) { // We should go horizontally
-						if (column > dstCol) {
+						if (isBackwardStep(column, dstCol, hSize)) {
 							nextStepCol--;
 						} else {
 							nextStepCol++;
 						}
 					} else { // We should go vertically
-						if (row > dstRow) {
+						if (isBackwardStep(row, dstRow, nodes.length / hSize)) {
 							nextStepRow--;
 						} else {
 							nextStepRow++;
 						}
 					}
+					if (isTorus()) {
+						nextStepCol = (nextStepCol + hSize) % hSize;
+						nextStepRow = (nextStepRow + nodes.length / hSize)
+								% (nodes.length / hSize);
+					}
 		
 					for (int i = 0; i < node.getLink().size(); i++) {
 						if (LINK_OUT.equals(node.getLink().get(i).getType())) {
@@ -717,13 +825,8 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 	protected double calculateTotalCost() {
 		// the communication energy part
 		double energyCost = calculateCommunicationEnergy();
-		float overloadCost;
 		// now calculate the overloaded BW cost
-		if (!buildRoutingTable) {
-			overloadCost = calculateOverloadWithFixedRouting();
-		} else {
-			overloadCost = calculateOverloadWithAdaptiveRouting();
-		}
+		float overloadCost = calculateOverloadCost();
 		if (logger.isTraceEnabled()) {
 			logger.trace("energy cost " + energyCost);
 			logger.trace("overload cost " + overloadCost);
@@ -737,7 +840,335 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 	}
 
 	/**
-	 * Computes the overload of the links when no routing is performed
+	 * Computes the penalty of the link overloading (the second term of
+	 * {@link #calculateTotalCost()})
+	 * 
+	 * @return the overload cost
+	 */
+	protected float calculateOverloadCost() {
+		float overloadCost;
+		if (!buildRoutingTable) {
+			overloadCost = calculateOverloadWithFixedRouting();
+		} else {
+			overloadCost = calculateOverloadWithAdaptiveRouting();
+		}
+		return overloadCost;
+	}
+
+	/**
+	 * Computes a cheap estimate of the cost of a mapping: the communication
+	 * volume weighted with the Manhattan distance (the hop count of an XY
+	 * route, which may wrap around on a 2D torus) between the communicating
+	 * nodes. Neither the routing tables nor
+	 * the link loads are used, so the estimate takes time proportional only
+	 * to the number of communications. It is strongly correlated to
+	 * {@link #calculateTotalCost()} (the energy grows with the hop count).
+	 * <p>
+	 * The mapping itself is not changed.
+	 * </p>
+	 * 
+	 * @param coreToNode
+	 *            the mapping (coreToNode[core] = the node onto which the core
+	 *            is placed)
+	 * @return the communication volume multiplied with the hop count
+	 */
+	protected double calculateHopCountCost(int[] coreToNode) {
+		if (corePartners == null) {
+			computeCorePartners();
+		}
+		boolean torus = isTorus();
+		int rows = nodes.length / hSize;
+		double cost = 0;
+		for (int i = 0; i < corePartners.length; i++) {
+			int node = coreToNode[i];
+			int row = node / hSize;
+			int column = node % hSize;
+			int[] partners = corePartners[i];
+			long[] toCommunication = corePartnersToCommunication[i];
+			for (int j = 0; j < partners.length; j++) {
+				if (toCommunication[j] > 0) {
+					int partnerNode = coreToNode[partners[j]];
+					cost += toCommunication[j]
+							* (getHopDistance(row, partnerNode / hSize, rows, torus)
+									+ getHopDistance(column, partnerNode % hSize, hSize, torus));
+				}
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * @return the number of hops between two positions of the same row (or
+	 *         column), which is shorter around the ring on a torus
+	 */
+	private static int getHopDistance(int from, int to, int size, boolean torus) {
+		int distance = Math.abs(to - from);
+		if (torus) {
+			distance = Math.min(distance, size - distance);
+		}
+		return distance;
+	}
+
+	/**
+	 * Computes, for each pair of NoC nodes, the energy consumed for sending one
+	 * bit between them. The same energy bit model as in
+	 * {@link #calculateCommunicationEnergy()} is used, so that the energy of a
+	 * mapping is the sum of the communication volumes multiplied with these
+	 * values.
+	 */
+	private void computeNodeEnergyPerBit() {
+		nodeEnergyPerBit = new double[nodes.length][nodes.length];
+		double minEnergy = Double.MAX_VALUE;
+		double maxEnergy = 0;
+		for (int src = 0; src < nodes.length; src++) {
+			for (int dst = 0; dst < nodes.length; dst++) {
+				if (src == dst) {
+					continue;
+				}
+				double energy = nodes[src].getCost() + bufWriteEBit;
+				NodeType currentNode = nodes[src];
+				while (Integer.valueOf(currentNode.getId()) != dst) {
+					int linkId = routingTables[Integer.valueOf(currentNode.getId())][src][dst];
+					LinkType link = links[linkId];
+					String node = "-1";
+					// we work with with bidirectional links
+					if (currentNode.getId().equals(link.getFirstNode())) {
+						node = link.getSecondNode();
+					} else {
+						if (currentNode.getId().equals(link.getSecondNode())) {
+							node = link.getFirstNode();
+						}
+					}
+					currentNode = nodes[Integer.valueOf(node)];
+					energy += currentNode.getCost() + link.getCost()
+							+ bufReadEBit + bufWriteEBit;
+				}
+				nodeEnergyPerBit[src][dst] = energy;
+				minEnergy = Math.min(minEnergy, energy);
+				maxEnergy = Math.max(maxEnergy, energy);
+			}
+		}
+		nodeEnergyPerBitSpread = Math.max(0, maxEnergy - minEnergy);
+	}
+	
+	/**
+	 * Builds the {@link #corePartners}, {@link #corePartnersToCommunication}
+	 * and {@link #corePartnersFromCommunication} arrays. This must be done after
+	 * all the APCGs were parsed.
+	 */
+	private void computeCorePartners() {
+		corePartners = new int[cores.length][];
+		corePartnersToCommunication = new long[cores.length][];
+		corePartnersFromCommunication = new long[cores.length][];
+		corePartnersRemainingVolume = new long[cores.length][];
+		for (int i = 0; i < cores.length; i++) {
+			final long[] toCommunication = cores[i].getToCommunication();
+			final long[] fromCommunication = cores[i].getFromCommunication();
+			List<Integer> partners = new ArrayList<Integer>();
+			for (int j = 0; j < cores.length; j++) {
+				if (toCommunication[j] > 0 || fromCommunication[j] > 0) {
+					partners.add(j);
+				}
+			}
+			Collections.sort(partners, new Comparator<Integer>() {
+
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					long volume1 = toCommunication[o1] + fromCommunication[o1];
+					long volume2 = toCommunication[o2] + fromCommunication[o2];
+					return volume1 > volume2 ? -1 : (volume1 < volume2 ? 1 : 0);
+				}
+			});
+			corePartners[i] = new int[partners.size()];
+			corePartnersToCommunication[i] = new long[partners.size()];
+			corePartnersFromCommunication[i] = new long[partners.size()];
+			for (int j = 0; j < partners.size(); j++) {
+				int partner = partners.get(j);
+				corePartners[i][j] = partner;
+				corePartnersToCommunication[i][j] = toCommunication[partner];
+				corePartnersFromCommunication[i][j] = fromCommunication[partner];
+			}
+			corePartnersRemainingVolume[i] = new long[partners.size() + 1];
+			for (int j = partners.size() - 1; j >= 0; j--) {
+				corePartnersRemainingVolume[i][j] = corePartnersRemainingVolume[i][j + 1]
+						+ corePartnersToCommunication[i][j]
+						+ corePartnersFromCommunication[i][j];
+			}
+		}
+	}
+	
+	/**
+	 * Computes the variation of the communication energy determined by
+	 * swapping the cores placed onto two NoC nodes. Only the communications
+	 * of the two moved cores are evaluated, so this is much cheaper than
+	 * calling {@link #calculateCommunicationEnergy()} twice. Note that the
+	 * bandwidth overload penalty from {@link #calculateTotalCost()} is not
+	 * accounted for.
+	 * <p>
+	 * The mapping itself is not changed.
+	 * </p>
+	 * 
+	 * @param coreToNode
+	 *            the current mapping (coreToNode[core] = the node onto which
+	 *            the core is placed)
+	 * @param core1
+	 *            the core placed onto node1 (-1 if node1 has no core)
+	 * @param node1
+	 *            the first node
+	 * @param core2
+	 *            the core placed onto node2 (-1 if node2 has no core)
+	 * @param node2
+	 *            the second node
+	 * @return the communication energy after the swap minus the communication
+	 *         energy before the swap
+	 */
+	protected double calculateSwapEnergyDelta(int[] coreToNode, int core1,
+			int node1, int core2, int node2) {
+		if (nodeEnergyPerBit == null) {
+			computeNodeEnergyPerBit();
+		}
+		if (corePartners == null) {
+			computeCorePartners();
+		}
+		double delta = 0;
+		if (core1 != -1) {
+			delta += calculateCoreMoveEnergyDelta(coreToNode, core1, node1, node2, core2);
+		}
+		if (core2 != -1) {
+			delta += calculateCoreMoveEnergyDelta(coreToNode, core2, node2, node1, core1);
+		}
+		if (core1 != -1 && core2 != -1) {
+			// the communication between the two swapped cores (the routes are reversed)
+			delta += (cores[core1].getToCommunication()[core2] - cores[core2].getToCommunication()[core1])
+					* (nodeEnergyPerBit[node2][node1] - nodeEnergyPerBit[node1][node2]);
+		}
+		return delta;
+	}
+	
+	/**
+	 * Computes the variation of the communication energy of a core, when it
+	 * is moved from a node to another. The communication with the core that
+	 * makes the opposite move is ignored.
+	 */
+	private double calculateCoreMoveEnergyDelta(int[] coreToNode, int core,
+			int fromNode, int toNode, int ignoredCore) {
+		double delta = 0;
+		int[] partners = corePartners[core];
+		long[] toCommunication = corePartnersToCommunication[core];
+		long[] fromCommunication = corePartnersFromCommunication[core];
+		double[] fromNodeEnergy = nodeEnergyPerBit[fromNode];
+		double[] toNodeEnergy = nodeEnergyPerBit[toNode];
+		for (int i = 0; i < partners.length; i++) {
+			if (partners[i] == ignoredCore) {
+				continue;
+			}
+			int partnerNode = coreToNode[partners[i]];
+			delta += toCommunication[i]
+					* (toNodeEnergy[partnerNode] - fromNodeEnergy[partnerNode])
+					+ fromCommunication[i]
+					* (nodeEnergyPerBit[partnerNode][toNode] - nodeEnergyPerBit[partnerNode][fromNode]);
+		}
+		return delta;
+	}
+	
+	/**
+	 * Computes the same energy variation as
+	 * {@link #calculateSwapEnergyDelta(int[], int, int, int, int)}, but stops
+	 * as soon as the variation is proven to be greater than a limit. The
+	 * communications of the two cores are evaluated in decreasing order of
+	 * their volume. After each communication, the communications not evaluated
+	 * yet can decrease the partial variation with at most their volume
+	 * multiplied with the maximum difference of energy per bit between two
+	 * pairs of nodes. Since the volumes decrease fast, most swaps that
+	 * significantly increase the energy are detected after evaluating just a
+	 * few communications.
+	 * 
+	 * @param coreToNode
+	 *            the current mapping (coreToNode[core] = the node onto which
+	 *            the core is placed)
+	 * @param core1
+	 *            the core placed onto node1 (-1 if node1 has no core)
+	 * @param node1
+	 *            the first node
+	 * @param core2
+	 *            the core placed onto node2 (-1 if node2 has no core)
+	 * @param node2
+	 *            the second node
+	 * @param limit
+	 *            the limit
+	 * @return the exact energy variation, if it is not greater than the
+	 *         limit, or a lower bound of it, which is greater than the limit,
+	 *         otherwise
+	 */
+	protected double calculateBoundedSwapEnergyDelta(int[] coreToNode,
+			int core1, int node1, int core2, int node2, double limit) {
+		if (nodeEnergyPerBit == null) {
+			computeNodeEnergyPerBit();
+		}
+		if (corePartners == null) {
+			computeCorePartners();
+		}
+		double delta = 0;
+		if (core1 != -1 && core2 != -1) {
+			// the communication between the two swapped cores (the routes are reversed)
+			delta += (cores[core1].getToCommunication()[core2] - cores[core2].getToCommunication()[core1])
+					* (nodeEnergyPerBit[node2][node1] - nodeEnergyPerBit[node1][node2]);
+		}
+		int partners1 = core1 == -1 ? 0 : corePartners[core1].length;
+		int partners2 = core2 == -1 ? 0 : corePartners[core2].length;
+		int i1 = 0;
+		int i2 = 0;
+		while (i1 < partners1 || i2 < partners2) {
+			long remainingVolume = (core1 == -1 ? 0 : corePartnersRemainingVolume[core1][i1])
+					+ (core2 == -1 ? 0 : corePartnersRemainingVolume[core2][i2]);
+			double lowerBound = delta - remainingVolume * nodeEnergyPerBitSpread;
+			if (lowerBound > limit) {
+				return lowerBound;
+			}
+			boolean first;
+			if (i1 == partners1) {
+				first = false;
+			} else {
+				if (i2 == partners2) {
+					first = true;
+				} else {
+					first = corePartnersToCommunication[core1][i1] + corePartnersFromCommunication[core1][i1]
+							>= corePartnersToCommunication[core2][i2] + corePartnersFromCommunication[core2][i2];
+				}
+			}
+			if (first) {
+				delta += calculatePartnerEnergyDelta(coreToNode, core1, i1, node1, node2, core2);
+				i1++;
+			} else {
+				delta += calculatePartnerEnergyDelta(coreToNode, core2, i2, node2, node1, core1);
+				i2++;
+			}
+		}
+		return delta;
+	}
+	
+	/**
+	 * Computes the variation of the communication energy between a core and
+	 * one of its partners (corePartners[core][partner]), when the core is
+	 * moved from a node to another. The communication with the core that makes
+	 * the opposite move is ignored.
+	 */
+	private double calculatePartnerEnergyDelta(int[] coreToNode, int core,
+			int partner, int fromNode, int toNode, int ignoredCore) {
+		if (corePartners[core][partner] == ignoredCore) {
+			return 0;
+		}
+		int partnerNode = coreToNode[corePartners[core][partner]];
+		return corePartnersToCommunication[core][partner]
+				* (nodeEnergyPerBit[toNode][partnerNode] - nodeEnergyPerBit[fromNode][partnerNode])
+				+ corePartnersFromCommunication[core][partner]
+				* (nodeEnergyPerBit[partnerNode][toNode] - nodeEnergyPerBit[partnerNode][fromNode]);
+	}
+
+	/**
+	 * Computes the overload of the links when no routing is performed. The
+	 * overloads of all the links are summed (like with routing), so the cost
+	 * doesn't depend on the order of the links.
 	 * 
 	 * @return the overload
 	 */
@@ -768,7 +1199,7 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 		float overloadCost = 0;
 		for (int i = 0; i < links.length; i++) {
 			if (linkBandwidthUsage[i] > links[i].getBandwidth()) {
-				overloadCost = ((float) linkBandwidthUsage[i])
+				overloadCost += ((float) linkBandwidthUsage[i])
 						/ links[i].getBandwidth().floatValue() - 1.0f;
 			}
 		}
@@ -1188,7 +1619,9 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 	 * and its corresponding (Communication Task Graph) CTG. Additionally, it
 	 * informs the algorithm about the application's bandwidth requirement. For
 	 * each two communicating IP cores, the bandwidth requirement is obtained by
-	 * multiplying the CTG period with their communication volume.
+	 * multiplying the CTG period with their communication volume. The APCG and
+	 * the CTG are indexed first (see {@link ApcgIndex}), so the parsing takes
+	 * time proportional to the number of tasks and communications.
 	 * 
 	 * @param apcg
 	 *            the APCG XML
@@ -1199,6 +1632,7 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 		logger.assertLog(apcg != null, "The APCG cannot be null");
 		logger.assertLog(ctg != null, "The CTG cannot be null");
 		
+		ApcgIndex index = new ApcgIndex(apcg, ctg);
 		// we use previousCoreCount to shift the cores from each APCG
 		List<CoreType> coreList = apcg.getCore();
 		for (int i = 0; i < coreList.size(); i++) {
@@ -1208,7 +1642,7 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 				TaskType taskType = taskList.get(j);
 				String taskId = taskType.getId();
 				cores[previousCoreCount + Integer.valueOf(coreType.getUid())].setApcgId(apcg.getId());
-				List<CommunicationType> communications = getCommunications(ctg, taskId);
+				List<CommunicationType> communications = index.getCommunications(taskId);
 				for (int k = 0; k < communications.size(); k++) {
 					CommunicationType communicationType = communications.get(k);
 					String sourceId = communicationType.getSource().getId();
@@ -1218,13 +1652,13 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 					String destinationCoreId = null;
 					
 					if (taskId.equals(sourceId)) {
-						sourceCoreId = getCoreUid(apcg, sourceId);
-						destinationCoreId = getCoreUid(apcg, destinationId);
+						sourceCoreId = index.getCoreUid(sourceId);
+						destinationCoreId = index.getCoreUid(destinationId);
 						cores[previousCoreCount + Integer.valueOf(sourceCoreId)].setCoreId(Integer.valueOf(coreType.getUid()));
 					}
 					if (taskId.equals(destinationId)) {
-						sourceCoreId = getCoreUid(apcg, sourceId);
-						destinationCoreId = getCoreUid(apcg, destinationId);
+						sourceCoreId = index.getCoreUid(sourceId);
+						destinationCoreId = index.getCoreUid(destinationId);
 						cores[previousCoreCount + Integer.valueOf(destinationCoreId)].setCoreId(Integer.valueOf(coreType.getUid()));
 					}
 					
@@ -1265,6 +1699,73 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 		previousCoreCount += coreList.size();
 	}
 
+	/**
+	 * Reads an application which was read by a streaming reader (see
+	 * {@link ApplicationGraphReader}). It has the same effect as
+	 * {@link #parseApcg(ApcgType, CtgType)}, but no JAXB object is needed.
+	 * 
+	 * @param graph
+	 *            the application graph
+	 */
+	public void parseApplicationGraph(ApplicationGraph graph) {
+		logger.assertLog(graph != null, "The application graph cannot be null");
+		
+		// we use previousCoreCount to shift the cores from each APCG
+		int[] uids = new int[graph.getCoreCount()];
+		for (int i = 0; i < uids.length; i++) {
+			uids[i] = Integer.valueOf(graph.getCoreUid(i));
+			if (graph.getCoreTaskCount(i) > 0) {
+				cores[previousCoreCount + uids[i]].setApcgId(graph.getApcgId());
+			}
+		}
+		double ctgPeriod = graph.getPeriod();
+		for (int i = 0; i < graph.getCommunicationCount(); i++) {
+			int sourceCoreId = uids[graph.getSourceCore(i)];
+			int destinationCoreId = uids[graph.getDestinationCore(i)];
+			cores[previousCoreCount + sourceCoreId].setCoreId(sourceCoreId);
+			cores[previousCoreCount + destinationCoreId].setCoreId(destinationCoreId);
+			
+			if (sourceCoreId == destinationCoreId) {
+				logger.warn("Ignoring a communication of the CTG "
+						+ graph.getCtgId() + " because its tasks are on the same core ("
+						+ sourceCoreId + ")");
+			} else {
+				long bandwidthRequirement = 0;
+				if (MathUtils.definitelyGreaterThan((float) ctgPeriod, 0)) {
+					bandwidthRequirement = (long) (graph.getVolume(i) / ctgPeriod);
+				}
+				Core source = cores[previousCoreCount + sourceCoreId];
+				Core destination = cores[previousCoreCount + destinationCoreId];
+				source.getToCommunication()[previousCoreCount + destinationCoreId] = (long) graph.getVolume(i);
+				source.getToBandwidthRequirement()[previousCoreCount + destinationCoreId] = bandwidthRequirement;
+				destination.getFromCommunication()[previousCoreCount + sourceCoreId] = (long) graph.getVolume(i);
+				destination.getFromBandwidthRequirement()[previousCoreCount + sourceCoreId] = bandwidthRequirement;
+			}
+		}
+		previousCoreCount += graph.getCoreCount();
+	}
+
+	/**
+	 * Reads all the CTGs and APCGs of an application, with
+	 * {@link #parseApplicationGraph(ApplicationGraph)} if they were read by the
+	 * streaming reader, or with {@link #parseApcg(ApcgType, CtgType)}
+	 * otherwise.
+	 * 
+	 * @param application
+	 *            the application
+	 */
+	public void parseApplication(ApplicationInput application) {
+		for (int k = 0; k < application.size(); k++) {
+			if (application.isStreamed()) {
+				parseApplicationGraph(application.getApplicationGraphs().get(k));
+			} else {
+				// read the input data using the Unified Framework's XML interface
+				parseApcg(application.getApcgTypes().get(k),
+						application.getCtgTypes().get(k));
+			}
+		}
+	}
+
 	/**
 	 * Prints the current mapping. The method can be called any time: while the
 	 * algorithm runs, or at the end, in which case the final solution is
@@ -1281,6 +1782,189 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 		}
 	}
 	
+	/**
+	 * Enables checkpointing. While mapping, the search state is periodically
+	 * saved into a file from the specified directory, so that a killed (or
+	 * preempted) mapping job can be continued later. The file is named after
+	 * the mapper ID, the benchmark, the CTG, the APCG, the routing and the
+	 * seed. It is deleted after the mapping is finished. Only the mappers that
+	 * override {@link #isCheckpointSupported()} make use of checkpoints.
+	 * 
+	 * @param checkpointDir
+	 *            the directory where the checkpoint file is kept
+	 * @param checkpointInterval
+	 *            the minimum time between two consecutive checkpoints, in
+	 *            seconds
+	 * @param resume
+	 *            whether or not to continue the search from the checkpoint
+	 *            file (if it exists)
+	 * @param seed
+	 *            the seed of the mapping (<tt>null</tt> if no seed is used),
+	 *            so that the mappings of the same application with different
+	 *            seeds have different checkpoints
+	 */
+	public void setCheckpointing(File checkpointDir, long checkpointInterval,
+			boolean resume, Long seed) {
+		logger.assertLog(checkpointInterval >= 0, "The checkpoint interval cannot be negative!");
+		checkpointDir.mkdirs();
+		String routing = "";
+		if (buildRoutingTable) {
+			routing = "_routing";
+		}
+		this.checkpointFile = new File(checkpointDir, getMapperId() + "_"
+				+ benchmarkName + "_ctg-" + ctgId + "_apcg-" + apcgId
+				+ routing + (seed == null ? "" : "_seed-" + seed)
+				+ ".checkpoint");
+		this.checkpointInterval = checkpointInterval * 1000;
+		this.resume = resume;
+		if (!isCheckpointSupported()) {
+			logger.warn("Mapper " + getMapperId() + " doesn't support checkpoints. No checkpoint will be saved.");
+		}
+	}
+	
+	/**
+	 * @return whether or not this mapper can save and restore its search state
+	 *         (see {@link #writeSearchState(DataOutputStream)} and
+	 *         {@link #readSearchState(DataInputStream)})
+	 */
+	protected boolean isCheckpointSupported() {
+		return false;
+	}
+	
+	/**
+	 * Saves the state of the search, except the current mapping (from
+	 * {@link #nodes} and {@link #cores}), which is saved anyway. The state
+	 * must be complete, including the random number generators, such that a
+	 * resumed search continues exactly like the original would have.
+	 * 
+	 * @param out
+	 *            the checkpoint output stream
+	 * @throws IOException
+	 */
+	protected void writeSearchState(DataOutputStream out) throws IOException {
+		;
+	}
+	
+	/**
+	 * Restores the state saved with {@link #writeSearchState(DataOutputStream)}.
+	 * The method is called after {@link #doBeforeMapping()} and after the
+	 * current mapping is restored.
+	 * 
+	 * @param in
+	 *            the checkpoint input stream
+	 * @throws IOException
+	 */
+	protected void readSearchState(DataInputStream in) throws IOException {
+		;
+	}
+	
+	/**
+	 * Saves a checkpoint, if checkpointing is enabled and if at least the
+	 * checkpoint interval passed since the last checkpoint. Mappers must call
+	 * this method only from points of the search where their entire state is
+	 * captured by {@link #writeSearchState(DataOutputStream)} (e.g. between
+	 * two temperature levels or between two generations).
+	 * <p>
+	 * The checkpoint is first written into a temporary file, which then
+	 * replaces the previous checkpoint. This way, a job killed while saving
+	 * doesn't corrupt the existing checkpoint.
+	 * </p>
+	 */
+	protected void checkpoint() {
+		if (checkpointFile == null || !isCheckpointSupported()
+				|| System.currentTimeMillis() - lastCheckpointTime < checkpointInterval) {
+			return;
+		}
+		File tempFile = null;
+		try {
+			tempFile = File.createTempFile(checkpointFile.getName(), ".tmp",
+					checkpointFile.getAbsoluteFile().getParentFile());
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeInt(CHECKPOINT_MAGIC);
+				out.writeInt(CHECKPOINT_VERSION);
+				out.writeUTF(getMapperId());
+				out.writeInt(nodes.length);
+				out.writeInt(cores.length);
+				for (int i = 0; i < nodes.length; i++) {
+					out.writeInt(Integer.parseInt(nodes[i].getCore()));
+				}
+				writeSearchState(out);
+			} finally {
+				out.close();
+			}
+			// renameTo doesn't replace an existing file on all platforms
+			if (!tempFile.renameTo(checkpointFile)) {
+				checkpointFile.delete();
+				if (!tempFile.renameTo(checkpointFile)) {
+					throw new IOException("Could not rename " + tempFile + " to " + checkpointFile);
+				}
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Saved checkpoint " + checkpointFile);
+			}
+		} catch (IOException e) {
+			logger.error("Could not save checkpoint " + checkpointFile, e);
+		} finally {
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		}
+		lastCheckpointTime = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Restores the current mapping and the search state from the checkpoint
+	 * file, if resuming was requested and the checkpoint file exists.
+	 */
+	private void restoreCheckpoint() {
+		resumed = false;
+		if (!resume || checkpointFile == null || !isCheckpointSupported()) {
+			return;
+		}
+		if (!checkpointFile.exists()) {
+			logger.info("No checkpoint found (" + checkpointFile + "). Starting a new search.");
+			return;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(checkpointFile)));
+			try {
+				if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+					throw new IOException("Unknown checkpoint format");
+				}
+				String mapperId = in.readUTF();
+				int nodesNumber = in.readInt();
+				int coresNumber = in.readInt();
+				if (!getMapperId().equals(mapperId) || nodesNumber != nodes.length
+						|| coresNumber != cores.length) {
+					throw new IOException("The checkpoint was saved by mapper "
+							+ mapperId + " for " + coresNumber + " cores and "
+							+ nodesNumber + " nodes");
+				}
+				for (int i = 0; i < cores.length; i++) {
+					cores[i].setNodeId(-1);
+				}
+				for (int i = 0; i < nodes.length; i++) {
+					int core = in.readInt();
+					nodes[i].setCore(Integer.toString(core));
+					if (core != -1) {
+						cores[core].setNodeId(i);
+					}
+				}
+				readSearchState(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			logger.fatal("Could not restore checkpoint " + checkpointFile + "! Exiting...", e);
+			System.exit(-1);
+		}
+		resumed = true;
+		logger.info("Resuming the search from checkpoint " + checkpointFile);
+	}
+	
 	/**
 	 * Allows executing some code, right before the mapping is started. Note
 	 * that mapping is started only if there are at least two cores to map. This
@@ -1299,18 +1983,29 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 	protected abstract int doMapping ();
 
 	/**
-	 * Allows executing some code, right after the mapping is done (and some
-	 * performance statistics are computed) but, before the mapping is saved
-	 * into the database.
+	 * Gives the symmetries of the NoC which keep the cost of any mapping (see
+	 * {@link #calculateTotalCost()}). With XY routing on a 2D mesh, these are
+	 * the reflections of the mesh (they keep the hop counts and they only
+	 * permute the link loads, so the summed overload is kept too). When the
+	 * routing table is built, the routes depend on the legal turn set, so no
+	 * symmetry is known.
+	 * 
+	 * @return the symmetries, or <tt>null</tt> if none is known
 	 */
-	protected abstract void doBeforeSavingMapping ();
-	
-	@Override
-	public String[] map() throws TooFewNocNodesException {
-		if (nodes.length < cores.length) {
-			throw new TooFewNocNodesException(cores.length, nodes.length);
+	protected MeshSymmetry getCostSymmetry() {
+		if (buildRoutingTable || !"mesh2D".equals(topologyName)) {
+			return null;
 		}
+		return MeshSymmetry.reflections(nodes.length / hSize, hSize);
+	}
 
+	/**
+	 * Allocates the structures used for computing the bandwidth usage of the
+	 * links (and the routing table, if it is built). This is done by
+	 * {@link #map()}, before the mapping starts. Mappers which evaluate
+	 * mappings without calling {@link #map()} must call this method first.
+	 */
+	protected void allocateBandwidthUsage() {
 		if (!buildRoutingTable) {
 			linkBandwidthUsage = new int[links.length];
 		} else {
@@ -1326,9 +2021,28 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 				}
 			}
 		}
+	}
+
+	/**
+	 * Allows executing some code, right after the mapping is done (and some
+	 * performance statistics are computed) but, before the mapping is saved
+	 * into the database.
+	 */
+	protected abstract void doBeforeSavingMapping ();
+	
+	@Override
+	public String[] map() throws TooFewNocNodesException {
+		if (nodes.length < cores.length) {
+			throw new TooFewNocNodesException(cores.length, nodes.length);
+		}
+
+		allocateBandwidthUsage();
 		
 		doBeforeMapping();
 		
+		restoreCheckpoint();
+		lastCheckpointTime = System.currentTimeMillis();
+		
 		if (cores.length == 1) {
 			logger.info(getMapperId() + " will not start for mapping a single core. This core simply mapped randomly.");
 		} else {
@@ -1348,6 +2062,10 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 		if (cores.length > 1) {
 			totalNumberOfMappings = doMapping();
 		}
+		if (checkpointFile != null && checkpointFile.exists()) {
+			logger.info("Mapping done. Deleting checkpoint " + checkpointFile);
+			checkpointFile.delete();
+		}
 		
 		long userEnd = TimeUtils.getUserTime();
 		long sysEnd = TimeUtils.getSystemTime();
@@ -1386,9 +2104,7 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 			ro.ulbsibiu.acaps.ctg.xml.mapping.ObjectFactory mappingFactory = new ro.ulbsibiu.acaps.ctg.xml.mapping.ObjectFactory();
 			JAXBElement<MappingType> jaxbElement = mappingFactory.createMapping(mapping);
 			try {
-				JAXBContext jaxbContext = JAXBContext.newInstance(MappingType.class);
-				Marshaller marshaller = jaxbContext.createMarshaller();
-				marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
+				Marshaller marshaller = JaxbUtils.getMarshaller(MappingType.class);
 				marshaller.marshal(jaxbElement, stringWriter[j]);
 			} catch (JAXBException e) {
 				logger.error("JAXB encountered an error", e);
@@ -1414,9 +2130,7 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 	private void saveTopology() {
 		try {
 			// save the nodes
-			JAXBContext jaxbContext = JAXBContext.newInstance(NodeType.class);
-			Marshaller marshaller = jaxbContext.createMarshaller();
-			marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
+			Marshaller marshaller = JaxbUtils.getMarshaller(NodeType.class);
 			ObjectFactory nodeFactory = new ObjectFactory();
 			for (int i = 0; i < nodes.length; i++) {
 				StringWriter stringWriter = new StringWriter();
@@ -1436,9 +2150,7 @@ public abstract class BandwidthConstrainedEnergyAndPerformanceAwareMapper
 				pw.close();
 			}
 			// save the links
-			jaxbContext = JAXBContext.newInstance(LinkType.class);
-			marshaller = jaxbContext.createMarshaller();
-			marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
+			marshaller = JaxbUtils.getMarshaller(LinkType.class);
 			ro.ulbsibiu.acaps.noc.xml.link.ObjectFactory linkFactory = new ro.ulbsibiu.acaps.noc.xml.link.ObjectFactory();
 			for (int i = 0; i < links.length; i++) {
 				StringWriter stringWriter = new StringWriter();
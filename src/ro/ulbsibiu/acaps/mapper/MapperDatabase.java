@@ -51,7 +51,10 @@ public class MapperDatabase {
 	 * a unique ID, valid only until the database connection is closed.
 	 * Typically, this value will identify a run of a mapper algorithm
 	 */
-	private int run;
+	private volatile int run;
+
+	/** the runs started by the threads which map concurrently */
+	private final ThreadLocal<Integer> threadRuns = new ThreadLocal<Integer>();
 
 	private MapperDatabase() {
 		setDefaultDatabaseCredentials();
@@ -182,10 +185,13 @@ public class MapperDatabase {
 
 	/**
 	 * @return a unique ID, valid only until the database connection is closed.
-	 *         Typically, this value will identify a run of a mapper algorithm
+	 *         Typically, this value will identify a run of a mapper algorithm.
+	 *         If the current thread started its own run (see
+	 *         {@link #startThreadRun()}), its run ID is returned.
 	 */
 	public int getRun() {
-		return run;
+		Integer threadRun = threadRuns.get();
+		return threadRun == null ? run : threadRun;
 	}
 
 	/**
@@ -193,6 +199,44 @@ public class MapperDatabase {
 	 * is not already open.</b>
 	 */
 	public void incrementRun() {
+		Integer newRun = insertRun();
+		if (newRun == null) {
+			logger.warn("Calling this method is pointless because no database connection is used!");
+		} else {
+			run = newRun;
+		}
+	}
+
+	/**
+	 * Starts a new run, used only by the current thread (until
+	 * {@link #endThreadRun()} is called). This way, more mappers can run
+	 * concurrently, each with its own run ID. Nothing is done if the database
+	 * is not used.
+	 */
+	public void startThreadRun() {
+		Integer newRun = insertRun();
+		if (newRun != null) {
+			threadRuns.set(newRun);
+		}
+	}
+
+	/**
+	 * Ends the run started by the current thread with
+	 * {@link #startThreadRun()}
+	 */
+	public void endThreadRun() {
+		threadRuns.remove();
+	}
+
+	/**
+	 * Inserts a new run. The runs are inserted one at a time, so that
+	 * concurrent mappers never get the same run ID.
+	 * 
+	 * @return the new run ID, or <tt>null</tt> if no database connection is
+	 *         used
+	 */
+	private synchronized Integer insertRun() {
+		Integer newRun = null;
 		Connection connection = null;
 		Statement statement = null;
 		ResultSet resultSet = null;
@@ -204,20 +248,9 @@ public class MapperDatabase {
 						.executeUpdate("INSERT INTO RUN SELECT MAX(ID) + 1 FROM RUN", Statement.RETURN_GENERATED_KEYS);
 				resultSet = statement.getGeneratedKeys();
 				while (resultSet.next()) {
-					run = resultSet.getInt(1);
-					logger.debug("Run ID is " + run);
-				}
-				if (resultSet != null) {
-					resultSet.close();
-				}
-				if (statement != null) {
-					statement.close();
+					newRun = resultSet.getInt(1);
+					logger.debug("Run ID is " + newRun);
 				}
-				if (connection != null) {
-					connection.close();
-				}
-			} else {
-				logger.warn("Calling this method is pointless because no database connection is used!");
 			}
 		} catch (SQLException e) {
 			logger.error(e);
@@ -238,11 +271,14 @@ public class MapperDatabase {
 				System.exit(0);
 			}
 		}
+		return newRun;
 	}
 
 	/**
 	 * Finds the ID of the specified benchmark. If no ID is found, the benchmark
-	 * is automatically inserted into the database.
+	 * is automatically inserted into the database. The benchmarks are searched
+	 * one at a time, so that concurrent mappers never insert the same benchmark
+	 * twice.
 	 * 
 	 * @param benchmarkName
 	 *            the benchmark name
@@ -250,7 +286,7 @@ public class MapperDatabase {
 	 *            the CTG ID
 	 * @return the benchmark ID
 	 */
-	public Integer getBenchmarkId(String benchmarkName, String ctgId) {
+	public synchronized Integer getBenchmarkId(String benchmarkName, String ctgId) {
 		Integer id = null;
 
 		Connection connection = null;
@@ -341,7 +377,7 @@ public class MapperDatabase {
 				for (int i = 0; i < parameters.length; i++) {
 					statement
 							.addBatch("INSERT INTO PARAMETER (ID, NAME, VALUE) VALUES ("
-									+ run
+									+ getRun()
 									+ ", '"
 									+ parameters[i]
 									+ "', '"
@@ -382,7 +418,7 @@ public class MapperDatabase {
 	 *            the size of the topology
 	 * @return
 	 */
-	public Integer getNocTopologyId(String topologyName, String topologySize) {
+	public synchronized Integer getNocTopologyId(String topologyName, String topologySize) {
 		Integer id = null;
 
 		Connection connection = null;
@@ -470,7 +506,7 @@ public class MapperDatabase {
 				for (int i = 0; i < outputs.length; i++) {
 					statement
 							.addBatch("INSERT INTO OUTPUT (ID, NAME, VALUE) VALUES ("
-									+ run
+									+ getRun()
 									+ ", '"
 									+ outputs[i]
 									+ "', '"
@@ -542,7 +578,7 @@ public class MapperDatabase {
 				statement.setDouble(10, sysTime);
 				statement.setDouble(11, averageHeapMemory);
 				statement.setBytes(12, averageHeapMemoryChart);
-				statement.setInt(13, run);
+				statement.setInt(13, getRun());
 				
 				statement.execute();
 			} else {
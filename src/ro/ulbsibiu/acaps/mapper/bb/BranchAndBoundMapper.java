@@ -1,6 +1,8 @@
 package ro.ulbsibiu.acaps.mapper.bb;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
@@ -25,11 +27,9 @@ import javax.xml.bind.Unmarshaller;
 import org.apache.commons.cli.ParseException;
 import org.apache.log4j.Logger;
 
-import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
 import ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType;
 import ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType;
 import ro.ulbsibiu.acaps.ctg.xml.ctg.CommunicationType;
-import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.ctg.xml.mapping.MapType;
 import ro.ulbsibiu.acaps.ctg.xml.mapping.MappingType;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper;
@@ -38,6 +38,7 @@ import ro.ulbsibiu.acaps.mapper.MapperDatabase;
 import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper.LegalTurnSet;
 import ro.ulbsibiu.acaps.mapper.sa.Core;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
 import ro.ulbsibiu.acaps.mapper.util.HeapUsageMonitor;
 import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
 import ro.ulbsibiu.acaps.mapper.util.MathUtils;
@@ -133,6 +134,9 @@ public class BranchAndBoundMapper extends BandwidthConstrainedEnergyAndPerforman
 	
 	/** the number of ignored (partial) mappings */
 	private int ignoredMappings;
+	
+	/** the (partial) mappings that are still to be expanded */
+	private PriorityQueue queue;
 
 	/**
 	 * Constructor
@@ -422,57 +426,63 @@ public class BranchAndBoundMapper extends BandwidthConstrainedEnergyAndPerforman
 
 	private void branchAndBoundMapping() {
 		init();
-		minCost = MAX_VALUE;
-		minUpperBound = MAX_VALUE;
-		PriorityQueue Q = new PriorityQueue();
-
-		// if (exist_locked_pe()) {
-		// // this ruins the symmetric structure of the system completely.
-		// // although for some corner cases, symmetry still exists, we don't
-		// // consider it here.
-		// for (int i = 0; i < edgeSize; i++) {
-		// for (int j = 0; j < edgeSize; j++) {
-		// MappingNode pNode = new MappingNode(i * edgeSize + j);
-		// if (!pNode.isIllegal()) {
-		// Q.insert(pNode);
-		// }
-		// }
-		// }
-		// } else {
-		// To exploit the symmetric structure of the system, we only need
-		// to map the first processes to one corner of the chip, as shown
-		// in the following code.
-		// And if we need to synthesize the routing table, then there is not
-		// much symmetry property to be exploited
-		if (!buildRoutingTable) {
-			int size = (hSize + 1) / 2;
-			for (int i = 0; i < size; i++) {
-				for (int j = 0; j <= i; j++) {
-					MappingNode pNode = new MappingNode(this, i * hSize + j);
-					if (!pNode.isIllegal()) {
-						Q.insert(pNode);
+		// a resumed search continues with the restored queue
+		if (!resumed) {
+			minCost = MAX_VALUE;
+			minUpperBound = MAX_VALUE;
+			queue = new PriorityQueue();
+
+			// if (exist_locked_pe()) {
+			// // this ruins the symmetric structure of the system completely.
+			// // although for some corner cases, symmetry still exists, we don't
+			// // consider it here.
+			// for (int i = 0; i < edgeSize; i++) {
+			// for (int j = 0; j < edgeSize; j++) {
+			// MappingNode pNode = new MappingNode(i * edgeSize + j);
+			// if (!pNode.isIllegal()) {
+			// queue.insert(pNode);
+			// }
+			// }
+			// }
+			// } else {
+			// To exploit the symmetric structure of the system, we only need
+			// to map the first processes to one corner of the chip, as shown
+			// in the following code.
+			// And if we need to synthesize the routing table, then there is not
+			// much symmetry property to be exploited
+			if (!buildRoutingTable) {
+				int size = (hSize + 1) / 2;
+				for (int i = 0; i < size; i++) {
+					for (int j = 0; j <= i; j++) {
+						MappingNode pNode = new MappingNode(this, i * hSize + j);
+						if (!pNode.isIllegal()) {
+							queue.insert(pNode);
+						}
 					}
 				}
-			}
-		} else {
-			// for west-first or odd-even, we only need to consider the
-			// bottom half
-			int size = (hSize + 1) / 2;
-			for (int i = 0; i < size; i++) {
-				for (int j = 0; j < hSize; j++) {
-					MappingNode pNode = new MappingNode(this, i * hSize + j);
-					if (!pNode.isIllegal()) {
-						Q.insert(pNode);
+			} else {
+				// for west-first or odd-even, we only need to consider the
+				// bottom half
+				int size = (hSize + 1) / 2;
+				for (int i = 0; i < size; i++) {
+					for (int j = 0; j < hSize; j++) {
+						MappingNode pNode = new MappingNode(this, i * hSize + j);
+						if (!pNode.isIllegal()) {
+							queue.insert(pNode);
+						}
 					}
 				}
 			}
-		}
-		// }
+			// }
 
-		bestMapping = null;
-		minUpperBoundHitCount = 0;
+			bestMapping = null;
+			minUpperBoundHitCount = 0;
+		}
 
+		PriorityQueue Q = queue;
 		while (!Q.empty()) {
+			// between two expansions, the whole search state is in the queue
+			checkpoint();
 			MappingNode pNode = Q.next();
 			if (MathUtils.definitelyGreaterThan(pNode.cost, minCost)
 					|| MathUtils.definitelyGreaterThan(pNode.lowerBound, minUpperBound)) {
@@ -748,6 +758,40 @@ public class BranchAndBoundMapper extends BandwidthConstrainedEnergyAndPerforman
 		branchAndBoundMapping();
 		return 1;
 	}
+	
+	@Override
+	protected boolean isCheckpointSupported() {
+		return true;
+	}
+	
+	@Override
+	protected void writeSearchState(DataOutputStream out) throws IOException {
+		out.writeFloat(minCost);
+		out.writeFloat(minUpperBound);
+		out.writeInt(minUpperBoundHitCount);
+		out.writeInt(ignoredMappings);
+		out.writeInt(MappingNode.cnt);
+		out.writeBoolean(bestMapping != null);
+		if (bestMapping != null) {
+			bestMapping.write(out);
+		}
+		queue.write(out);
+	}
+	
+	@Override
+	protected void readSearchState(DataInputStream in) throws IOException {
+		minCost = in.readFloat();
+		minUpperBound = in.readFloat();
+		minUpperBoundHitCount = in.readInt();
+		ignoredMappings = in.readInt();
+		MappingNode.cnt = in.readInt();
+		if (in.readBoolean()) {
+			bestMapping = new MappingNode(this, in);
+		} else {
+			bestMapping = null;
+		}
+		queue = new PriorityQueue(this, in);
+	}
 
 	@Override
 	protected void doBeforeSavingMapping() {
@@ -866,7 +910,7 @@ public class BranchAndBoundMapper extends BandwidthConstrainedEnergyAndPerforman
 			@Override
 			public void useMapper(String benchmarkFilePath,
 					String benchmarkName, String ctgId, String apcgId,
-					List<CtgType> ctgTypes, List<ApcgType> apcgTypes,
+					ApplicationInput application,
 					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
 					Long seed) throws JAXBException, TooFewNocNodesException,
 					FileNotFoundException {
@@ -874,10 +918,7 @@ public class BranchAndBoundMapper extends BandwidthConstrainedEnergyAndPerforman
 						+ benchmarkFilePath + "ctg-" + ctgId + " (APCG " + apcgId + ")");
 				
 				BranchAndBoundMapper bbMapper;
-				int cores = 0;
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					cores += apcgTypes.get(k).getCore().size();
-				}
+				int cores = application.getCoreCount();
 				int hSize = (int) Math.ceil(Math.sqrt(cores));
 				hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
 				String meshSize;
@@ -945,15 +986,14 @@ public class BranchAndBoundMapper extends BandwidthConstrainedEnergyAndPerforman
 	//					"telecom-mocsyn-16tile-selectedpe.traffic.config",
 	//					linkBandwidth);
 				
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					// read the input data using the Unified Framework's XML interface
-					bbMapper.parseApcg(apcgTypes.get(k), ctgTypes.get(k));
-				}
+				// read the input data (unmarshalled or streamed)
+				bbMapper.parseApplication(application);
 				
 	//			// This is just for checking that bbMapper.parseTrafficConfig(...)
 	//			// and parseApcg(...) have the same effect
 //				bbMapper.printCores();
 	
+				configureCheckpointing(bbMapper, seed);
 				String[] mappingXml = bbMapper.map();
 				File dir = new File(benchmarkFilePath + "ctg-" + ctgId);
 				dir.mkdirs();
@@ -1402,6 +1442,150 @@ public class BranchAndBoundMapper extends BandwidthConstrainedEnergyAndPerforman
 			}
 		}
 
+		/**
+		 * Constructor, restoring a mapping node saved with
+		 * {@link #write(DataOutputStream)}
+		 * 
+		 * @param bbMapper
+		 *            the {@link BranchAndBoundMapper} using this mapping node
+		 *            (cannot be <tt>null</tt>)
+		 * @param in
+		 *            the checkpoint input stream
+		 * @throws IOException
+		 */
+		public MappingNode(final BranchAndBoundMapper bbMapper,
+				DataInputStream in) throws IOException {
+			logger.assertLog(bbMapper != null,
+					"The mapping node must be associated to a BranchAndBoundMapper");
+			this.bbMapper = bbMapper;
+			id = in.readInt();
+			illegal = in.readBoolean();
+			stage = in.readInt();
+			mapping = readInts(in);
+			if (in.readBoolean()) {
+				tileOccupancyTable = new boolean[in.readInt()];
+				for (int i = 0; i < tileOccupancyTable.length; i++) {
+					tileOccupancyTable[i] = in.readBoolean();
+				}
+			} else {
+				tileOccupancyTable = null;
+			}
+			cost = in.readFloat();
+			lowerBound = in.readFloat();
+			upperBound = in.readFloat();
+			occupancyTableReady = in.readBoolean();
+			illegalChildMapping = in.readBoolean();
+			linkBandwidthUsage = readInts(in);
+			rSynLinkBandwidthUsage = readInts3D(in);
+			rSynLinkBandwidthUsageTemp = readInts3D(in);
+			if (in.readBoolean()) {
+				routingTable = new int[in.readInt()][][][];
+				for (int i = 0; i < routingTable.length; i++) {
+					routingTable[i] = readInts3D(in);
+				}
+			} else {
+				routingTable = null;
+			}
+			routingBitArray = readInts(in);
+			routingInt = in.readInt();
+			bestRoutingBitArray = readInts(in);
+			firstRoutingPath = in.readBoolean();
+			maxRoutingInt = in.readInt();
+			next = null;
+		}
+
+		/**
+		 * Saves this mapping node (except {@link #next}), for checkpointing
+		 * 
+		 * @param out
+		 *            the checkpoint output stream
+		 * @throws IOException
+		 */
+		void write(DataOutputStream out) throws IOException {
+			out.writeInt(id);
+			out.writeBoolean(illegal);
+			out.writeInt(stage);
+			writeInts(out, mapping);
+			out.writeBoolean(tileOccupancyTable != null);
+			if (tileOccupancyTable != null) {
+				out.writeInt(tileOccupancyTable.length);
+				for (int i = 0; i < tileOccupancyTable.length; i++) {
+					out.writeBoolean(tileOccupancyTable[i]);
+				}
+			}
+			out.writeFloat(cost);
+			out.writeFloat(lowerBound);
+			out.writeFloat(upperBound);
+			out.writeBoolean(occupancyTableReady);
+			out.writeBoolean(illegalChildMapping);
+			writeInts(out, linkBandwidthUsage);
+			writeInts3D(out, rSynLinkBandwidthUsage);
+			writeInts3D(out, rSynLinkBandwidthUsageTemp);
+			out.writeBoolean(routingTable != null);
+			if (routingTable != null) {
+				out.writeInt(routingTable.length);
+				for (int i = 0; i < routingTable.length; i++) {
+					writeInts3D(out, routingTable[i]);
+				}
+			}
+			writeInts(out, routingBitArray);
+			out.writeInt(routingInt);
+			writeInts(out, bestRoutingBitArray);
+			out.writeBoolean(firstRoutingPath);
+			out.writeInt(maxRoutingInt);
+		}
+
+		private static void writeInts(DataOutputStream out, int[] array)
+				throws IOException {
+			out.writeBoolean(array != null);
+			if (array != null) {
+				out.writeInt(array.length);
+				for (int i = 0; i < array.length; i++) {
+					out.writeInt(array[i]);
+				}
+			}
+		}
+
+		private static int[] readInts(DataInputStream in) throws IOException {
+			int[] array = null;
+			if (in.readBoolean()) {
+				array = new int[in.readInt()];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = in.readInt();
+				}
+			}
+			return array;
+		}
+
+		private static void writeInts3D(DataOutputStream out, int[][][] array)
+				throws IOException {
+			out.writeBoolean(array != null);
+			if (array != null) {
+				out.writeInt(array.length);
+				for (int i = 0; i < array.length; i++) {
+					out.writeInt(array[i].length);
+					for (int j = 0; j < array[i].length; j++) {
+						writeInts(out, array[i][j]);
+					}
+				}
+			}
+		}
+
+		private static int[][][] readInts3D(DataInputStream in)
+				throws IOException {
+			int[][][] array = null;
+			if (in.readBoolean()) {
+				array = new int[in.readInt()][][];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = new int[in.readInt()][];
+					for (int j = 0; j < array[i].length; j++) {
+						array[i][j] = readInts(in);
+					}
+				}
+			}
+			return array;
+		}
+
 		/**
 		 * This calculates the lower bound cost of the unmapped process nodes in the
 		 * current mapping
@@ -2651,6 +2835,49 @@ public class BranchAndBoundMapper extends BandwidthConstrainedEnergyAndPerforman
 			head = null;
 		}
 
+		/**
+		 * Constructor, restoring a queue saved with
+		 * {@link #write(DataOutputStream)}
+		 * 
+		 * @param bbMapper
+		 *            the {@link BranchAndBoundMapper} using the mapping nodes
+		 * @param in
+		 *            the checkpoint input stream
+		 * @throws IOException
+		 */
+		public PriorityQueue(final BranchAndBoundMapper bbMapper,
+				DataInputStream in) throws IOException {
+			length = in.readInt();
+			head = null;
+			// the nodes were saved in their order, so they are only linked back
+			MappingNode tail = null;
+			for (int i = 0; i < length; i++) {
+				MappingNode node = new MappingNode(bbMapper, in);
+				if (tail == null) {
+					head = node;
+				} else {
+					tail.next = node;
+				}
+				tail = node;
+			}
+		}
+
+		/**
+		 * Saves the mapping nodes of this queue, in their order
+		 * 
+		 * @param out
+		 *            the checkpoint output stream
+		 * @throws IOException
+		 */
+		public void write(DataOutputStream out) throws IOException {
+			out.writeInt(length);
+			MappingNode node = head;
+			for (int i = 0; i < length; i++) {
+				node.write(out);
+				node = node.next;
+			}
+		}
+
 		/**
 		 * @return the length of this queue
 		 */
@@ -7,15 +7,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
-import java.util.List;
 
 import javax.xml.bind.JAXBException;
 
 import org.apache.commons.cli.ParseException;
 import org.apache.log4j.Logger;
 
-import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
-import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper;
 import ro.ulbsibiu.acaps.mapper.Mapper;
 import ro.ulbsibiu.acaps.mapper.MapperDatabase;
@@ -23,8 +20,10 @@ import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper.LegalTurnSet;
 import ro.ulbsibiu.acaps.mapper.sa.Core;
 import ro.ulbsibiu.acaps.mapper.sa.SimulatedAnnealingMapper;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
 import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
 import ro.ulbsibiu.acaps.mapper.util.MathUtils;
+import ro.ulbsibiu.acaps.mapper.util.MeshSymmetry;
 import ro.ulbsibiu.acaps.noc.xml.node.NodeType;
 
 /**
@@ -53,6 +52,9 @@ public class ExhaustiveSearchMapper extends BandwidthConstrainedEnergyAndPerform
 	
 	private String[] bestMapping = null;
 	
+	/** the symmetries of the NoC which keep the cost (may be null) */
+	private MeshSymmetry symmetry = null;
+	
 	/**
 	 * Default constructor
 	 * <p>
@@ -186,6 +188,67 @@ public class ExhaustiveSearchMapper extends BandwidthConstrainedEnergyAndPerform
 		}
 	}
 	
+	/**
+	 * Initializes the first arrangement which places the first core onto a
+	 * given node (the other cores are placed onto the smallest available
+	 * nodes)
+	 * 
+	 * @param n
+	 *            the number of nodes
+	 * @param a
+	 *            the arrangement
+	 * @param available
+	 *            which nodes are not used by the arrangement
+	 * @param first
+	 *            the node of the first core
+	 */
+	private void init(int n, int[] a, boolean[] available, int first) {
+		for (int i = 0; i < n; i++) {
+			available[i] = true;
+		}
+		a[0] = first;
+		available[first] = false;
+		int k = 0;
+		for (int i = 1; i < a.length; i++) {
+			while (!available[k]) {
+				k++;
+			}
+			a[i] = k;
+			available[k] = false;
+		}
+	}
+	
+	/**
+	 * Skips the arrangements which place the first core onto a node that is
+	 * not the representative of its orbit (under the symmetries of the NoC).
+	 * Every mapping is equivalent to a mapping which places the first core
+	 * onto a representative node, so the skipped mappings need not be
+	 * evaluated.
+	 * 
+	 * @param n
+	 *            the number of nodes
+	 * @param a
+	 *            the arrangement
+	 * @param available
+	 *            which nodes are not used by the arrangement
+	 * @return whether or not an arrangement was found
+	 */
+	private boolean skipSymmetricArrangements(int n, int[] a,
+			boolean[] available) {
+		if (symmetry == null || symmetry.isRepresentative(a[0])) {
+			return true;
+		}
+		int first = a[0] + 1;
+		while (first < n && !symmetry.isRepresentative(first)) {
+			first++;
+		}
+		if (first == n) {
+			return false;
+		}
+		init(n, a, available, first);
+		return true;
+	}
+	
 	private boolean generate(int n, int[] a, boolean[] available) {
 		int i = a.length - 1;
 		boolean found = false;
@@ -230,6 +293,28 @@ public class ExhaustiveSearchMapper extends BandwidthConstrainedEnergyAndPerform
 		return p;
 	}
 	
+	/**
+	 * Computes how many mappings are actually evaluated: the first core is
+	 * placed only onto the representative nodes (when the cost has
+	 * symmetries).
+	 * 
+	 * @return the number of evaluated mappings
+	 * 
+	 * @see #skipSymmetricArrangements(int, int[], boolean[])
+	 */
+	private long countEvaluatedMappings() {
+		if (symmetry == null || cores.length == 0) {
+			return countPossibleMappings(nodes.length);
+		}
+		int representatives = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			if (symmetry.isRepresentative(i)) {
+				representatives++;
+			}
+		}
+		return representatives * countPossibleMappings(nodes.length - 1);
+	}
+	
 	/**
 	 * Generates all possible mappings
 	 * 
@@ -257,6 +342,9 @@ public class ExhaustiveSearchMapper extends BandwidthConstrainedEnergyAndPerform
 				initialized = true;
 			} else {
 				found = generate(nodes.length, a, available);
+				if (found) {
+					found = skipSymmetricArrangements(nodes.length, a, available);
+				}
 			}
 			if (found) {
 				counter++;
@@ -379,11 +467,18 @@ public class ExhaustiveSearchMapper extends BandwidthConstrainedEnergyAndPerform
 		logger.info("This search space contains " + nodes.length + "! / " + "("
 				+ nodes.length + " - " + cores.length + ")! = "
 				+ possibleMappings + " possible mappings!");
+		symmetry = getCostSymmetry();
+		if (symmetry != null) {
+			logger.info("The cost is invariant to " + symmetry.getGroupSize()
+					+ " symmetries of the NoC. Only "
+					+ countEvaluatedMappings()
+					+ " mappings need to be evaluated.");
+		}
 	}
 
 	@Override
 	protected int doMapping() {
-		long possibleMappings = countPossibleMappings(nodes.length);
+		long possibleMappings = countEvaluatedMappings();
 		searchExhaustively(possibleMappings);
 		return 1;
 	}
@@ -469,7 +564,7 @@ public class ExhaustiveSearchMapper extends BandwidthConstrainedEnergyAndPerform
 			@Override
 			public void useMapper(String benchmarkFilePath,
 					String benchmarkName, String ctgId, String apcgId,
-					List<CtgType> ctgTypes, List<ApcgType> apcgTypes,
+					ApplicationInput application,
 					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
 					Long seed) throws JAXBException, TooFewNocNodesException,
 					FileNotFoundException {
@@ -477,10 +572,7 @@ public class ExhaustiveSearchMapper extends BandwidthConstrainedEnergyAndPerform
 						+ benchmarkFilePath + "ctg-" + ctgId + " (APCG " + apcgId + ")");
 				
 				ExhaustiveSearchMapper esMapper;
-				int cores = 0;
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					cores += apcgTypes.get(k).getCore().size();
-				}
+				int cores = application.getCoreCount();
 				int hSize = (int) Math.ceil(Math.sqrt(cores));
 				hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
 				String meshSize;
@@ -542,10 +634,8 @@ public class ExhaustiveSearchMapper extends BandwidthConstrainedEnergyAndPerform
 	//					"telecom-mocsyn-16tile-selectedpe.traffic.config",
 	//					linkBandwidth);
 				
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					// read the input data using the Unified Framework's XML interface
-					esMapper.parseApcg(apcgTypes.get(k), ctgTypes.get(k));
-				}
+				// read the input data (unmarshalled or streamed)
+				esMapper.parseApplication(application);
 				
 	//			// This is just for checking that bbMapper.parseTrafficConfig(...)
 	//			// and parseApcg(...) have the same effect
@@ -0,0 +1,135 @@
+package ro.ulbsibiu.acaps.mapper.ga;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Integer index of the communications between the cores. Each
+ * {@link Communication} is translated only once into a (source core, destination
+ * core, volume) triple, where the cores are the positions from the cores array.
+ * This way, the cost of a mapping is computed in a single pass through the
+ * communications, without comparing any {@link String}.
+ * <p>
+ * The index is built when the cost is computed for the first time, so that
+ * the APCG IDs and the UIDs of the cores can be set after the index is
+ * created.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class CommunicationIndex {
+
+	/** the communications */
+	private List<Communication> communications;
+
+	/** the cores */
+	private Core[] cores;
+
+	/** the number of nodes from the NoC (a square 2D mesh) */
+	private int noOfNodes;
+
+	/** the size of the 2D mesh */
+	private int meshSize;
+
+	/** the source core of each communication (-1 if it is not known) */
+	private int[] sourceCores;
+
+	/** the destination core of each communication (-1 if it is not known) */
+	private int[] destinationCores;
+
+	/** the volume of each communication */
+	private double[] volumes;
+
+	/**
+	 * Constructor
+	 *
+	 * @param communications
+	 *            the communications
+	 * @param cores
+	 *            the cores
+	 * @param noOfNodes
+	 *            the number of nodes from the NoC (a square 2D mesh)
+	 */
+	public CommunicationIndex(List<Communication> communications,
+			Core[] cores, int noOfNodes) {
+		this.communications = communications;
+		this.cores = cores;
+		this.noOfNodes = noOfNodes;
+		this.meshSize = (int) Math.sqrt(noOfNodes);
+	}
+
+	private void buildIndex() {
+		Map<String, Map<String, Integer>> coreIndexes = new HashMap<String, Map<String, Integer>>();
+		for (int i = 0; i < cores.length; i++) {
+			Map<String, Integer> apcgCores = coreIndexes.get(cores[i].getApcgId());
+			if (apcgCores == null) {
+				apcgCores = new HashMap<String, Integer>();
+				coreIndexes.put(cores[i].getApcgId(), apcgCores);
+			}
+			// the first core with a given UID is the one found by a linear search
+			if (!apcgCores.containsKey(cores[i].getCoreUid())) {
+				apcgCores.put(cores[i].getCoreUid(), i);
+			}
+		}
+
+		int[] sources = new int[communications.size()];
+		int[] destinations = new int[communications.size()];
+		double[] volumes = new double[communications.size()];
+		for (int i = 0; i < communications.size(); i++) {
+			Communication communication = communications.get(i);
+			Map<String, Integer> apcgCores = coreIndexes.get(communication.getApcgId());
+			sources[i] = indexOf(apcgCores, communication.getSourceUid());
+			destinations[i] = indexOf(apcgCores, communication.getdestUid());
+			volumes[i] = communication.getVolume();
+		}
+		this.destinationCores = destinations;
+		this.volumes = volumes;
+		this.sourceCores = sources;
+	}
+
+	private int indexOf(Map<String, Integer> apcgCores, String coreUid) {
+		if (apcgCores == null) {
+			return -1;
+		}
+		Integer index = apcgCores.get(coreUid);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Computes the communication cost of a mapping, as the sum of the
+	 * communication volumes multiplied with the Manhattan distances between
+	 * the nodes of the communicating cores.
+	 *
+	 * @param permutation
+	 *            the mapping (the core placed onto each node)
+	 * @return the communication cost
+	 */
+	public double calculateCost(int[] permutation) {
+		if (sourceCores == null) {
+			buildIndex();
+		}
+
+		// the inverse permutation (the node of each core)
+		int[] coreToNode = new int[Math.max(noOfNodes, cores.length)];
+		for (int i = 0; i < coreToNode.length; i++) {
+			coreToNode[i] = -1;
+		}
+		for (int i = noOfNodes - 1; i >= 0; i--) {
+			if (permutation[i] >= 0 && permutation[i] < coreToNode.length) {
+				coreToNode[permutation[i]] = i;
+			}
+		}
+
+		double cost = 0.0;
+		for (int i = 0; i < volumes.length; i++) {
+			int sourceNode = sourceCores[i] == -1 ? -1 : coreToNode[sourceCores[i]];
+			int destinationNode = destinationCores[i] == -1 ? -1 : coreToNode[destinationCores[i]];
+			int distance = Math.abs(sourceNode / meshSize - destinationNode / meshSize)
+					+ Math.abs(sourceNode % meshSize - destinationNode % meshSize);
+			cost += volumes[i] * distance;
+		}
+		return cost;
+	}
+}
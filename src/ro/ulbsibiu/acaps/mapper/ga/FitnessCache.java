@@ -0,0 +1,280 @@
+package ro.ulbsibiu.acaps.mapper.ga;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ro.ulbsibiu.acaps.mapper.util.MeshSymmetry;
+
+/**
+ * Bounded cache with the fitness (one or more objectives) of the already
+ * evaluated individuals. An individual is identified by its genes: they are
+ * hashed into 64 bits, and the genes are compared only when the hashes are
+ * equal (so different individuals never share a fitness).
+ * <p>
+ * If the cache knows a group of NoC symmetries which keep the fitness, the
+ * equivalent individuals share their fitness (each individual is replaced
+ * with its canonical form).
+ * </p>
+ * <p>
+ * The cache is split into segments (selected by the hash), each one with its
+ * own lock and its own LRU eviction, so it may be shared by more threads.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class FitnessCache {
+
+	/** the default maximum number of individuals kept by a cache */
+	public static final int DEFAULT_MAXIMUM_SIZE = 1 << 16;
+
+	private static final int SEGMENTS = 16;
+
+	/**
+	 * The key of an individual
+	 *
+	 * @author cradu
+	 *
+	 */
+	private static class Key {
+
+		private final int[] genes;
+
+		private final long hash;
+
+		public Key(int[] genes, long hash) {
+			this.genes = genes;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (hash ^ (hash >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && Arrays.equals(genes, other.genes);
+		}
+	}
+
+	/**
+	 * A segment of the cache (a {@link LinkedHashMap} kept in access order,
+	 * which removes its least recently used individual when it is full)
+	 *
+	 * @author cradu
+	 *
+	 */
+	private class Segment extends LinkedHashMap<Key, double[]> {
+
+		/** automatically generated serial version UID */
+		private static final long serialVersionUID = -4391750267415093322L;
+
+		private final int maximumSize;
+
+		public Segment(int maximumSize) {
+			super(16, 0.75f, true);
+			this.maximumSize = maximumSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+			if (size() > maximumSize) {
+				evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private final Segment[] segments;
+
+	/** the symmetries which keep the fitness (may be null) */
+	private final MeshSymmetry symmetry;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param maximumSize
+	 *            the maximum number of individuals kept by the cache
+	 */
+	public FitnessCache(int maximumSize) {
+		this(maximumSize, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param maximumSize
+	 *            the maximum number of individuals kept by the cache
+	 * @param symmetry
+	 *            the symmetries of the NoC which keep the fitness, or
+	 *            <tt>null</tt> (the individuals are not canonicalized)
+	 */
+	public FitnessCache(int maximumSize, MeshSymmetry symmetry) {
+		this.symmetry = symmetry;
+		segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(Math.max(1, (maximumSize + SEGMENTS - 1)
+					/ SEGMENTS));
+		}
+	}
+
+	/**
+	 * Hashes the genes of an individual into 64 bits
+	 *
+	 * @param genes
+	 *            the genes
+	 * @return the hash
+	 */
+	public static long hash(int[] genes) {
+		long hash = 0x9E3779B97F4A7C15L ^ genes.length;
+		for (int i = 0; i < genes.length; i++) {
+			hash = (hash ^ (genes[i] + 1)) * 0x9E3779B97F4A7C15L;
+			hash ^= hash >>> 29;
+		}
+		hash = (hash ^ (hash >>> 32)) * 0xD6E8FEB86659FD93L;
+		return hash ^ (hash >>> 32);
+	}
+
+	private Segment segment(long hash) {
+		return segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Looks for the fitness of an individual
+	 *
+	 * @param genes
+	 *            the genes of the individual
+	 * @return the fitness (which must not be modified), or <tt>null</tt> if
+	 *         the individual is not cached
+	 */
+	public double[] get(int[] genes) {
+		if (symmetry != null) {
+			genes = symmetry.canonicalize(genes);
+		}
+		long hash = hash(genes);
+		Segment segment = segment(hash);
+		double[] fitness;
+		synchronized (segment) {
+			fitness = segment.get(new Key(genes, hash));
+		}
+		if (fitness == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return fitness;
+	}
+
+	/**
+	 * Caches the fitness of an individual (the genes and the fitness are
+	 * copied)
+	 *
+	 * @param genes
+	 *            the genes of the individual
+	 * @param fitness
+	 *            the fitness
+	 */
+	public void put(int[] genes, double... fitness) {
+		if (symmetry != null) {
+			genes = symmetry.canonicalize(genes);
+		} else {
+			genes = Arrays.copyOf(genes, genes.length);
+		}
+		long hash = hash(genes);
+		Segment segment = segment(hash);
+		Key key = new Key(genes, hash);
+		synchronized (segment) {
+			segment.put(key, Arrays.copyOf(fitness, fitness.length));
+		}
+	}
+
+	/**
+	 * Copies the cached individuals (e.g., to save them). The cache is locked
+	 * one segment at a time, so the copy is not a consistent snapshot if other
+	 * threads update the cache meanwhile.
+	 *
+	 * @return the (canonical) genes and the fitness of each cached individual
+	 *         (they must not be modified)
+	 */
+	public List<Map.Entry<int[], double[]>> entries() {
+		List<Map.Entry<int[], double[]>> entries = new ArrayList<Map.Entry<int[], double[]>>();
+		for (int i = 0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				for (Map.Entry<Key, double[]> entry : segments[i].entrySet()) {
+					entries.add(new AbstractMap.SimpleImmutableEntry<int[], double[]>(
+							entry.getKey().genes, entry.getValue()));
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * @return how many individuals are cached
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				size += segments[i].size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return how many times a cached fitness was found
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return how many times a fitness was not found
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return how many individuals were evicted from the cache
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the fraction of the lookups which found a cached fitness
+	 */
+	public double getHitRate() {
+		long lookups = hits.get() + misses.get();
+		return lookups == 0 ? 0 : hits.get() / (double) lookups;
+	}
+
+	@Override
+	public String toString() {
+		return "fitness cache: " + getHits() + " hits, " + getMisses()
+				+ " misses (hit rate " + getHitRate() + "), " + getEvictions()
+				+ " evictions, " + size() + " cached individuals";
+	}
+}
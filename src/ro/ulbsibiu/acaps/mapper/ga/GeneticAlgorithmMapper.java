@@ -13,18 +13,15 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
 
 import jmetal.util.PseudoRandom;
 
 import org.apache.log4j.Logger;
 
 import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
-import ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType;
 import ro.ulbsibiu.acaps.ctg.xml.ctg.CommunicationType;
 import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.ctg.xml.mapping.MapType;
@@ -32,6 +29,9 @@ import ro.ulbsibiu.acaps.ctg.xml.mapping.MappingType;
 import ro.ulbsibiu.acaps.mapper.Mapper;
 import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
 import ro.ulbsibiu.acaps.mapper.util.ApcgFilenameFilter;
+import ro.ulbsibiu.acaps.mapper.util.ApcgIndex;
+import ro.ulbsibiu.acaps.mapper.util.JaxbUtils;
+import ro.ulbsibiu.acaps.mapper.util.MeshSymmetry;
 
 /**
  * @author shaikat 
@@ -72,7 +72,7 @@ public class GeneticAlgorithmMapper implements Mapper {
 
 	private static int percentageOfOldPopuToNewPopu = 20;
 
-	private static int tournamentSize;
+	private int tournamentSize;
 
 	private List<Individual> population;
 
@@ -98,6 +98,18 @@ public class GeneticAlgorithmMapper implements Mapper {
 	/** all the communication is stored in the communication array */
 	private ArrayList<Communication> communications;
 
+	/**
+	 * the communications indexed by core numbers (built when the fitness is
+	 * first computed, after the APCGs are parsed)
+	 */
+	private CommunicationIndex communicationIndex;
+
+	/**
+	 * the fitness of the already evaluated individuals (the fitness depends
+	 * only on the hop counts, so it is kept by the dihedral group of the mesh)
+	 */
+	private FitnessCache fitnessCache;
+
 	/** counts how many cores were parsed from the parsed APCGs */
 	private int previousCoreCount = 0;
 
@@ -142,17 +154,14 @@ public class GeneticAlgorithmMapper implements Mapper {
 					.getCommunication();
 
 			/*
-			 * taskAssingToIpcore is a list of task assigned to a IP core here
-			 * it is considered a core is assign a task
+			 * the IP core of a task is the core which has it as its first task
+			 * here it is considered a core is assign a task
 			 */
-			List<TaskType> taskAssignToIpcore;
+			ApcgIndex apcgIndex = new ApcgIndex(this.currentApcg.get(k), null);
 
 			// no of communication in the current Ctg
 			int noOfComm = this.currentCtg.get(k).getCommunication().size();
 
-			// no of IP cores in current apcg
-			int noOfIpCore = this.currentApcg.get(k).getCore().size();
-
 			// source and destination of application task
 			String sourceTask, destTask;
 
@@ -168,26 +177,16 @@ public class GeneticAlgorithmMapper implements Mapper {
 				destTask = communication.get(i).getDestination().getId();
 				volume = communication.get(i).getVolume();
 
-				// source task
-				for (int j = 0; j < noOfIpCore; j++) {
-					taskAssignToIpcore = this.currentApcg.get(k).getCore()
-							.get(j).getTask();
-					if (sourceTask.equals(taskAssignToIpcore.get(0).getId())) {
-						sourceIpCore = this.currentApcg.get(k).getCore().get(j)
-								.getUid();
-						break;
-					}
+				// source task (the previous IP core is kept if none is found)
+				String ipCore = apcgIndex.getFirstTaskCoreUid(sourceTask);
+				if (ipCore != null) {
+					sourceIpCore = ipCore;
 				}
 
 				// destination task
-				for (int j = 0; j < noOfIpCore; j++) {
-					taskAssignToIpcore = this.currentApcg.get(k).getCore()
-							.get(j).getTask();
-					if (destTask.equals(taskAssignToIpcore.get(0).getId())) {
-						destIpCore = this.currentApcg.get(k).getCore().get(j)
-								.getUid();
-						break;
-					}
+				ipCore = apcgIndex.getFirstTaskCoreUid(destTask);
+				if (ipCore != null) {
+					destIpCore = ipCore;
 				}
 				communications.add(new Communication(this.currentApcg.get(k)
 						.getId(), sourceIpCore, destIpCore, volume));
@@ -841,97 +840,21 @@ public class GeneticAlgorithmMapper implements Mapper {
 	 */
 
 	private double fitnessCalculation(int[] indv) {
-
+		if (communicationIndex == null) {
+			communicationIndex = new CommunicationIndex(communications, cores,
+					noOfNodes);
+			int meshSize = (int) Math.sqrt(noOfNodes);
+			fitnessCache = new FitnessCache(FitnessCache.DEFAULT_MAXIMUM_SIZE,
+					MeshSymmetry.dihedral(meshSize, meshSize));
+		}
+		double[] fitness = fitnessCache.get(indv);
+		if (fitness != null) {
+			return fitness[0];
+		}
 		// raw fitness of the individual
-		double fitOfIndv = 0.0;
+		double fitOfIndv = communicationIndex.calculateCost(indv);
 
-		/*
-		 * now I want to find where source and destination IP core is placed in
-		 * NOC node
-		 */
-
-		/*
-		 * posOfSourceIpcoreInNocNode -> position of the source Ip core in the
-		 * Noc node posOfDestIpcoreInNocNode -> position of the destination Ip
-		 * core in the Noc node
-		 * 
-		 * posOfSourceIPCoreinCores -> position of the source IP core in cores
-		 * array posOfDestIPCoreinCores -> position of the destination IP core
-		 * in cores array
-		 */
-
-		for (int i = 0; i < communications.size(); i++) {
-
-			int posOfSourceIpCoreInNocNode = -1, posOfDestIpCoreInNocNode = -1, posOfSourceIPCoreInCores = -1, posOfDestIPCoreInCores = -1;
-
-			/*
-			 * first i want to find which core (in integer number) source and
-			 * destination IPcore is
-			 */
-
-			for (int j = 0; j < cores.length; j++) {
-				if (this.communications.get(i).getApcgId()
-						.equals(cores[j].getApcgId())
-						&& this.communications.get(i).getSourceUid()
-								.equals(cores[j].getCoreUid())) {
-					posOfSourceIPCoreInCores = j;
-					break;
-				}
-			}
-
-			for (int j = 0; j < cores.length; j++) {
-				if (this.communications.get(i).getApcgId()
-						.equals(cores[j].getApcgId())
-						&& this.communications.get(i).getdestUid()
-								.equals(cores[j].getCoreUid())) {
-					posOfDestIPCoreInCores = j;
-					break;
-				}
-			}
-
-			for (int j = 0; j < noOfNodes; j++) {
-				if (posOfSourceIPCoreInCores == indv[j]) {
-					posOfSourceIpCoreInNocNode = j;
-					break;
-				}
-			}
-
-			for (int j = 0; j < noOfNodes; j++) {
-				if (posOfDestIPCoreInCores == indv[j]) {
-					posOfDestIpCoreInNocNode = j;
-					break;
-				}
-			}
-
-			/*
-			 * get the position (x, y) of the source and destination IP core in
-			 * the Noc Matrix (4x4)
-			 */
-			/*
-			 * (xSource, ySource)-> position of source IP core in MxM matrix
-			 * (xDest, yDest)-> position of destination IP core in MxM matrix
-			 */
-
-			int xSource, ySource, xDest, yDest, M;
-			M = (int) Math.sqrt(noOfNodes);
-
-			xSource = posOfSourceIpCoreInNocNode / M;
-			ySource = posOfSourceIpCoreInNocNode % M;
-
-			xDest = posOfDestIpCoreInNocNode / M;
-			yDest = posOfDestIpCoreInNocNode % M;
-
-			/*
-			 * Now find out the manhattan distance between source and
-			 * destination node Formula: |(X1-x2)| + |(y1-y2)|
-			 */
-
-			int distance = Math.abs(xSource - xDest)
-					+ Math.abs(ySource - yDest);
-
-			fitOfIndv += this.communications.get(i).getVolume() * distance;
-
-		}
+		fitnessCache.put(indv, 1 / fitOfIndv);
 		return (1 / fitOfIndv);
 	}
 
@@ -1169,6 +1092,7 @@ public class GeneticAlgorithmMapper implements Mapper {
 			}
 		}
 		logger.info("Total number of evolutions: "+ currentNoOfEvoltions);
+		logger.info(fitnessCache);
 
 		
 	}
@@ -1215,10 +1139,7 @@ public class GeneticAlgorithmMapper implements Mapper {
 		JAXBElement<MappingType> jaxbElement = mappingFactory
 				.createMapping(mapping);
 		try {
-			JAXBContext jaxbContext = JAXBContext
-					.newInstance(MappingType.class);
-			Marshaller marshaller = jaxbContext.createMarshaller();
-			marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
+			Marshaller marshaller = JaxbUtils.getMarshaller(MappingType.class);
 			marshaller.marshal(jaxbElement, stringWriter[0]);
 		} catch (JAXBException e) {
 			logger.error("JAXB encountered an error", e);
@@ -1429,15 +1350,8 @@ public class GeneticAlgorithmMapper implements Mapper {
 				List<File> apcgsList = new ArrayList<File>();
 
 				for (int k = 0; k < ctgIds.length; k++) {
-					JAXBContext jaxbContext = JAXBContext
-							.newInstance("ro.ulbsibiu.acaps.ctg.xml.ctg");
-					Unmarshaller unmarshaller = jaxbContext
-							.createUnmarshaller();
-					@SuppressWarnings("unchecked")
-					CtgType ctgType = ((JAXBElement<CtgType>) unmarshaller
-							.unmarshal(new File(path + "ctg-" + ctgIds[k]
-									+ File.separator + "ctg-" + ctgIds[k]
-									+ ".xml"))).getValue();
+					CtgType ctgType = JaxbUtils.unmarshal("ro.ulbsibiu.acaps.ctg.xml.ctg",
+							new File(path + "ctg-" + ctgIds[k] + File.separator + "ctg-" + ctgIds[k] + ".xml"));
 					ctgTypes.add(ctgType);
 
 					String[] apcgs = null;
@@ -1468,14 +1382,8 @@ public class GeneticAlgorithmMapper implements Mapper {
 							id = specifiedApcgId;
 						}
 						if (apcgFiles[k].getName().endsWith(id + ".xml")) {
-							JAXBContext jaxbContext = JAXBContext
-									.newInstance("ro.ulbsibiu.acaps.ctg.xml.apcg");
-							Unmarshaller unmarshaller = jaxbContext
-									.createUnmarshaller();
-							@SuppressWarnings("unchecked")
-							ApcgType apcg = ((JAXBElement<ApcgType>) unmarshaller
-									.unmarshal(new File(apcgFiles[k]
-											.getAbsolutePath()))).getValue();
+							ApcgType apcg = JaxbUtils.unmarshal("ro.ulbsibiu.acaps.ctg.xml.apcg",
+									new File(apcgFiles[k].getAbsolutePath()));
 							apcgTypes.add(apcg);
 						}
 					}
@@ -0,0 +1,177 @@
+package ro.ulbsibiu.acaps.mapper.ga;
+
+import java.util.Random;
+
+import jmetal.util.PseudoRandom;
+
+/**
+ * Linear time building blocks for the permutation crossover operators. The
+ * genes of a permutation of length n are the numbers 0, 1, ..., n - 1, with
+ * the exception that -1 may appear more times (it codes an empty NoC node).
+ * <p>
+ * The methods work with scratch buffers which are reused between the calls
+ * made by the same thread. Therefore, the arrays returned by
+ * {@link #choosePositions(int, int, Random)} and
+ * {@link #inversePositions(int[])} are valid only until the next call (of the
+ * same method) made by the same thread.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class PermutationCrossoverUtils {
+
+	/**
+	 * The scratch buffers of a thread
+	 *
+	 * @author cradu
+	 *
+	 */
+	private static class Scratch {
+
+		/** the positions, partially shuffled */
+		private int[] positions = new int[0];
+
+		/** the node of each core */
+		private int[] inverse = new int[0];
+
+		/** how many occurrences of each gene (gene + 1) must be skipped */
+		private int[] skipCounts = new int[0];
+
+		/** which positions of the child are already set */
+		private boolean[] fixed = new boolean[0];
+
+		private void ensureCapacity(int length) {
+			if (positions.length < length) {
+				positions = new int[length];
+				inverse = new int[length];
+				skipCounts = new int[length + 1];
+				fixed = new boolean[length];
+			}
+		}
+	}
+
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	private PermutationCrossoverUtils() {
+		;
+	}
+
+	private static Scratch scratch(int length) {
+		Scratch scratch = SCRATCH.get();
+		scratch.ensureCapacity(length);
+		return scratch;
+	}
+
+	/**
+	 * Chooses distinct positions, uniformly at random (through a partial
+	 * Fisher-Yates shuffle)
+	 *
+	 * @param length
+	 *            the positions are chosen from 0, 1, ..., length - 1
+	 * @param count
+	 *            how many positions are chosen
+	 * @param rand
+	 *            the random number generator (if <tt>null</tt>, jMetal's
+	 *            {@link PseudoRandom} is used)
+	 * @return a scratch array, with the chosen positions on its first count
+	 *         elements
+	 */
+	public static int[] choosePositions(int length, int count, Random rand) {
+		int[] positions = scratch(length).positions;
+		for (int i = 0; i < length; i++) {
+			positions[i] = i;
+		}
+		for (int i = 0; i < count; i++) {
+			int j;
+			if (rand == null) {
+				j = PseudoRandom.randInt(i, length - 1);
+			} else {
+				j = i + rand.nextInt(length - i);
+			}
+			int temp = positions[i];
+			positions[i] = positions[j];
+			positions[j] = temp;
+		}
+		return positions;
+	}
+
+	/**
+	 * Computes the inverse of a permutation
+	 *
+	 * @param permutation
+	 *            the permutation
+	 * @return a scratch array with the position of each gene (-1 if the gene
+	 *         is missing; the -1 genes are ignored)
+	 */
+	public static int[] inversePositions(int[] permutation) {
+		int[] inverse = scratch(permutation.length).inverse;
+		for (int i = 0; i < permutation.length; i++) {
+			inverse[i] = -1;
+		}
+		for (int i = 0; i < permutation.length; i++) {
+			if (permutation[i] >= 0) {
+				inverse[permutation[i]] = i;
+			}
+		}
+		return inverse;
+	}
+
+	/**
+	 * Position based crossover: the child takes the genes from the given
+	 * positions of the first parent. The rest of the child's positions are
+	 * filled, from left to right, with the genes of the second parent (in
+	 * their order), skipping one occurrence of each gene taken from the first
+	 * parent.
+	 *
+	 * @param parent1
+	 *            the parent which gives the genes from the fixed positions
+	 * @param parent2
+	 *            the parent which gives the rest of the genes
+	 * @param child
+	 *            the child (it is entirely overwritten)
+	 * @param positions
+	 *            the fixed positions
+	 * @param count
+	 *            how many (of the first) fixed positions are used
+	 */
+	public static void positionBasedCrossover(int[] parent1, int[] parent2,
+			int[] child, int[] positions, int count) {
+		int length = child.length;
+		Scratch scratch = scratch(length);
+		int[] skipCounts = scratch.skipCounts;
+		boolean[] fixed = scratch.fixed;
+
+		for (int i = 0; i < count; i++) {
+			int position = positions[i];
+			fixed[position] = true;
+			child[position] = parent1[position];
+			skipCounts[parent1[position] + 1]++;
+		}
+		int j = 0;
+		for (int i = 0; i < length; i++) {
+			int gene = parent2[i];
+			if (skipCounts[gene + 1] > 0) {
+				skipCounts[gene + 1]--;
+				continue;
+			}
+			while (fixed[j]) {
+				j++;
+			}
+			child[j] = gene;
+			j++;
+		}
+
+		// leave the scratch buffers clean
+		for (int i = 0; i < count; i++) {
+			fixed[positions[i]] = false;
+			skipCounts[parent1[positions[i]] + 1] = 0;
+		}
+	}
+}
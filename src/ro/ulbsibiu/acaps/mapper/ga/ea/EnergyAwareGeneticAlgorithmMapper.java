@@ -1,15 +1,23 @@
 package ro.ulbsibiu.acaps.mapper.ga.ea;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import javax.xml.bind.JAXBException;
 
@@ -19,15 +27,17 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 import org.apache.log4j.Logger;
 
-import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
-import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper;
 import ro.ulbsibiu.acaps.mapper.MapperDatabase;
 import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper.LegalTurnSet;
+import ro.ulbsibiu.acaps.mapper.ga.FitnessCache;
 import ro.ulbsibiu.acaps.mapper.ga.GeneticAlgorithmMapper;
 import ro.ulbsibiu.acaps.mapper.ga.Individual;
+import ro.ulbsibiu.acaps.mapper.ga.PermutationCrossoverUtils;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
 import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
+import ro.ulbsibiu.acaps.mapper.util.MeshSymmetry;
 
 /**
  * The Energy Aware Genetic Algorithm (EAGA) combines
@@ -75,6 +85,9 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 	
 	private int[] currentChild2;
 
+	/** scratch buffer used by the crossover (marks the cores taken from the first parent) */
+	private boolean[] takenCores;
+
 	private int currentGeneration = 1;
 	
 	/** the random number generator */
@@ -82,6 +95,36 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 	
 	/** how many mappings are evaluated */
 	private long evaluations = 0;
+	
+	/** the fitness of the already evaluated individuals */
+	protected FitnessCache fitnessCache;
+	
+	/**
+	 * the symmetries of the NoC which keep the fitness (<tt>null</tt> if none
+	 * is known)
+	 */
+	private MeshSymmetry symmetry;
+	
+	/** the canonical forms of the individuals from the new population */
+	private Set<Long> newPopulationKeys = new HashSet<Long>();
+	
+	/**
+	 * how many times more children are created than inserted into the new
+	 * population (1 by default, i.e. no surrogate screening)
+	 */
+	private int surrogateOversampling = 1;
+	
+	/** scratch buffer with the node of each core (used by the surrogate) */
+	private int[] coreToNode;
+	
+	/** the sum of the surrogate rank correlations of the screened generations */
+	private double surrogateCorrelationSum = 0;
+	
+	/** how many generations were screened with the surrogate */
+	private int screenedGenerations = 0;
+	
+	/** how many children were discarded by the surrogate screening */
+	private long screenedOutChildren = 0;
 
 	/**
 	 * Default constructor
@@ -225,6 +268,9 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 		this.currentChild1 = new int[nodes.length];
 		this.currentChild2 = new int[nodes.length];
 		
+		this.symmetry = getCostSymmetry();
+		this.fitnessCache = new FitnessCache(FitnessCache.DEFAULT_MAXIMUM_SIZE, symmetry);
+		
 		if (seed == null) {
 			rand = new Random();
 		} else {
@@ -236,7 +282,7 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 	 * this function is used for initialization of the population
 	 */
 
-	private void doInitPopulation() {
+	protected void doInitPopulation() {
 		logger.info("Randomly creating initial population");
 
 		/* initialized in this way so that no number will be repeated */
@@ -253,7 +299,7 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 			}
 				
 			// calculate the fitness here
-			double fitnessOfIndividual = fitnessCalculation(tempIndividual);
+			double fitnessOfIndividual = cachedFitnessCalculation(tempIndividual);
 			population.add(new Individual(tempIndividual, fitnessOfIndividual));
 		}
 	}
@@ -271,146 +317,24 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 			logger.debug("Position based crossover using individuals " + pr1 + " and " + pr2);
 		}
 		
-		// two parents that is used for crossover
-		int parent1[] = new int[nodes.length];
-		int parent2[] = new int[nodes.length];
-
-		// two children that is created after crossover
-		int child1[] = new int[nodes.length];
-		int child2[] = new int[nodes.length];
-
-		// copy parents from population
-		parent1 = Arrays.copyOf(population.get(pr1).getGenes(),
-				population.get(pr1).getGenes().length);
-		parent2 = Arrays.copyOf(population.get(pr2).getGenes(),
-				population.get(pr2).getGenes().length);
+		// the parents are only read, so they are not copied
+		int[] parent1 = population.get(pr1).getGenes();
+		int[] parent2 = population.get(pr2).getGenes();
 
 		if (rand.nextInt(100) <= crossoverProbability) {
-			for (int i = 0; i < child1.length; i++) {
-				child1[i] = child2[i] = -1;
-			}
-
 			// 25 percent of the gene is used as positions
 			int numberOfPositions = (int) ((nodes.length / 100.0) * 25);
 
-			int[] setOfPositions = new int[numberOfPositions];
-			for (int i = 0; i < setOfPositions.length; i++) {
-				setOfPositions[i] = -1;
-			}
-
-			for (int i = 0; i < setOfPositions.length; i++) {
-				int number;
-				// be sure that position is not repeated
-				boolean track;
-				do {
-					track = false;
-					number = rand.nextInt(nodes.length);
-					for (int k = 0; k < setOfPositions.length; k++)
-						if (number == setOfPositions[k]) {
-							track = true;
-							break;
-						}
-
-				} while (track);
-				setOfPositions[i] = number;
-			}
-
-			int[] tempParent = new int[nodes.length];
-
-			tempParent = Arrays.copyOf(parent2, parent2.length);
-
-			/*
-			 * copy the content of the specific position(setOfPosition) from
-			 * parent1 to child1. Also set -1 in position of parent2
-			 * (tempParent) where the content of the parent1 of the specific
-			 * position (setOfPosition) is matched
-			 */
-			for (int i = 0; i < setOfPositions.length; i++) {
-				child1[setOfPositions[i]] = parent1[setOfPositions[i]];
-				int j;
-				for (j = 0; j < tempParent.length; j++) {
-					if (tempParent[j] == parent1[setOfPositions[i]]) {
-						tempParent[j] = -1;
-						break;
-					}
-				}
-			}
-			/*
-			 * starting from left to right of parent2(tempParent), copy content
-			 * from parent2 to the rest of the position of child1 by skipping -1
-			 */
-			for (int i = 0; i < tempParent.length; i++) {
-
-				if (tempParent[i] == -1)
-					continue;
-				else {
-					for (int j = 0; j < child1.length; j++) {
-						if (child1[j] != -1)
-							continue;
-						else {
-							child1[j] = tempParent[i];
-							break;
-						}
-					}
-				}
-
-			}
+			currentChild1 = new int[nodes.length];
+			doPositionBasedCrossOver(parent1, parent2, currentChild1,
+					PermutationCrossoverUtils.choosePositions(nodes.length,
+							numberOfPositions, rand), numberOfPositions);
 			// child1 finished
 
-			// child2 start
-
-			for (int i = 0; i < setOfPositions.length; i++)
-				setOfPositions[i] = -1;
-
-			for (int i = 0; i < setOfPositions.length; i++) {
-				int number;
-				// be sure that position is not repeated
-				boolean track;
-				do {
-					track = false;
-					number = rand.nextInt(nodes.length);
-					for (int k = 0; k < setOfPositions.length; k++)
-						if (number == setOfPositions[k]) {
-							track = true;
-							break;
-						}
-
-				} while (track);
-
-				setOfPositions[i] = number;
-
-			}
-
-			tempParent = Arrays.copyOf(parent1, parent1.length);
-
-			for (int i = 0; i < setOfPositions.length; i++) {
-				child2[setOfPositions[i]] = parent2[setOfPositions[i]];
-				int j;
-				for (j = 0; j < tempParent.length; j++) {
-					if (tempParent[j] == parent2[setOfPositions[i]]) {
-						tempParent[j] = -1;
-						break;
-					}
-				}
-
-			}
-
-			for (int i = 0; i < tempParent.length; i++) {
-				if (tempParent[i] == -1)
-					continue;
-				else {
-					for (int j = 0; j < child2.length; j++) {
-						if (child2[j] != -1)
-							continue;
-						else {
-							child2[j] = tempParent[i];
-							break;
-						}
-					}
-				}
-			}
-			currentChild1 = Arrays.copyOf(child1, child1.length);
-			currentChild2 = Arrays.copyOf(child2, child2.length);
+			currentChild2 = new int[nodes.length];
+			doPositionBasedCrossOver(parent2, parent1, currentChild2,
+					PermutationCrossoverUtils.choosePositions(nodes.length,
+							numberOfPositions, rand), numberOfPositions);
 		} else {
 			// the random number is greater that crossoverPr
 			currentChild1 = Arrays.copyOf(parent1, parent1.length);
@@ -424,6 +348,61 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 
 	}
 
+	/**
+	 * Creates a child through position based crossover, in O(n) time. The
+	 * child takes the genes from the given positions of the first parent. The
+	 * rest of the child's positions, and the given positions where the first
+	 * parent has no core (-1), are filled from left to right with the cores of
+	 * the second parent which were not taken from the first parent (in their
+	 * order from the second parent).
+	 * 
+	 * @param parent1
+	 *            the parent which gives the genes from the given positions
+	 * @param parent2
+	 *            the parent which gives the rest of the cores
+	 * @param child
+	 *            the child (it is entirely overwritten)
+	 * @param positions
+	 *            the positions
+	 * @param numberOfPositions
+	 *            how many (of the first) positions are used
+	 */
+	private void doPositionBasedCrossOver(int[] parent1, int[] parent2,
+			int[] child, int[] positions, int numberOfPositions) {
+		if (takenCores == null || takenCores.length < cores.length) {
+			takenCores = new boolean[cores.length];
+		}
+
+		Arrays.fill(child, -1);
+		for (int i = 0; i < numberOfPositions; i++) {
+			int core = parent1[positions[i]];
+			child[positions[i]] = core;
+			if (core != -1) {
+				takenCores[core] = true;
+			}
+		}
+
+		// the first empty position of the child is never behind j
+		int j = 0;
+		for (int i = 0; i < parent2.length; i++) {
+			int core = parent2[i];
+			if (core == -1 || takenCores[core]) {
+				continue;
+			}
+			while (child[j] != -1) {
+				j++;
+			}
+			child[j] = core;
+		}
+
+		for (int i = 0; i < numberOfPositions; i++) {
+			int core = parent1[positions[i]];
+			if (core != -1) {
+				takenCores[core] = false;
+			}
+		}
+	}
+
 //	/**
 //	 * do Cut and crossfill crossover between two parent
 //	 * 
@@ -690,6 +669,24 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 		return fitness;
 	}
 
+	/**
+	 * Computes the fitness of an individual, unless the individual was already
+	 * evaluated (see {@link #fitnessCalculation(int[])}). Note that the mapper
+	 * is not changed when the fitness is taken from the {@link FitnessCache}.
+	 * 
+	 * @param individual
+	 *            the individual
+	 * @return the fitness of the individual
+	 */
+	protected double cachedFitnessCalculation(int[] individual) {
+		double[] fitness = fitnessCache.get(individual);
+		if (fitness == null) {
+			fitness = new double[] { fitnessCalculation(individual) };
+			fitnessCache.put(individual, fitness);
+		}
+		return fitness[0];
+	}
+
 	/**
 	 * used for inserting two current children (currentChild1, currentChild2)
 	 * into mating pool (newPopulation array).
@@ -700,8 +697,184 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 		if (logger.isDebugEnabled()) {
 			logger.debug("Inserting the two children into the new population");
 		}
-		newPopulation.add(new Individual(currentChild1, fitnessCalculation(currentChild1)));
-		newPopulation.add(new Individual(currentChild2, fitnessCalculation(currentChild2)));
+		newPopulation.add(evaluateChild(makeUnique(currentChild1)));
+		newPopulation.add(evaluateChild(makeUnique(currentChild2)));
+	}
+	
+	/**
+	 * Ensures that a child is not equivalent (under the symmetries of the NoC)
+	 * to an individual already inserted into the new population, by randomly
+	 * swapping its genes (a few attempts are made). The duplicates would only
+	 * reduce the diversity of the population.
+	 * 
+	 * @param child
+	 *            the child
+	 * @return the child
+	 */
+	private int[] makeUnique(int[] child) {
+		if (newPopulation.isEmpty()) {
+			newPopulationKeys.clear();
+		}
+		final int ATTEMPTS = 10;
+		long key = populationKey(child);
+		for (int i = 0; i < ATTEMPTS && newPopulationKeys.contains(key); i++) {
+			int gene1 = rand.nextInt(child.length);
+			int gene2 = rand.nextInt(child.length);
+			int temp = child[gene1];
+			child[gene1] = child[gene2];
+			child[gene2] = temp;
+			key = populationKey(child);
+		}
+		newPopulationKeys.add(key);
+		return child;
+	}
+	
+	private long populationKey(int[] individual) {
+		return FitnessCache.hash(symmetry == null ? individual : symmetry.canonicalize(individual));
+	}
+	
+	/**
+	 * Sets how many times more children are created, in each generation, than
+	 * inserted into the new population. The children are ranked with the
+	 * cheap hop count cost (see {@link #calculateHopCountCost(int[])}) and only
+	 * the best of them are fully evaluated. A factor of 1 disables the
+	 * surrogate screening.
+	 * 
+	 * @param surrogateOversampling
+	 *            the oversampling factor (at least 1)
+	 */
+	public void setSurrogateOversampling(int surrogateOversampling) {
+		logger.assertLog(surrogateOversampling >= 1, "The surrogate oversampling factor must be at least 1!");
+		this.surrogateOversampling = surrogateOversampling;
+		logger.info("Surrogate oversampling factor is set to " + surrogateOversampling);
+	}
+	
+	/**
+	 * Computes the surrogate cost of an individual (its hop count cost)
+	 * 
+	 * @param individual
+	 *            the individual
+	 * @return the surrogate cost
+	 */
+	private double surrogateFitnessCalculation(int[] individual) {
+		if (coreToNode == null) {
+			coreToNode = new int[cores.length];
+		}
+		for (int i = 0; i < individual.length; i++) {
+			if (individual[i] != -1) {
+				coreToNode[individual[i]] = i;
+			}
+		}
+		return calculateHopCountCost(coreToNode);
+	}
+	
+	/**
+	 * Ranks the candidate children with the surrogate and inserts the best of
+	 * them into the new population (only these are fully evaluated). The rank
+	 * correlation between the surrogate and the fitness of the inserted
+	 * children is recorded.
+	 * 
+	 * @param candidates
+	 *            the candidate children
+	 * @param count
+	 *            how many children are inserted
+	 */
+	private void insertScreenedChildrenIntoNewPopulation(
+			final List<int[]> candidates, int count) {
+		final double[] surrogateCosts = new double[candidates.size()];
+		List<Integer> order = new ArrayList<Integer>(candidates.size());
+		for (int i = 0; i < candidates.size(); i++) {
+			surrogateCosts[i] = surrogateFitnessCalculation(candidates.get(i));
+			order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(surrogateCosts[o1], surrogateCosts[o2]);
+			}
+		});
+		
+		double[] surrogates = new double[count];
+		double[] fitnesses = new double[count];
+		for (int i = 0; i < count; i++) {
+			Individual child = evaluateChild(makeUnique(candidates.get(order.get(i))));
+			newPopulation.add(child);
+			// the child may be changed by makeUnique(...) or evaluateChild(...)
+			surrogates[i] = surrogateFitnessCalculation(child.getGenes());
+			fitnesses[i] = child.getFitness();
+		}
+		screenedOutChildren += candidates.size() - count;
+		
+		double correlation = calculateRankCorrelation(surrogates, fitnesses);
+		if (!Double.isNaN(correlation)) {
+			surrogateCorrelationSum += correlation;
+			screenedGenerations++;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Surrogate rank correlation for generation " + currentGeneration + " is " + correlation);
+		}
+	}
+	
+	/**
+	 * Computes Spearman's rank correlation coefficient of two samples (the
+	 * tied values receive their average rank)
+	 * 
+	 * @return the rank correlation, or {@link Double#NaN} if a sample is
+	 *         constant
+	 */
+	private static double calculateRankCorrelation(double[] x, double[] y) {
+		double[] rx = calculateRanks(x);
+		double[] ry = calculateRanks(y);
+		double mean = (x.length - 1) / 2.0;
+		double sxy = 0;
+		double sxx = 0;
+		double syy = 0;
+		for (int i = 0; i < x.length; i++) {
+			sxy += (rx[i] - mean) * (ry[i] - mean);
+			sxx += (rx[i] - mean) * (rx[i] - mean);
+			syy += (ry[i] - mean) * (ry[i] - mean);
+		}
+		if (sxx == 0 || syy == 0) {
+			return Double.NaN;
+		}
+		return sxy / Math.sqrt(sxx * syy);
+	}
+	
+	private static double[] calculateRanks(final double[] values) {
+		Integer[] order = new Integer[values.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(values[o1], values[o2]);
+			}
+		});
+		double[] ranks = new double[values.length];
+		int i = 0;
+		while (i < order.length) {
+			int j = i;
+			while (j + 1 < order.length && values[order[j + 1]] == values[order[i]]) {
+				j++;
+			}
+			for (int k = i; k <= j; k++) {
+				ranks[order[k]] = (i + j) / 2.0;
+			}
+			i = j + 1;
+		}
+		return ranks;
+	}
+	
+	/**
+	 * Evaluates a child obtained through crossover and mutation. Subclasses
+	 * may override this method in order to alter the child before it is
+	 * inserted into the new population.
+	 * 
+	 * @param child
+	 *            the child
+	 * @return the {@link Individual} that is inserted into the new population
+	 */
+	protected Individual evaluateChild(int[] child) {
+		return new Individual(child, cachedFitnessCalculation(child));
 	}
 
 	/**
@@ -825,42 +998,210 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 	}
 
 	private int runGaSteps() {
+		if (!resumed) {
+			doInitPopulation();
+		}
+
+		while (currentGeneration < generations) {
+			runGeneration();
+			checkpoint();
+		}
+		return 1;
+	}
+
+	/**
+	 * Creates a new generation: the children obtained through selection,
+	 * crossover and mutation compete with their parents (elitism).
+	 */
+	protected void runGeneration() {
 		// position of parent1 and parent2 in the population
 		int posOfParent1, posOfParent2;
 
-		doInitPopulation();
+		// clear new population
+		newPopulation.clear();
 
-		while (currentGeneration < generations) {
-			// clear new population
-			newPopulation.clear();
-
-			for (int i = 0; i < populationSize / 2; i++) {
-				posOfParent1 = tournamentSelection(tournamentSize);
-				posOfParent2 = tournamentSelection(tournamentSize);
+		// with surrogate screening, the children are first only collected
+		List<int[]> candidates = null;
+		if (surrogateOversampling > 1) {
+			candidates = new ArrayList<int[]>(2 * (populationSize / 2) * surrogateOversampling);
+		}
+		
+		for (int i = 0; i < (populationSize / 2) * surrogateOversampling; i++) {
+			posOfParent1 = tournamentSelection(tournamentSize);
+			posOfParent2 = tournamentSelection(tournamentSize);
 
-				doPositionBasedCrossOver(posOfParent1, posOfParent2);
-				
-				doMutation(currentChild1);
-				doMutation(currentChild2);
-				// doMutationv2();
+			doPositionBasedCrossOver(posOfParent1, posOfParent2);
+			
+			doMutation(currentChild1);
+			doMutation(currentChild2);
+			// doMutationv2();
 
+			if (candidates == null) {
 				insertCurrentChildrenIntoNewPopulation();
+			} else {
+				candidates.add(currentChild1);
+				candidates.add(currentChild2);
 			}
+		}
+		
+		if (candidates != null) {
+			insertScreenedChildrenIntoNewPopulation(candidates, 2 * (populationSize / 2));
+		}
 
-			createPopulationElitism();
+		createPopulationElitism();
 
-			if (currentGeneration > 0 && currentGeneration % 10 == 0) {
-				logger.info("Finished " + currentGeneration + " generations");
+		if (currentGeneration > 0 && currentGeneration % 10 == 0) {
+			logger.info("Finished " + currentGeneration + " generations");
+		}
+		currentGeneration++;
+	}
+
+	/**
+	 * Prepares this mapper for evaluating mappings outside {@link #map()}
+	 * (e.g., when it evolves an island of an
+	 * {@link IslandGeneticAlgorithmMapper})
+	 */
+	protected void prepareEvaluation() {
+		allocateBandwidthUsage();
+	}
+
+	/**
+	 * @return the current generation number
+	 */
+	protected int getCurrentGeneration() {
+		return currentGeneration;
+	}
+
+	/**
+	 * @return how many mappings were evaluated
+	 */
+	protected long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * @return a copy of the best individual from the population
+	 */
+	protected Individual getBestIndividual() {
+		return getBestIndividuals(1).get(0);
+	}
+
+	/**
+	 * @param count
+	 *            how many individuals are wanted
+	 * @return copies of the best individuals from the population (the best
+	 *         one first)
+	 */
+	protected List<Individual> getBestIndividuals(int count) {
+		List<Individual> sorted = new ArrayList<Individual>(population);
+		Collections.sort(sorted, new Comparator<Individual>() {
+			public int compare(Individual o1, Individual o2) {
+				return Double.compare(o1.getFitness(), o2.getFitness());
 			}
-			currentGeneration++;
+		});
+		List<Individual> best = new ArrayList<Individual>(count);
+		for (int i = 0; i < Math.min(count, sorted.size()); i++) {
+			best.add(new Individual(sorted.get(i).getGenes().clone(), sorted.get(i).getFitness()));
 		}
-		return 1;
+		return best;
+	}
+
+	/**
+	 * @param count
+	 *            how many individuals are wanted
+	 * @return copies of randomly chosen (distinct) individuals from the
+	 *         population
+	 */
+	protected List<Individual> getRandomIndividuals(int count) {
+		List<Individual> shuffled = new ArrayList<Individual>(population);
+		Collections.shuffle(shuffled, rand);
+		List<Individual> chosen = new ArrayList<Individual>(count);
+		for (int i = 0; i < Math.min(count, shuffled.size()); i++) {
+			chosen.add(new Individual(shuffled.get(i).getGenes().clone(), shuffled.get(i).getFitness()));
+		}
+		return chosen;
+	}
+
+	/**
+	 * Each of the given individuals replaces the worst individual from the
+	 * population, if it is better than it.
+	 * 
+	 * @param immigrants
+	 *            the individuals (they are not copied)
+	 * @return how many individuals were replaced
+	 */
+	protected int replaceWorstIndividuals(List<Individual> immigrants) {
+		int replaced = 0;
+		for (int i = 0; i < immigrants.size(); i++) {
+			int worst = 0;
+			for (int j = 1; j < population.size(); j++) {
+				if (population.get(j).getFitness() > population.get(worst).getFitness()) {
+					worst = j;
+				}
+			}
+			if (immigrants.get(i).getFitness() < population.get(worst).getFitness()) {
+				population.set(worst, immigrants.get(i));
+				replaced++;
+			}
+		}
+		return replaced;
 	}
 
 	@Override
 	protected void doBeforeMapping() {
 		;
 	}
+	
+	@Override
+	protected boolean isCheckpointSupported() {
+		return true;
+	}
+	
+	@Override
+	protected void writeSearchState(DataOutputStream out) throws IOException {
+		out.writeInt(currentGeneration);
+		out.writeLong(evaluations);
+		out.writeInt(population.size());
+		for (int i = 0; i < population.size(); i++) {
+			int[] genes = population.get(i).getGenes();
+			for (int j = 0; j < genes.length; j++) {
+				out.writeInt(genes[j]);
+			}
+			out.writeDouble(population.get(i).getFitness());
+		}
+		// java.util.Random is serializable (its seed included)
+		ByteArrayOutputStream randBytes = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(randBytes);
+		oos.writeObject(rand);
+		oos.close();
+		out.writeInt(randBytes.size());
+		randBytes.writeTo(out);
+	}
+	
+	@Override
+	protected void readSearchState(DataInputStream in) throws IOException {
+		currentGeneration = in.readInt();
+		evaluations = in.readLong();
+		int size = in.readInt();
+		population.clear();
+		for (int i = 0; i < size; i++) {
+			int[] genes = new int[nodes.length];
+			for (int j = 0; j < genes.length; j++) {
+				genes[j] = in.readInt();
+			}
+			population.add(new Individual(genes, in.readDouble()));
+		}
+		byte[] randBytes = new byte[in.readInt()];
+		in.readFully(randBytes);
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(randBytes));
+		try {
+			rand = (Random) ois.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e.getMessage());
+		} finally {
+			ois.close();
+		}
+	}
 
 	@Override
 	protected int doMapping() {
@@ -871,6 +1212,13 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 	@Override
 	protected void doBeforeSavingMapping() {
 		logger.info("A number of " + evaluations + " mappings were evaluated");
+		logger.info(fitnessCache);
+		if (surrogateOversampling > 1) {
+			logger.info("The surrogate discarded " + screenedOutChildren
+					+ " children, with an average rank correlation of "
+					+ (screenedGenerations == 0 ? Double.NaN : surrogateCorrelationSum / screenedGenerations)
+					+ " (over " + screenedGenerations + " generations)");
+		}
 		
 		// return the best mapping found
 		for (int i = 0; i < nodes.length; i++) {
@@ -910,7 +1258,7 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 			@Override
 			public void useMapper(String benchmarkFilePath,
 					String benchmarkName, String ctgId, String apcgId,
-					List<CtgType> ctgTypes, List<ApcgType> apcgTypes,
+					ApplicationInput application,
 					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
 					Long seed) throws JAXBException, TooFewNocNodesException,
 					FileNotFoundException {
@@ -918,10 +1266,7 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 						+ benchmarkFilePath + "ctg-" + ctgId + " (APCG " + apcgId + ")");
 				
 				EnergyAwareGeneticAlgorithmMapper eagaMapper;
-				int cores = 0;
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					cores += apcgTypes.get(k).getCore().size();
-				}
+				int cores = application.getCoreCount();
 				int hSize = (int) Math.ceil(Math.sqrt(cores));
 				hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
 				String meshSize;
@@ -950,6 +1295,7 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 				Integer generations = null;
 				Integer crossoverProbability = null;
 				Integer mutationProbability = null;
+				Integer surrogateOversampling = null;
 				try {
 					CommandLine cmd = parser.parse(getCliOptions(), cliArgs);
 					if (cmd.hasOption("p")) {
@@ -974,6 +1320,9 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 					if (mutationProbability == null) {
 						mutationProbability = defaultMutationProbability;
 					}
+					if (cmd.hasOption("o")) {
+						surrogateOversampling = Integer.valueOf(cmd.getOptionValue("o"));
+					}
 				} catch (NumberFormatException e) {
 					logger.fatal(e);
 					System.exit(0);
@@ -994,6 +1343,7 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 						"generations",
 						"crossoverProbability",
 						"mutationProbability",
+						"surrogateOversampling",
 						};
 				String values[] = new String[] {
 						Double.toString(linkBandwidth),
@@ -1006,9 +1356,10 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 						generations == null ? null : Integer.toString(generations),
 						crossoverProbability == null ? null : Integer.toString(crossoverProbability),
 						mutationProbability == null ? null : Integer.toString(mutationProbability),
+						surrogateOversampling == null ? null : Integer.toString(surrogateOversampling),
 						};
 				if (doRouting) {
-					values[values.length - 6] = "true" + "-" + lts.toString();
+					values[values.length - 7] = "true" + "-" + lts.toString();
 					MapperDatabase.getInstance().setParameters(parameters, values);
 					
 					// with routing
@@ -1020,7 +1371,7 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 							seed, populationSize, generations,
 							crossoverProbability, mutationProbability);
 				} else {
-					values[values.length - 6] = "false";
+					values[values.length - 7] = "false";
 					MapperDatabase.getInstance().setParameters(parameters, values);
 					
 					// without routing
@@ -1037,15 +1388,17 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 	//					"telecom-mocsyn-16tile-selectedpe.traffic.config",
 	//					linkBandwidth);
 				
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					// read the input data using the Unified Framework's XML interface
-					eagaMapper.parseApcg(apcgTypes.get(k), ctgTypes.get(k));
-				}
+				// read the input data (unmarshalled or streamed)
+				eagaMapper.parseApplication(application);
 				
 	//			// This is just for checking that bbMapper.parseTrafficConfig(...)
 	//			// and parseApcg(...) have the same effect
 	//			eagaMapper.printCores();
 	
+				if (surrogateOversampling != null) {
+					eagaMapper.setSurrogateOversampling(surrogateOversampling);
+				}
+				configureCheckpointing(eagaMapper, seed);
 				String[] mappingXml = eagaMapper.map();
 				File dir = new File(benchmarkFilePath + "ctg-" + ctgId);
 				dir.mkdirs();
@@ -1072,6 +1425,7 @@ public class EnergyAwareGeneticAlgorithmMapper extends BandwidthConstrainedEnerg
 		mapperInputProcessor.getCliOptions().addOption("g", "generations", true, "the number of generations");
 		mapperInputProcessor.getCliOptions().addOption("x", "crossover-probability", true, "crossover probability (%)");
 		mapperInputProcessor.getCliOptions().addOption("m", "mutation-probability", true, "mutation probability (%)");
+		mapperInputProcessor.getCliOptions().addOption("o", "surrogate-oversampling", true, "how many times more children are created and screened with the hop count cost than are fully evaluated (default 1, i.e. no screening)");
 		
 		mapperInputProcessor.processInput(args);
 	}
@@ -4,7 +4,9 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -39,6 +41,7 @@ import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.mapper.MapperDatabase;
 import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper.LegalTurnSet;
+import ro.ulbsibiu.acaps.mapper.ga.FitnessCache;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.AlgorithmTracker;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.JMetalEvolutionaryAlgorithmMapper;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.JMetalEvolutionaryAlgorithmMapper.JMetalAlgorithm;
@@ -52,9 +55,12 @@ import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.singleObjective.evoluti
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.singleObjective.evolutionStrategy.NonElitistES;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.singleObjective.geneticAlgorithm.ElitistGA;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.singleObjective.geneticAlgorithm.acGA;
+import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.singleObjective.geneticAlgorithm.asyncSsGA;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.singleObjective.geneticAlgorithm.gGA;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.singleObjective.geneticAlgorithm.scGA;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.singleObjective.geneticAlgorithm.ssGA;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationGraph;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
 import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
 
 /**
@@ -132,6 +138,15 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 	
 	/** for every core, the (from and to) communication probability density function */
 	protected double[][] coresCommunicationPDF;
+	
+	/** how many evaluations the asynchronous algorithms keep in flight */
+	private int workers = 1;
+	
+	/**
+	 * the parsed application (needed for building the workers' evaluators),
+	 * as one input for each parsed CTG, in the parsing order
+	 */
+	private List<ApplicationInput> parsedInputs = new ArrayList<ApplicationInput>();
 
 	/**
 	 * Default constructor
@@ -373,6 +388,63 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 		PseudoRandom.setSeed(seed);
 	}
 
+	/**
+	 * Sets how many evaluations the asynchronous algorithms (i.e.,
+	 * {@link JMetalAlgorithm#ASSGA}) keep in flight. Each worker thread
+	 * evaluates the mappings with its own {@link EnergyAwareGeneticAlgorithmMapper}.
+	 * 
+	 * @param workers
+	 *            the number of worker threads (1 by default)
+	 */
+	public void setWorkers(int workers) {
+		logger.assertLog(workers > 0, "The number of workers must be positive!");
+		this.workers = workers;
+	}
+	
+	@Override
+	public void parseApcg(ApcgType apcg, CtgType ctg) {
+		super.parseApcg(apcg, ctg);
+		parsedInputs.add(new ApplicationInput(Collections.singletonList(ctg),
+				Collections.singletonList(apcg)));
+	}
+	
+	@Override
+	public void parseApplicationGraph(ApplicationGraph graph) {
+		super.parseApplicationGraph(graph);
+		parsedInputs.add(new ApplicationInput(Collections.singletonList(graph)));
+	}
+	
+	/**
+	 * Creates the {@link Problem}s used by the worker threads of the
+	 * asynchronous algorithms. Each one evaluates the mappings with its own
+	 * {@link EnergyAwareGeneticAlgorithmMapper} (the evaluation changes the
+	 * state of the mapper).
+	 */
+	private Problem[] createWorkerProblems() throws ClassNotFoundException {
+		Problem[] workerProblems = new Problem[workers];
+		for (int i = 0; i < workers; i++) {
+			EnergyAwareGeneticAlgorithmMapper evaluator = null;
+			try {
+				evaluator = new EnergyAwareGeneticAlgorithmMapper(
+						benchmarkName, ctgId, apcgId, topologyName,
+						topologySize, topologyDir, cores.length,
+						linkBandwidth, buildRoutingTable, legalTurnSet,
+						bufReadEBit, bufWriteEBit, switchEBit, linkEBit, null,
+						populationSize, generations, crossoverProbability,
+						mutationProbability);
+			} catch (JAXBException e) {
+				logger.fatal("Cannot create the evaluator of worker " + i + "! Exiting...", e);
+				System.exit(-1);
+			}
+			for (int k = 0; k < parsedInputs.size(); k++) {
+				evaluator.parseApplication(parsedInputs.get(k));
+			}
+			evaluator.prepareEvaluation();
+			workerProblems[i] = new EnergyAwareMappingProblem(evaluator, nodes.length, cores.length, rand, fitnessCache);
+		}
+		return workerProblems;
+	}
+	
 	@Override
 	public String getMapperId() {
 		String sufix = "";
@@ -495,7 +567,7 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 		}
 		
 		try {
-			problem = new EnergyAwareMappingProblem(this, nodes.length, cores.length, rand);
+			problem = new EnergyAwareMappingProblem(this, nodes.length, cores.length, rand, fitnessCache);
 
 			switch (jMetalAlgorithm) {
 			case EGA:
@@ -504,6 +576,10 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 			case SSGA:
 				algorithm = new ssGA(problem);
 				break;
+			case ASSGA:
+				logger.info("Keeping " + workers + " evaluations in flight");
+				algorithm = new asyncSsGA(problem, createWorkerProblems());
+				break;
 			case GGA:
 				algorithm = new gGA(problem);
 				break;
@@ -550,6 +626,17 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 		}
 	}
 
+	/**
+	 * The search runs inside {@link Algorithm#execute()}, so there is no point
+	 * where the jMetal population and the {@link PseudoRandom} generator could
+	 * be saved. Consequently, unlike {@link EnergyAwareGeneticAlgorithmMapper},
+	 * this mapper doesn't support checkpoints.
+	 */
+	@Override
+	protected boolean isCheckpointSupported() {
+		return false;
+	}
+
 	@Override
 	protected int doMapping() {
 		try {
@@ -557,6 +644,7 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 			Solution S = new Solution(population.get(0));
 			solution = ((Permutation) S.getDecisionVariables()[0]).vector_;
 			logger.info("Best mapping has cost " + population.get(0).getObjective(0));
+			logger.info(fitnessCache);
 		} catch (ClassNotFoundException e) {
 			logger.error(e);
 		} catch (JMException e) {
@@ -639,7 +727,7 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 			@Override
 			public void useMapper(String benchmarkFilePath,
 					String benchmarkName, String ctgId, String apcgId,
-					List<CtgType> ctgTypes, List<ApcgType> apcgTypes,
+					ApplicationInput application,
 					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
 					Long seed) throws JAXBException, TooFewNocNodesException,
 					FileNotFoundException {
@@ -656,10 +744,7 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 							+ apcgId + ")");
 					
 					EnergyAwareJMetalEvolutionaryAlgorithmMapper eaJMetalMapper;
-					int cores = 0;
-					for (int k = 0; k < apcgTypes.size(); k++) {
-						cores += apcgTypes.get(k).getCore().size();
-					}
+					int cores = application.getCoreCount();
 					int hSize = (int) Math.ceil(Math.sqrt(cores));
 					hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
 					String meshSize;
@@ -734,6 +819,8 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 					if (mutationProbability == null) {
 						mutationProbability = defaultMutationProbability;
 					}
+					int workers = Integer.valueOf(cmd.getOptionValue("w",
+							Integer.toString(Runtime.getRuntime().availableProcessors())));
 					
 					String[] parameters = new String[] {
 							"linkBandwidth",
@@ -748,6 +835,7 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 							"crossoverProbability",
 							"mutationClass",
 							"mutationProbability",
+							"workers",
 							};
 					String values[] = new String[] {
 							Double.toString(linkBandwidth),
@@ -761,9 +849,10 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 							crossoverProbability == null ? null : Integer.toString(crossoverProbability),
 							mutationClass == null ? null : mutationClass.getName(),
 							mutationProbability == null ? null : Integer.toString(mutationProbability),
+							JMetalAlgorithm.ASSGA.equals(jMetalAlgorithm) ? Integer.toString(workers) : null,
 							};
 					if (doRouting) {
-						values[values.length - 7] = "true" + "-" + lts.toString();
+						values[values.length - 8] = "true" + "-" + lts.toString();
 						MapperDatabase.getInstance().setParameters(parameters, values);
 						
 						// with routing
@@ -777,7 +866,7 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 								crossoverProbability, mutationClass,
 								mutationProbability);
 					} else {
-						values[values.length - 7] = "false";
+						values[values.length - 8] = "false";
 						MapperDatabase.getInstance().setParameters(parameters, values);
 						
 						// without routing
@@ -795,15 +884,16 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 //					"telecom-mocsyn-16tile-selectedpe.traffic.config",
 //					linkBandwidth);
 					
-					for (int k = 0; k < apcgTypes.size(); k++) {
-						// read the input data using the Unified Framework's XML interface
-						eaJMetalMapper.parseApcg(apcgTypes.get(k), ctgTypes.get(k));
-					}
+					eaJMetalMapper.setWorkers(workers);
+					
+					// read the input data (unmarshalled or streamed)
+					eaJMetalMapper.parseApplication(application);
 					
 //			// This is just for checking that bbMapper.parseTrafficConfig(...)
 //			// and parseApcg(...) have the same effect
 //			eagaMapper.printCores();
 
+					configureCheckpointing(eaJMetalMapper, seed);
 					String[] mappingXml = eaJMetalMapper.map();
 					File dir = new File(benchmarkFilePath + "ctg-" + ctgId);
 					dir.mkdirs();
@@ -845,6 +935,8 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 		mapperInputProcessor.getCliOptions().addOption("x", "crossover-probability", true, "crossover probability (%)");
 		mapperInputProcessor.getCliOptions().addOption("mc", "mutation-class", true, "mutation Java class");
 		mapperInputProcessor.getCliOptions().addOption("m", "mutation-probability", true, "mutation probability (%)");
+		mapperInputProcessor.getCliOptions().addOption("w", "workers", true, "how many evaluations " + JMetalAlgorithm.ASSGA
+				+ " keeps in flight (default: the number of available processors)");
 		
 		mapperInputProcessor.processInput(args);
 	}
@@ -854,7 +946,7 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 		/** auto generated serial version UID */
 		private static final long serialVersionUID = -1128225954989831104L;
 		
-		private EnergyAwareJMetalEvolutionaryAlgorithmMapper mapper;
+		private EnergyAwareGeneticAlgorithmMapper mapper;
 		
 		private int nodes;
 		
@@ -862,13 +954,18 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 		
 		private Random rand;
 		
+		/** the fitness of the already evaluated mappings (it may be shared by more problems) */
+		private FitnessCache fitnessCache;
+		
 		public EnergyAwareMappingProblem(
-				EnergyAwareJMetalEvolutionaryAlgorithmMapper mapper, int nodes, int cores, Random rand)
+				EnergyAwareGeneticAlgorithmMapper mapper, int nodes, int cores, Random rand,
+				FitnessCache fitnessCache)
 				throws ClassNotFoundException {
 			this.mapper = mapper;
 			this.nodes = nodes;
 			this.cores = cores;
 			this.rand = rand;
+			this.fitnessCache = fitnessCache;
 			numberOfVariables_ = 1;
 			numberOfObjectives_ = 1;
 			numberOfConstraints_ = 0;
@@ -918,8 +1015,12 @@ public class EnergyAwareJMetalEvolutionaryAlgorithmMapper extends EnergyAwareGen
 		
 		public void evaluate(Solution solution) throws JMException {
 		    int permutation[] = ((Permutation)solution.getDecisionVariables()[0]).vector_;
-		    double fitness = mapper.fitnessCalculation(permutation);
-			solution.setObjective(0, fitness);
+		    double[] fitness = fitnessCache.get(permutation);
+		    if (fitness == null) {
+		    	fitness = new double[] { mapper.fitnessCalculation(permutation) };
+		    	fitnessCache.put(permutation, fitness);
+		    }
+			solution.setObjective(0, fitness[0]);
 		}
 		
 	}
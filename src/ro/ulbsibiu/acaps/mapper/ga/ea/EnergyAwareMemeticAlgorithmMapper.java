@@ -0,0 +1,530 @@
+package ro.ulbsibiu.acaps.mapper.ga.ea;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.mapper.MapperDatabase;
+import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
+import ro.ulbsibiu.acaps.mapper.ga.Individual;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
+import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
+
+/**
+ * The Energy Aware Memetic Algorithm (EAMA) is an
+ * {@link EnergyAwareGeneticAlgorithmMapper} which improves each offspring with
+ * a bounded, first improvement, local search, before inserting it into the new
+ * population. The local search tries swapping the cores of every two NoC
+ * nodes. Each swap is evaluated incrementally (see
+ * {@link #calculateSwapEnergyDelta(int[], int, int, int, int)}), so only the
+ * improved offspring is fully evaluated.
+ * <p>
+ * The local search only looks at the communication energy. The bandwidth
+ * overload penalty is accounted for by the full evaluation of the offspring.
+ * </p>
+ *
+ * @see MemeticMode
+ *
+ * @author cradu
+ *
+ */
+public class EnergyAwareMemeticAlgorithmMapper extends
+		EnergyAwareGeneticAlgorithmMapper {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(EnergyAwareMemeticAlgorithmMapper.class);
+
+	private static final String MAPPER_ID = "eama";
+
+	/** the minimum energy decrease for which a swap is considered an improvement */
+	private static final double IMPROVEMENT_THRESHOLD = 1e-6;
+
+	/**
+	 * Specifies what happens with an offspring improved by local search.
+	 *
+	 * @author cradu
+	 *
+	 */
+	public enum MemeticMode {
+		/** the improved genes replace the offspring's genes */
+		LAMARCKIAN,
+		/**
+		 * the offspring keeps its genes but, it receives the fitness of the
+		 * improved genes
+		 */
+		BALDWINIAN
+	}
+
+	/**
+	 * the maximum number of swaps evaluated by the local search, for each
+	 * offspring (by default, all the possible swaps)
+	 */
+	private int localSearchBudget;
+
+	/** the {@link MemeticMode} (Lamarckian by default) */
+	private MemeticMode memeticMode = MemeticMode.LAMARCKIAN;
+
+	/** how many swaps were evaluated by the local search */
+	private long localSearchSwaps = 0;
+
+	/** how many swaps improved an offspring */
+	private long localSearchImprovements = 0;
+
+	/**
+	 * Default constructor
+	 * <p>
+	 * No routing table is built.
+	 * </p>
+	 *
+	 * @param benchmarkName
+	 *            the benchmark's name
+	 * @param ctgId
+	 *            the CTG ID
+	 * @param topologyName
+	 *            the topology name
+	 * @param topologySize
+	 *            the topology size
+	 * @param topologyDir
+	 *            the topology directory is used to initialize the NoC topology
+	 *            for XML files. These files are split into two categories:
+	 *            nodes and links. The nodes are expected to be located into the
+	 *            "nodes" subdirectory, and the links into the "links"
+	 *            subdirectory
+	 * @param coresNumber
+	 *            the number of processes (tasks). Note that each core has only
+	 *            one task associated to it
+	 * @param linkBandwidth
+	 *            the bandwidth of each network link
+	 * @param seed
+	 *            the seed for the random number generator of the initial
+	 *            population
+	 * @param populationSize
+	 *            the population size (if <tt>null</tt>, a default value of 100 will be used)
+	 * @param generations
+	 *            the number of generations (if <tt>null</tt>, a default value of 100 will be used)
+	 * @param crossoverProbability
+	 *            the crossover probability (%) (if <tt>null</tt>, a default value of 90 will be used)
+	 * @param mutationProbability
+	 *            the mutation probability (%) (if <tt>null</tt>, a default value of 5 will be used)
+	 * @param localSearchBudget
+	 *            the maximum number of swaps evaluated by the local search,
+	 *            for each offspring (if <tt>null</tt>, all the possible swaps
+	 *            are allowed)
+	 * @param memeticMode
+	 *            the {@link MemeticMode} (if <tt>null</tt>,
+	 *            {@link MemeticMode#LAMARCKIAN} is used)
+	 */
+	public EnergyAwareMemeticAlgorithmMapper(String benchmarkName,
+			String ctgId, String apcgId, String topologyName,
+			String topologySize, File topologyDir, int coresNumber,
+			double linkBandwidth, float switchEBit, float linkEBit, Long seed,
+			Integer populationSize, Integer generations,
+			Integer crossoverProbability, Integer mutationProbability,
+			Integer localSearchBudget, MemeticMode memeticMode)
+			throws JAXBException {
+		this(benchmarkName, ctgId, apcgId, topologyName, topologySize,
+				topologyDir, coresNumber, linkBandwidth, false,
+				LegalTurnSet.WEST_FIRST, 1.056f, 2.831f, switchEBit, linkEBit,
+				seed, populationSize, generations, crossoverProbability,
+				mutationProbability, localSearchBudget, memeticMode);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param benchmarkName
+	 *            the benchmark's name
+	 * @param ctgId
+	 *            the CTG ID
+	 * @param apcgId
+	 *            the APCG ID
+	 * @param topologyName
+	 *            the topology name
+	 * @param topologySize
+	 *            the topology size
+	 * @param topologyDir
+	 *            the topology directory is used to initialize the NoC topology
+	 *            for XML files. These files are split into two categories:
+	 *            nodes and links. The nodes are expected to be located into the
+	 *            "nodes" subdirectory, and the links into the "links"
+	 *            subdirectory
+	 * @param coresNumber
+	 *            the number of processes (tasks). Note that each core has only
+	 *            one task associated to it
+	 * @param linkBandwidth
+	 *            the bandwidth of each network link
+	 * @param buildRoutingTable
+	 *            whether or not to build routing table too
+	 * @param legalTurnSet
+	 *            what {@link LegalTurnSet} the SA algorithm should use (this is
+	 *            useful only when the routing table is built)
+	 * @param bufReadEBit
+	 *            energy consumption per bit read
+	 * @param bufWriteEBit
+	 *            energy consumption per bit write
+	 * @param switchEBit
+	 *            the energy consumed for switching one bit of data
+	 * @param linkEBit
+	 *            the energy consumed for sending one data bit
+	 * @param seed
+	 *            the seed for the random number generator of the initial
+	 *            population (can be null)
+	 * @param populationSize
+	 *            the population size (if <tt>null</tt>, a default value of 100 will be used)
+	 * @param generations
+	 *            the number of generations (if <tt>null</tt>, a default value of 100 will be used)
+	 * @param crossoverProbability
+	 *            the crossover probability (%) (if <tt>null</tt>, a default value of 90 will be used)
+	 * @param mutationProbability
+	 *            the mutation probability (%) (if <tt>null</tt>, a default value of 5 will be used)
+	 * @param localSearchBudget
+	 *            the maximum number of swaps evaluated by the local search,
+	 *            for each offspring (if <tt>null</tt>, all the possible swaps
+	 *            are allowed)
+	 * @param memeticMode
+	 *            the {@link MemeticMode} (if <tt>null</tt>,
+	 *            {@link MemeticMode#LAMARCKIAN} is used)
+	 * @throws JAXBException
+	 */
+	public EnergyAwareMemeticAlgorithmMapper(String benchmarkName,
+			String ctgId, String apcgId, String topologyName,
+			String topologySize, File topologyDir, int coresNumber,
+			double linkBandwidth, boolean buildRoutingTable,
+			LegalTurnSet legalTurnSet, float bufReadEBit, float bufWriteEBit,
+			float switchEBit, float linkEBit, Long seed,
+			Integer populationSize, Integer generations,
+			Integer crossoverProbability, Integer mutationProbability,
+			Integer localSearchBudget, MemeticMode memeticMode)
+			throws JAXBException {
+		super(benchmarkName, ctgId, apcgId, topologyName, topologySize,
+				topologyDir, coresNumber, linkBandwidth, buildRoutingTable,
+				legalTurnSet, bufReadEBit, bufWriteEBit, switchEBit, linkEBit,
+				seed, populationSize, generations, crossoverProbability,
+				mutationProbability);
+
+		if (localSearchBudget == null) {
+			this.localSearchBudget = (nodes.length * (nodes.length - 1)) / 2;
+		} else {
+			this.localSearchBudget = localSearchBudget;
+			logger.assertLog(this.localSearchBudget >= 0, "The local search budget cannot be negative!");
+		}
+		if (memeticMode != null) {
+			this.memeticMode = memeticMode;
+		}
+
+		logger.info("The local search evaluates at most " + this.localSearchBudget + " swaps per offspring");
+		logger.info("Memetic mode is " + this.memeticMode);
+	}
+
+	@Override
+	public String getMapperId() {
+		return MAPPER_ID;
+	}
+
+	@Override
+	protected Individual evaluateChild(int[] child) {
+		int[] improvedChild = child;
+		if (MemeticMode.BALDWINIAN.equals(memeticMode)) {
+			improvedChild = Arrays.copyOf(child, child.length);
+		}
+		localSearch(improvedChild);
+
+		double fitness = fitnessCalculation(improvedChild);
+		return new Individual(child, fitness);
+	}
+
+	/**
+	 * First improvement local search. The pairs of NoC nodes are visited
+	 * cyclically, starting from a randomly chosen pair, and the first swap that
+	 * decreases the communication energy is applied. The search stops when
+	 * {@link #localSearchBudget} swaps were evaluated or when no swap improves
+	 * the individual anymore.
+	 *
+	 * @param individual
+	 *            the individual (it is changed in place)
+	 */
+	private void localSearch(int[] individual) {
+		if (localSearchBudget == 0 || individual.length < 2) {
+			return;
+		}
+
+		int[] coreToNode = new int[cores.length];
+		for (int i = 0; i < individual.length; i++) {
+			if (individual[i] != -1) {
+				coreToNode[individual[i]] = i;
+			}
+		}
+
+		int pairs = (individual.length * (individual.length - 1)) / 2;
+		int node1 = rand.nextInt(individual.length - 1);
+		int node2 = node1 + 1;
+		int swaps = 0;
+		int swapsWithoutImprovement = 0;
+		int improvements = 0;
+		while (swaps < localSearchBudget && swapsWithoutImprovement < pairs) {
+			int core1 = individual[node1];
+			int core2 = individual[node2];
+			if (core1 == -1 && core2 == -1) {
+				swapsWithoutImprovement++;
+			} else {
+				double delta = calculateSwapEnergyDelta(coreToNode, core1, node1, core2, node2);
+				swaps++;
+				if (delta < -IMPROVEMENT_THRESHOLD) {
+					if (logger.isTraceEnabled()) {
+						logger.trace("Swapping nodes " + node1 + " and " + node2
+								+ " decreases the energy with " + (-delta));
+					}
+					individual[node1] = core2;
+					individual[node2] = core1;
+					if (core1 != -1) {
+						coreToNode[core1] = node2;
+					}
+					if (core2 != -1) {
+						coreToNode[core2] = node1;
+					}
+					improvements++;
+					swapsWithoutImprovement = 0;
+				} else {
+					swapsWithoutImprovement++;
+				}
+			}
+
+			node2++;
+			if (node2 == individual.length) {
+				node1++;
+				if (node1 == individual.length - 1) {
+					node1 = 0;
+				}
+				node2 = node1 + 1;
+			}
+		}
+
+		localSearchSwaps += swaps;
+		localSearchImprovements += improvements;
+		if (logger.isDebugEnabled()) {
+			logger.debug("Local search evaluated " + swaps + " swaps and applied " + improvements + " of them");
+		}
+	}
+
+	@Override
+	protected void doBeforeSavingMapping() {
+		logger.info("The local search evaluated " + localSearchSwaps
+				+ " swaps (" + localSearchImprovements + " improvements)");
+		super.doBeforeSavingMapping();
+	}
+
+	@Override
+	protected void writeSearchState(DataOutputStream out) throws IOException {
+		super.writeSearchState(out);
+		out.writeLong(localSearchSwaps);
+		out.writeLong(localSearchImprovements);
+	}
+
+	@Override
+	protected void readSearchState(DataInputStream in) throws IOException {
+		super.readSearchState(in);
+		localSearchSwaps = in.readLong();
+		localSearchImprovements = in.readLong();
+	}
+
+	public static void main(String args[]) throws TooFewNocNodesException,
+			IOException, JAXBException, ParseException {
+		final float switchEBit = 0.284f;
+		final float linkEBit = 0.449f;
+		final float bufReadEBit = 1.056f;
+		final float bufWriteEBit = 2.831f;
+
+		final String cliArgs[] = args;
+
+		MapperInputProcessor mapperInputProcessor = new MapperInputProcessor() {
+
+			@Override
+			public void useMapper(String benchmarkFilePath,
+					String benchmarkName, String ctgId, String apcgId,
+					ApplicationInput application,
+					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
+					Long seed) throws JAXBException, TooFewNocNodesException,
+					FileNotFoundException {
+				logger.info("Using an energy aware memetic algorithm mapper for "
+						+ benchmarkFilePath + "ctg-" + ctgId + " (APCG " + apcgId + ")");
+
+				EnergyAwareMemeticAlgorithmMapper eamaMapper;
+				int cores = application.getCoreCount();
+				int hSize = (int) Math.ceil(Math.sqrt(cores));
+				hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
+				String meshSize;
+				int nodes;
+				// we allow rectangular 2D meshes as well
+				if (hSize * (hSize - 1) >= cores) {
+					meshSize = hSize + "x" + (hSize - 1);
+					nodes = hSize * (hSize - 1);
+				} else {
+					meshSize = hSize + "x" + hSize;
+					nodes = hSize * hSize;
+				}
+				logger.info("The algorithm has " + cores + " cores to map => working with a 2D mesh of size " + meshSize);
+				// working with a 2D mesh topology
+				String topologyName = "mesh2D";
+				String topologyDir = ".." + File.separator + "NoC-XML"
+						+ File.separator + "src" + File.separator
+						+ "ro" + File.separator + "ulbsibiu"
+						+ File.separator + "acaps" + File.separator
+						+ "noc" + File.separator + "topology"
+						+ File.separator + topologyName + File.separator
+						+ meshSize;
+
+				CommandLineParser parser = new PosixParser();
+				Integer populationSize = null;
+				Integer generations = null;
+				Integer crossoverProbability = null;
+				Integer mutationProbability = null;
+				Integer localSearchBudget = null;
+				MemeticMode memeticMode = null;
+				try {
+					CommandLine cmd = parser.parse(getCliOptions(), cliArgs);
+					if (cmd.hasOption("p")) {
+						populationSize = Integer.valueOf(cmd.getOptionValue("p"));
+					}
+					int defaultGenerationsNumber;
+					// Bellow is the number of evaluations made by OSA, by default (i.e., an initial temperature of 1)
+					double osaEvaluations = 33*cores*(2*nodes - cores - 1) + 1;
+					if (populationSize == null) {
+						defaultGenerationsNumber = (int) Math.ceil(osaEvaluations / POPULATION_SIZE);
+					} else {
+						defaultGenerationsNumber = (int) Math.ceil(osaEvaluations / populationSize);
+					}
+					generations = Integer.valueOf(cmd.getOptionValue("g", Integer.toString(defaultGenerationsNumber)));
+					if (cmd.hasOption("x")) {
+						crossoverProbability = Integer.valueOf(cmd.getOptionValue("x"));
+					}
+					if (cmd.hasOption("m")) {
+						mutationProbability = Integer.valueOf(cmd.getOptionValue("m"));
+					}
+					int defaultMutationProbability = (int) Math.floor(100.0 / nodes);
+					if (mutationProbability == null) {
+						mutationProbability = defaultMutationProbability;
+					}
+					if (cmd.hasOption("L")) {
+						localSearchBudget = Integer.valueOf(cmd.getOptionValue("L"));
+					}
+					if (cmd.hasOption("M")) {
+						memeticMode = MemeticMode.valueOf(cmd.getOptionValue("M"));
+					}
+				} catch (NumberFormatException e) {
+					logger.fatal(e);
+					System.exit(0);
+				} catch (IllegalArgumentException e) {
+					logger.fatal(e);
+					System.exit(0);
+				} catch (ParseException e) {
+					logger.fatal(e);
+					System.exit(0);
+				}
+
+				String[] parameters = new String[] {
+						"linkBandwidth",
+						"switchEBit",
+						"linkEBit",
+						"bufReadEBit",
+						"bufWriteEBit",
+						"routing",
+						"seed",
+						"populationSize",
+						"generations",
+						"crossoverProbability",
+						"mutationProbability",
+						"localSearchBudget",
+						"memeticMode",
+						};
+				String values[] = new String[] {
+						Double.toString(linkBandwidth),
+						Float.toString(switchEBit), Float.toString(linkEBit),
+						Float.toString(bufReadEBit),
+						Float.toString(bufWriteEBit),
+						null,
+						seed == null ? null : Long.toString(seed),
+						populationSize == null ? null : Integer.toString(populationSize),
+						generations == null ? null : Integer.toString(generations),
+						crossoverProbability == null ? null : Integer.toString(crossoverProbability),
+						mutationProbability == null ? null : Integer.toString(mutationProbability),
+						localSearchBudget == null ? null : Integer.toString(localSearchBudget),
+						memeticMode == null ? null : memeticMode.toString(),
+						};
+				if (doRouting) {
+					values[values.length - 8] = "true" + "-" + lts.toString();
+					MapperDatabase.getInstance().setParameters(parameters, values);
+
+					// with routing
+					eamaMapper = new EnergyAwareMemeticAlgorithmMapper(
+							benchmarkName, ctgId, apcgId, topologyName,
+							meshSize, new File(topologyDir), cores,
+							linkBandwidth, true, lts,
+							bufReadEBit, bufWriteEBit, switchEBit, linkEBit,
+							seed, populationSize, generations,
+							crossoverProbability, mutationProbability,
+							localSearchBudget, memeticMode);
+				} else {
+					values[values.length - 8] = "false";
+					MapperDatabase.getInstance().setParameters(parameters, values);
+
+					// without routing
+					eamaMapper = new EnergyAwareMemeticAlgorithmMapper(
+							benchmarkName, ctgId, apcgId, topologyName,
+							meshSize, new File(topologyDir), cores,
+							linkBandwidth, switchEBit, linkEBit, seed,
+							populationSize, generations, crossoverProbability,
+							mutationProbability, localSearchBudget, memeticMode);
+				}
+
+				// read the input data (unmarshalled or streamed)
+				eamaMapper.parseApplication(application);
+
+				configureCheckpointing(eamaMapper, seed);
+				String[] mappingXml = eamaMapper.map();
+				File dir = new File(benchmarkFilePath + "ctg-" + ctgId);
+				dir.mkdirs();
+				String routing = "";
+				if (doRouting) {
+					routing = "_routing";
+				}
+				String mappingXmlFilePath = benchmarkFilePath + "ctg-" + ctgId
+						+ File.separator + "mapping-" + apcgId + "_"
+						+ eamaMapper.getMapperId() + routing + ".xml";
+				PrintWriter pw = new PrintWriter(mappingXmlFilePath);
+				logger.info("Saving the mapping XML file" + mappingXmlFilePath);
+				pw.write(mappingXml[0]);
+				pw.close();
+
+				logger.info("The generated mapping is:");
+				eamaMapper.printCurrentMapping();
+
+				eamaMapper.analyzeIt();
+			}
+		};
+
+		mapperInputProcessor.getCliOptions().addOption("p", "population-size", true, "the population size");
+		mapperInputProcessor.getCliOptions().addOption("g", "generations", true, "the number of generations");
+		mapperInputProcessor.getCliOptions().addOption("x", "crossover-probability", true, "crossover probability (%)");
+		mapperInputProcessor.getCliOptions().addOption("m", "mutation-probability", true, "mutation probability (%)");
+		mapperInputProcessor.getCliOptions().addOption("L", "local-search-budget", true, "the maximum number of swaps evaluated by the local search, for each offspring");
+		mapperInputProcessor.getCliOptions().addOption("M", "memetic-mode", true, "LAMARCKIAN (improved offspring replace the original ones) or BALDWINIAN (only the fitness of the improved offspring is kept)");
+
+		mapperInputProcessor.processInput(args);
+	}
+
+}
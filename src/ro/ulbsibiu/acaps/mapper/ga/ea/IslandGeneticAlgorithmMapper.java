@@ -0,0 +1,732 @@
+package ro.ulbsibiu.acaps.mapper.ga.ea;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
+import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
+import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper;
+import ro.ulbsibiu.acaps.mapper.MapperDatabase;
+import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
+import ro.ulbsibiu.acaps.mapper.ga.Individual;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationGraph;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
+import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
+
+/**
+ * Island model version of the {@link EnergyAwareGeneticAlgorithmMapper}.
+ * Several sub-populations (islands) evolve concurrently, on a thread pool.
+ * Each island is an {@link EnergyAwareGeneticAlgorithmMapper}, with its own
+ * random number generator and its own crossover and mutation probabilities.
+ * Every few generations, each island sends copies of some of its individuals
+ * to its neighbors (as given by the {@link MigrationTopology}). The migrants
+ * are passed through lock free mailboxes, so the islands never wait for each
+ * other. An immigrant replaces the worst individual of an island, if it is
+ * better than it.
+ * <p>
+ * The best cost of each island is recorded at each generation (see
+ * {@link #saveConvergence(String)}).
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class IslandGeneticAlgorithmMapper extends
+		BandwidthConstrainedEnergyAndPerformanceAwareMapper {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(IslandGeneticAlgorithmMapper.class);
+
+	private static final String MAPPER_ID = "iga";
+
+	/** the default number of islands */
+	public static final int ISLANDS = 4;
+
+	/** the default number of generations between two migrations */
+	public static final int MIGRATION_INTERVAL = 10;
+
+	/** the default number of individuals sent to each neighbor */
+	public static final int MIGRATION_SIZE = 2;
+
+	/**
+	 * Describes where each island sends its migrants
+	 *
+	 * @author cradu
+	 *
+	 */
+	public enum MigrationTopology {
+		/** island i sends to island i + 1 (the last one sends to the first one) */
+		RING,
+		/**
+		 * the islands form a 2D torus (as square as possible); each island
+		 * sends to its east and south neighbors
+		 */
+		TORUS,
+		/** each island sends to all the other islands */
+		FULLY_CONNECTED
+	}
+
+	/**
+	 * Describes which individuals migrate
+	 *
+	 * @author cradu
+	 *
+	 */
+	public enum MigrationPolicy {
+		/** the best individuals of an island migrate */
+		BEST,
+		/** randomly chosen individuals migrate */
+		RANDOM
+	}
+
+	/** the islands */
+	private EnergyAwareGeneticAlgorithmMapper[] islands;
+
+	/** the neighbors (migrants destinations) of each island */
+	private int[][] neighbors;
+
+	/** the mailbox of each island (where its immigrants wait) */
+	private List<ConcurrentLinkedQueue<Individual>> mailboxes;
+
+	/** how many threads evolve the islands */
+	private int threads;
+
+	/** how many generations pass between two migrations */
+	private int migrationInterval;
+
+	/** how many individuals are sent to each neighbor */
+	private int migrationSize;
+
+	private MigrationTopology migrationTopology;
+
+	private MigrationPolicy migrationPolicy;
+
+	/** the number of generations */
+	private int generations;
+
+	/**
+	 * the best cost of each island, at each generation (generation g, counted
+	 * from 1, is at index g - 1)
+	 */
+	private double[][] convergence;
+
+	/** how many immigrants were accepted by each island */
+	private int[] acceptedImmigrants;
+
+	/** the best individual found by all the islands */
+	private Individual bestIndividual;
+
+	/**
+	 * Default constructor
+	 * <p>
+	 * No routing table is built.
+	 * </p>
+	 *
+	 * @see #IslandGeneticAlgorithmMapper(String, String, String, String,
+	 *      String, File, int, double, boolean, LegalTurnSet, float, float,
+	 *      float, float, Long, int, int, int, int, MigrationTopology,
+	 *      MigrationPolicy, Integer, Integer, int[], int[])
+	 */
+	public IslandGeneticAlgorithmMapper(String benchmarkName, String ctgId,
+			String apcgId, String topologyName, String topologySize,
+			File topologyDir, int coresNumber, double linkBandwidth,
+			float switchEBit, float linkEBit, Long seed, int islands,
+			int threads, int migrationInterval, int migrationSize,
+			MigrationTopology migrationTopology,
+			MigrationPolicy migrationPolicy, Integer populationSize,
+			Integer generations, int[] crossoverProbabilities,
+			int[] mutationProbabilities) throws JAXBException {
+		this(benchmarkName, ctgId, apcgId, topologyName, topologySize,
+				topologyDir, coresNumber, linkBandwidth, false,
+				LegalTurnSet.WEST_FIRST, 1.056f, 2.831f, switchEBit, linkEBit,
+				seed, islands, threads, migrationInterval, migrationSize,
+				migrationTopology, migrationPolicy, populationSize,
+				generations, crossoverProbabilities, mutationProbabilities);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param benchmarkName
+	 *            the benchmark's name
+	 * @param ctgId
+	 *            the CTG ID
+	 * @param apcgId
+	 *            the APCG ID
+	 * @param topologyName
+	 *            the topology name
+	 * @param topologySize
+	 *            the topology size
+	 * @param topologyDir
+	 *            the topology directory is used to initialize the NoC topology
+	 *            for XML files. These files are split into two categories:
+	 *            nodes and links. The nodes are expected to be located into the
+	 *            "nodes" subdirectory, and the links into the "links"
+	 *            subdirectory
+	 * @param coresNumber
+	 *            the number of processes (tasks). Note that each core has only
+	 *            one task associated to it
+	 * @param linkBandwidth
+	 *            the bandwidth of each network link
+	 * @param buildRoutingTable
+	 *            whether or not to build routing table too
+	 * @param legalTurnSet
+	 *            what {@link LegalTurnSet} the algorithm should use (this is
+	 *            useful only when the routing table is built)
+	 * @param bufReadEBit
+	 *            energy consumption per bit read
+	 * @param bufWriteEBit
+	 *            energy consumption per bit write
+	 * @param switchEBit
+	 *            the energy consumed for switching one bit of data
+	 * @param linkEBit
+	 *            the energy consumed for sending one data bit
+	 * @param seed
+	 *            the seed for the random number generators (island i uses seed
+	 *            + i; can be null)
+	 * @param islands
+	 *            the number of islands
+	 * @param threads
+	 *            how many threads evolve the islands
+	 * @param migrationInterval
+	 *            how many generations pass between two migrations
+	 * @param migrationSize
+	 *            how many individuals are sent to each neighbor
+	 * @param migrationTopology
+	 *            where the migrants are sent
+	 * @param migrationPolicy
+	 *            which individuals migrate
+	 * @param populationSize
+	 *            the population size of each island (if <tt>null</tt>, a
+	 *            default value of 100 will be used)
+	 * @param generations
+	 *            the number of generations (if <tt>null</tt>, a default value
+	 *            of 100 will be used)
+	 * @param crossoverProbabilities
+	 *            the crossover probabilities (%); island i uses
+	 *            crossoverProbabilities[i % crossoverProbabilities.length] (if
+	 *            <tt>null</tt>, a default value of 90 will be used)
+	 * @param mutationProbabilities
+	 *            the mutation probabilities (%); island i uses
+	 *            mutationProbabilities[i % mutationProbabilities.length] (if
+	 *            <tt>null</tt>, a default value of 5 will be used)
+	 * @throws JAXBException
+	 */
+	public IslandGeneticAlgorithmMapper(String benchmarkName, String ctgId,
+			String apcgId, String topologyName, String topologySize,
+			File topologyDir, int coresNumber, double linkBandwidth,
+			boolean buildRoutingTable, LegalTurnSet legalTurnSet,
+			float bufReadEBit, float bufWriteEBit, float switchEBit,
+			float linkEBit, Long seed, int islands, int threads,
+			int migrationInterval, int migrationSize,
+			MigrationTopology migrationTopology,
+			MigrationPolicy migrationPolicy, Integer populationSize,
+			Integer generations, int[] crossoverProbabilities,
+			int[] mutationProbabilities) throws JAXBException {
+
+		super(benchmarkName, ctgId, apcgId, topologyName, topologySize,
+				topologyDir, coresNumber, linkBandwidth, buildRoutingTable,
+				legalTurnSet, bufReadEBit, bufWriteEBit, switchEBit, linkEBit);
+
+		logger.assertLog(islands > 0, "The number of islands must be positive!");
+		logger.assertLog(threads > 0, "The number of threads must be positive!");
+		logger.assertLog(migrationInterval > 0, "The migration interval must be positive!");
+		logger.assertLog(migrationSize >= 0, "The migration size cannot be negative!");
+		this.threads = threads;
+		this.migrationInterval = migrationInterval;
+		this.migrationSize = migrationSize;
+		this.migrationTopology = migrationTopology;
+		this.migrationPolicy = migrationPolicy;
+
+		logger.info("Working with " + islands + " islands, evolved by " + threads + " threads");
+		logger.info("Every " + migrationInterval + " generations, " + migrationSize
+				+ " individuals (" + migrationPolicy + ") migrate over a "
+				+ migrationTopology + " topology");
+
+		this.islands = new EnergyAwareGeneticAlgorithmMapper[islands];
+		for (int i = 0; i < islands; i++) {
+			this.islands[i] = new EnergyAwareGeneticAlgorithmMapper(
+					benchmarkName, ctgId, apcgId, topologyName, topologySize,
+					topologyDir, coresNumber, linkBandwidth, buildRoutingTable,
+					legalTurnSet, bufReadEBit, bufWriteEBit, switchEBit,
+					linkEBit, seed == null ? null : seed + i, populationSize,
+					generations,
+					crossoverProbabilities == null ? null : crossoverProbabilities[i % crossoverProbabilities.length],
+					mutationProbabilities == null ? null : mutationProbabilities[i % mutationProbabilities.length]);
+		}
+		this.generations = this.islands[0].generations;
+
+		mailboxes = new ArrayList<ConcurrentLinkedQueue<Individual>>(islands);
+		for (int i = 0; i < islands; i++) {
+			mailboxes.add(new ConcurrentLinkedQueue<Individual>());
+		}
+		computeNeighbors();
+	}
+
+	private void computeNeighbors() {
+		int n = islands.length;
+		neighbors = new int[n][];
+		switch (migrationTopology) {
+		case RING:
+			for (int i = 0; i < n; i++) {
+				neighbors[i] = n == 1 ? new int[0] : new int[] { (i + 1) % n };
+			}
+			break;
+		case TORUS:
+			// the largest number of rows (not above the square root) which divides n
+			int rows = (int) Math.sqrt(n);
+			while (n % rows != 0) {
+				rows--;
+			}
+			int columns = n / rows;
+			for (int i = 0; i < n; i++) {
+				int row = i / columns;
+				int column = i % columns;
+				List<Integer> islandNeighbors = new ArrayList<Integer>(2);
+				int east = row * columns + (column + 1) % columns;
+				int south = ((row + 1) % rows) * columns + column;
+				if (east != i) {
+					islandNeighbors.add(east);
+				}
+				if (south != i && south != east) {
+					islandNeighbors.add(south);
+				}
+				neighbors[i] = new int[islandNeighbors.size()];
+				for (int j = 0; j < neighbors[i].length; j++) {
+					neighbors[i][j] = islandNeighbors.get(j);
+				}
+			}
+			break;
+		case FULLY_CONNECTED:
+			for (int i = 0; i < n; i++) {
+				neighbors[i] = new int[n - 1];
+				for (int j = 0, k = 0; j < n; j++) {
+					if (j != i) {
+						neighbors[i][k++] = j;
+					}
+				}
+			}
+			break;
+		default:
+			logger.fatal("Unknown migration topology " + migrationTopology + "! Exiting...");
+			System.exit(-1);
+		}
+	}
+
+	@Override
+	public String getMapperId() {
+		return MAPPER_ID;
+	}
+
+	@Override
+	public void parseApcg(ApcgType apcg, CtgType ctg) {
+		super.parseApcg(apcg, ctg);
+		for (int i = 0; i < islands.length; i++) {
+			islands[i].parseApcg(apcg, ctg);
+		}
+	}
+
+	@Override
+	public void parseApplicationGraph(ApplicationGraph graph) {
+		super.parseApplicationGraph(graph);
+		for (int i = 0; i < islands.length; i++) {
+			islands[i].parseApplicationGraph(graph);
+		}
+	}
+
+	/**
+	 * Evolves an island, sending and receiving migrants every
+	 * {@link #migrationInterval} generations
+	 */
+	private void evolveIsland(int index) {
+		EnergyAwareGeneticAlgorithmMapper island = islands[index];
+		island.prepareEvaluation();
+		island.doInitPopulation();
+		// the initial population is generation 1, as in EnergyAwareGeneticAlgorithmMapper
+		convergence[index][island.getCurrentGeneration() - 1] = island.getBestIndividual().getFitness();
+		while (island.getCurrentGeneration() < generations) {
+			island.runGeneration();
+			// runGeneration() advances the generation after evolving the population
+			int generation = island.getCurrentGeneration();
+			if (generation % migrationInterval == 0 && migrationSize > 0) {
+				for (int i = 0; i < neighbors[index].length; i++) {
+					List<Individual> migrants;
+					if (MigrationPolicy.BEST.equals(migrationPolicy)) {
+						migrants = island.getBestIndividuals(migrationSize);
+					} else {
+						migrants = island.getRandomIndividuals(migrationSize);
+					}
+					mailboxes.get(neighbors[index][i]).addAll(migrants);
+				}
+			}
+			List<Individual> immigrants = new ArrayList<Individual>();
+			Individual immigrant = mailboxes.get(index).poll();
+			while (immigrant != null) {
+				immigrants.add(immigrant);
+				immigrant = mailboxes.get(index).poll();
+			}
+			if (immigrants.size() > 0) {
+				acceptedImmigrants[index] += island.replaceWorstIndividuals(immigrants);
+			}
+			convergence[index][generation - 1] = island.getBestIndividual().getFitness();
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Island " + index + " finished");
+		}
+	}
+
+	@Override
+	protected void doBeforeMapping() {
+		convergence = new double[islands.length][generations];
+		acceptedImmigrants = new int[islands.length];
+		bestIndividual = null;
+	}
+
+	@Override
+	protected int doMapping() {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, islands.length));
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(islands.length);
+		for (int i = 0; i < islands.length; i++) {
+			final int index = i;
+			futures.add(executor.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					evolveIsland(index);
+					return null;
+				}
+			}));
+		}
+		executor.shutdown();
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).get();
+			} catch (InterruptedException e) {
+				logger.fatal("Interrupted while waiting for island " + i + "! Exiting...", e);
+				System.exit(-1);
+			} catch (ExecutionException e) {
+				logger.fatal("Island " + i + " failed! Exiting...", e.getCause());
+				System.exit(-1);
+			}
+		}
+
+		for (int i = 0; i < islands.length; i++) {
+			Individual best = islands[i].getBestIndividual();
+			if (bestIndividual == null || best.getFitness() < bestIndividual.getFitness()) {
+				bestIndividual = best;
+			}
+		}
+		return 1;
+	}
+
+	@Override
+	protected void doBeforeSavingMapping() {
+		long evaluations = 0;
+		for (int i = 0; i < islands.length; i++) {
+			evaluations += islands[i].getEvaluations();
+			logger.info("Island " + i + " reached a cost of "
+					+ convergence[i][generations - 1] + " and accepted "
+					+ acceptedImmigrants[i] + " immigrants");
+		}
+		logger.info("A number of " + evaluations + " mappings were evaluated");
+
+		// return the best mapping found
+		for (int i = 0; i < cores.length; i++) {
+			cores[i].setNodeId(-1);
+		}
+		int[] genes = bestIndividual.getGenes();
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i].setCore(Integer.toString(genes[i]));
+			if (genes[i] != -1) {
+				cores[genes[i]].setNodeId(i);
+			}
+		}
+		if (buildRoutingTable) {
+			programRouters();
+		}
+	}
+
+	/**
+	 * Saves the convergence of the islands (the best cost of each island, at
+	 * each generation) into a CSV file
+	 *
+	 * @param filePath
+	 *            the file path
+	 * @throws FileNotFoundException
+	 */
+	public void saveConvergence(String filePath) throws FileNotFoundException {
+		PrintWriter pw = new PrintWriter(filePath);
+		pw.print("generation");
+		for (int i = 0; i < islands.length; i++) {
+			pw.print(",island" + i);
+		}
+		pw.println();
+		for (int g = 0; g < generations; g++) {
+			pw.print(g + 1);
+			for (int i = 0; i < islands.length; i++) {
+				pw.print("," + convergence[i][g]);
+			}
+			pw.println();
+		}
+		pw.close();
+	}
+
+	/**
+	 * @return the integers from a comma separated list
+	 */
+	private static int[] parseIntegers(String list) {
+		String[] tokens = list.split(",");
+		int[] integers = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			integers[i] = Integer.parseInt(tokens[i].trim());
+		}
+		return integers;
+	}
+
+	/**
+	 * @return the integers as a comma separated list
+	 */
+	private static String toList(int[] integers) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < integers.length; i++) {
+			if (i > 0) {
+				sb.append(",");
+			}
+			sb.append(integers[i]);
+		}
+		return sb.toString();
+	}
+
+	public static void main(String args[]) throws TooFewNocNodesException,
+			IOException, JAXBException, ParseException {
+		final float switchEBit = 0.284f;
+		final float linkEBit = 0.449f;
+		final float bufReadEBit = 1.056f;
+		final float bufWriteEBit = 2.831f;
+
+		final String cliArgs[] = args;
+
+		MapperInputProcessor mapperInputProcessor = new MapperInputProcessor() {
+
+			@Override
+			public void useMapper(String benchmarkFilePath,
+					String benchmarkName, String ctgId, String apcgId,
+					ApplicationInput application,
+					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
+					Long seed) throws JAXBException, TooFewNocNodesException,
+					FileNotFoundException {
+				logger.info("Using an island model genetic algorithm mapper for "
+						+ benchmarkFilePath + "ctg-" + ctgId + " (APCG " + apcgId + ")");
+
+				IslandGeneticAlgorithmMapper igaMapper;
+				int cores = application.getCoreCount();
+				int hSize = (int) Math.ceil(Math.sqrt(cores));
+				hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
+				String meshSize;
+				int nodes;
+				// we allow rectangular 2D meshes as well
+				if (hSize * (hSize - 1) >= cores) {
+					meshSize = hSize + "x" + (hSize - 1);
+					nodes = hSize * (hSize - 1);
+				} else {
+					meshSize = hSize + "x" + hSize;
+					nodes = hSize * hSize;
+				}
+				logger.info("The algorithm has " + cores + " cores to map => working with a 2D mesh of size " + meshSize);
+				// working with a 2D mesh topology
+				String topologyName = "mesh2D";
+				String topologyDir = ".." + File.separator + "NoC-XML"
+						+ File.separator + "src" + File.separator
+						+ "ro" + File.separator + "ulbsibiu"
+						+ File.separator + "acaps" + File.separator
+						+ "noc" + File.separator + "topology"
+						+ File.separator + topologyName + File.separator
+						+ meshSize;
+
+				CommandLineParser parser = new PosixParser();
+				int islands = ISLANDS;
+				int threads = Runtime.getRuntime().availableProcessors();
+				int migrationInterval = MIGRATION_INTERVAL;
+				int migrationSize = MIGRATION_SIZE;
+				MigrationTopology migrationTopology = MigrationTopology.RING;
+				MigrationPolicy migrationPolicy = MigrationPolicy.BEST;
+				Integer populationSize = null;
+				Integer generations = null;
+				int[] crossoverProbabilities = null;
+				int[] mutationProbabilities = null;
+				try {
+					CommandLine cmd = parser.parse(getCliOptions(), cliArgs);
+					islands = Integer.valueOf(cmd.getOptionValue("I", Integer.toString(ISLANDS)));
+					threads = Integer.valueOf(cmd.getOptionValue("T", Integer.toString(threads)));
+					migrationInterval = Integer.valueOf(cmd.getOptionValue("mi", Integer.toString(MIGRATION_INTERVAL)));
+					migrationSize = Integer.valueOf(cmd.getOptionValue("ms", Integer.toString(MIGRATION_SIZE)));
+					migrationTopology = MigrationTopology.valueOf(cmd.getOptionValue("mt", MigrationTopology.RING.toString()));
+					migrationPolicy = MigrationPolicy.valueOf(cmd.getOptionValue("mp", MigrationPolicy.BEST.toString()));
+					if (cmd.hasOption("p")) {
+						populationSize = Integer.valueOf(cmd.getOptionValue("p"));
+					}
+					int defaultGenerationsNumber;
+					// Bellow is the number of evaluations made by OSA, by default (i.e., an initial temperature of 1)
+					// (the islands share this budget)
+					double osaEvaluations = 33*cores*(2*nodes - cores - 1) + 1;
+					if (populationSize == null) {
+						defaultGenerationsNumber = (int) Math.ceil(osaEvaluations / (EnergyAwareGeneticAlgorithmMapper.POPULATION_SIZE * islands));
+					} else {
+						defaultGenerationsNumber = (int) Math.ceil(osaEvaluations / (populationSize * islands));
+					}
+					generations = Integer.valueOf(cmd.getOptionValue("g", Integer.toString(defaultGenerationsNumber)));
+					if (cmd.hasOption("x")) {
+						crossoverProbabilities = parseIntegers(cmd.getOptionValue("x"));
+					}
+					if (cmd.hasOption("m")) {
+						mutationProbabilities = parseIntegers(cmd.getOptionValue("m"));
+					}
+					int defaultMutationProbability = (int) Math.floor(100.0 / nodes);
+					if (mutationProbabilities == null) {
+						mutationProbabilities = new int[] {defaultMutationProbability};
+					}
+				} catch (NumberFormatException e) {
+					logger.fatal(e);
+					System.exit(0);
+				} catch (IllegalArgumentException e) {
+					logger.fatal(e);
+					System.exit(0);
+				} catch (ParseException e) {
+					logger.fatal(e);
+					System.exit(0);
+				}
+
+				String[] parameters = new String[] {
+						"linkBandwidth",
+						"switchEBit",
+						"linkEBit",
+						"bufReadEBit",
+						"bufWriteEBit",
+						"routing",
+						"seed",
+						"islands",
+						"threads",
+						"migrationInterval",
+						"migrationSize",
+						"migrationTopology",
+						"migrationPolicy",
+						"populationSize",
+						"generations",
+						"crossoverProbability",
+						"mutationProbability",
+						};
+				String values[] = new String[] {
+						Double.toString(linkBandwidth),
+						Float.toString(switchEBit), Float.toString(linkEBit),
+						Float.toString(bufReadEBit),
+						Float.toString(bufWriteEBit),
+						null,
+						seed == null ? null : Long.toString(seed),
+						Integer.toString(islands),
+						Integer.toString(threads),
+						Integer.toString(migrationInterval),
+						Integer.toString(migrationSize),
+						migrationTopology.toString(),
+						migrationPolicy.toString(),
+						populationSize == null ? null : Integer.toString(populationSize),
+						generations == null ? null : Integer.toString(generations),
+						crossoverProbabilities == null ? null : toList(crossoverProbabilities),
+						mutationProbabilities == null ? null : toList(mutationProbabilities),
+						};
+				if (doRouting) {
+					values[values.length - 12] = "true" + "-" + lts.toString();
+					MapperDatabase.getInstance().setParameters(parameters, values);
+
+					// with routing
+					igaMapper = new IslandGeneticAlgorithmMapper(
+							benchmarkName, ctgId, apcgId, topologyName,
+							meshSize, new File(topologyDir), cores,
+							linkBandwidth, true, lts,
+							bufReadEBit, bufWriteEBit, switchEBit, linkEBit,
+							seed, islands, threads, migrationInterval,
+							migrationSize, migrationTopology, migrationPolicy,
+							populationSize, generations,
+							crossoverProbabilities, mutationProbabilities);
+				} else {
+					values[values.length - 12] = "false";
+					MapperDatabase.getInstance().setParameters(parameters, values);
+
+					// without routing
+					igaMapper = new IslandGeneticAlgorithmMapper(
+							benchmarkName, ctgId, apcgId, topologyName,
+							meshSize, new File(topologyDir), cores,
+							linkBandwidth, switchEBit, linkEBit, seed,
+							islands, threads, migrationInterval,
+							migrationSize, migrationTopology, migrationPolicy,
+							populationSize, generations,
+							crossoverProbabilities, mutationProbabilities);
+				}
+
+				// read the input data (unmarshalled or streamed)
+				igaMapper.parseApplication(application);
+
+				configureCheckpointing(igaMapper, seed);
+				String[] mappingXml = igaMapper.map();
+				File dir = new File(benchmarkFilePath + "ctg-" + ctgId);
+				dir.mkdirs();
+				String routing = "";
+				if (doRouting) {
+					routing = "_routing";
+				}
+				String mappingXmlFilePath = benchmarkFilePath + "ctg-" + ctgId
+						+ File.separator + "mapping-" + apcgId + "_"
+						+ igaMapper.getMapperId() + routing + ".xml";
+				PrintWriter pw = new PrintWriter(mappingXmlFilePath);
+				logger.info("Saving the mapping XML file" + mappingXmlFilePath);
+				pw.write(mappingXml[0]);
+				pw.close();
+
+				String convergenceFilePath = benchmarkFilePath + "ctg-" + ctgId
+						+ File.separator + "convergence-" + apcgId + "_"
+						+ igaMapper.getMapperId() + routing + ".csv";
+				logger.info("Saving the islands' convergence into " + convergenceFilePath);
+				igaMapper.saveConvergence(convergenceFilePath);
+
+				logger.info("The generated mapping is:");
+				igaMapper.printCurrentMapping();
+
+				igaMapper.analyzeIt();
+			}
+		};
+
+		mapperInputProcessor.getCliOptions().addOption("p", "population-size", true, "the population size of each island");
+		mapperInputProcessor.getCliOptions().addOption("g", "generations", true, "the number of generations");
+		mapperInputProcessor.getCliOptions().addOption("x", "crossover-probability", true, "crossover probability (%); a comma separated list assigns the values to the islands, in turn");
+		mapperInputProcessor.getCliOptions().addOption("m", "mutation-probability", true, "mutation probability (%); a comma separated list assigns the values to the islands, in turn");
+		mapperInputProcessor.getCliOptions().addOption("I", "islands", true, "the number of islands (default " + ISLANDS + ")");
+		mapperInputProcessor.getCliOptions().addOption("T", "threads", true, "how many threads evolve the islands (default: the number of available processors)");
+		mapperInputProcessor.getCliOptions().addOption("mi", "migration-interval", true, "the number of generations between two migrations (default " + MIGRATION_INTERVAL + ")");
+		mapperInputProcessor.getCliOptions().addOption("ms", "migration-size", true, "how many individuals are sent to each neighbor island (default " + MIGRATION_SIZE + ")");
+		mapperInputProcessor.getCliOptions().addOption("mt", "migration-topology", true, "RING, TORUS or FULLY_CONNECTED (default RING)");
+		mapperInputProcessor.getCliOptions().addOption("mp", "migration-policy", true, "which individuals migrate: BEST or RANDOM (default BEST)");
+
+		mapperInputProcessor.processInput(args);
+	}
+
+}
@@ -1,15 +1,10 @@
 package ro.ulbsibiu.acaps.mapper.ga.ea.multiObjective;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
@@ -39,6 +34,7 @@ import ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType;
 import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.mapper.MapperDatabase;
 import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
+import ro.ulbsibiu.acaps.mapper.ga.FitnessCache;
 import ro.ulbsibiu.acaps.mapper.ga.ea.EnergyAwareJMetalEvolutionaryAlgorithmMapper;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.JMetalEvolutionaryAlgorithmMapper;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.JMetalEvolutionaryAlgorithmMapper.JMetalAlgorithm;
@@ -46,9 +42,17 @@ import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.TrackedAlgorithm;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.operator.crossover.MappingSimilarityCrossover;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.operator.crossover.PositionBasedCrossover;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.operator.mutation.OsaMutation;
+import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.problem.BatchEvaluableProblem;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.nsgaII.NSGAII;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.spea2.SPEA2;
+import ro.ulbsibiu.acaps.mapper.thermal.BlockThermalModel;
+import ro.ulbsibiu.acaps.mapper.thermal.HotSpotExecutor;
+import ro.ulbsibiu.acaps.mapper.thermal.ThermalInfluenceMatrix;
+import ro.ulbsibiu.acaps.mapper.thermal.ThermalResultCache;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationGraph;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
 import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
+import ro.ulbsibiu.acaps.mapper.util.MeshSymmetry;
 import ro.ulbsibiu.acaps.noc.xml.link.LinkType;
 import ro.ulbsibiu.acaps.noc.xml.node.NodeType;
 
@@ -73,13 +77,20 @@ import ro.ulbsibiu.acaps.noc.xml.node.NodeType;
  * </p>
  * 
  * <p>
- * Hotsopt writes a file with the final steady state temperatures into a .steady
- * file. The file is parsed and tile temperature is retrieved. Using the
+ * Hotspot prints the final steady state temperatures, which are parsed to
+ * retrieve the tile temperatures. Using the
  * temperature, the second objective is calculated. This means those tiles that
  * are having high temperature should be kept apart from each other. Note that
  * the second objective is in contradiction with the first (energy objective).
  * </p>
  * 
+ * <p>
+ * HotSpot is run only with {@link ThermalModelType#HOTSPOT}. Otherwise, the
+ * same steady state block thermal model is computed in Java (see
+ * {@link ThermalModelType}), which avoids starting a process and writing and
+ * parsing files for each evaluation.
+ * </p>
+ * 
  * @author shaikat
  * @author cradu (code review and integration)
  */
@@ -97,9 +108,6 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 	/** path to Hotspot */
 	public static final String HOTSPOT_PATH = "./lib/hotspot/";
 	
-	/** this unique identifier helps having unique Hotspot files when we do multiple simulations at a time */
-	private static final long UID = System.currentTimeMillis();
-
 	private CorePower[] corePower;
 
 	/** solutions will be stored here (Pareto front) */
@@ -117,6 +125,57 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 	/** the number of 2D mesh NoC columns */
 	private int noOfCols;
 	
+	/**
+	 * How the temperatures of the tiles are computed
+	 * 
+	 * @author cradu
+	 * 
+	 */
+	public static enum ThermalModelType {
+		/** the HotSpot binary is run for each evaluation ({@link HotSpotExecutor}) */
+		HOTSPOT,
+		/** the HotSpot block model is solved in Java ({@link BlockThermalModel}) */
+		BLOCK_MODEL,
+		/**
+		 * the temperatures are obtained from the (cached) thermal influence
+		 * matrix of the floorplan ({@link ThermalInfluenceMatrix})
+		 */
+		INFLUENCE_MATRIX
+	}
+	
+	/** the directory where the thermal influence matrices are cached */
+	public static final String THERMAL_CACHE_PATH = HOTSPOT_PATH + "cache/";
+	
+	/** how the temperatures are computed */
+	private ThermalModelType thermalModelType = ThermalModelType.INFLUENCE_MATRIX;
+	
+	/** the thermal model of the floorplan (with {@link ThermalModelType#BLOCK_MODEL}) */
+	private BlockThermalModel thermalModel;
+	
+	/**
+	 * the thermal influence matrix of the floorplan (with
+	 * {@link ThermalModelType#INFLUENCE_MATRIX})
+	 */
+	private ThermalInfluenceMatrix influenceMatrix;
+	
+	/** the maximum number of concurrent HotSpot processes */
+	private int hotspotProcesses = Runtime.getRuntime().availableProcessors();
+	
+	/** runs HotSpot (with {@link ThermalModelType#HOTSPOT}) */
+	private HotSpotExecutor hotspotExecutor;
+	
+	/**
+	 * whether or not the power maps cached by {@link #thermalResultCache} are
+	 * canonicalized with the reflections of the floorplan
+	 */
+	private boolean thermalCacheSymmetry = false;
+	
+	/**
+	 * the temperatures already computed by HotSpot (with
+	 * {@link ThermalModelType#HOTSPOT}), saved between runs
+	 */
+	private ThermalResultCache thermalResultCache;
+	
 	public EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm(
 			String benchmarkName, String ctgId, String apcgId,
 			String topologyName, String topologySize, File topologyDir,
@@ -188,6 +247,50 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 	public String getMapperId() {
 		return MAPPER_ID_PREFIX + super.getMapperId();
 	}
+	
+	/**
+	 * Chooses how the temperatures are computed (by default, with the thermal
+	 * influence matrix)
+	 * 
+	 * @param thermalModelType
+	 *            the {@link ThermalModelType}
+	 */
+	public void setThermalModelType(ThermalModelType thermalModelType) {
+		this.thermalModelType = thermalModelType;
+	}
+	
+	/**
+	 * Sets how many HotSpot processes may run concurrently, with
+	 * {@link ThermalModelType#HOTSPOT} (by default, one per processor)
+	 * 
+	 * @param hotspotProcesses
+	 *            the maximum number of concurrent HotSpot processes
+	 */
+	public void setHotSpotProcesses(int hotspotProcesses) {
+		logger.assertLog(hotspotProcesses > 0, "At least one HotSpot process is required!");
+		this.hotspotProcesses = hotspotProcesses;
+	}
+	
+	/**
+	 * Chooses whether or not the power maps whose temperatures are cached
+	 * (with {@link ThermalModelType#HOTSPOT}) are canonicalized with the
+	 * reflections of the floorplan (by default, they are not)
+	 * 
+	 * @param thermalCacheSymmetry
+	 *            whether or not to canonicalize the power maps
+	 */
+	public void setThermalCacheSymmetry(boolean thermalCacheSymmetry) {
+		this.thermalCacheSymmetry = thermalCacheSymmetry;
+	}
+	
+	/**
+	 * @return the file where the temperatures computed by HotSpot for this
+	 *         benchmark and floorplan are saved
+	 */
+	private File getThermalResultCacheFile() {
+		return new File(THERMAL_CACHE_PATH + benchmarkName + "-ctg-" + ctgId
+				+ "-" + noOfCols + "x" + noOfRows + ".trc");
+	}
 
 	/**
 	 * @param apcg
@@ -226,8 +329,68 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 		previousCorePowerCount += coreList.size();
 	}
 
+	/**
+	 * Calculates the total power consumed by each core of an application
+	 * graph (read by the streaming XML reader). It has the same effect as
+	 * {@link #parseApcgForPower(ApcgType, CtgType)}.
+	 * 
+	 * @param graph
+	 *            the application graph
+	 */
+	public void parseApplicationGraphForPower(ApplicationGraph graph) {
+		logger.assertLog(graph != null, "The application graph cannot be null");
+
+		for (int i = 0; i < graph.getCoreCount(); i++) {
+			if (graph.getCoreTaskCount(i) > 0) {
+				int uid = Integer.valueOf(graph.getCoreUid(i));
+				CorePower power = corePower[previousCorePowerCount + uid];
+				power.setApcgId(graph.getApcgId());
+				power.setCoreId(uid);
+				power.setTotalComsumedPower(power.getTotalConsumedPower()
+						+ graph.getCorePower(i));
+			}
+		}
+		previousCorePowerCount += graph.getCoreCount();
+	}
+
 	@Override
 	protected void doBeforeMapping() {
+		File flpFile = new File(HOTSPOT_PATH + "flp/" + noOfCols + "x" + noOfRows + ".flp");
+		File configFile = new File(HOTSPOT_PATH + "hotspot.config");
+		if (thermalModelType == ThermalModelType.HOTSPOT) {
+			try {
+				hotspotExecutor = new HotSpotExecutor(new File(HOTSPOT_PATH), flpFile, hotspotProcesses);
+			} catch (IOException e) {
+				logger.fatal(e);
+				System.exit(-1);
+			}
+			thermalResultCache = new ThermalResultCache(
+					FitnessCache.DEFAULT_MAXIMUM_SIZE,
+					ThermalResultCache.DEFAULT_QUANTUM,
+					thermalCacheSymmetry ? MeshSymmetry.reflections(noOfRows, noOfCols) : null);
+			try {
+				int loaded = thermalResultCache.load(getThermalResultCacheFile(), configFile, flpFile);
+				logger.info("Loaded the temperatures of " + loaded + " power maps from " + getThermalResultCacheFile());
+			} catch (IOException e) {
+				logger.warn("Ignoring the thermal result cache file " + getThermalResultCacheFile(), e);
+			}
+		} else {
+			try {
+				if (thermalModelType == ThermalModelType.BLOCK_MODEL) {
+					thermalModel = BlockThermalModel.load(configFile, flpFile);
+				} else {
+					influenceMatrix = ThermalInfluenceMatrix.load(configFile,
+							flpFile, new File(THERMAL_CACHE_PATH));
+				}
+				logger.info("Using a Java thermal model (" + thermalModelType + ") of floorplan " + flpFile);
+			} catch (IOException e) {
+				logger.fatal(e);
+				System.exit(-1);
+			} catch (IllegalArgumentException e) {
+				logger.fatal("Cannot model floorplan " + flpFile + ": " + e.getMessage());
+				System.exit(-1);
+			}
+		}
 		computeCoreNeighbors();
 		computeCoreToCommunicationPDF();
 		computeCoresCommunicationPDF();
@@ -309,6 +472,8 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 			logger.info("Objectives values have been writen to file FUN");
 			solutions.printObjectivesToFile("FUN");
 
+			logger.info(((EnergyAndTemperatureAwareMappingProblem) problem).fitnessCache);
+
 			totalNumberOfSolutions = solutions.size();
 
 			/* soultions of pareto front is stored into solution array */
@@ -321,6 +486,22 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 			logger.error(e);
 		} catch (JMException e) {
 			logger.error(e);
+		} finally {
+			if (hotspotExecutor != null) {
+				hotspotExecutor.shutdown();
+				hotspotExecutor = null;
+			}
+			if (thermalResultCache != null) {
+				logger.info(thermalResultCache);
+				try {
+					int saved = thermalResultCache.save(getThermalResultCacheFile(),
+							new File(HOTSPOT_PATH + "hotspot.config"),
+							new File(HOTSPOT_PATH + "flp/" + noOfCols + "x" + noOfRows + ".flp"));
+					logger.info("Saved the temperatures of " + saved + " power maps into " + getThermalResultCacheFile());
+				} catch (IOException e) {
+					logger.warn("Could not save the thermal result cache into " + getThermalResultCacheFile(), e);
+				}
+			}
 		}
 		return totalNumberOfSolutions;
 	}
@@ -349,14 +530,14 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 	}
 
 	/**
-	 * Dynamically writes the ptrace Hotspot file. The file has specific format.
-	 * The file is written by maintaining the format. The first line has the NoC
-	 * tiles and the second puts the power consumed by the cores mapped onto
-	 * these tiles (in Watts).
+	 * Computes the power consumed by each NoC tile
 	 * 
-	 * @param individual the mapping
+	 * @param individual
+	 *            the mapping
+	 * @return the power consumed by the core mapped onto each tile (0 for the
+	 *         tiles without a core), in Watts
 	 */
-	private void writePtraceFile(int[] individual) {
+	private double[] calculateTilePowers(int[] individual) {
 		double[] powerConsumedByCores = new double[individual.length];
 		for (int i = 0; i < individual.length; i++) {
 			if (individual[i] != -1) {
@@ -365,164 +546,101 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 				powerConsumedByCores[i] = 0.0;
 			}
 		}
-
-		try {
-			String fileName = HOTSPOT_PATH + benchmarkName + "-ctg-" + ctgId
-					+ "-mapping-" + apcgId + "_" + getMapperId() + "-"
-					+ buildRoutingTable + "-" + legalTurnSet + "-" + noOfCols
-					+ "x" + noOfRows + UID;
-			FileOutputStream stream = new FileOutputStream(fileName + ".ptrace");
-			OutputStreamWriter out = new OutputStreamWriter(stream, "UTF-8");
-
-			for (int i = 0; i < powerConsumedByCores.length; i++) {
-				if (i < powerConsumedByCores.length - 1) {
-					out.write("Tile" + i + "\t");
-				}
-				else {
-					out.write("Tile" + i);
-				}
-			}
-			out.write(System.getProperty("line.separator"));
-			for (int i = 0; i < powerConsumedByCores.length; i++) {
-				if (i < powerConsumedByCores.length - 1) {
-					out.write(Double.toString(powerConsumedByCores[i]) + "\t");
-				}
-				else {
-					out.write(Double.toString(powerConsumedByCores[i]));
-				}
-			}
-			out.write(System.getProperty("line.separator"));
-
-			out.flush();
-			stream.flush();
-			out.close();
-			stream.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
+		return powerConsumedByCores;
 	}
 
-	/**
-	 * Calls Hotspot and waits until it finishes running. Hotspot writes the
-	 * .steady file. As input it requires .flp and .ptrace files.
-	 * 
-	 * @see #HOTSPOT_PATH
-	 * 
-	 * @param individual the mapping
-	 */
-	private void runHotspot(int[] individual) {
-		try {
-			String flpFilename = HOTSPOT_PATH + "flp/" + noOfCols + "x" + noOfRows + ".flp";
-			String ptraceFileName = HOTSPOT_PATH + benchmarkName + "-ctg-"
-					+ ctgId + "-mapping-" + apcgId + "_" + getMapperId() + "-"
-					+ buildRoutingTable + "-" + legalTurnSet + "-" + noOfCols
-					+ "x" + noOfRows + UID + ".ptrace";
-			String steadyStateFileName = HOTSPOT_PATH + benchmarkName + "-ctg-"
-					+ ctgId + "-mapping-" + apcgId + "_" + getMapperId() + "-"
-					+ buildRoutingTable + "-" + legalTurnSet + "-" + noOfCols
-					+ "x" + noOfRows + UID + ".steady";
-
-			String hotspotCmd = HOTSPOT_PATH + "hotspot -c " + HOTSPOT_PATH
-					+ "hotspot.config -f " + flpFilename + " -p "
-					+ ptraceFileName + " -steady_file " + steadyStateFileName;
-			if (logger.isDebugEnabled()) {
-				logger.debug("Calling HotSpot with command: " + hotspotCmd);
-			}
-			Process p = Runtime.getRuntime().exec(hotspotCmd);
+	private double calculateSecondFitness(int[] individual) {
+		logger.assertLog(individual != null,
+				"Attempting to compute fitness for a NULL individual!");
+		logger.assertLog(individual.length == nodes.length,
+				"The individual doesn't contains " + nodes.length + " genes!");
 
-			p.waitFor();
-			p.destroy();
-			
-			File f = new File(ptraceFileName);
-			boolean deleted = f.delete();
-			if (logger.isDebugEnabled()) {
-				if (deleted) {
-					logger.debug("Deleted file " + f.getName());
-				} else {
-					logger.debug("Could not delete file " + f.getName());
-				}
+		double temperatureOfCores[] = null;
+
+		switch (thermalModelType) {
+		case HOTSPOT:
+			try {
+				temperatureOfCores = computeHotSpotTemperatures(
+						Arrays.asList(calculateTilePowers(individual))).get(0);
+			} catch (IOException e) {
+				logger.fatal(e);
+				System.exit(-1);
 			}
-		} catch (InterruptedException e) {
-			logger.error(e);
-			System.exit(0);
-		} catch (IOException e) {
-			logger.error(e);
-			System.exit(0);
+			break;
+		case BLOCK_MODEL:
+			temperatureOfCores = thermalModel.computeSteadyStateTemperatures(calculateTilePowers(individual));
+			break;
+		default:
+			temperatureOfCores = influenceMatrix.computeSteadyStateTemperatures(calculateTilePowers(individual));
+			break;
 		}
 
+		return calculateSecondFitness(temperatureOfCores);
 	}
 
 	/**
-	 * The method parses the Hotspot steady file and retrieves the temperature
-	 * of each tile. The file has specific format also.
+	 * Computes the temperatures of some power maps with HotSpot. The cached
+	 * power maps are not simulated again, and the distinct new ones are
+	 * simulated concurrently.
 	 * 
-	 * @param individual
-	 *            the mapping
-	 * @return the temperatures
+	 * @param powers
+	 *            the power maps
+	 * @return the temperatures of each power map (in the same order)
+	 * @throws IOException
+	 *             if HotSpot fails
 	 */
-	private double[] parseSteadyFile(int[] individual) {
-		double[] temperatures = new double[individual.length];
-
-		try {
-			String fileName = HOTSPOT_PATH + benchmarkName + "-ctg-" + ctgId
-					+ "-mapping-" + apcgId + "_" + getMapperId() + "-"
-					+ buildRoutingTable + "-" + legalTurnSet + "-" + noOfCols
-					+ "x" + noOfRows + UID + ".steady";
-
-			FileInputStream fstream = new FileInputStream(fileName);
-			DataInputStream in = new DataInputStream(fstream);
-			BufferedReader br = new BufferedReader(new InputStreamReader(in));
-			String strLine;
-
-			String tem[] = new String[2];
-			int i = 0;
-			while ((strLine = br.readLine()) != null) {
-				if (strLine.startsWith("Tile")) {
-					tem = strLine.split("\t");
-					temperatures[i++] = Double.parseDouble(tem[1]);
-				} else {
-					break;
+	private List<double[]> computeHotSpotTemperatures(List<double[]> powers)
+			throws IOException {
+		List<double[]> temperatures = new ArrayList<double[]>(powers.size());
+		List<double[]> newPowers = new ArrayList<double[]>();
+		// the index of each power map from newPowers (for the ones not cached)
+		int[] newIndexes = new int[powers.size()];
+		for (int i = 0; i < powers.size(); i++) {
+			double[] cached = thermalResultCache.get(powers.get(i));
+			temperatures.add(cached);
+			if (cached == null) {
+				int index = -1;
+				for (int j = 0; j < newPowers.size() && index == -1; j++) {
+					if (Arrays.equals(newPowers.get(j), powers.get(i))) {
+						index = j;
+					}
+				}
+				if (index == -1) {
+					index = newPowers.size();
+					newPowers.add(powers.get(i));
 				}
+				newIndexes[i] = index;
 			}
-
-			in.close();
-			
-			File f = new File(fileName);
-			boolean deleted = f.delete();
-			if (logger.isDebugEnabled()) {
-				if (deleted) {
-					logger.debug("Deleted file " + f.getName());
-				} else {
-					logger.debug("Could not delete file " + f.getName());
+		}
+		if (newPowers.size() > 0) {
+			List<double[]> newTemperatures = hotspotExecutor.computeSteadyStateTemperatures(newPowers);
+			for (int i = 0; i < newPowers.size(); i++) {
+				thermalResultCache.put(newPowers.get(i), newTemperatures.get(i));
+			}
+			for (int i = 0; i < powers.size(); i++) {
+				if (temperatures.get(i) == null) {
+					temperatures.set(i, newTemperatures.get(newIndexes[i]));
 				}
 			}
-		} catch (Exception e) {
-			logger.error(e);
-			System.exit(0);
 		}
-
 		return temperatures;
 	}
 
-	private double calculateSecondFitness(int[] individual) {
-		logger.assertLog(individual != null,
-				"Attempting to compute fitness for a NULL individual!");
-		logger.assertLog(individual.length == nodes.length,
-				"The individual doesn't contains " + nodes.length + " genes!");
-
-		double temperatureOfCores[] = new double[individual.length];
-
-		writePtraceFile(individual);
-		runHotspot(individual);
-		temperatureOfCores = parseSteadyFile(individual);
-
+	/**
+	 * Computes the second fitness (the temperature objective) of a mapping
+	 * with the given tile temperatures
+	 * 
+	 * @param temperatureOfCores
+	 *            the temperature of each tile
+	 * @return the second fitness
+	 */
+	private double calculateSecondFitness(double[] temperatureOfCores) {
 		double maxTemperature = Double.MIN_VALUE;
 
 		// here we take 4 adjacent (2 in X direction and 2 in Y direction) cores
 		// to measure the temperature of the block. All temperature of 4 cores
 		// are summed up. Temperature of block need to be minimized
-		for (int i = 0; i < individual.length; i++) {
+		for (int i = 0; i < temperatureOfCores.length; i++) {
 			int currentCol = i % hSize;
 			int currentRow = i / hSize;
 			if (currentCol + 1 < noOfCols && currentRow + 1 < noOfRows) {
@@ -672,12 +790,12 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 		MapperInputProcessor mapperInputProcessor = new MapperInputProcessor() {
 		
 			/* (non-Javadoc)
-			 * @see ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor#useMapper(java.lang.String, java.lang.String, java.lang.String, java.lang.String, java.util.List, java.util.List, boolean, ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper.LegalTurnSet, double, java.lang.Long)
+			 * @see ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor#useMapper(java.lang.String, java.lang.String, java.lang.String, java.lang.String, ro.ulbsibiu.acaps.mapper.util.ApplicationInput, boolean, ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper.LegalTurnSet, double, java.lang.Long)
 			 */
 			@Override
 			public void useMapper(String benchmarkFilePath,
 					String benchmarkName, String ctgId, String apcgId,
-					List<CtgType> ctgTypes, List<ApcgType> apcgTypes,
+					ApplicationInput application,
 					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
 					Long seed) throws JAXBException, TooFewNocNodesException,
 					FileNotFoundException {
@@ -696,10 +814,7 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 							+ apcgId + ")");
 		
 					EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm eaJMetalMapper;
-					int cores = 0;
-					for (int k = 0; k < apcgTypes.size(); k++) {
-						cores += apcgTypes.get(k).getCore().size();
-					}
+					int cores = application.getCoreCount();
 					int hSize = (int) Math.ceil(Math.sqrt(cores));
 					hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
 					String meshSize;
@@ -848,13 +963,17 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 					// "telecom-mocsyn-16tile-selectedpe.traffic.config",
 					// linkBandwidth);
 		
-					for (int k = 0; k < apcgTypes.size(); k++) {
-						// read the input data using the Unified Framework's XML
-						// interface
-						eaJMetalMapper.parseApcg(apcgTypes.get(k), ctgTypes.get(k));
-						eaJMetalMapper.parseApcgForPower(apcgTypes.get(k),
-								ctgTypes.get(k));
-		
+					// read the input data (unmarshalled or streamed)
+					eaJMetalMapper.parseApplication(application);
+					for (int k = 0; k < application.size(); k++) {
+						if (application.isStreamed()) {
+							eaJMetalMapper.parseApplicationGraphForPower(application
+									.getApplicationGraphs().get(k));
+						} else {
+							eaJMetalMapper.parseApcgForPower(application
+									.getApcgTypes().get(k), application
+									.getCtgTypes().get(k));
+						}
 					}
 		
 					// // This is just for checking that
@@ -862,6 +981,12 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 					// // and parseApcg(...) have the same effect
 					// eagaMapper.printCores();
 		
+					eaJMetalMapper.setThermalModelType(ThermalModelType.valueOf(cmd
+							.getOptionValue("tm", ThermalModelType.INFLUENCE_MATRIX.toString())));
+					if (cmd.hasOption("hp")) {
+						eaJMetalMapper.setHotSpotProcesses(Integer.valueOf(cmd.getOptionValue("hp")));
+					}
+					eaJMetalMapper.setThermalCacheSymmetry(cmd.hasOption("ts"));
 					String[] mappingXml = eaJMetalMapper.map();
 					String routing = "";
 					if (doRouting) {
@@ -919,11 +1044,20 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 				true, "mutation Java class");
 		mapperInputProcessor.getCliOptions().addOption("m",
 				"mutation-probability", true, "mutation probability (%)");
+		mapperInputProcessor.getCliOptions().addOption("tm", "thermal-model",
+				true, "how the temperatures are computed ("
+						+ Arrays.toString(ThermalModelType.values())
+						+ ", default " + ThermalModelType.INFLUENCE_MATRIX + ")");
+		mapperInputProcessor.getCliOptions().addOption("hp", "hotspot-processes",
+				true, "the maximum number of concurrent HotSpot processes (default, one per processor)");
+		mapperInputProcessor.getCliOptions().addOption("ts", "thermal-symmetry",
+				false, "cache the HotSpot temperatures of the reflected power maps too");
 		
 		mapperInputProcessor.processInput(args);
 }
 	
-	private static class EnergyAndTemperatureAwareMappingProblem extends Problem {
+	private static class EnergyAndTemperatureAwareMappingProblem extends
+			Problem implements BatchEvaluableProblem {
 
 		/** auto generated serial version UID */
 		private static final long serialVersionUID = -1128225954989831104L;
@@ -936,6 +1070,9 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 
 		private Random rand;
 
+		/** the energy and the temperature of the already evaluated mappings */
+		private FitnessCache fitnessCache = new FitnessCache(FitnessCache.DEFAULT_MAXIMUM_SIZE);
+
 		public EnergyAndTemperatureAwareMappingProblem(
 				EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm mapper,
 				int nodes, int cores, Random rand)
@@ -993,11 +1130,79 @@ public class EnergyAndTemperatureAwareJMetalMultiObjectiveEvolutionAlgorithm
 
 		public void evaluate(Solution solution) throws JMException {
 			int permutation[] = ((Permutation) solution.getDecisionVariables()[0]).vector_;
-			double Firstfitness = mapper.fitnessCalculation(permutation);
-			double secondfitness = mapper.calculateSecondFitness(permutation);
+			// the (HotSpot based) temperature is evaluated only once per mapping
+			double[] fitness = fitnessCache.get(permutation);
+			if (fitness == null) {
+				double Firstfitness = mapper.fitnessCalculation(permutation);
+				double secondfitness = mapper.calculateSecondFitness(permutation);
+				fitness = new double[] { Firstfitness, secondfitness };
+				fitnessCache.put(permutation, fitness);
+			}
+
+			solution.setObjective(0, fitness[0]);
+			solution.setObjective(1, fitness[1]);
+		}
+
+		/**
+		 * Evaluates a whole generation. With HotSpot, the temperatures of all
+		 * the new mappings are computed concurrently.
+		 */
+		@Override
+		public void evaluate(SolutionSet solutions) throws JMException {
+			if (mapper.thermalModelType != ThermalModelType.HOTSPOT) {
+				for (int i = 0; i < solutions.size(); i++) {
+					evaluate(solutions.get(i));
+				}
+				return;
+			}
+
+			// the distinct mappings which are not cached yet
+			List<int[]> permutations = new ArrayList<int[]>();
+			List<double[]> powers = new ArrayList<double[]>();
+			for (int i = 0; i < solutions.size(); i++) {
+				int permutation[] = ((Permutation) solutions.get(i).getDecisionVariables()[0]).vector_;
+				if (fitnessCache.get(permutation) == null
+						&& indexOf(permutations, permutation) == -1) {
+					permutations.add(permutation);
+					powers.add(mapper.calculateTilePowers(permutation));
+				}
+			}
+			List<double[]> temperatures = null;
+			try {
+				temperatures = mapper.computeHotSpotTemperatures(powers);
+			} catch (IOException e) {
+				logger.fatal(e);
+				System.exit(-1);
+			}
+			for (int i = 0; i < permutations.size(); i++) {
+				double Firstfitness = mapper.fitnessCalculation(permutations.get(i));
+				double secondfitness = mapper.calculateSecondFitness(temperatures.get(i));
+				fitnessCache.put(permutations.get(i), new double[] { Firstfitness, secondfitness });
+			}
 
-			solution.setObjective(0, Firstfitness);
-			solution.setObjective(1, secondfitness);
+			for (int i = 0; i < solutions.size(); i++) {
+				Solution solution = solutions.get(i);
+				int permutation[] = ((Permutation) solution.getDecisionVariables()[0]).vector_;
+				double[] fitness = fitnessCache.get(permutation);
+				if (fitness == null) {
+					// evicted from the (bounded) cache in the meantime
+					int index = indexOf(permutations, permutation);
+					fitness = new double[] {
+							mapper.fitnessCalculation(permutation),
+							mapper.calculateSecondFitness(temperatures.get(index)) };
+				}
+				solution.setObjective(0, fitness[0]);
+				solution.setObjective(1, fitness[1]);
+			}
+		}
+
+		private static int indexOf(List<int[]> permutations, int[] permutation) {
+			for (int i = 0; i < permutations.size(); i++) {
+				if (Arrays.equals(permutations.get(i), permutation)) {
+					return i;
+				}
+			}
+			return -1;
 		}
 
 	}
@@ -10,11 +10,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
 
 import jmetal.base.Algorithm;
 import jmetal.base.Problem;
@@ -36,7 +34,6 @@ import jmetal.util.JMException;
 import org.apache.log4j.Logger;
 
 import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
-import ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType;
 import ro.ulbsibiu.acaps.ctg.xml.ctg.CommunicationType;
 import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.ctg.xml.mapping.MapType;
@@ -50,6 +47,8 @@ import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.operator.crossover.PositionBasedC
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.problem.MappingProblem;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.singleObjective.evolutionStrategy.ElitistES;
 import ro.ulbsibiu.acaps.mapper.util.ApcgFilenameFilter;
+import ro.ulbsibiu.acaps.mapper.util.ApcgIndex;
+import ro.ulbsibiu.acaps.mapper.util.JaxbUtils;
 
 /**
  * Helper class that integrates the single objective Genetic Algorithms with the Network-on-Chip application mapping problem
@@ -84,6 +83,12 @@ public class JMetalEvolutionaryAlgorithmMapper implements Mapper {
 		 */
 		SSGA,
 		
+		/**
+		 * Asynchronous Steady State Genetic Algorithm (keeps an evaluation in
+		 * flight on each worker thread)
+		 */
+		ASSGA,
+		
 		/**
 		 * Generational Genetic Algorithm
 		 */
@@ -306,6 +311,7 @@ public class JMetalEvolutionaryAlgorithmMapper implements Mapper {
 			SolutionSet population = algorithm.execute();
 			long estimatedTime = System.currentTimeMillis() - initTime;
 			logger.info("Total execution time: " + estimatedTime / 1000.0 + " s");
+			logger.info(((MappingProblem) problem).getFitnessCache());
 
 //			population.printObjectivesToFile("FUN");
 //			logger.info("Objectives values have been writen to file FUN");
@@ -341,9 +347,7 @@ public class JMetalEvolutionaryAlgorithmMapper implements Mapper {
 			
 			ro.ulbsibiu.acaps.ctg.xml.mapping.ObjectFactory mappingFactory = new ro.ulbsibiu.acaps.ctg.xml.mapping.ObjectFactory();
 			JAXBElement<MappingType> jaxbElement = mappingFactory.createMapping(mapping);
-			JAXBContext jaxbContext = JAXBContext.newInstance(MappingType.class);
-			Marshaller marshaller = jaxbContext.createMarshaller();
-			marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
+			Marshaller marshaller = JaxbUtils.getMarshaller(MappingType.class);
 			marshaller.marshal(jaxbElement, stringWriter[0]);
 		} catch (ClassNotFoundException e) {
 			logger.error(e);
@@ -388,17 +392,14 @@ public class JMetalEvolutionaryAlgorithmMapper implements Mapper {
 					.getCommunication();
 
 			/*
-			 * taskAssingToIpcore is a list of task assigned to a IP core here
-			 * it is considered a core is assign a task
+			 * the IP core of a task is the core which has it as its first task
+			 * here it is considered a core is assign a task
 			 */
-			List<TaskType> taskAssignToIpcore;
+			ApcgIndex apcgIndex = new ApcgIndex(this.currentApcg.get(k), null);
 
 			// no of communication in the current Ctg
 			int noOfComm = this.currentCtg.get(k).getCommunication().size();
 
-			// no of IP cores in current apcg
-			int noOfIpCore = this.currentApcg.get(k).getCore().size();
-
 			// source and destination of application task
 			String sourceTask, destTask;
 
@@ -414,26 +415,16 @@ public class JMetalEvolutionaryAlgorithmMapper implements Mapper {
 				destTask = communication.get(i).getDestination().getId();
 				volume = communication.get(i).getVolume();
 
-				// source task
-				for (int j = 0; j < noOfIpCore; j++) {
-					taskAssignToIpcore = this.currentApcg.get(k).getCore()
-							.get(j).getTask();
-					if (sourceTask.equals(taskAssignToIpcore.get(0).getId())) {
-						sourceIpCore = this.currentApcg.get(k).getCore().get(j)
-								.getUid();
-						break;
-					}
+				// source task (the previous IP core is kept if none is found)
+				String ipCore = apcgIndex.getFirstTaskCoreUid(sourceTask);
+				if (ipCore != null) {
+					sourceIpCore = ipCore;
 				}
 
 				// destination task
-				for (int j = 0; j < noOfIpCore; j++) {
-					taskAssignToIpcore = this.currentApcg.get(k).getCore()
-							.get(j).getTask();
-					if (destTask.equals(taskAssignToIpcore.get(0).getId())) {
-						destIpCore = this.currentApcg.get(k).getCore().get(j)
-								.getUid();
-						break;
-					}
+				ipCore = apcgIndex.getFirstTaskCoreUid(destTask);
+				if (ipCore != null) {
+					destIpCore = ipCore;
 				}
 				communications.add(new Communication(this.currentApcg.get(k)
 						.getId(), sourceIpCore, destIpCore, volume));
@@ -653,15 +644,8 @@ public class JMetalEvolutionaryAlgorithmMapper implements Mapper {
 				List<File> apcgsList = new ArrayList<File>();
 
 				for (int k = 0; k < ctgIds.length; k++) {
-					JAXBContext jaxbContext = JAXBContext
-							.newInstance("ro.ulbsibiu.acaps.ctg.xml.ctg");
-					Unmarshaller unmarshaller = jaxbContext
-							.createUnmarshaller();
-					@SuppressWarnings("unchecked")
-					CtgType ctgType = ((JAXBElement<CtgType>) unmarshaller
-							.unmarshal(new File(path + "ctg-" + ctgIds[k]
-									+ File.separator + "ctg-" + ctgIds[k]
-									+ ".xml"))).getValue();
+					CtgType ctgType = JaxbUtils.unmarshal("ro.ulbsibiu.acaps.ctg.xml.ctg",
+							new File(path + "ctg-" + ctgIds[k] + File.separator + "ctg-" + ctgIds[k] + ".xml"));
 					ctgTypes.add(ctgType);
 
 					String[] apcgs = null;
@@ -692,14 +676,8 @@ public class JMetalEvolutionaryAlgorithmMapper implements Mapper {
 							id = specifiedApcgId;
 						}
 						if (apcgFiles[k].getName().endsWith(id + ".xml")) {
-							JAXBContext jaxbContext = JAXBContext
-									.newInstance("ro.ulbsibiu.acaps.ctg.xml.apcg");
-							Unmarshaller unmarshaller = jaxbContext
-									.createUnmarshaller();
-							@SuppressWarnings("unchecked")
-							ApcgType apcg = ((JAXBElement<ApcgType>) unmarshaller
-									.unmarshal(new File(apcgFiles[k]
-											.getAbsolutePath()))).getValue();
+							ApcgType apcg = JaxbUtils.unmarshal("ro.ulbsibiu.acaps.ctg.xml.apcg",
+									new File(apcgFiles[k].getAbsolutePath()));
 							apcgTypes.add(apcg);
 						}
 					}
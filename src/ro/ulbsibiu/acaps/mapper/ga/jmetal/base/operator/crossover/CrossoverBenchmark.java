@@ -0,0 +1,88 @@
+package ro.ulbsibiu.acaps.mapper.ga.jmetal.base.operator.crossover;
+
+import jmetal.base.Problem;
+import jmetal.base.Solution;
+import jmetal.base.operator.crossover.Crossover;
+import jmetal.base.solutionType.PermutationSolutionType;
+import jmetal.util.JMException;
+
+/**
+ * Measures the cost of a call of the permutation crossover operators, for
+ * permutations of 16, 32, 64, 128 and 256 genes. Each operator is first
+ * warmed up (so that the JIT compiler has compiled it) and then it is timed
+ * over a number of calls. The average time (in nanoseconds) per call is
+ * printed.
+ *
+ * @author cradu
+ *
+ */
+public class CrossoverBenchmark {
+
+	private static final int[] LENGTHS = { 16, 32, 64, 128, 256 };
+
+	private static final int WARM_UP_CALLS = 200000;
+
+	private static final int TIMED_CALLS = 1000000;
+
+	/**
+	 * A problem which only defines a permutation of a given length
+	 *
+	 * @author cradu
+	 *
+	 */
+	private static class PermutationProblem extends Problem {
+
+		/** automatically generated serial version UID */
+		private static final long serialVersionUID = -2938411566253468117L;
+
+		public PermutationProblem(int length) throws ClassNotFoundException {
+			numberOfVariables_ = 1;
+			numberOfObjectives_ = 1;
+			numberOfConstraints_ = 0;
+			problemName_ = "PermutationProblem";
+			length_ = new int[] { length };
+			solutionType_ = new PermutationSolutionType(this);
+		}
+
+		@Override
+		public void evaluate(Solution solution) throws JMException {
+			;
+		}
+	}
+
+	private static long time(Crossover crossover, Solution parent1,
+			Solution parent2, int calls) throws JMException {
+		long start = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			Solution[] offspring = (Solution[]) crossover
+					.execute(new Solution[] { parent1, parent2 });
+			parent1 = offspring[0];
+		}
+		return System.nanoTime() - start;
+	}
+
+	public static void main(String[] args) throws ClassNotFoundException,
+			JMException {
+		Crossover[] crossovers = { new PositionBasedCrossover(),
+				new PMXCrossover() };
+		for (int i = 0; i < crossovers.length; i++) {
+			crossovers[i].setParameter("probability", 1.0);
+		}
+
+		System.out.println("operator,genes,ns/call");
+		for (int i = 0; i < crossovers.length; i++) {
+			for (int j = 0; j < LENGTHS.length; j++) {
+				Problem problem = new PermutationProblem(LENGTHS[j]);
+				Solution parent1 = new Solution(problem);
+				Solution parent2 = new Solution(problem);
+
+				time(crossovers[i], parent1, parent2, WARM_UP_CALLS);
+				long nanos = time(crossovers[i], parent1, parent2, TIMED_CALLS);
+
+				System.out.println(crossovers[i].getClass().getSimpleName()
+						+ "," + LENGTHS[j] + ","
+						+ (nanos / (double) TIMED_CALLS));
+			}
+		}
+	}
+}
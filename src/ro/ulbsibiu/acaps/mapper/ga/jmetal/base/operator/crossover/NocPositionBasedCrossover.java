@@ -14,6 +14,7 @@ import jmetal.util.PseudoRandom;
 
 import org.apache.log4j.Logger;
 
+import ro.ulbsibiu.acaps.mapper.ga.PermutationCrossoverUtils;
 import ro.ulbsibiu.acaps.mapper.sa.Core;
 
 /**
@@ -221,9 +222,10 @@ public abstract class NocPositionBasedCrossover extends Crossover {
 	 *         required number of communications)
 	 */
 	private long calculateCost(int[] indv) {
+		int[] positions = PermutationCrossoverUtils.inversePositions(indv);
 		long cost = 0;
 		for (int i = 0; i < requiredNumberOfCommunications; i++) {
-			int positionOfSource = searchArray(indv, communications.get(i).sourceCore);
+			int positionOfSource = positions[communications.get(i).sourceCore];
 			if (positionOfSource == -1) {
 				logger.fatal("Position of core "
 						+ communications.get(i).sourceCore + " in individual "
@@ -231,7 +233,7 @@ public abstract class NocPositionBasedCrossover extends Crossover {
 						+ " couldn't be determined! Exiting...");
 				System.exit(0);
 			}
-			int positionOfDest = searchArray(indv, communications.get(i).destCore);
+			int positionOfDest = positions[communications.get(i).destCore];
 			if (positionOfDest == -1) {
 				logger.fatal("Position of core "
 						+ communications.get(i).destCore + " in individual "
@@ -260,10 +262,11 @@ public abstract class NocPositionBasedCrossover extends Crossover {
 	 */
 	private int[] findFixedPositions(int[] indv) {
 		int[] fixedPositions = new int[requiredNumberOfCores];
+		int[] positions = PermutationCrossoverUtils.inversePositions(indv);
 
 		int i = 0;
-		while (fixedCores[i] != -1) {
-			fixedPositions[i] = searchArray(indv, fixedCores[i]);
+		while (i < requiredNumberOfCores) {
+			fixedPositions[i] = positions[fixedCores[i]];
 			logger.assertLog(fixedPositions[i] != -1, "Fixed core "
 					+ fixedCores[i] + " was not found in individual " + indv
 					+ "!");
@@ -320,62 +323,18 @@ public abstract class NocPositionBasedCrossover extends Crossover {
 					fixedParent = "parent2";
 				}
 
-				// initialize the offsprings array
-				for (int i = 0; i < offspring1Vector.length; i++) {
-					offspring1Vector[i] = Integer.MIN_VALUE;
-				}
-
-				int[] tempParent = new int[permutationLength];
-
+				// copy the content of the fixed positions from the fixed
+				// parent to child1. The rest of the positions of child1 are
+				// filled, from left to right, with the content of the other
+				// parent which was not copied from the fixed parent
 				if (fixedParent.equals("parent1")) {
-					tempParent = Arrays.copyOf(parent2Vector,
-							parent2Vector.length);
+					PermutationCrossoverUtils.positionBasedCrossover(parent1Vector,
+							parent2Vector, offspring1Vector, fixedPositions,
+							fixedPositions.length);
 				} else {
-					tempParent = Arrays.copyOf(parent1Vector,
-							parent1Vector.length);
-				}
-				
-				// copy the content of the specific position(setOfPosition) from
-				// parent1 to child1. Also set Integer.MIN_VALUE in position of
-				// parent2 (tempParent) where the content of the parent1 of the
-				// specific position (setOfPosition) is matched
-				for (int i = 0; i < fixedPositions.length; i++) {
-					if (fixedParent.equals("parent1")) {
-						offspring1Vector[fixedPositions[i]] = parent1Vector[fixedPositions[i]];
-					} else {
-						offspring1Vector[fixedPositions[i]] = parent2Vector[fixedPositions[i]];
-					}
-					for (int j = 0; j < tempParent.length; j++) {
-						if (fixedParent.equals("parent1")) {
-							if (tempParent[j] == parent1Vector[fixedPositions[i]]) {
-								tempParent[j] = Integer.MIN_VALUE;
-								break;
-							}
-						} else {
-							if (tempParent[j] == parent2Vector[fixedPositions[i]]) {
-								tempParent[j] = Integer.MIN_VALUE;
-								break;
-							}
-						}
-					}
-				}
-				
-				 // starting from left to right of parent2(tempParent), copy
-				 // content from parent2 to the rest of the position of child1 by
-				 // skipping Integer.MIN_VALUE
-				for (int i = 0; i < tempParent.length; i++) {
-					if (tempParent[i] == Integer.MIN_VALUE) {
-						continue;
-					} else {
-						for (int j = 0; j < offspring1Vector.length; j++) {
-							if (offspring1Vector[j] != Integer.MIN_VALUE) {
-								continue;
-							} else {
-								offspring1Vector[j] = tempParent[i];
-								break;
-							}
-						}
-					}
+					PermutationCrossoverUtils.positionBasedCrossover(parent2Vector,
+							parent1Vector, offspring1Vector, fixedPositions,
+							fixedPositions.length);
 				}
 				// child1 finished
 				
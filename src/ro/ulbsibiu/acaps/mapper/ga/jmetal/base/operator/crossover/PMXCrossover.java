@@ -34,6 +34,14 @@ public class PMXCrossover extends Crossover {
 	
 	private static Class<?> PERMUTATION_SOLUTION ; 
 
+	/** the replacement buffers, reused between the calls made by the same thread */
+	private static final ThreadLocal<int[][]> REPLACEMENTS = new ThreadLocal<int[][]>() {
+		@Override
+		protected int[][] initialValue() {
+			return new int[][] { new int[0], new int[0] } ;
+		}
+	} ;
+
 	/**
 	 * Constructor
 	 */
@@ -137,8 +145,13 @@ public class PMXCrossover extends Crossover {
 					cuttingPoint2 = swap          ;
 				} // if
 				//      STEP 2: Get the subchains to interchange
-				int replacement1[] = new int[permutationLength] ;
-				int replacement2[] = new int[permutationLength] ;
+				int replacements[][] = REPLACEMENTS.get() ;
+				if (replacements[0].length < permutationLength) {
+					replacements[0] = new int[permutationLength] ;
+					replacements[1] = new int[permutationLength] ;
+				} // if
+				int replacement1[] = replacements[0] ;
+				int replacement2[] = replacements[1] ;
 				for (int i = 0; i < permutationLength; i++)
 					replacement1[i] = replacement2[i] = -1;
 
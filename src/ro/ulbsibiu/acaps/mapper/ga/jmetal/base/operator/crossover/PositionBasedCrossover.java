@@ -1,6 +1,5 @@
 package ro.ulbsibiu.acaps.mapper.ga.jmetal.base.operator.crossover;
 
-import java.util.Arrays;
 import java.util.Properties;
 import jmetal.base.*;
 import jmetal.base.operator.crossover.Crossover;
@@ -8,6 +7,7 @@ import jmetal.base.variable.*;
 import jmetal.util.Configuration;
 import jmetal.util.JMException;
 import jmetal.util.PseudoRandom;
+import ro.ulbsibiu.acaps.mapper.ga.PermutationCrossoverUtils;
 
 /**
  * This class allows to apply a Position based crossover operator using two
@@ -79,138 +79,28 @@ public class PositionBasedCrossover extends Crossover {
 					.getDecisionVariables()[0]).vector_;
 
 			if (PseudoRandom.randDouble() < probability) {
-
-				for (int i = 0; i < offspring1Vector.length; i++) {
-					offspring1Vector[i] = offspring2Vector[i] = Integer.MIN_VALUE;
-				}
-
 				// 25 percent of the gene is used as positions
 				int numberOfPositions = (int) ((permutationLength / 100.0) * 25);
 
-				// PermutationUtility obj = new PermutationUtility();
-				// int[] setOfPositions = obj.intPermutation(numberOfPositions);
-
-				int[] setOfPositions = new int[numberOfPositions];
-
-				for (int i = 0; i < setOfPositions.length; i++)
-					setOfPositions[i] = Integer.MIN_VALUE;
-
-				for (int i = 0; i < setOfPositions.length; i++) {
-					int number;
-					// be sure that position is not repeated
-					boolean track;
-					do {
-						track = false;
-						number = PseudoRandom.randInt(0, permutationLength - 1);
-						for (int k = 0; k < setOfPositions.length; k++)
-							if (number == setOfPositions[k]) {
-								track = true;
-								break;
-							}
-
-					} while (track);
-
-					setOfPositions[i] = number;
-
-				}
-
-				int[] tempParent = new int[permutationLength];
-
-				tempParent = Arrays.copyOf(parent2Vector, parent2Vector.length);
-
-				/*
-				 * copy the content of the specific position(setOfPosition) from
-				 * parent1 to child1. Also set Integer.MIN_VALUE in position of parent2
-				 * (tempParent) where the content of the parent1 of the specific
-				 * position (setOfPosition) is matched
-				 */
-				for (int i = 0; i < setOfPositions.length; i++) {
-					offspring1Vector[setOfPositions[i]] = parent1Vector[setOfPositions[i]];
-					int j;
-					for (j = 0; j < tempParent.length; j++) {
-						if (tempParent[j] == parent1Vector[setOfPositions[i]]) {
-							tempParent[j] = Integer.MIN_VALUE;
-							break;
-						}
-					}
-
-				}
 				/*
-				 * starting from left to right of parent2(tempParent), copy
-				 * content from parent2 to the rest of the position of child1 by
-				 * skipping Integer.MIN_VALUE
+				 * copy the content of the specific positions from parent1 to
+				 * child1. The rest of the positions of child1 are filled, from
+				 * left to right, with the content of parent2 which was not
+				 * copied from parent1
 				 */
-				for (int i = 0; i < tempParent.length; i++) {
-
-					if (tempParent[i] == Integer.MIN_VALUE)
-						continue;
-					else {
-						for (int j = 0; j < offspring1Vector.length; j++) {
-							if (offspring1Vector[j] != Integer.MIN_VALUE)
-								continue;
-							else {
-								offspring1Vector[j] = tempParent[i];
-								break;
-							}
-						}
-					}
-
-				}
+				int[] setOfPositions = PermutationCrossoverUtils.choosePositions(
+						permutationLength, numberOfPositions, null);
+				PermutationCrossoverUtils.positionBasedCrossover(parent1Vector,
+						parent2Vector, offspring1Vector, setOfPositions,
+						numberOfPositions);
 				// child1 finished
 
 				// child2 start
-
-				for (int i = 0; i < setOfPositions.length; i++)
-					setOfPositions[i] = Integer.MIN_VALUE;
-
-				for (int i = 0; i < setOfPositions.length; i++) {
-					int number;
-					// be sure that position is not repeated
-					boolean track;
-					do {
-						track = false;
-						number = PseudoRandom.randInt(0, permutationLength - 1);
-						for (int k = 0; k < setOfPositions.length; k++)
-							if (number == setOfPositions[k]) {
-								track = true;
-								break;
-							}
-
-					} while (track);
-
-					setOfPositions[i] = number;
-
-				}
-
-				tempParent = Arrays.copyOf(parent1Vector, parent1Vector.length);
-
-				for (int i = 0; i < setOfPositions.length; i++) {
-					offspring2Vector[setOfPositions[i]] = parent2Vector[setOfPositions[i]];
-					int j;
-					for (j = 0; j < tempParent.length; j++) {
-						if (tempParent[j] == parent2Vector[setOfPositions[i]]) {
-							tempParent[j] = Integer.MIN_VALUE;
-							break;
-						}
-					}
-
-				}
-
-				for (int i = 0; i < tempParent.length; i++) {
-
-					if (tempParent[i] == Integer.MIN_VALUE)
-						continue;
-					else {
-						for (int j = 0; j < offspring2Vector.length; j++) {
-							if (offspring2Vector[j] != Integer.MIN_VALUE)
-								continue;
-							else {
-								offspring2Vector[j] = tempParent[i];
-								break;
-							}
-						}
-					}
-				}
+				setOfPositions = PermutationCrossoverUtils.choosePositions(
+						permutationLength, numberOfPositions, null);
+				PermutationCrossoverUtils.positionBasedCrossover(parent2Vector,
+						parent1Vector, offspring2Vector, setOfPositions,
+						numberOfPositions);
 
 			}// if
 		}// if
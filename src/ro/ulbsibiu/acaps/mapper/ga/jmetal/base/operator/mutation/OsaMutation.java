@@ -1,7 +1,5 @@
 package ro.ulbsibiu.acaps.mapper.ga.jmetal.base.operator.mutation;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
 
 import jmetal.base.Solution;
@@ -14,7 +12,7 @@ import org.apache.log4j.Logger;
 
 import ro.ulbsibiu.acaps.mapper.osa.OptimizedSimulatedAnnealingMapper;
 import ro.ulbsibiu.acaps.mapper.sa.Core;
-import ro.ulbsibiu.acaps.mapper.util.MathUtils;
+import ro.ulbsibiu.acaps.mapper.util.AliasTable;
 import ro.ulbsibiu.acaps.noc.xml.node.NodeType;
 
 /**
@@ -55,6 +53,15 @@ public class OsaMutation extends Mutation {
 	/** for every core, the (from and to) communication probability density function */
 	private double[][] coresCommunicationPDF;
 	
+	/** alias table for sampling cores according to {@link #coreToCommunication} */
+	private AliasTable coreToCommunicationAliasTable;
+	
+	/** alias tables for sampling cores according to {@link #coresCommunicationPDF} */
+	private AliasTable[] coresCommunicationAliasTables;
+	
+	/** the neighbors of each node (the same as {@link #nodeNeighbors}, as arrays) */
+	private int[][] nodeNeighborIds;
+	
 	private double initialTemperature;
 	
 	private double temperature;
@@ -83,6 +90,14 @@ public class OsaMutation extends Mutation {
 
 	public void setNodeNeighbors(Set<Integer>[] nodeNeighbors) {
 		this.nodeNeighbors = nodeNeighbors;
+		nodeNeighborIds = new int[nodeNeighbors.length][];
+		for (int i = 0; i < nodeNeighbors.length; i++) {
+			nodeNeighborIds[i] = new int[nodeNeighbors[i].size()];
+			int j = 0;
+			for (Integer neighbor : nodeNeighbors[i]) {
+				nodeNeighborIds[i][j++] = neighbor;
+			}
+		}
 	}
 
 	public void setInitialTemperature(double initialTemperature) {
@@ -92,6 +107,7 @@ public class OsaMutation extends Mutation {
 
 	public void setCoreToCommunication(double[] coreToCommunication) {
 		this.coreToCommunication = coreToCommunication;
+		coreToCommunicationAliasTable = new AliasTable(coreToCommunication);
 	}
 
 	public void setTotalToCommunication(long totalToCommunication) {
@@ -100,6 +116,10 @@ public class OsaMutation extends Mutation {
 
 	public void setCoresCommunicationPDF(double[][] coresCommunicationPDF) {
 		this.coresCommunicationPDF = coresCommunicationPDF;
+		coresCommunicationAliasTables = new AliasTable[coresCommunicationPDF.length];
+		for (int i = 0; i < coresCommunicationPDF.length; i++) {
+			coresCommunicationAliasTables[i] = new AliasTable(coresCommunicationPDF[i]);
+		}
 	}
 
 	/**
@@ -193,23 +213,17 @@ public class OsaMutation extends Mutation {
 	 * @return the chosen core
 	 */
 	private int selectCore() {
-		int core = -1;
+		// as the temperature decreases, the probabilities equalize more and
+		// more: the PDF is a mixture of the communication PDF (with weight
+		// temperature / initial temperature) and the uniform PDF
+		double weight = Math.min(1, temperature / initialTemperature);
 		double p = uniformRandomVariable();
-		double sum = 0;
-		for (int i = 0; i < cores.length; i++) {
-//			sum += coreToCommunication[i] / totalToCommunication;
-			
-//			sum += (meanPDF + temperature * (coreToCommunication[i] - meanPDF)) / totalToCommunication;
-			
-			// as the temperature decreases, the probabilities equalize more and more
-			sum += ((totalToCommunication * 1.0 / cores.length) + (temperature / initialTemperature)
-					* (coreToCommunication[i] - (totalToCommunication * 1.0 / cores.length)))
-					/ totalToCommunication;
-			if (MathUtils.definitelyLessThan((float)p, (float)sum) 
-					|| MathUtils.approximatelyEqual((float)p, (float)sum)) {
-				core = i;
-				break; // essential!
-			}
+		int core;
+		if (p < weight && !coreToCommunicationAliasTable.isEmpty()) {
+			core = coreToCommunicationAliasTable.sample(p / weight);
+		} else {
+			core = Math.min(cores.length - 1,
+					(int) (((p - weight) / (1 - weight)) * cores.length));
 		}
 		return core;
 	}
@@ -240,46 +254,42 @@ public class OsaMutation extends Mutation {
 					+ coreNeighbors[core1]);
 		}
 
-		double[] core1CommunicationPDF = coresCommunicationPDF[core1];
-		int core2 = -1;
-		double p = uniformRandomVariable();
-		double sum = 0;
-		for (int i = 0; i < core1CommunicationPDF.length; i++) {
-			sum += core1CommunicationPDF[i];
-			if (MathUtils.definitelyLessThan((float) p, (float) sum)
-					|| MathUtils.approximatelyEqual((float) p, (float) sum)) {
-				core2 = i;
-				break; // essential!
-			}
-		}
+		int core2 = coresCommunicationAliasTables[core1]
+				.sample(uniformRandomVariable());
 		if (core2 == -1) {
-			if (MathUtils.approximatelyEqual((float) sum, 0)) {
-				core2 = (int) uniformIntegerRandomVariable(0, cores.length - 1);
-				if (logger.isDebugEnabled()) {
-					logger.debug("Core "
-							+ core1
-							+ " doesn't communicate with any core. It will be swapped with core "
-							+ core2 + " (randomly chosen)");
-				}
-			} else {
-				logger.fatal("Unable to determine a core with which core " + core1
-						+ " will swap");
+			core2 = (int) uniformIntegerRandomVariable(0, cores.length - 1);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Core "
+						+ core1
+						+ " doesn't communicate with any core. It will be swapped with core "
+						+ core2 + " (randomly chosen)");
 			}
 		}
 		int core2Node = cores[core2].getNodeId();
-		List<Integer> core1AllowedNodes = new ArrayList<Integer>(
-				nodeNeighbors[core2Node]);
-		core1AllowedNodes.remove(new Integer(node1));
+		// the allowed nodes are core2Node's neighbors, except node1
+		int[] core2NodeNeighbors = nodeNeighborIds[core2Node];
+		int node1Position = -1;
+		for (int i = 0; i < core2NodeNeighbors.length; i++) {
+			if (core2NodeNeighbors[i] == node1) {
+				node1Position = i;
+				break;
+			}
+		}
+		int core1AllowedNodes = core2NodeNeighbors.length
+				- (node1Position == -1 ? 0 : 1);
 
-		if (core1AllowedNodes.size() == 0) {
+		if (core1AllowedNodes == 0) {
 			node2 = node1;
 			logger.warn("No nodes are allowed for core " + core1
 					+ ". We pretend we make a move by swapping node " + node1
 					+ " with node " + node2);
 		} else {
 			int i = (int) uniformIntegerRandomVariable(0,
-					core1AllowedNodes.size() - 1);
-			node2 = core1AllowedNodes.get(i);
+					core1AllowedNodes - 1);
+			if (node1Position != -1 && i >= node1Position) {
+				i++;
+			}
+			node2 = core2NodeNeighbors[i];
 
 			// node2 = -1;
 			// double[] core2CommunicationPDF = coresCommunicationPDF[core2];
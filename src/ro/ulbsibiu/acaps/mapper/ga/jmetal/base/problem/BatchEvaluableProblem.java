@@ -0,0 +1,25 @@
+package ro.ulbsibiu.acaps.mapper.ga.jmetal.base.problem;
+
+import jmetal.base.Problem;
+import jmetal.base.SolutionSet;
+import jmetal.util.JMException;
+
+/**
+ * A {@link Problem} which can evaluate more solutions at once (e.g.,
+ * concurrently). The algorithms which know about it evaluate a whole
+ * generation with a single call.
+ *
+ * @author cradu
+ *
+ */
+public interface BatchEvaluableProblem {
+
+	/**
+	 * Evaluates the objectives and the constraints of each solution
+	 *
+	 * @param solutions
+	 *            the solutions
+	 * @throws JMException
+	 */
+	void evaluate(SolutionSet solutions) throws JMException;
+}
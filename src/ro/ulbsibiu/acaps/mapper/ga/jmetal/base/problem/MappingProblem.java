@@ -8,7 +8,10 @@ import jmetal.base.solutionType.PermutationSolutionType;
 import jmetal.base.variable.Permutation;
 import jmetal.util.JMException;
 import ro.ulbsibiu.acaps.mapper.ga.Communication;
+import ro.ulbsibiu.acaps.mapper.ga.CommunicationIndex;
 import ro.ulbsibiu.acaps.mapper.ga.Core;
+import ro.ulbsibiu.acaps.mapper.ga.FitnessCache;
+import ro.ulbsibiu.acaps.mapper.util.MeshSymmetry;
 
 /**
  * Represents the Network-on-Chip application mapping problem as a single objective {@link Problem}
@@ -27,11 +30,24 @@ public class MappingProblem extends Problem {
 	
 	private int noOfNodes;
 	
+	/** the communications indexed by core numbers */
+	private CommunicationIndex communicationIndex;
+	
+	/**
+	 * the fitness of the already evaluated mappings (the fitness depends only
+	 * on the hop counts, so it is kept by the dihedral group of the mesh)
+	 */
+	private FitnessCache fitnessCache;
+	
 	public MappingProblem(Integer numberOfVariables, ArrayList<Communication> communications,
 						    Core[] cores, int noOfNodes	)  throws ClassNotFoundException {
 		this.communications = communications;
 		this.cores = cores;
 		this.noOfNodes = noOfNodes;
+		this.communicationIndex = new CommunicationIndex(communications, cores, noOfNodes);
+		int meshSize = (int) Math.sqrt(noOfNodes);
+		this.fitnessCache = new FitnessCache(FitnessCache.DEFAULT_MAXIMUM_SIZE,
+				MeshSymmetry.dihedral(meshSize, meshSize));
 		
 		numberOfVariables_   = numberOfVariables ;
 	    numberOfObjectives_  = 1;
@@ -55,6 +71,13 @@ public class MappingProblem extends Problem {
 		
 	}
 	
+	/**
+	 * @return the cache with the fitness of the already evaluated mappings
+	 */
+	public FitnessCache getFitnessCache() {
+		return fitnessCache;
+	}
+	
 	public void evaluate(Solution solution) throws JMException {
 		//raw fitness of the individual
 		double fitOfIndv = 0.0;
@@ -65,78 +88,13 @@ public class MappingProblem extends Problem {
 	    permutationLength = ((Permutation)solution.getDecisionVariables()[0]).getLength() ;
 	    permutation = ((Permutation)solution.getDecisionVariables()[0]).vector_;
 		
-		/*now I want to find where source and destination IP core
-		 * is placed in NOC node
-		 */
-		
-		/*
-		 *  posOfSourceIpcoreInNocNode -> position of the source Ip core in the Noc node
-		 *  posOfDestIpcoreInNocNode -> position of the destination Ip core in the Noc node
-		 *  
-		 *  posOfSourceIPCoreinCores -> position of the source IP core in cores array
-		 *  posOfDestIPCoreinCores -> position of the destination IP core in cores array	
-		 */
-	
-		for(int i = 0; i < communications.size(); i++){
-			
-			int posOfSourceIpCoreInNocNode = -1, posOfDestIpCoreInNocNode = -1, posOfSourceIPCoreInCores = -1, posOfDestIPCoreInCores = -1;
-				
-			/*first i want to find which core (in integer number) source and destination IPcore is*/
-			
-			for(int j = 0; j < cores.length; j++) {
-				if(this.communications.get(i).getApcgId().equals(cores[j].getApcgId()) && this.communications.get(i).getSourceUid().equals(cores[j].getCoreUid())) {
-					posOfSourceIPCoreInCores = j;
-					break;
-				}
-			}
-		
-			for(int j = 0; j < cores.length; j++) {
-				if(this.communications.get(i).getApcgId().equals(cores[j].getApcgId()) && this.communications.get(i).getdestUid().equals(cores[j].getCoreUid())) {
-					posOfDestIPCoreInCores = j;
-					break;
-				}
-			}
-		
-		
-			for(int j = 0; j < noOfNodes; j++) {
-				if(posOfSourceIPCoreInCores == permutation[j]) {
-					posOfSourceIpCoreInNocNode = j;
-					break;
-				}
-			}
-			
-			for(int j = 0; j < noOfNodes; j++) {
-				if(posOfDestIPCoreInCores == permutation[j]) {
-					posOfDestIpCoreInNocNode = j;
-					break;
-				}
-			}
-		
-			/*get the position (x, y) of the source and destination IP core 
-			 * in the Noc Matrix (4x4)
-			 */
-			/* (xSource, ySource)-> position of source IP core in MxM matrix
-			 * (xDest, yDest)-> position of destination IP core in MxM matrix
-			 */
-			
-			int xSource, ySource, xDest, yDest, M;
-			M = (int) Math.sqrt(noOfNodes);
-			
-			xSource = posOfSourceIpCoreInNocNode / M;
-			ySource = posOfSourceIpCoreInNocNode % M;
-			
-			xDest = posOfDestIpCoreInNocNode / M;
-			yDest = posOfDestIpCoreInNocNode % M;
-			
-			/* Now find out the manhattan distance between source and destination node
-			 * Formula: |(X1-x2)| + |(y1-y2)|
-			*/ 			
-			
-			int distance = Math.abs(xSource - xDest) + Math.abs(ySource - yDest);
-			
-			fitOfIndv += this.communications.get(i).getVolume() * distance;  
-			
-			}
+		double[] fitness = fitnessCache.get(permutation);
+		if (fitness == null) {
+			fitOfIndv = communicationIndex.calculateCost(permutation);
+			fitnessCache.put(permutation, fitOfIndv);
+		} else {
+			fitOfIndv = fitness[0];
+		}
 		
 		solution.setObjective(0, fitOfIndv);
 
@@ -8,6 +8,7 @@ package ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.nsgaII;
 
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.TrackedAlgorithm;
 import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.operator.crossover.NocPositionBasedCrossover;
+import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.problem.BatchEvaluableProblem;
 import jmetal.base.*;
 import jmetal.qualityIndicator.QualityIndicator;
 import jmetal.util.*;
@@ -30,6 +31,23 @@ public class NSGAII extends TrackedAlgorithm {
     this.problem_ = problem;
   } // NSGAII
 
+  /**
+   * Evaluates the objectives and the constraints of some solutions, with a
+   * single call when the problem is a {@link BatchEvaluableProblem}
+   * @param solutions the solutions
+   * @throws JMException
+   */
+  private void evaluate(SolutionSet solutions) throws JMException {
+    if (problem_ instanceof BatchEvaluableProblem) {
+      ((BatchEvaluableProblem) problem_).evaluate(solutions);
+    } else {
+      for (int i = 0; i < solutions.size(); i++) {
+        problem_.evaluate(solutions.get(i));
+        problem_.evaluateConstraints(solutions.get(i));
+      }
+    }
+  } // evaluate
+
   /**   
    * Runs the NSGA-II algorithm.
    * @return a <code>SolutionSet</code> that is a set of non dominated solutions
@@ -75,11 +93,10 @@ public class NSGAII extends TrackedAlgorithm {
     Solution newSolution;
     for (int i = 0; i < populationSize; i++) {
       newSolution = new Solution(problem_);
-      problem_.evaluate(newSolution);
-      problem_.evaluateConstraints(newSolution);
       evaluations++;
       population.add(newSolution);
     } //for   
+    evaluate(population);
     
     for (int i = 0; i < populationSize; i++) {
 		algorithmTracker.processIntermediateSolution("generations" + "_" + "solution",
@@ -104,8 +121,6 @@ public class NSGAII extends TrackedAlgorithm {
 					.isAssignableFrom(crossoverOperator.getClass())) {
 				Solution[] offSpring = (Solution[]) crossoverOperator.execute(parents);
 				mutationOperator.execute(offSpring[0]);
-				problem_.evaluate(offSpring[0]);
-				problem_.evaluateConstraints(offSpring[0]);
 				offspringPopulation.add(offSpring[0]);
 					
 				parents[0] = (Solution) selectionOperator.execute(population);
@@ -113,23 +128,19 @@ public class NSGAII extends TrackedAlgorithm {
 				
 				offSpring = (Solution[]) crossoverOperator.execute(parents);
 				mutationOperator.execute(offSpring[0]);
-				problem_.evaluate(offSpring[0]);
-				problem_.evaluateConstraints(offSpring[0]);
 				offspringPopulation.add(offSpring[0]);
 			} else {
 				Solution[] offSpring = (Solution[]) crossoverOperator.execute(parents);
 				mutationOperator.execute(offSpring[0]);
 				mutationOperator.execute(offSpring[1]);
-				problem_.evaluate(offSpring[0]);
-				problem_.evaluateConstraints(offSpring[0]);
-				problem_.evaluate(offSpring[1]);
-				problem_.evaluateConstraints(offSpring[1]);
 				offspringPopulation.add(offSpring[0]);
 				offspringPopulation.add(offSpring[1]);
 			}
           evaluations += 2;
         } // if                            
       } // for
+      // the offspring are evaluated together (e.g., concurrently)
+      evaluate(offspringPopulation);
 
 
       // Create the solutionSet union of solutionSet and offSpring
@@ -187,12 +198,13 @@ public class NSGAII extends TrackedAlgorithm {
         } // if
       } // if
       
-      ranking = new Ranking(population);
-      SolutionSet solutionSet = ranking.getSubfront(0); // the first non-dominated front
-      for (int i = 0; i < solutionSet.size(); i++) {
+      // The first non-dominated front of the new population is made of its
+      // solutions ranked 0 in the union (they were added before the others),
+      // so the population needn't be ranked again
+      for (int i = 0; i < population.size() && population.get(i).getRank() == 0; i++) {
     		algorithmTracker.processIntermediateSolution("generations" + "_" + "solution",
     				Integer.toString(evaluations / populationSize) + "_" + i,
-    				solutionSet.get(i));
+    				population.get(i));
         }
     } // while
 
@@ -0,0 +1,210 @@
+/**
+ * asyncSsGA.java
+ * @author cradu
+ * @version 1.0
+ */
+package ro.ulbsibiu.acaps.mapper.ga.jmetal.metaheuristics.singleObjective.geneticAlgorithm;
+
+import jmetal.base.*;
+import jmetal.base.operator.comparator.* ;
+import jmetal.base.operator.selection.WorstSolutionSelection;
+
+import java.util.Comparator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ro.ulbsibiu.acaps.mapper.ga.jmetal.base.TrackedAlgorithm;
+
+import jmetal.util.*;
+
+/**
+ * Class implementing an asynchronous steady state genetic algorithm. Unlike
+ * {@link ssGA}, it doesn't wait for an offspring to be evaluated before
+ * creating the next one: a number of evaluations (one per worker) are kept in
+ * flight on a thread pool, and each evaluated offspring is inserted into the
+ * population as soon as its evaluation completes (it replaces the worst
+ * individual, if it is better).
+ * <p>
+ * Each worker evaluates the solutions with its own {@link Problem} instance,
+ * so the problems need not be thread safe (the same instance may be given for
+ * all the workers, if it is). The selection, crossover and mutation are done
+ * by the calling thread only.
+ * </p>
+ */
+public class asyncSsGA extends TrackedAlgorithm {
+  private static final long serialVersionUID = -4627187290834671902L;
+
+  private Problem           problem_;
+
+  /** the problems used by the workers for evaluating solutions */
+  private Problem []        workerProblems_;
+
+ /**
+  *
+  * Constructor
+  * Create a new asynchronous SSGA instance.
+  * @param problem Problem to solve (it creates the solutions)
+  * @param workerProblems the problems used by the workers for evaluating the
+  *        solutions (one per worker)
+  *
+  */
+  public asyncSsGA(Problem problem, Problem [] workerProblems){
+    this.problem_ = problem;
+    this.workerProblems_ = workerProblems;
+  } // asyncSsGA
+
+  /**
+   * Evaluates a solution with one of the free worker problems
+   */
+  private static class Evaluation implements Callable<Solution> {
+    private Solution solution_;
+    private BlockingQueue<Problem> freeProblems_;
+
+    public Evaluation(Solution solution, BlockingQueue<Problem> freeProblems) {
+      this.solution_ = solution;
+      this.freeProblems_ = freeProblems;
+    }
+
+    public Solution call() throws Exception {
+      Problem problem = freeProblems_.take();
+      try {
+        problem.evaluate(solution_);
+      } finally {
+        freeProblems_.put(problem);
+      }
+      return solution_;
+    }
+  } // Evaluation
+
+  /**
+   * Waits for the next evaluation to complete
+   */
+  private Solution takeEvaluated(CompletionService<Solution> completionService) throws JMException {
+    try {
+      return completionService.take().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JMException("Interrupted while waiting for an evaluation");
+    } catch (ExecutionException e) {
+      Configuration.logger_.severe("asyncSsGA: evaluation failed: " + e.getCause());
+      throw new JMException("Evaluation failed: " + e.getCause());
+    }
+  } // takeEvaluated
+
+ /**
+  * Execute the asynchronous SSGA algorithm
+ * @throws JMException
+  */
+  public SolutionSet execute() throws JMException, ClassNotFoundException {
+    int populationSize ;
+    int maxEvaluations ;
+    int evaluations    ;
+    int submitted      ;
+    int workers        ;
+
+    SolutionSet population        ;
+    Operator    mutationOperator  ;
+    Operator    crossoverOperator ;
+    Operator    selectionOperator ;
+
+    // Single objective comparator (ObjectiveComparator is a raw Comparator)
+    @SuppressWarnings("unchecked")
+    Comparator<Solution> comparator = new ObjectiveComparator(0) ;
+
+    Operator findWorstSolution ;
+    findWorstSolution = new WorstSolutionSelection(comparator) ;
+
+    // Read the parameters
+    populationSize = ((Integer)this.getInputParameter("populationSize")).intValue();
+    maxEvaluations = ((Integer)this.getInputParameter("maxEvaluations")).intValue();
+    workers        = workerProblems_.length;
+
+    // Initialize the variables
+    population   = new SolutionSet(populationSize);
+    evaluations  = 0;
+    submitted    = 0;
+
+    // Read the operators
+    mutationOperator  = this.operators_.get("mutation");
+    crossoverOperator = this.operators_.get("crossover");
+    selectionOperator = this.operators_.get("selection");
+
+    BlockingQueue<Problem> freeProblems = new ArrayBlockingQueue<Problem>(workers);
+    for (int i = 0; i < workers; i++) {
+      freeProblems.add(workerProblems_[i]);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    CompletionService<Solution> completionService = new ExecutorCompletionService<Solution>(executor);
+
+    try {
+      // Create the initial population (all its evaluations are in flight at once)
+      for (int i = 0; i < populationSize; i++) {
+        completionService.submit(new Evaluation(new Solution(problem_), freeProblems));
+        submitted++;
+      }
+      for (int i = 0; i < populationSize; i++) {
+        population.add(takeEvaluated(completionService));
+        evaluations++;
+      } //for
+
+      algorithmTracker.processIntermediateSolution("generations",
+          Integer.toString(evaluations / populationSize),
+          population.get(0));
+
+      // main loop
+      while (evaluations < maxEvaluations) {
+        // keep every worker busy
+        while (submitted < maxEvaluations && submitted - evaluations < workers) {
+          Solution [] parents = new Solution[2];
+
+          // Selection
+          parents[0] = (Solution)selectionOperator.execute(population);
+          parents[1] = (Solution)selectionOperator.execute(population);
+
+          // Crossover
+          Solution [] offspring = (Solution []) crossoverOperator.execute(parents);
+
+          // Mutation
+          mutationOperator.execute(offspring[0]);
+
+          // Evaluation of the new individual (asynchronously)
+          completionService.submit(new Evaluation(offspring[0], freeProblems));
+          submitted++;
+        } // while
+
+        Solution evaluated = takeEvaluated(completionService);
+        evaluations ++;
+
+        // Replacement: replace the worst individual if the new one is better
+        int worstIndividual = (Integer)findWorstSolution.execute(population) ;
+
+        if (comparator.compare(population.get(worstIndividual), evaluated) > 0) {
+          population.remove(worstIndividual) ;
+          population.add(evaluated);
+        } // if
+
+        algorithmTracker.processIntermediateSolution("generations",
+            Integer.toString(evaluations / populationSize),
+            population.get(0));
+      } // while
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Return a population with the best individual
+    population.sort(comparator) ;
+
+    SolutionSet resultPopulation = new SolutionSet(1) ;
+    resultPopulation.add(population.get(0)) ;
+
+    System.out.println("Evaluations: " + evaluations ) ;
+
+    return resultPopulation ;
+  } // execute
+} // asyncSsGA
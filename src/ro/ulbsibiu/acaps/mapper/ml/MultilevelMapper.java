@@ -0,0 +1,1052 @@
+package ro.ulbsibiu.acaps.mapper.ml;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper;
+import ro.ulbsibiu.acaps.mapper.MapperDatabase;
+import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
+import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
+
+/**
+ * Multilevel mapper (coarsen - map - refine), meant for large (multi
+ * application) workloads.
+ * <p>
+ * The core communication graph is repeatedly coarsened by heavy edge matching
+ * (each two matched clusters of cores become a single cluster). In the same
+ * time, the 2D mesh is coarsened by merging every two adjacent columns (or
+ * rows) of nodes. The coarsest graph is greedily mapped onto the coarsest
+ * mesh. Then, level by level, each cluster is projected onto the finer nodes
+ * of its coarse node and the mapping is refined with delta evaluated moves and
+ * swaps. On the coarse levels, the cost is the communication volume
+ * multiplied with the (Manhattan) distance between the centers of the nodes.
+ * On the finest level, the swaps are evaluated with the exact communication
+ * energy variation, as computed by
+ * {@link #calculateSwapEnergyDelta(int[], int, int, int, int)}.
+ * </p>
+ * <p>
+ * A node of a coarse mesh can hold more clusters, as long as they don't have
+ * more cores than the number of NoC nodes covered by the coarse node.
+ * </p>
+ *
+ * <p>
+ * Note that currently, this algorithm works only with M x N 2D mesh NoCs
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class MultilevelMapper extends
+		BandwidthConstrainedEnergyAndPerformanceAwareMapper {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(MultilevelMapper.class);
+
+	private static final String MAPPER_ID = "ml";
+
+	/** the coarsening stops when the graph has at most this many clusters */
+	private static final int COARSEST_CLUSTERS = 8;
+
+	/** the maximum number of refinement passes made at each level */
+	private static final int MAX_REFINEMENT_PASSES = 20;
+
+	/** the minimum cost decrease for which a move is considered an improvement */
+	private static final double IMPROVEMENT_THRESHOLD = 1e-6;
+
+	/**
+	 * A level of the multilevel hierarchy: a graph of clusters of cores and a
+	 * coarse 2D mesh. Level 0 has the cores and the NoC nodes.
+	 *
+	 * @author cradu
+	 *
+	 */
+	private static class Level {
+
+		/** the number of clusters */
+		private int clusters;
+
+		/** the number of cores from each cluster */
+		private int[] clusterSize;
+
+		/** the clusters with which each cluster communicates */
+		private int[][] partners;
+
+		/**
+		 * the (to and from) communication volume between each cluster and its
+		 * partners
+		 */
+		private long[][] weights;
+
+		/**
+		 * the cluster (from the next, coarser, level) which contains each
+		 * cluster
+		 */
+		private int[] parent;
+
+		/** how many rows of nodes the coarse mesh has */
+		private int meshRows;
+
+		/** how many columns of nodes the coarse mesh has */
+		private int meshColumns;
+
+		/** how many rows of NoC nodes are covered by a coarse node */
+		private int blockRows;
+
+		/** how many columns of NoC nodes are covered by a coarse node */
+		private int blockColumns;
+
+		/** how many NoC nodes are covered by each coarse node */
+		private int[] capacity;
+
+		/** the row of each coarse node's center */
+		private double[] centerRow;
+
+		/** the column of each coarse node's center */
+		private double[] centerColumn;
+
+		/**
+		 * the coarse node (from the next, coarser, level) which contains each
+		 * coarse node
+		 */
+		private int[] nodeParent;
+
+		/** the coarse node onto which each cluster is mapped */
+		private int[] assignment;
+
+		/**
+		 * how many cores can still be placed onto each coarse node (negative
+		 * if the node is overloaded)
+		 */
+		private int[] free;
+
+		private int nodes() {
+			return meshRows * meshColumns;
+		}
+
+		private double distance(int node1, int node2) {
+			return Math.abs(centerRow[node1] - centerRow[node2])
+					+ Math.abs(centerColumn[node1] - centerColumn[node2]);
+		}
+	}
+
+	/** the seed for the random number generator */
+	private Long seed;
+
+	/** the random number generator */
+	private Random rand;
+
+	/** the levels of the hierarchy (the first one is the finest) */
+	private List<Level> levels;
+
+	/** how many rows the NoC 2D mesh has */
+	private int nocRows;
+
+	/** how many columns the NoC 2D mesh has */
+	private int nocColumns;
+
+	/**
+	 * the NoC node from each position of the 2D mesh (row * nocColumns +
+	 * column), -1 if there is no node
+	 */
+	private int[] meshToNocNode;
+
+	/** how many moves (or swaps) were evaluated */
+	private long evaluations = 0;
+
+	/**
+	 * Default constructor
+	 * <p>
+	 * No routing table is built.
+	 * </p>
+	 *
+	 * @param benchmarkName
+	 *            the benchmark's name
+	 * @param ctgId
+	 *            the CTG ID
+	 * @param topologyName
+	 *            the topology name
+	 * @param topologySize
+	 *            the topology size
+	 * @param topologyDir
+	 *            the topology directory is used to initialize the NoC topology
+	 *            for XML files. These files are split into two categories:
+	 *            nodes and links. The nodes are expected to be located into the
+	 *            "nodes" subdirectory, and the links into the "links"
+	 *            subdirectory
+	 * @param coresNumber
+	 *            the number of processes (tasks). Note that each core has only
+	 *            one task associated to it
+	 * @param linkBandwidth
+	 *            the bandwidth of each network link
+	 * @param seed
+	 *            the seed for the random number generator
+	 */
+	public MultilevelMapper(String benchmarkName, String ctgId,
+			String apcgId, String topologyName, String topologySize,
+			File topologyDir, int coresNumber, double linkBandwidth,
+			float switchEBit, float linkEBit, Long seed) throws JAXBException {
+		this(benchmarkName, ctgId, apcgId, topologyName, topologySize,
+				topologyDir, coresNumber, linkBandwidth, false,
+				LegalTurnSet.WEST_FIRST, 1.056f, 2.831f, switchEBit, linkEBit, seed);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param benchmarkName
+	 *            the benchmark's name
+	 * @param ctgId
+	 *            the CTG ID
+	 * @param apcgId
+	 *            the APCG ID
+	 * @param topologyName
+	 *            the topology name
+	 * @param topologySize
+	 *            the topology size
+	 * @param topologyDir
+	 *            the topology directory is used to initialize the NoC topology
+	 *            for XML files. These files are split into two categories:
+	 *            nodes and links. The nodes are expected to be located into the
+	 *            "nodes" subdirectory, and the links into the "links"
+	 *            subdirectory
+	 * @param coresNumber
+	 *            the number of processes (tasks). Note that each core has only
+	 *            one task associated to it
+	 * @param linkBandwidth
+	 *            the bandwidth of each network link
+	 * @param buildRoutingTable
+	 *            whether or not to build routing table too
+	 * @param legalTurnSet
+	 *            what {@link LegalTurnSet} the algorithm should use (this is
+	 *            useful only when the routing table is built)
+	 * @param bufReadEBit
+	 *            energy consumption per bit read
+	 * @param bufWriteEBit
+	 *            energy consumption per bit write
+	 * @param switchEBit
+	 *            the energy consumed for switching one bit of data
+	 * @param linkEBit
+	 *            the energy consumed for sending one data bit
+	 * @param seed
+	 *            the seed for the random number generator (can be null)
+	 * @throws JAXBException
+	 */
+	public MultilevelMapper(String benchmarkName, String ctgId, String apcgId,
+			String topologyName, String topologySize, File topologyDir,
+			int coresNumber, double linkBandwidth, boolean buildRoutingTable,
+			LegalTurnSet legalTurnSet, float bufReadEBit, float bufWriteEBit,
+			float switchEBit, float linkEBit, Long seed) throws JAXBException {
+
+		super(benchmarkName, ctgId, apcgId, topologyName, topologySize,
+				topologyDir, coresNumber, linkBandwidth, buildRoutingTable,
+				legalTurnSet, bufReadEBit, bufWriteEBit, switchEBit, linkEBit);
+
+		this.seed = seed;
+	}
+
+	@Override
+	public String getMapperId() {
+		return MAPPER_ID;
+	}
+
+	/**
+	 * @return a random permutation of the numbers 0, 1, ..., n - 1
+	 */
+	private int[] randomPermutation(int n) {
+		int[] permutation = new int[n];
+		for (int i = 0; i < n; i++) {
+			permutation[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = rand.nextInt(i + 1);
+			int temp = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = temp;
+		}
+		return permutation;
+	}
+
+	/**
+	 * Builds the finest level: each core is a cluster and each NoC node is a
+	 * coarse node.
+	 */
+	private Level buildFinestLevel() {
+		nocRows = 0;
+		nocColumns = 0;
+		int[] rows = new int[nodes.length];
+		int[] columns = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			rows[i] = Integer.valueOf(getNodeTopologyParameter(nodes[i], TopologyParameter.ROW));
+			columns[i] = Integer.valueOf(getNodeTopologyParameter(nodes[i], TopologyParameter.COLUMN));
+			nocRows = Math.max(nocRows, rows[i] + 1);
+			nocColumns = Math.max(nocColumns, columns[i] + 1);
+		}
+		meshToNocNode = new int[nocRows * nocColumns];
+		Arrays.fill(meshToNocNode, -1);
+		for (int i = 0; i < nodes.length; i++) {
+			meshToNocNode[rows[i] * nocColumns + columns[i]] = i;
+		}
+
+		Level level = new Level();
+		level.clusters = cores.length;
+		level.clusterSize = new int[cores.length];
+		level.partners = new int[cores.length][];
+		level.weights = new long[cores.length][];
+		for (int i = 0; i < cores.length; i++) {
+			level.clusterSize[i] = 1;
+			long[] toCommunication = cores[i].getToCommunication();
+			long[] fromCommunication = cores[i].getFromCommunication();
+			int partners = 0;
+			for (int j = 0; j < cores.length; j++) {
+				if (j != i && toCommunication[j] + fromCommunication[j] > 0) {
+					partners++;
+				}
+			}
+			level.partners[i] = new int[partners];
+			level.weights[i] = new long[partners];
+			partners = 0;
+			for (int j = 0; j < cores.length; j++) {
+				if (j != i && toCommunication[j] + fromCommunication[j] > 0) {
+					level.partners[i][partners] = j;
+					level.weights[i][partners] = toCommunication[j] + fromCommunication[j];
+					partners++;
+				}
+			}
+		}
+		level.meshRows = nocRows;
+		level.meshColumns = nocColumns;
+		level.blockRows = 1;
+		level.blockColumns = 1;
+		computeMeshLevel(level);
+		return level;
+	}
+
+	/**
+	 * Computes the capacities and the centers of the coarse nodes of a level
+	 * (the mesh and block sizes must be already set)
+	 */
+	private void computeMeshLevel(Level level) {
+		level.capacity = new int[level.nodes()];
+		level.centerRow = new double[level.nodes()];
+		level.centerColumn = new double[level.nodes()];
+		for (int row = 0; row < nocRows; row++) {
+			for (int column = 0; column < nocColumns; column++) {
+				if (meshToNocNode[row * nocColumns + column] != -1) {
+					int node = (row / level.blockRows) * level.meshColumns
+							+ column / level.blockColumns;
+					level.capacity[node]++;
+					level.centerRow[node] += row;
+					level.centerColumn[node] += column;
+				}
+			}
+		}
+		for (int i = 0; i < level.nodes(); i++) {
+			if (level.capacity[i] > 0) {
+				level.centerRow[i] /= level.capacity[i];
+				level.centerColumn[i] /= level.capacity[i];
+			}
+		}
+	}
+
+	/**
+	 * Coarsens the mesh of a level by merging every two adjacent columns (or
+	 * rows, if the blocks are already wider than tall).
+	 *
+	 * @return the coarser level (without its graph)
+	 */
+	private Level coarsenMesh(Level fine) {
+		Level coarse = new Level();
+		coarse.blockRows = fine.blockRows;
+		coarse.blockColumns = fine.blockColumns;
+		if ((fine.blockColumns <= fine.blockRows && fine.meshColumns > 1)
+				|| fine.meshRows == 1) {
+			coarse.blockColumns *= 2;
+		} else {
+			coarse.blockRows *= 2;
+		}
+		coarse.meshRows = (nocRows + coarse.blockRows - 1) / coarse.blockRows;
+		coarse.meshColumns = (nocColumns + coarse.blockColumns - 1) / coarse.blockColumns;
+		computeMeshLevel(coarse);
+
+		fine.nodeParent = new int[fine.nodes()];
+		for (int i = 0; i < fine.nodes(); i++) {
+			int row = (i / fine.meshColumns) * fine.blockRows;
+			int column = (i % fine.meshColumns) * fine.blockColumns;
+			fine.nodeParent[i] = (row / coarse.blockRows) * coarse.meshColumns
+					+ column / coarse.blockColumns;
+		}
+		return coarse;
+	}
+
+	/**
+	 * Coarsens the graph of a level with heavy edge matching: the clusters are
+	 * visited in random order and each unmatched cluster is matched with the
+	 * unmatched partner with which it communicates the most.
+	 *
+	 * @param fine
+	 *            the level to coarsen
+	 * @param coarse
+	 *            the coarser level (its graph is built here)
+	 * @param maxClusterSize
+	 *            the maximum number of cores from a coarse cluster
+	 */
+	private void coarsenGraph(Level fine, Level coarse, int maxClusterSize) {
+		int[] match = new int[fine.clusters];
+		Arrays.fill(match, -1);
+		int[] order = randomPermutation(fine.clusters);
+		for (int i = 0; i < order.length; i++) {
+			int u = order[i];
+			if (match[u] != -1) {
+				continue;
+			}
+			int best = -1;
+			long bestWeight = 0;
+			for (int k = 0; k < fine.partners[u].length; k++) {
+				int v = fine.partners[u][k];
+				if (match[v] == -1
+						&& fine.clusterSize[u] + fine.clusterSize[v] <= maxClusterSize
+						&& fine.weights[u][k] > bestWeight) {
+					best = v;
+					bestWeight = fine.weights[u][k];
+				}
+			}
+			if (best == -1) {
+				match[u] = u;
+			} else {
+				match[u] = best;
+				match[best] = u;
+			}
+		}
+
+		fine.parent = new int[fine.clusters];
+		Arrays.fill(fine.parent, -1);
+		coarse.clusters = 0;
+		for (int u = 0; u < fine.clusters; u++) {
+			if (fine.parent[u] == -1) {
+				fine.parent[u] = coarse.clusters;
+				fine.parent[match[u]] = coarse.clusters;
+				coarse.clusters++;
+			}
+		}
+		coarse.clusterSize = new int[coarse.clusters];
+		int[][] members = new int[coarse.clusters][];
+		for (int u = 0; u < fine.clusters; u++) {
+			int c = fine.parent[u];
+			coarse.clusterSize[c] += fine.clusterSize[u];
+			if (members[c] == null) {
+				members[c] = match[u] == u ? new int[] { u } : new int[] { u, match[u] };
+			}
+		}
+
+		// sum up the communication between the coarse clusters
+		coarse.partners = new int[coarse.clusters][];
+		coarse.weights = new long[coarse.clusters][];
+		long[] accumulated = new long[coarse.clusters];
+		int[] touched = new int[coarse.clusters];
+		for (int c = 0; c < coarse.clusters; c++) {
+			int touchedCount = 0;
+			for (int m = 0; m < members[c].length; m++) {
+				int u = members[c][m];
+				for (int k = 0; k < fine.partners[u].length; k++) {
+					int d = fine.parent[fine.partners[u][k]];
+					if (d == c) {
+						continue;
+					}
+					if (accumulated[d] == 0) {
+						touched[touchedCount++] = d;
+					}
+					accumulated[d] += fine.weights[u][k];
+				}
+			}
+			coarse.partners[c] = new int[touchedCount];
+			coarse.weights[c] = new long[touchedCount];
+			for (int k = 0; k < touchedCount; k++) {
+				coarse.partners[c][k] = touched[k];
+				coarse.weights[c][k] = accumulated[touched[k]];
+				accumulated[touched[k]] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Builds the hierarchy of levels
+	 */
+	private void coarsen() {
+		levels = new ArrayList<Level>();
+		levels.add(buildFinestLevel());
+		while (true) {
+			Level fine = levels.get(levels.size() - 1);
+			if (fine.clusters <= COARSEST_CLUSTERS || fine.nodes() <= 2) {
+				break;
+			}
+			Level coarse = coarsenMesh(fine);
+			int maxClusterSize = 0;
+			for (int i = 0; i < coarse.nodes(); i++) {
+				maxClusterSize = Math.max(maxClusterSize, coarse.capacity[i]);
+			}
+			coarsenGraph(fine, coarse, maxClusterSize);
+			if (coarse.clusters == fine.clusters) {
+				// nothing can be matched anymore
+				fine.parent = null;
+				fine.nodeParent = null;
+				break;
+			}
+			levels.add(coarse);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Level " + (levels.size() - 1) + " has "
+						+ coarse.clusters + " clusters and a "
+						+ coarse.meshRows + "x" + coarse.meshColumns + " mesh");
+			}
+		}
+		logger.info("Coarsened the mapping problem into " + levels.size() + " levels");
+	}
+
+	/**
+	 * @return the cost of placing a cluster onto a coarse node, given the
+	 *         clusters already placed (assignment[cluster] != -1)
+	 */
+	private double placementCost(Level level, int cluster, int node) {
+		double cost = 0;
+		for (int k = 0; k < level.partners[cluster].length; k++) {
+			int partnerNode = level.assignment[level.partners[cluster][k]];
+			if (partnerNode != -1) {
+				cost += level.weights[cluster][k] * level.distance(node, partnerNode);
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * Greedily maps the coarsest graph onto the coarsest mesh. The clusters
+	 * are placed in decreasing order of their communication volume, each onto
+	 * the node which minimizes its communication cost with the already placed
+	 * clusters. The first cluster goes near the center of the mesh.
+	 */
+	private void mapCoarsestLevel(final Level level) {
+		level.assignment = new int[level.clusters];
+		Arrays.fill(level.assignment, -1);
+		level.free = level.capacity.clone();
+
+		final long[] volume = new long[level.clusters];
+		Integer[] order = new Integer[level.clusters];
+		for (int i = 0; i < level.clusters; i++) {
+			order[i] = i;
+			for (int k = 0; k < level.weights[i].length; k++) {
+				volume[i] += level.weights[i][k];
+			}
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return volume[o1] > volume[o2] ? -1 : (volume[o1] < volume[o2] ? 1 : 0);
+			}
+		});
+
+		double meshCenterRow = (nocRows - 1) / 2.0;
+		double meshCenterColumn = (nocColumns - 1) / 2.0;
+		for (int i = 0; i < order.length; i++) {
+			int cluster = order[i];
+			int bestNode = -1;
+			double bestCost = Double.MAX_VALUE;
+			double bestCenterDistance = Double.MAX_VALUE;
+			for (int node = 0; node < level.nodes(); node++) {
+				if (level.free[node] >= level.clusterSize[cluster]) {
+					double cost = placementCost(level, cluster, node);
+					double centerDistance = Math.abs(level.centerRow[node] - meshCenterRow)
+							+ Math.abs(level.centerColumn[node] - meshCenterColumn);
+					if (cost < bestCost
+							|| (cost == bestCost && centerDistance < bestCenterDistance)) {
+						bestNode = node;
+						bestCost = cost;
+						bestCenterDistance = centerDistance;
+					}
+				}
+			}
+			if (bestNode == -1) {
+				bestNode = mostFreeNode(level, null);
+				logger.warn("Cluster " + cluster + " (" + level.clusterSize[cluster]
+						+ " cores) doesn't fit anywhere. It overloads node " + bestNode);
+			}
+			level.assignment[cluster] = bestNode;
+			level.free[bestNode] -= level.clusterSize[cluster];
+		}
+	}
+
+	/**
+	 * @return the node (from the specified ones or, if they are
+	 *         <tt>null</tt>, from all the nodes of the level) which has the
+	 *         most free capacity
+	 */
+	private int mostFreeNode(Level level, int[] candidates) {
+		int best = -1;
+		int n = candidates == null ? level.nodes() : candidates.length;
+		for (int i = 0; i < n; i++) {
+			int node = candidates == null ? i : candidates[i];
+			if (best == -1 || level.free[node] > level.free[best]) {
+				best = node;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Projects the mapping of a coarse level onto the next finer level. The
+	 * clusters are projected in decreasing order of their size, each onto one
+	 * of the finer nodes covered by its parent's coarse node. If the cluster
+	 * doesn't fit there, it is placed onto the closest finer node where it
+	 * fits.
+	 */
+	private void project(Level coarse, final Level fine) {
+		fine.assignment = new int[fine.clusters];
+		Arrays.fill(fine.assignment, -1);
+		fine.free = fine.capacity.clone();
+
+		int[] childrenCount = new int[coarse.nodes()];
+		for (int i = 0; i < fine.nodes(); i++) {
+			childrenCount[fine.nodeParent[i]]++;
+		}
+		int[][] children = new int[coarse.nodes()][];
+		for (int i = 0; i < coarse.nodes(); i++) {
+			children[i] = new int[childrenCount[i]];
+			childrenCount[i] = 0;
+		}
+		for (int i = 0; i < fine.nodes(); i++) {
+			int parent = fine.nodeParent[i];
+			children[parent][childrenCount[parent]++] = i;
+		}
+
+		Integer[] order = new Integer[fine.clusters];
+		for (int i = 0; i < fine.clusters; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return fine.clusterSize[o2] - fine.clusterSize[o1];
+			}
+		});
+
+		for (int i = 0; i < order.length; i++) {
+			int cluster = order[i];
+			int size = fine.clusterSize[cluster];
+			int coarseNode = coarse.assignment[fine.parent[cluster]];
+			int bestNode = -1;
+			double bestCost = Double.MAX_VALUE;
+			for (int j = 0; j < children[coarseNode].length; j++) {
+				int node = children[coarseNode][j];
+				if (fine.free[node] >= size) {
+					double cost = placementCost(fine, cluster, node);
+					if (cost < bestCost) {
+						bestNode = node;
+						bestCost = cost;
+					}
+				}
+			}
+			if (bestNode == -1) {
+				double bestDistance = Double.MAX_VALUE;
+				for (int node = 0; node < fine.nodes(); node++) {
+					if (fine.free[node] >= size) {
+						double distance = Math.abs(fine.centerRow[node] - coarse.centerRow[coarseNode])
+								+ Math.abs(fine.centerColumn[node] - coarse.centerColumn[coarseNode]);
+						if (distance < bestDistance) {
+							bestNode = node;
+							bestDistance = distance;
+						}
+					}
+				}
+			}
+			if (bestNode == -1) {
+				bestNode = mostFreeNode(fine, children[coarseNode]);
+				logger.warn("Cluster " + cluster + " (" + size
+						+ " cores) doesn't fit anywhere. It overloads node " + bestNode);
+			}
+			fine.assignment[cluster] = bestNode;
+			fine.free[bestNode] -= size;
+		}
+	}
+
+	/**
+	 * @return the variation of the cost determined by moving a cluster onto
+	 *         the specified node (the other clusters stay in place)
+	 */
+	private double moveDelta(Level level, int cluster, int node) {
+		int currentNode = level.assignment[cluster];
+		double delta = 0;
+		for (int k = 0; k < level.partners[cluster].length; k++) {
+			int partnerNode = level.assignment[level.partners[cluster][k]];
+			delta += level.weights[cluster][k]
+					* (level.distance(node, partnerNode) - level.distance(currentNode, partnerNode));
+		}
+		evaluations++;
+		return delta;
+	}
+
+	/**
+	 * @return the communication volume between two clusters
+	 */
+	private long weight(Level level, int cluster1, int cluster2) {
+		for (int k = 0; k < level.partners[cluster1].length; k++) {
+			if (level.partners[cluster1][k] == cluster2) {
+				return level.weights[cluster1][k];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Adds to the candidates the specified node of the coarse mesh and its
+	 * neighbors.
+	 *
+	 * @return the new number of candidates
+	 */
+	private int addCandidates(Level level, int node, int[] candidates,
+			int count, int[] marks, int mark) {
+		int row = node / level.meshColumns;
+		int column = node % level.meshColumns;
+		int[][] offsets = { { 0, 0 }, { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+		for (int i = 0; i < offsets.length; i++) {
+			int r = row + offsets[i][0];
+			int c = column + offsets[i][1];
+			if (r >= 0 && r < level.meshRows && c >= 0 && c < level.meshColumns) {
+				int candidate = r * level.meshColumns + c;
+				if (marks[candidate] != mark && level.capacity[candidate] > 0) {
+					marks[candidate] = mark;
+					candidates[count++] = candidate;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Refines the mapping of a coarse level. Each cluster (in random order) is
+	 * moved, or swapped with a cluster, onto the node which decreases the
+	 * cost the most. Only the nodes of its partners and their neighbors are
+	 * considered. The passes are repeated until no improvement is found.
+	 */
+	private void refine(Level level) {
+		List<List<Integer>> nodeClusters = new ArrayList<List<Integer>>(level.nodes());
+		for (int i = 0; i < level.nodes(); i++) {
+			nodeClusters.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < level.clusters; i++) {
+			nodeClusters.get(level.assignment[i]).add(i);
+		}
+		int[] candidates = new int[level.nodes()];
+		int[] marks = new int[level.nodes()];
+		int mark = 0;
+
+		for (int pass = 0; pass < MAX_REFINEMENT_PASSES; pass++) {
+			int improvements = 0;
+			int[] order = randomPermutation(level.clusters);
+			for (int i = 0; i < order.length; i++) {
+				int cluster = order[i];
+				int size = level.clusterSize[cluster];
+				int node = level.assignment[cluster];
+				mark++;
+				marks[node] = mark;
+				int count = 0;
+				for (int k = 0; k < level.partners[cluster].length; k++) {
+					count = addCandidates(level, level.assignment[level.partners[cluster][k]],
+							candidates, count, marks, mark);
+				}
+				double bestDelta = -IMPROVEMENT_THRESHOLD;
+				int bestNode = -1;
+				int bestCluster = -1;
+				for (int j = 0; j < count; j++) {
+					int candidate = candidates[j];
+					double delta = moveDelta(level, cluster, candidate);
+					if (level.free[candidate] >= size && delta < bestDelta) {
+						bestDelta = delta;
+						bestNode = candidate;
+						bestCluster = -1;
+					}
+					List<Integer> others = nodeClusters.get(candidate);
+					for (int o = 0; o < others.size(); o++) {
+						int other = others.get(o);
+						int otherSize = level.clusterSize[other];
+						if (otherSize - size <= level.free[node]
+								&& size - otherSize <= level.free[candidate]) {
+							double swapDelta = delta + moveDelta(level, other, node)
+									+ 2 * weight(level, cluster, other) * level.distance(node, candidate);
+							if (swapDelta < bestDelta) {
+								bestDelta = swapDelta;
+								bestNode = candidate;
+								bestCluster = other;
+							}
+						}
+					}
+				}
+				if (bestNode != -1) {
+					improvements++;
+					level.assignment[cluster] = bestNode;
+					level.free[node] += size;
+					level.free[bestNode] -= size;
+					nodeClusters.get(node).remove(Integer.valueOf(cluster));
+					nodeClusters.get(bestNode).add(cluster);
+					if (bestCluster != -1) {
+						int otherSize = level.clusterSize[bestCluster];
+						level.assignment[bestCluster] = node;
+						level.free[bestNode] += otherSize;
+						level.free[node] -= otherSize;
+						nodeClusters.get(bestNode).remove(Integer.valueOf(bestCluster));
+						nodeClusters.get(node).add(bestCluster);
+					}
+				}
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Refinement pass " + pass + " made " + improvements + " improvements");
+			}
+			if (improvements == 0) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Refines the mapping of the finest level. Each core (in random order) is
+	 * swapped with the node (empty or not) which decreases the communication
+	 * energy the most. Only the nodes of its partners and their neighbors are
+	 * considered. The swaps are evaluated incrementally, with
+	 * {@link #calculateSwapEnergyDelta(int[], int, int, int, int)}. The
+	 * passes are repeated until no improvement is found.
+	 */
+	private void refineEnergy(Level level) {
+		int[] coreToNode = new int[cores.length];
+		int[] nodeToCore = new int[nodes.length];
+		Arrays.fill(nodeToCore, -1);
+		for (int i = 0; i < cores.length; i++) {
+			coreToNode[i] = meshToNocNode[level.assignment[i]];
+			nodeToCore[coreToNode[i]] = i;
+		}
+		int[] candidates = new int[level.nodes()];
+		int[] marks = new int[level.nodes()];
+		int mark = 0;
+
+		for (int pass = 0; pass < MAX_REFINEMENT_PASSES; pass++) {
+			int improvements = 0;
+			int[] order = randomPermutation(cores.length);
+			for (int i = 0; i < order.length; i++) {
+				int core = order[i];
+				int node = coreToNode[core];
+				mark++;
+				marks[level.assignment[core]] = mark;
+				int count = 0;
+				for (int k = 0; k < level.partners[core].length; k++) {
+					count = addCandidates(level, level.assignment[level.partners[core][k]],
+							candidates, count, marks, mark);
+				}
+				double bestDelta = -IMPROVEMENT_THRESHOLD;
+				int bestNode = -1;
+				int bestMeshNode = -1;
+				for (int j = 0; j < count; j++) {
+					int candidate = meshToNocNode[candidates[j]];
+					double delta = calculateSwapEnergyDelta(coreToNode, core,
+							node, nodeToCore[candidate], candidate);
+					evaluations++;
+					if (delta < bestDelta) {
+						bestDelta = delta;
+						bestNode = candidate;
+						bestMeshNode = candidates[j];
+					}
+				}
+				if (bestNode != -1) {
+					improvements++;
+					int otherCore = nodeToCore[bestNode];
+					int meshNode = level.assignment[core];
+					coreToNode[core] = bestNode;
+					nodeToCore[bestNode] = core;
+					nodeToCore[node] = otherCore;
+					// the candidates are searched around the current nodes
+					level.assignment[core] = bestMeshNode;
+					if (otherCore != -1) {
+						coreToNode[otherCore] = node;
+						level.assignment[otherCore] = meshNode;
+					} else {
+						level.free[meshNode]++;
+						level.free[bestMeshNode]--;
+					}
+				}
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Energy refinement pass " + pass + " made " + improvements + " improvements");
+			}
+			if (improvements == 0) {
+				break;
+			}
+		}
+
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i].setCore("-1");
+		}
+		for (int i = 0; i < cores.length; i++) {
+			cores[i].setNodeId(coreToNode[i]);
+			nodes[coreToNode[i]].setCore(Integer.toString(i));
+		}
+	}
+
+	@Override
+	protected void doBeforeMapping() {
+		if (seed == null) {
+			rand = new Random();
+		} else {
+			rand = new Random(seed);
+		}
+		if (cores.length == 1) {
+			cores[0].setNodeId(0);
+			nodes[0].setCore("0");
+		}
+	}
+
+	@Override
+	protected int doMapping() {
+		coarsen();
+
+		mapCoarsestLevel(levels.get(levels.size() - 1));
+		for (int i = levels.size() - 1; i > 0; i--) {
+			refine(levels.get(i));
+			project(levels.get(i), levels.get(i - 1));
+		}
+		Level finest = levels.get(0);
+		for (int i = 0; i < finest.nodes(); i++) {
+			logger.assertLog(finest.free[i] >= 0, "NoC node " + meshToNocNode[i] + " is overloaded!");
+		}
+		refineEnergy(finest);
+
+		if (buildRoutingTable) {
+			programRouters();
+		}
+		return 1;
+	}
+
+	@Override
+	protected void doBeforeSavingMapping() {
+		logger.info("The mapping was done using " + levels.size() + " levels");
+		logger.info("A number of " + evaluations + " moves were evaluated");
+	}
+
+	public static void main(String[] args) throws TooFewNocNodesException,
+			IOException, JAXBException, ParseException {
+		final float switchEBit = 0.284f;
+		final float linkEBit = 0.449f;
+		final float bufReadEBit = 1.056f;
+		final float bufWriteEBit = 2.831f;
+
+		MapperInputProcessor mapperInputProcessor = new MapperInputProcessor() {
+
+			@Override
+			public void useMapper(String benchmarkFilePath,
+					String benchmarkName, String ctgId, String apcgId,
+					ApplicationInput application,
+					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
+					Long seed) throws JAXBException, TooFewNocNodesException,
+					FileNotFoundException {
+				logger.info("Using a multilevel mapper for "
+						+ benchmarkFilePath + "ctg-" + ctgId + " (APCG " + apcgId + ")");
+
+				MultilevelMapper mlMapper;
+				int cores = application.getCoreCount();
+				int hSize = (int) Math.ceil(Math.sqrt(cores));
+				hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
+				String meshSize;
+				// we allow rectangular 2D meshes as well
+				if (hSize * (hSize - 1) >= cores) {
+					meshSize = hSize + "x" + (hSize - 1);
+				} else {
+					meshSize = hSize + "x" + hSize;
+				}
+				logger.info("The algorithm has " + cores + " cores to map => working with a 2D mesh of size " + meshSize);
+				// working with a 2D mesh topology
+				String topologyName = "mesh2D";
+				String topologyDir = ".." + File.separator + "NoC-XML"
+						+ File.separator + "src" + File.separator
+						+ "ro" + File.separator + "ulbsibiu"
+						+ File.separator + "acaps" + File.separator
+						+ "noc" + File.separator + "topology"
+						+ File.separator + topologyName + File.separator
+						+ meshSize;
+
+				String[] parameters = new String[] {
+						"linkBandwidth",
+						"switchEBit",
+						"linkEBit",
+						"bufReadEBit",
+						"bufWriteEBit",
+						"routing",
+						"seed"};
+				String values[] = new String[] {
+						Double.toString(linkBandwidth),
+						Float.toString(switchEBit), Float.toString(linkEBit),
+						Float.toString(bufReadEBit),
+						Float.toString(bufWriteEBit),
+						null,
+						seed == null ? null : Long.toString(seed)};
+				if (doRouting) {
+					values[values.length - 2] = "true" + "-" + lts.toString();
+					MapperDatabase.getInstance().setParameters(parameters, values);
+
+					// with routing
+					mlMapper = new MultilevelMapper(
+							benchmarkName, ctgId, apcgId,
+							topologyName, meshSize, new File(
+									topologyDir), cores, linkBandwidth,
+							true, lts, bufReadEBit,
+							bufWriteEBit, switchEBit, linkEBit, seed);
+				} else {
+					values[values.length - 2] = "false";
+					MapperDatabase.getInstance().setParameters(parameters, values);
+
+					// without routing
+					mlMapper = new MultilevelMapper(
+							benchmarkName, ctgId, apcgId,
+							topologyName, meshSize, new File(
+									topologyDir), cores, linkBandwidth,
+							switchEBit, linkEBit, seed);
+				}
+
+				// read the input data (unmarshalled or streamed)
+				mlMapper.parseApplication(application);
+
+				configureCheckpointing(mlMapper, seed);
+				String[] mappingXml = mlMapper.map();
+				File dir = new File(benchmarkFilePath + "ctg-" + ctgId);
+				dir.mkdirs();
+				String routing = "";
+				if (doRouting) {
+					routing = "_routing";
+				}
+				String mappingXmlFilePath = benchmarkFilePath + "ctg-" + ctgId
+						+ File.separator + "mapping-" + apcgId + "_"
+						+ mlMapper.getMapperId() + routing + ".xml";
+				PrintWriter pw = new PrintWriter(mappingXmlFilePath);
+				logger.info("Saving the mapping XML file" + mappingXmlFilePath);
+				pw.write(mappingXml[0]);
+				pw.close();
+
+				logger.info("The generated mapping is:");
+				mlMapper.printCurrentMapping();
+
+				mlMapper.analyzeIt();
+			}
+		};
+		mapperInputProcessor.processInput(args);
+	}
+}
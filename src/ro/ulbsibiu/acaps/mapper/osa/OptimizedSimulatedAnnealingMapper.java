@@ -10,15 +10,12 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.List;
 
 import javax.xml.bind.JAXBException;
 
-import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
-import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.mapper.MapperDatabase;
 import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
 import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
 import ro.ulbsibiu.acaps.mapper.util.MathUtils;
 
@@ -115,46 +112,42 @@ public class OptimizedSimulatedAnnealingMapper extends
 					+ coreNeighbors[core1]);
 		}
 
-		double[] core1CommunicationPDF = coresCommunicationPDF[core1];
-		int core2 = -1;
-		double p = uniformRandomVariable();
-		double sum = 0;
-		for (int i = 0; i < core1CommunicationPDF.length; i++) {
-			sum += core1CommunicationPDF[i];
-			if (MathUtils.definitelyLessThan((float) p, (float) sum)
-					|| MathUtils.approximatelyEqual((float) p, (float) sum)) {
-				core2 = i;
-				break; // essential!
-			}
-		}
+		int core2 = coresCommunicationAliasTables[core1]
+				.sample(uniformRandomVariable());
 		if (core2 == -1) {
-			if (MathUtils.approximatelyEqual((float) sum, 0)) {
-				core2 = (int) uniformIntegerRandomVariable(0, cores.length - 1);
-				if (logger.isDebugEnabled()) {
-					logger.debug("Core "
-							+ core1
-							+ " doesn't communicate with any core. It will be swapped with core "
-							+ core2 + " (randomly chosen)");
-				}
-			} else {
-				logger.fatal("Unable to determine a core with which core " + core1
-						+ " will swap");
+			core2 = (int) uniformIntegerRandomVariable(0, cores.length - 1);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Core "
+						+ core1
+						+ " doesn't communicate with any core. It will be swapped with core "
+						+ core2 + " (randomly chosen)");
 			}
 		}
 		int core2Node = cores[core2].getNodeId();
-		List<Integer> core1AllowedNodes = new ArrayList<Integer>(
-				nodeNeighbors[core2Node]);
-		core1AllowedNodes.remove(new Integer(node1));
+		// the allowed nodes are core2Node's neighbors, except node1
+		int[] core2NodeNeighbors = nodeNeighborIds[core2Node];
+		int node1Position = -1;
+		for (int i = 0; i < core2NodeNeighbors.length; i++) {
+			if (core2NodeNeighbors[i] == node1) {
+				node1Position = i;
+				break;
+			}
+		}
+		int core1AllowedNodes = core2NodeNeighbors.length
+				- (node1Position == -1 ? 0 : 1);
 
-		if (core1AllowedNodes.size() == 0) {
+		if (core1AllowedNodes == 0) {
 			node2 = node1;
 			logger.warn("No nodes are allowed for core " + core1
 					+ ". We pretend we make a move by swapping node " + node1
 					+ " with node " + node2);
 		} else {
 			int i = (int) uniformIntegerRandomVariable(0,
-					core1AllowedNodes.size() - 1);
-			node2 = core1AllowedNodes.get(i);
+					core1AllowedNodes - 1);
+			if (node1Position != -1 && i >= node1Position) {
+				i++;
+			}
+			node2 = core2NodeNeighbors[i];
 
 			// node2 = -1;
 			// double[] core2CommunicationPDF = coresCommunicationPDF[core2];
@@ -202,7 +195,7 @@ public class OptimizedSimulatedAnnealingMapper extends
 			@Override
 			public void useMapper(String benchmarkFilePath,
 					String benchmarkName, String ctgId, String apcgId,
-					List<CtgType> ctgTypes, List<ApcgType> apcgTypes,
+					ApplicationInput application,
 					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
 					Long seed) throws JAXBException, TooFewNocNodesException,
 					FileNotFoundException {
@@ -210,10 +203,7 @@ public class OptimizedSimulatedAnnealingMapper extends
 						+ benchmarkFilePath + "ctg-" + ctgId + " (APCG " + apcgId + ")");
 				
 				OptimizedSimulatedAnnealingWithoutClusteringMapper osaMapper;
-				int cores = 0;
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					cores += apcgTypes.get(k).getCore().size();
-				}
+				int cores = application.getCoreCount();
 				int hSize = (int) Math.ceil(Math.sqrt(cores));
 				hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
 				String meshSize;
@@ -294,15 +284,14 @@ public class OptimizedSimulatedAnnealingMapper extends
 		//					"telecom-mocsyn-16tile-selectedpe.traffic.config",
 		//					linkBandwidth);
 				
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					// read the input data using the Unified Framework's XML interface
-					osaMapper.parseApcg(apcgTypes.get(k), ctgTypes.get(k));
-				}
+				// read the input data (unmarshalled or streamed)
+				osaMapper.parseApplication(application);
 				
 		//			// This is just for checking that bbMapper.parseTrafficConfig(...)
 		//			// and parseApcg(...) have the same effect
 		//			osaMapper.printCores();
 		
+				configureCheckpointing(osaMapper, seed);
 				String[] mappingXml = osaMapper.map();
 				File dir = new File(benchmarkFilePath + "ctg-" + ctgId);
 				dir.mkdirs();
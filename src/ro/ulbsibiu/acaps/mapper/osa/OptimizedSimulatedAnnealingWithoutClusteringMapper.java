@@ -1,6 +1,8 @@
 package ro.ulbsibiu.acaps.mapper.osa;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -8,7 +10,6 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Random;
@@ -22,14 +23,14 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 import org.apache.log4j.Logger;
 
-import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
-import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper;
 import ro.ulbsibiu.acaps.mapper.MapperDatabase;
 import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper.LegalTurnSet;
 import ro.ulbsibiu.acaps.mapper.sa.Core;
 import ro.ulbsibiu.acaps.mapper.sa.SimulatedAnnealingMapper;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
+import ro.ulbsibiu.acaps.mapper.util.AliasTable;
 import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
 import ro.ulbsibiu.acaps.mapper.util.MathUtils;
 import ro.ulbsibiu.acaps.noc.xml.node.NodeType;
@@ -78,6 +79,33 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 	
 	/** for every core, the (from and to) communication probability density function */
 	protected double[][] coresCommunicationPDF;
+	
+	/** alias table for sampling cores according to {@link #coreToCommunication} */
+	private AliasTable coreToCommunicationAliasTable;
+	
+	/** alias tables for sampling cores according to {@link #coresCommunicationPDF} */
+	protected AliasTable[] coresCommunicationAliasTables;
+	
+	/** the neighbors of each node (the same as {@link #nodeNeighbors}, as arrays) */
+	protected int[][] nodeNeighborIds;
+	
+	/**
+	 * coreAllowedNodes[core][node] is <tt>true</tt> if the node has enough
+	 * neighbors for all the communications of the core
+	 */
+	private boolean[][] coreAllowedNodes;
+	
+	/** for each core, the nodes marked in {@link #coreAllowedNodes} */
+	private int[][] coreCandidateNodes;
+	
+	/**
+	 * for each core, the only core from which it receives data (-1 if it
+	 * receives data from none or from more cores)
+	 */
+	private int[] coreSingleSource;
+	
+	/** reusable buffer for the nodes considered by a topological move */
+	private int[] nodesBuffer;
 
 	/** the seed for the random number generator of the initial population */
 	private Long seed;
@@ -227,11 +255,18 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 			nodeNeighbors[Integer.valueOf(links[i].getFirstNode())].add(Integer.valueOf(links[i].getSecondNode()));
 			nodeNeighbors[Integer.valueOf(links[i].getSecondNode())].add(Integer.valueOf(links[i].getFirstNode()));
 		}
+		nodeNeighborIds = new int[nodes.length][];
 		for (int i = 0; i < nodeNeighbors.length; i++) {
 			if (nodeNeighbors[i].size() > maxNodeNeighbors) {
 				maxNodeNeighbors = nodeNeighbors[i].size();
 			}
+			nodeNeighborIds[i] = new int[nodeNeighbors[i].size()];
+			int j = 0;
+			for (Integer neighbor : nodeNeighbors[i]) {
+				nodeNeighborIds[i][j++] = neighbor;
+			}
 		}
+		nodesBuffer = new int[nodes.length];
 		if (logger.isDebugEnabled()) {
 			for (int i = 0; i < nodeNeighbors.length; i++) {
 				logger.debug("Node " + i + " communicates with " + nodeNeighbors[i].size() + " nodes");
@@ -535,14 +570,16 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 	protected int doMapping() {
 		double totalDeltaCost;
 
-		// set up the global control parameters for this annealing run
-		mappingIteration = 0;
-		initialCost = calculateTotalCost();
-		evaluations++;
-		currentCost = initialCost;
-
 		setNumberOfIterationsPerTemperature();
 
+		if (!resumed) {
+			// set up the global control parameters for this annealing run
+			mappingIteration = 0;
+			initialCost = calculateTotalCost();
+			evaluations++;
+			currentCost = initialCost;
+		}
+
 		/* here is the temperature cooling loop of the annealer */
 		while(!terminate()) {
 			System.out.println("Round " + mappingIteration + ":");
@@ -562,6 +599,7 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 			// temperature.
 			mappingIteration++;
 			decreaseTemperature();
+			checkpoint();
 		}
 		// return the best mapping found during the entire annealing process!!! (not the last mapping found)
 		for (int i = 0; i < nodes.length; i++) {
@@ -663,60 +701,8 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 		// also, core1 cannot be placed on a node that has a core with a number
 		// of communications (with other cores) that can not be satisfied by the
 		// number of core1's node neighbors
-		List<Integer> core1AllowedNodes = new ArrayList<Integer>();
-		for (int i = 0; i < nodeNeighbors.length; i++) {
-			if (i != node1
-					&& (nodeNeighbors[i].size() >= coreNeighbors[core1].size()
-							|| nodeNeighbors[i].size() == maxNodeNeighbors)) {
-				if ("-1".equals(nodes[i].getCore())) {
-					core1AllowedNodes.add(i);
-					if (logger.isDebugEnabled()) {
-						logger.debug("Core " + core1 + " is allowed to be placed on node " + i);
-					}
-				} else {
-					int currentCore = Integer.valueOf(nodes[i].getCore());
-					int currentCoreNeighbors = coreNeighbors[currentCore]
-							.size();
-					if (nodeNeighbors[node1].size() >= currentCoreNeighbors
-							|| nodeNeighbors[node1].size() == maxNodeNeighbors) {
-						core1AllowedNodes.add(i);
-						if (logger.isDebugEnabled()) {
-							logger.debug("Core " + core1
-									+ " is allowed to be placed on node " + i);
-						}
-					} else {
-						if (logger.isDebugEnabled()) {
-							logger.debug("Core " + core1
-									+ " is not allowed to be placed on node "
-									+ i + " because this node has core "
-									+ currentCore
-									+ ", which communicates with "
-									+ currentCoreNeighbors
-									+ " other cores (and node " + node1
-									+ " is connected with only "
-									+ nodeNeighbors[node1].size()
-									+ " other nodes)");
-						}
-					}
-				}
-			}
-		}
-		
-		// check if core1 receives data only from one core
-		long[] fromCommunication = cores[core1].getFromCommunication();
-		int fromCoresCount = 0;
-		int core2 = -1; // core2 has meaning only in the (fromCoresCount == 1) if
-		for (int i = 0; i < fromCommunication.length; i++) {
-			if (fromCommunication[i] > 0) {
-				fromCoresCount++;
-				core2 = i;
-				if (fromCoresCount > 1) {
-					// no need to search further on
-					break;
-				}
-			}
-		}
-		if (fromCoresCount == 1) {
+		int core2 = coreSingleSource[core1];
+		if (core2 != -1) {
 			if (logger.isDebugEnabled()) {
 				logger.debug("Core " + core1 + " receives data only from core "
 						+ core2 + ". Trying to compactly place core " + core1
@@ -727,34 +713,21 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 			if (logger.isDebugEnabled()) {
 				logger.debug("Core " + core2 + " is placed onto node " + core2Node);
 			}
-			// determine the neighboring nodes of node core2Node that are among the allowed nodes for core1
-			Set<Integer> core2NodeNeighborsAllowedForCore1 = new LinkedHashSet<Integer>();
-			for (Integer neighbor : nodeNeighbors[core2Node]) {
-				if (core1AllowedNodes.contains(neighbor)) {
-					core2NodeNeighborsAllowedForCore1.add(neighbor);
-					if (logger.isDebugEnabled()) {
-						logger.debug("Node " + neighbor + " is a neighbor of node " + core2Node + 
-								" and also one of the nodes allowed for core " + core1);
-					}
-				}
-			}
-			// determine the neighboring nodes of node core2Node which are unoccupied
-			List<Integer> unoccupiedNodes = null;
+			// determine the neighboring nodes of node core2Node which are
+			// among the allowed nodes for core1 and are unoccupied
+			int unoccupiedNodes = 0;
 			if (cores.length < nodes.length) {
-				unoccupiedNodes = new ArrayList<Integer>(core2NodeNeighborsAllowedForCore1.size());
-				for (Iterator<Integer> iterator = core2NodeNeighborsAllowedForCore1.iterator(); iterator.hasNext();) {
-					Integer neighbor = iterator.next();
-					if ("-1".equals(nodes[neighbor].getCore())) {
-						if (logger.isDebugEnabled()) {
-							logger.debug("Node " + neighbor + " is unoccupied");
-						}
-						unoccupiedNodes.add(neighbor);
+				for (int i = 0; i < nodeNeighborIds[core2Node].length; i++) {
+					int neighbor = nodeNeighborIds[core2Node][i];
+					if (isAllowedNode(core1, node1, neighbor)
+							&& "-1".equals(nodes[neighbor].getCore())) {
+						nodesBuffer[unoccupiedNodes++] = neighbor;
 					}
 				}
 			}
-			if (unoccupiedNodes != null && unoccupiedNodes.size() > 0) {
-				int r = (int) uniformIntegerRandomVariable(0, unoccupiedNodes.size() - 1);
-				node2 = unoccupiedNodes.get(r);
+			if (unoccupiedNodes > 0) {
+				int r = (int) uniformIntegerRandomVariable(0, unoccupiedNodes - 1);
+				node2 = nodesBuffer[r];
 				if (logger.isDebugEnabled()) {
 					logger.debug("Core " + core1 + " will be moved from node " + node1 + " to the unoccupied node " + node2);
 				}
@@ -765,23 +738,21 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 							"Searching for neighboring nodes of node " + core2Node + 
 							" which have cores that do not communicate with core " + core1);
 				}
-				// determine the neighboring nodes of node core2Node which have cores that do not communicate with core2
-				List<Integer> notCommunicatingNodes = new ArrayList<Integer>(core2NodeNeighborsAllowedForCore1.size());
-				for (Iterator<Integer> iterator = core2NodeNeighborsAllowedForCore1.iterator(); iterator.hasNext();) {
-					Integer neighbor = iterator.next();
-					Core core = cores[Integer.valueOf(nodes[neighbor].getCore())];
-					if (core.getToCommunication()[core2] == 0 && core.getFromCommunication()[core2] == 0) {
-						if (logger.isDebugEnabled()) {
-							logger.debug("Node " + neighbor + " has core " + core.getCoreId() + 
-									" (APCG " + core.getApcgId() + ") that does not communicate with core " + core2);
+				// determine the allowed neighboring nodes of node core2Node
+				// which have cores that do not communicate with core2
+				int notCommunicatingNodes = 0;
+				for (int i = 0; i < nodeNeighborIds[core2Node].length; i++) {
+					int neighbor = nodeNeighborIds[core2Node][i];
+					if (isAllowedNode(core1, node1, neighbor)) {
+						Core core = cores[Integer.valueOf(nodes[neighbor].getCore())];
+						if (core.getToCommunication()[core2] == 0 && core.getFromCommunication()[core2] == 0) {
+							nodesBuffer[notCommunicatingNodes++] = neighbor;
 						}
-						notCommunicatingNodes.add(neighbor);
 					}
-					
 				}
-				if (notCommunicatingNodes.size() > 0) {
-					int r = (int) uniformIntegerRandomVariable(0, notCommunicatingNodes.size() - 1);
-					node2 = notCommunicatingNodes.get(r);
+				if (notCommunicatingNodes > 0) {
+					int r = (int) uniformIntegerRandomVariable(0, notCommunicatingNodes - 1);
+					node2 = nodesBuffer[r];
 					if (logger.isDebugEnabled()) {
 						logger.debug("Core " + core1
 								+ " receives data only from core " + core2
@@ -796,34 +767,12 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 								"(restricted to allowed nodes for core " + core1 + " )...");
 					}
 					// core1 will be placed onto one of the allowed nodes
-					if (core1AllowedNodes.size() == 0) {
-						node2 = node1;
-						logger.warn("No nodes are allowed for core " + core1
-								+ ". We pretend we make a move by swapping node "
-								+ node1 + " with node " + node2);
-					} else {
-						int i = (int) uniformIntegerRandomVariable(0, core1AllowedNodes.size() - 1);
-						node2 = core1AllowedNodes.get(i);
-						if (logger.isDebugEnabled()) {
-							logger.debug("Core " + core1 + " will be moved from node " + node1 + " to the allowed node " + node2);
-						}
-					}
+					node2 = selectAllowedNode(core1, node1);
 				}
 			}
 		} else {
 			// core1 will be placed onto one of the allowed nodes
-			if (core1AllowedNodes.size() == 0) {
-				node2 = node1;
-				logger.warn("No nodes are allowed for core " + core1
-						+ ". We pretend we make a move by swapping node "
-						+ node1 + " with node " + node2);
-			} else {
-				int i = (int) uniformIntegerRandomVariable(0, core1AllowedNodes.size() - 1);
-				node2 = core1AllowedNodes.get(i);
-				if (logger.isDebugEnabled()) {
-					logger.debug("Core " + core1 + " will be moved from node " + node1 + " to the allowed node " + node2);
-				}
-			}
+			node2 = selectAllowedNode(core1, node1);
 		}
 		logger.assertLog(
 				node1 != -1 && node2 != -1 && node1 != node2,
@@ -837,6 +786,70 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 		return new int[] { node1, node2 };
 	}
 	
+	/**
+	 * Checks if core1 can be moved from node1 onto the specified node. Core1
+	 * must be allowed on that node (see {@link #coreAllowedNodes}) and the core
+	 * which is currently on that node (if any) must be allowed on node1.
+	 * 
+	 * @param core1
+	 *            the moved core
+	 * @param node1
+	 *            the node on which core1 is currently placed
+	 * @param node
+	 *            the node where core1 would be moved
+	 * @return whether or not core1 can be moved onto the node
+	 */
+	private boolean isAllowedNode(int core1, int node1, int node) {
+		if (node == node1 || !coreAllowedNodes[core1][node]) {
+			return false;
+		}
+		int currentCore = Integer.valueOf(nodes[node].getCore());
+		return currentCore == -1 || coreAllowedNodes[currentCore][node1];
+	}
+	
+	/**
+	 * Uniformly selects one of the nodes where core1 can be moved (see
+	 * {@link #isAllowedNode(int, int, int)}). Candidates are drawn from
+	 * {@link #coreCandidateNodes} until an allowed one is found. Only if this
+	 * fails too many times, all the candidates are checked.
+	 * 
+	 * @param core1
+	 *            the moved core
+	 * @param node1
+	 *            the node on which core1 is currently placed
+	 * @return the selected node (node1 if no node is allowed)
+	 */
+	private int selectAllowedNode(int core1, int node1) {
+		int[] candidates = coreCandidateNodes[core1];
+		int node2 = -1;
+		for (int trial = 0; trial < candidates.length && node2 == -1; trial++) {
+			int candidate = candidates[(int) uniformIntegerRandomVariable(0, candidates.length - 1)];
+			if (isAllowedNode(core1, node1, candidate)) {
+				node2 = candidate;
+			}
+		}
+		if (node2 == -1) {
+			int allowedNodes = 0;
+			for (int i = 0; i < candidates.length; i++) {
+				if (isAllowedNode(core1, node1, candidates[i])) {
+					nodesBuffer[allowedNodes++] = candidates[i];
+				}
+			}
+			if (allowedNodes == 0) {
+				node2 = node1;
+				logger.warn("No nodes are allowed for core " + core1
+						+ ". We pretend we make a move by swapping node "
+						+ node1 + " with node " + node2);
+			} else {
+				node2 = nodesBuffer[(int) uniformIntegerRandomVariable(0, allowedNodes - 1)];
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Core " + core1 + " will be moved from node " + node1 + " to the allowed node " + node2);
+		}
+		return node2;
+	}
+	
 	/**
 	 * Randomly chooses a core based on the probability distribution function
 	 * determined by the communications among cores
@@ -844,23 +857,17 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 	 * @return the chosen core
 	 */
 	protected int selectCore() {
-		int core = -1;
+		// as the temperature decreases, the probabilities equalize more and
+		// more: the PDF is a mixture of the communication PDF (with weight
+		// temperature / initial temperature) and the uniform PDF
+		double weight = Math.min(1, temperature / getInitialTemperature());
 		double p = uniformRandomVariable();
-		double sum = 0;
-		for (int i = 0; i < cores.length; i++) {
-//			sum += coreToCommunication[i] / totalToCommunication;
-			
-//			sum += (meanPDF + temperature * (coreToCommunication[i] - meanPDF)) / totalToCommunication;
-			
-			// as the temperature decreases, the probabilities equalize more and more
-			sum += ((totalToCommunication * 1.0 / cores.length) + (temperature / getInitialTemperature())
-					* (coreToCommunication[i] - (totalToCommunication * 1.0 / cores.length)))
-					/ totalToCommunication;
-			if (MathUtils.definitelyLessThan((float)p, (float)sum) 
-					|| MathUtils.approximatelyEqual((float)p, (float)sum)) {
-				core = i;
-				break; // essential!
-			}
+		int core;
+		if (p < weight && !coreToCommunicationAliasTable.isEmpty()) {
+			core = coreToCommunicationAliasTable.sample(p / weight);
+		} else {
+			core = Math.min(cores.length - 1,
+					(int) (((p - weight) / (1 - weight)) * cores.length));
 		}
 		return core;
 	}
@@ -981,6 +988,7 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 		if (logger.isDebugEnabled()) {
 			logger.debug("Total probability is " + total + "%");
 		}
+		coreToCommunicationAliasTable = new AliasTable(coreToCommunication);
 	}
 	
 	private void computeCoresCommunicationPDF() {
@@ -1003,6 +1011,10 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 				}
 			}
 		}
+		coresCommunicationAliasTables = new AliasTable[cores.length];
+		for (int i = 0; i < cores.length; i++) {
+			coresCommunicationAliasTables[i] = new AliasTable(coresCommunicationPDF[i]);
+		}
 	}
 	
 	private void computeCoreNeighbors() {
@@ -1029,9 +1041,50 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 		}
 	}
 	
+	/**
+	 * Computes {@link #coreAllowedNodes}, {@link #coreCandidateNodes} and
+	 * {@link #coreSingleSource}. Requires {@link #coreNeighbors}.
+	 */
+	private void computeCoreAllowedNodes() {
+		coreAllowedNodes = new boolean[cores.length][nodes.length];
+		coreCandidateNodes = new int[cores.length][];
+		coreSingleSource = new int[cores.length];
+		for (int i = 0; i < cores.length; i++) {
+			int candidates = 0;
+			for (int j = 0; j < nodes.length; j++) {
+				if (nodeNeighborIds[j].length >= coreNeighbors[i].size()
+						|| nodeNeighborIds[j].length == maxNodeNeighbors) {
+					coreAllowedNodes[i][j] = true;
+					candidates++;
+				}
+			}
+			coreCandidateNodes[i] = new int[candidates];
+			candidates = 0;
+			for (int j = 0; j < nodes.length; j++) {
+				if (coreAllowedNodes[i][j]) {
+					coreCandidateNodes[i][candidates++] = j;
+				}
+			}
+			
+			coreSingleSource[i] = -1;
+			long[] fromCommunication = cores[i].getFromCommunication();
+			for (int j = 0; j < fromCommunication.length; j++) {
+				if (fromCommunication[j] > 0) {
+					if (coreSingleSource[i] == -1) {
+						coreSingleSource[i] = j;
+					} else {
+						coreSingleSource[i] = -1;
+						break;
+					}
+				}
+			}
+		}
+	}
+	
 	@Override
 	protected void doBeforeMapping() {
 		computeCoreNeighbors();
+		computeCoreAllowedNodes();
 		computeCoreToCommunicationPDF();
 		computeCoresCommunicationPDF();
 		mapCoresToNocNodesRandomly();
@@ -1044,6 +1097,53 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 				", temperature " + bestSolutionTemperature + ", with cost " + bestCost);
 		logger.info("A number of " + evaluations + " mappings were evaluated");
 	}
+	
+	@Override
+	protected boolean isCheckpointSupported() {
+		return true;
+	}
+	
+	@Override
+	protected void writeSearchState(DataOutputStream out) throws IOException {
+		out.writeInt(urvSeed);
+		out.writeLong(evaluations);
+		out.writeDouble(temperature);
+		out.writeInt(mappingIteration);
+		out.writeInt(numberOfConsecutiveRejectedMoves);
+		out.writeDouble(initialCost);
+		out.writeDouble(currentCost);
+		out.writeDouble(bestCost);
+		out.writeDouble(bestSolutionTemperature);
+		out.writeInt(bestSolutionIteration);
+		out.writeBoolean(bestSolution != null);
+		if (bestSolution != null) {
+			for (int i = 0; i < bestSolution.length; i++) {
+				out.writeInt(Integer.parseInt(bestSolution[i]));
+			}
+		}
+	}
+	
+	@Override
+	protected void readSearchState(DataInputStream in) throws IOException {
+		urvSeed = in.readInt();
+		evaluations = in.readLong();
+		temperature = in.readDouble();
+		mappingIteration = in.readInt();
+		numberOfConsecutiveRejectedMoves = in.readInt();
+		initialCost = in.readDouble();
+		currentCost = in.readDouble();
+		bestCost = in.readDouble();
+		bestSolutionTemperature = in.readDouble();
+		bestSolutionIteration = in.readInt();
+		if (in.readBoolean()) {
+			bestSolution = new String[nodes.length];
+			for (int i = 0; i < bestSolution.length; i++) {
+				bestSolution[i] = Integer.toString(in.readInt());
+			}
+		} else {
+			bestSolution = null;
+		}
+	}
 
 	private void parseTrafficConfig(String filePath, double linkBandwidth)
 			throws IOException {
@@ -1122,7 +1222,7 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 			@Override
 			public void useMapper(String benchmarkFilePath,
 					String benchmarkName, String ctgId, String apcgId,
-					List<CtgType> ctgTypes, List<ApcgType> apcgTypes,
+					ApplicationInput application,
 					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
 					Long seed) throws JAXBException, TooFewNocNodesException,
 					FileNotFoundException {
@@ -1130,10 +1230,7 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 						+ benchmarkFilePath + "ctg-" + ctgId + " (APCG " + apcgId + ")");
 				
 				OptimizedSimulatedAnnealingWithoutClusteringMapper osaMapper;
-				int cores = 0;
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					cores += apcgTypes.get(k).getCore().size();
-				}
+				int cores = application.getCoreCount();
 				int hSize = (int) Math.ceil(Math.sqrt(cores));
 				hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
 				String meshSize;
@@ -1214,15 +1311,14 @@ public class OptimizedSimulatedAnnealingWithoutClusteringMapper extends
 	//					"telecom-mocsyn-16tile-selectedpe.traffic.config",
 	//					linkBandwidth);
 				
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					// read the input data using the Unified Framework's XML interface
-					osaMapper.parseApcg(apcgTypes.get(k), ctgTypes.get(k));
-				}
+				// read the input data (unmarshalled or streamed)
+				osaMapper.parseApplication(application);
 				
 	//			// This is just for checking that bbMapper.parseTrafficConfig(...)
 	//			// and parseApcg(...) have the same effect
 	//			osaMapper.printCores();
 	
+				configureCheckpointing(osaMapper, seed);
 				String[] mappingXml = osaMapper.map();
 				File dir = new File(benchmarkFilePath + "ctg-" + ctgId);
 				dir.mkdirs();
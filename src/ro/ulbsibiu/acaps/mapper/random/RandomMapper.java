@@ -13,7 +13,6 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
@@ -28,6 +27,7 @@ import ro.ulbsibiu.acaps.ctg.xml.mapping.ObjectFactory;
 import ro.ulbsibiu.acaps.mapper.Mapper;
 import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
 import ro.ulbsibiu.acaps.mapper.util.ApcgFilenameFilter;
+import ro.ulbsibiu.acaps.mapper.util.JaxbUtils;
 
 /**
  * This @link{Mapper} maps the cores to nodes in a random fashion. The cores are
@@ -175,9 +175,8 @@ public class RandomMapper implements Mapper {
 	private ApcgCore[] getApcgCores() throws JAXBException {
 		List<ApcgCore> apcgCores = new ArrayList<ApcgCore>();
 
-		JAXBContext jaxbContext = JAXBContext
-				.newInstance("ro.ulbsibiu.acaps.ctg.xml.apcg");
-		Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+		Unmarshaller unmarshaller = JaxbUtils
+				.getUnmarshaller("ro.ulbsibiu.acaps.ctg.xml.apcg");
 		for (int i = 0; i < apcgFiles.size(); i++) {
 			@SuppressWarnings("unchecked")
 			JAXBElement<ApcgType> apcgXml = (JAXBElement<ApcgType>) unmarshaller
@@ -214,9 +213,7 @@ public class RandomMapper implements Mapper {
 			mappingType.getMap().add(mapType);
 		}
 
-		JAXBContext jaxbContext = JAXBContext.newInstance(MappingType.class);
-		Marshaller marshaller = jaxbContext.createMarshaller();
-		marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
+		Marshaller marshaller = JaxbUtils.getMarshaller(MappingType.class);
 		StringWriter stringWriter = new StringWriter();
 		JAXBElement<MappingType> mapping = mappingFactory
 				.createMapping(mappingType);
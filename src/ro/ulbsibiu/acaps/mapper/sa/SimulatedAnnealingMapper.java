@@ -1,6 +1,8 @@
 package ro.ulbsibiu.acaps.mapper.sa;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
@@ -21,14 +23,15 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
 import org.apache.log4j.Logger;
 
-import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
 import ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType;
 import ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType;
 import ro.ulbsibiu.acaps.ctg.xml.ctg.CommunicationType;
-import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.ctg.xml.mapping.MapType;
 import ro.ulbsibiu.acaps.ctg.xml.mapping.MappingType;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper;
@@ -36,6 +39,7 @@ import ro.ulbsibiu.acaps.mapper.Mapper;
 import ro.ulbsibiu.acaps.mapper.MapperDatabase;
 import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper.LegalTurnSet;
+import ro.ulbsibiu.acaps.mapper.util.ApplicationInput;
 import ro.ulbsibiu.acaps.mapper.util.HeapUsageMonitor;
 import ro.ulbsibiu.acaps.mapper.util.MapperInputProcessor;
 import ro.ulbsibiu.acaps.mapper.util.MathUtils;
@@ -109,6 +113,40 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 
 	/** how many zero cost mappings are currently accepted */
 	private int zeroTempCnt = 0;
+	
+	/** the current annealing temperature */
+	private double temperature;
+	
+	/** how many temperature levels were completed */
+	private int tempCount;
+	
+	/** the cost from two temperature levels ago */
+	private double cost3;
+	
+	/** the cost from the previous temperature level */
+	private double cost2;
+	
+	/**
+	 * whether or not moves are rejected before being completely evaluated,
+	 * when they surely don't pass the accept criterion (see
+	 * {@link #isSurelyRejected(int, int, double, double)})
+	 */
+	private boolean earlyReject = false;
+	
+	/** how many moves were rejected before being completely evaluated */
+	private long earlyRejections = 0;
+	
+	/**
+	 * the communication energy of the current mapping (used only for early
+	 * rejection)
+	 */
+	private double currentEnergy;
+	
+	/**
+	 * the current mapping, coreToNode[core] = the node of the core (used only
+	 * for early rejection)
+	 */
+	private int[] coreToNode = null;
 
 	/**
 	 * Default constructor
@@ -208,6 +246,19 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 	public String getMapperId() {
 		return MAPPER_ID;
 	}
+	
+	/**
+	 * Enables or disables early rejection of the moves. Note that with early
+	 * rejection, the random number used by the accept criterion is drawn for
+	 * every move, so the search follows a different random sequence.
+	 * 
+	 * @param earlyReject
+	 *            whether or not moves are rejected before being completely
+	 *            evaluated, when they surely don't pass the accept criterion
+	 */
+	public void setEarlyReject(boolean earlyReject) {
+		this.earlyReject = earlyReject;
+	}
 
 	private void mapCoresToNocNodesRandomly() {
 		Random rand;
@@ -294,9 +345,26 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 	 * @return <tt>true</tt> for accept, <tt>false</tt>, otherwise
 	 */
 	private boolean accept(double deltac, double temperature) {
+		return accept(deltac, temperature, Double.NaN);
+	}
+	
+	/**
+	 * the usual metropolis accept criterion, with an already drawn random
+	 * number
+	 * 
+	 * @param deltac
+	 *            the cost (energy) variation
+	 * @param temperature
+	 *            the temperature
+	 * @param r
+	 *            the random number compared with the acceptance probability
+	 *            (if it is NaN, the number is drawn only when needed)
+	 * 
+	 * @return <tt>true</tt> for accept, <tt>false</tt>, otherwise
+	 */
+	private boolean accept(double deltac, double temperature, double r) {
 		double pa = -1; // probability of acceptance
 		boolean accept = false;
-		double r = -1;
 		// annealing accept criterion
 		if (MathUtils.approximatelyEqual((float) deltac, 0)) {
 			// accept it, but record the number of zero cost acceptance
@@ -308,7 +376,9 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 			accept = true;
 		} else {
 			pa = Math.exp((double) (-deltac) / temperature);
-			r = uniformRandomVariable();
+			if (Double.isNaN(r)) {
+				r = uniformRandomVariable();
+			}
 			if (MathUtils.definitelyLessThan((float) r, (float)pa)
 					|| MathUtils.approximatelyEqual((float) r, (float)pa)) {
 				accept = true;
@@ -323,6 +393,46 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 		return accept;
 	}
 
+	/**
+	 * Checks, without evaluating the entire mapping, whether the swap of two
+	 * nodes is rejected by {@link #accept(double, double, double)}. The swap
+	 * is rejected when its cost variation is greater than <tt>temperature *
+	 * ln(1 / r)</tt> (expressed as a percent of the current cost). The lower
+	 * bound of the cost variation is given by
+	 * {@link #calculateBoundedSwapEnergyDelta(int[], int, int, int, int, double)}
+	 * (the overload cost of the new mapping is at least zero). A small margin
+	 * is kept so that the float comparisons made by the accept criterion can't
+	 * accept a swap rejected here.
+	 * 
+	 * @param node1
+	 *            the first swapped node (the swap is already made)
+	 * @param node2
+	 *            the second swapped node
+	 * @param temperature
+	 *            the temperature
+	 * @param r
+	 *            the random number that will be used by the accept criterion
+	 * @return <tt>true</tt> if the swap is surely rejected, <tt>false</tt>
+	 *         if it must be evaluated
+	 */
+	private boolean isSurelyRejected(int node1, int node2, double temperature, double r) {
+		double margin = 1e-6;
+		if (r - margin <= 0) {
+			return false;
+		}
+		double deltacThreshold = temperature * Math.log(1 / (r - margin));
+		double deltaCostThreshold = deltacThreshold / 100 * currentCost;
+		// the new cost is at least currentEnergy + energy variation
+		double limit = currentCost - currentEnergy + deltaCostThreshold
+				+ margin * Math.abs(currentCost);
+		// the cores were already swapped
+		int core1 = Integer.valueOf(nodes[node2].getCore());
+		int core2 = Integer.valueOf(nodes[node1].getCore());
+		double energyDelta = calculateBoundedSwapEnergyDelta(coreToNode,
+				core1, node1, core2, node2, limit);
+		return energyDelta > limit;
+	}
+
 	/**
 	 * this does the actual evolution of the placement by annealing at a fixed
 	 * temperature <tt>t</tt>.
@@ -375,33 +485,55 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 			
 			int node1 = swappedNodes[0];
 			int node2 = swappedNodes[1];
-			double newCost = calculateTotalCost();
-			evaluations++;
-			double deltaCost = newCost - currentCost;
-			if (logger.isTraceEnabled()) {
-				logger.trace("deltaCost " + deltaCost + " newCost " + newCost
-						+ " currentCost " + currentCost);
+			double r = Double.NaN;
+			if (earlyReject) {
+				// the random number used by the accept criterion is drawn
+				// before evaluating the move
+				r = uniformRandomVariable();
 			}
-	        double deltac = deltaCost / currentCost;
-			// Note that we use machine epsilon to perform the following
-			// comparison between the float numbers
-	        if (MathUtils.approximatelyEqual((float)deltac, 0)) {
-	            deltac = 0;
-	        } else {
-	            deltac = deltac * 100;
-	        }
-			if (accept(deltac, t)) {
+			if (earlyReject && isSurelyRejected(node1, node2, t, r)) {
+				earlyRejections++;
 				if (logger.isTraceEnabled()) {
-					logger.trace("Accepting...");
+					logger.trace("Early rejecting the swap of nodes " + node1 + " and " + node2);
 				}
-				acceptCount++;
-				totalDeltaCost += deltaCost;
-				currentCost = newCost;
+				swapProcesses(node1, node2); // roll back
 			} else {
+				double newEnergy = 0;
+				double newCost;
+				if (earlyReject) {
+					newEnergy = calculateCommunicationEnergy();
+					newCost = newEnergy + calculateOverloadCost();
+				} else {
+					newCost = calculateTotalCost();
+				}
+				evaluations++;
+				double deltaCost = newCost - currentCost;
 				if (logger.isTraceEnabled()) {
-					logger.trace("Rolling back nodes " + node1 + " and " + node2);
+					logger.trace("deltaCost " + deltaCost + " newCost " + newCost
+							+ " currentCost " + currentCost);
+				}
+				double deltac = deltaCost / currentCost;
+				// Note that we use machine epsilon to perform the following
+				// comparison between the float numbers
+				if (MathUtils.approximatelyEqual((float)deltac, 0)) {
+					deltac = 0;
+				} else {
+					deltac = deltac * 100;
+				}
+				if (accept(deltac, t, r)) {
+					if (logger.isTraceEnabled()) {
+						logger.trace("Accepting...");
+					}
+					acceptCount++;
+					totalDeltaCost += deltaCost;
+					currentCost = newCost;
+					currentEnergy = newEnergy;
+				} else {
+					if (logger.isTraceEnabled()) {
+						logger.trace("Rolling back nodes " + node1 + " and " + node2);
+					}
+					swapProcesses(node1, node2); // roll back
 				}
-				swapProcesses(node1, node2); // roll back
 			}
 			if (m % unit == 0) {
 				// This is just to print out the process of the algorithm
@@ -440,18 +572,20 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 	}
 
 	protected int doMapping() {
-		double cost3, cost2;
 		boolean done;
-		double tol3, tol2, temp;
+		double tol3, tol2;
 		double deltaCost;
 
-		// set up the global control parameters for this annealing run
-		int tempCount = 0;
-		cost3 = 999999999;
-		cost2 = 999999999;
-		currentCost = cost2;
-
 		attempts = nodes.length * nodes.length * 100;
+		
+		if (earlyReject) {
+			logger.info("Moves which surely don't pass the accept criterion are rejected early");
+			coreToNode = new int[cores.length];
+			for (int i = 0; i < cores.length; i++) {
+				coreToNode[i] = cores[i].getNodeId();
+			}
+			currentEnergy = calculateCommunicationEnergy();
+		}
 		// attempts = nodesNumber * 10;
 
 		// Determine initial temperature by accepting all moves and
@@ -461,7 +595,14 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 		 * &acceptratio, 1); temp = 20.0 * VAR; init_anneal();
 		 */
 
-		temp = 100;
+		if (!resumed) {
+			// set up the global control parameters for this annealing run
+			tempCount = 0;
+			cost3 = 999999999;
+			cost2 = 999999999;
+			currentCost = cost2;
+			temperature = 100;
+		}
 
 		/* here is the temperature cooling loop of the annealer */
 		done = false;
@@ -469,9 +610,9 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 			needStop = false;
 
 			System.out.println("Round " + tempCount + ":");
-			System.out.println("Current Annealing temperature " + temp);
+			System.out.println("Current Annealing temperature " + temperature);
 
-			deltaCost = annealAtTemperature(temp);
+			deltaCost = annealAtTemperature(temperature);
 			
 //			System.exit(-1);
 
@@ -523,8 +664,9 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 				// temperature.
 				cost3 = cost2;
 				cost2 = currentCost;
-				temp = 0.9 * temp;
+				temperature = 0.9 * temperature;
 				tempCount++;
+				checkpoint();
 			}
 		} while (!done);
 		if (buildRoutingTable) {
@@ -586,6 +728,14 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 		
 		node1.setCore(Integer.toString(p2));
 		node2.setCore(Integer.toString(p1));
+		if (coreToNode != null) {
+			if (p1 != -1) {
+				coreToNode[p1] = t2;
+			}
+			if (p2 != -1) {
+				coreToNode[p2] = t1;
+			}
+		}
 		if (p1 != -1) {
 			Core process = cores[p1];
 			if (process == null) {
@@ -613,6 +763,40 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 	@Override
 	protected void doBeforeSavingMapping() {
 		logger.info("A number of " + evaluations + " mappings were evaluated");
+		if (earlyReject) {
+			logger.info("A number of " + earlyRejections + " moves were rejected without being evaluated");
+		}
+	}
+	
+	@Override
+	protected boolean isCheckpointSupported() {
+		return true;
+	}
+	
+	@Override
+	protected void writeSearchState(DataOutputStream out) throws IOException {
+		out.writeInt(urvSeed);
+		out.writeLong(evaluations);
+		out.writeDouble(currentCost);
+		out.writeInt(zeroTempCnt);
+		out.writeDouble(temperature);
+		out.writeInt(tempCount);
+		out.writeDouble(cost3);
+		out.writeDouble(cost2);
+		out.writeLong(earlyRejections);
+	}
+	
+	@Override
+	protected void readSearchState(DataInputStream in) throws IOException {
+		urvSeed = in.readInt();
+		evaluations = in.readLong();
+		currentCost = in.readDouble();
+		zeroTempCnt = in.readInt();
+		temperature = in.readDouble();
+		tempCount = in.readInt();
+		cost3 = in.readDouble();
+		cost2 = in.readDouble();
+		earlyRejections = in.readLong();
 	}
 
 	private void parseTrafficConfig(String filePath, double linkBandwidth)
@@ -685,12 +869,14 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 		final float bufReadEBit = 1.056f;
 		final float bufWriteEBit = 2.831f;
 		
+		final String cliArgs[] = args;
+		
 		MapperInputProcessor mapperInputProcessor = new MapperInputProcessor() {
 			
 			@Override
 			public void useMapper(String benchmarkFilePath,
 					String benchmarkName, String ctgId, String apcgId,
-					List<CtgType> ctgTypes, List<ApcgType> apcgTypes,
+					ApplicationInput application,
 					boolean doRouting, LegalTurnSet lts, double linkBandwidth,
 					Long seed) throws JAXBException, TooFewNocNodesException,
 					FileNotFoundException {
@@ -698,10 +884,7 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 						+ benchmarkFilePath + "ctg-" + ctgId + " (APCG " + apcgId + ")");
 				
 				SimulatedAnnealingMapper saMapper;
-				int cores = 0;
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					cores += apcgTypes.get(k).getCore().size();
-				}
+				int cores = application.getCoreCount();
 				int hSize = (int) Math.ceil(Math.sqrt(cores));
 				hSize = Math.max(2, hSize); // using at least a 2x2 2D mesh
 				String meshSize;
@@ -722,6 +905,16 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 						+ File.separator + topologyName + File.separator
 						+ meshSize;
 				
+				boolean earlyReject = false;
+				try {
+					CommandLineParser parser = new PosixParser();
+					CommandLine cmd = parser.parse(getCliOptions(), cliArgs);
+					earlyReject = cmd.hasOption("e");
+				} catch (ParseException e) {
+					logger.fatal(e);
+					System.exit(0);
+				}
+				
 				String[] parameters = new String[] {
 						"linkBandwidth",
 						"switchEBit",
@@ -729,16 +922,18 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 						"bufReadEBit",
 						"bufWriteEBit",
 						"routing",
-						"seed"};
+						"seed",
+						"earlyReject"};
 				String values[] = new String[] {
 						Double.toString(linkBandwidth),
 						Float.toString(switchEBit), Float.toString(linkEBit),
 						Float.toString(bufReadEBit),
 						Float.toString(bufWriteEBit),
 						null,
-						seed == null ? null : Long.toString(seed)};
+						seed == null ? null : Long.toString(seed),
+						Boolean.toString(earlyReject)};
 				if (doRouting) {
-					values[values.length - 2] = "true" + "-" + lts.toString();
+					values[values.length - 3] = "true" + "-" + lts.toString();
 					MapperDatabase.getInstance().setParameters(parameters, values);
 					
 					// SA with routing
@@ -749,7 +944,7 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 							true, lts, bufReadEBit,
 							bufWriteEBit, switchEBit, linkEBit, seed);
 				} else {
-					values[values.length - 2] = "false";
+					values[values.length - 3] = "false";
 					MapperDatabase.getInstance().setParameters(parameters, values);
 					
 					// SA without routing
@@ -765,15 +960,15 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 	//					"telecom-mocsyn-16tile-selectedpe.traffic.config",
 	//					linkBandwidth);
 				
-				for (int k = 0; k < apcgTypes.size(); k++) {
-					// read the input data using the Unified Framework's XML interface
-					saMapper.parseApcg(apcgTypes.get(k), ctgTypes.get(k));
-				}
+				// read the input data (unmarshalled or streamed)
+				saMapper.parseApplication(application);
 				
 	//			// This is just for checking that bbMapper.parseTrafficConfig(...)
 	//			// and parseApcg(...) have the same effect
 	//			bbMapper.printCores();
 	
+				saMapper.setEarlyReject(earlyReject);
+				configureCheckpointing(saMapper, seed);
 				String[] mappingXml = saMapper.map();
 				File dir = new File(benchmarkFilePath + "ctg-" + ctgId);
 				dir.mkdirs();
@@ -795,6 +990,7 @@ public class SimulatedAnnealingMapper extends BandwidthConstrainedEnergyAndPerfo
 				saMapper.analyzeIt();
 			}
 		};
+		mapperInputProcessor.getCliOptions().addOption("e", "early-reject", false, "reject the moves which surely don't pass the accept criterion, without completely evaluating them");
 		mapperInputProcessor.processInput(args);
 	}
 }
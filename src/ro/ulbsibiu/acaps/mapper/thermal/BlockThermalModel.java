@@ -0,0 +1,495 @@
+package ro.ulbsibiu.acaps.mapper.thermal;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The steady state block thermal model of HotSpot (version 5.01), computed in
+ * Java. The model has four layers (silicon, thermal interface material, heat
+ * spreader and heat sink), each one with a node for each functional unit of
+ * the floorplan, and 12 extra package nodes (4 peripheral heat spreader nodes,
+ * 4 heat sink nodes under the spreader and 4 peripheral heat sink nodes). The
+ * heat sink nodes are connected to the ambient.
+ * <p>
+ * The thermal conductance matrix G is built once, from the HotSpot
+ * configuration and the floorplan, exactly like HotSpot does it. Since G is
+ * symmetric and positive definite, its Cholesky factorization is computed
+ * once too. Then, the steady state temperatures T of a power map P are
+ * obtained from G &middot; T = P with a forward and a backward substitution.
+ * </p>
+ * <p>
+ * Only the block model without the detailed package model (natural
+ * convection) is supported. A model may be shared by more threads.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class BlockThermalModel {
+
+	/** the number of layers */
+	private static final int LAYERS = 4;
+
+	private static final int INTERFACE = 1;
+
+	private static final int SPREADER = 2;
+
+	private static final int SINK = 3;
+
+	/** the number of extra (package) nodes */
+	private static final int EXTRA = 12;
+
+	private static final int SPREADER_WEST = 0;
+	private static final int SPREADER_EAST = 1;
+	private static final int SPREADER_NORTH = 2;
+	private static final int SPREADER_SOUTH = 3;
+	private static final int SINK_CENTER_WEST = 4;
+	private static final int SINK_CENTER_EAST = 5;
+	private static final int SINK_CENTER_NORTH = 6;
+	private static final int SINK_CENTER_SOUTH = 7;
+	private static final int SINK_WEST = 8;
+	private static final int SINK_EAST = 9;
+	private static final int SINK_NORTH = 10;
+	private static final int SINK_SOUTH = 11;
+
+	/** the tolerance used when comparing coordinates (as in HotSpot) */
+	private static final double DELTA = 1.0e-6;
+
+	/** the number of functional units */
+	private final int n;
+
+	/** the total number of nodes */
+	private final int size;
+
+	/** the ambient temperature (Kelvin) */
+	private final double ambient;
+
+	/**
+	 * the conductance to the ambient of each heat sink node and of each extra
+	 * node (the first n values are for the heat sink layer)
+	 */
+	private final double[] ambientConductances;
+
+	/**
+	 * the lower triangle of the Cholesky factor of the conductance matrix
+	 * (row i has i + 1 elements)
+	 */
+	private final double[][] cholesky;
+
+	/**
+	 * Builds the thermal model of a floorplan
+	 *
+	 * @param config
+	 *            the HotSpot configuration
+	 * @param floorplan
+	 *            the floorplan
+	 * @throws IllegalArgumentException
+	 *             if the configuration is not supported or the floorplan does
+	 *             not fit onto the heat spreader
+	 */
+	public BlockThermalModel(HotSpotConfig config, Floorplan floorplan) {
+		if (config.get("model_type") != null
+				&& !"block".equals(config.get("model_type"))) {
+			throw new IllegalArgumentException("Only the HotSpot block model is supported!");
+		}
+		if (config.get("package_model_used") != null
+				&& config.getDouble("package_model_used") != 0) {
+			throw new IllegalArgumentException("The HotSpot detailed package model is not supported!");
+		}
+
+		n = floorplan.getUnitCount();
+		size = LAYERS * n + EXTRA;
+		ambient = config.getDouble("ambient");
+		ambientConductances = new double[n + EXTRA];
+
+		double[][] g = buildConductanceMatrix(config, floorplan);
+		cholesky = factorize(g);
+	}
+
+	/**
+	 * Builds the thermal model of a floorplan
+	 *
+	 * @param configFile
+	 *            the HotSpot configuration file
+	 * @param floorplanFile
+	 *            the floorplan file
+	 * @return the thermal model
+	 * @throws IOException
+	 *             if a file cannot be read
+	 */
+	public static BlockThermalModel load(File configFile, File floorplanFile)
+			throws IOException {
+		return new BlockThermalModel(HotSpotConfig.parse(configFile),
+				Floorplan.parse(floorplanFile));
+	}
+
+	private static double getR(double conductivity, double thickness,
+			double area) {
+		return thickness / (conductivity * area);
+	}
+
+	private static boolean eq(double x, double y) {
+		return Math.abs(x - y) < DELTA;
+	}
+
+	/**
+	 * Tells whether or not two units are adjacent (on the x axis, if
+	 * horizontal, or on the y axis, otherwise). The units which touch only
+	 * through a corner are not adjacent.
+	 */
+	private static boolean isAdjacent(Floorplan floorplan, int i, int j,
+			boolean horizontal) {
+		if (i == j) {
+			return false;
+		}
+		double x1 = floorplan.getLeftX(i);
+		double x2 = x1 + floorplan.getWidth(i);
+		double x3 = floorplan.getLeftX(j);
+		double x4 = x3 + floorplan.getWidth(j);
+		double y1 = floorplan.getBottomY(i);
+		double y2 = y1 + floorplan.getHeight(i);
+		double y3 = floorplan.getBottomY(j);
+		double y4 = y3 + floorplan.getHeight(j);
+
+		// diagonally adjacent => not adjacent
+		if ((eq(x2, x3) || eq(x1, x4)) && (eq(y2, y3) || eq(y1, y4))) {
+			return false;
+		}
+		if (horizontal) {
+			return (eq(x1, x4) || eq(x2, x3))
+					&& ((y3 >= y1 && y3 <= y2) || (y4 >= y1 && y4 <= y2)
+							|| (y1 >= y3 && y1 <= y4) || (y2 >= y3 && y2 <= y4));
+		} else {
+			return (eq(y1, y4) || eq(y2, y3))
+					&& ((x3 >= x1 && x3 <= x2) || (x4 >= x1 && x4 <= x2)
+							|| (x1 >= x3 && x1 <= x4) || (x2 >= x3 && x2 <= x4));
+		}
+	}
+
+	/**
+	 * Connects two nodes. As in HotSpot, each node gives the conductance from
+	 * its center to the shared edge, so the two conductances are in series.
+	 */
+	private static void connect(double[][] g, int i, int j, double gij,
+			double gji) {
+		if (gij == 0 || gji == 0) {
+			return;
+		}
+		double conductance = 1.0 / (1.0 / gij + 1.0 / gji);
+		g[i][j] -= conductance;
+		g[j][i] -= conductance;
+		g[i][i] += conductance;
+		g[j][j] += conductance;
+	}
+
+	/**
+	 * Builds the conductance matrix, following populate_R_model_block(...)
+	 * and populate_package_R(...) from HotSpot
+	 */
+	private double[][] buildConductanceMatrix(HotSpotConfig config,
+			Floorplan floorplan) {
+		double tChip = config.getDouble("t_chip");
+		double kChip = config.getDouble("k_chip");
+		double rConvec = config.getDouble("r_convec");
+		double sSink = config.getDouble("s_sink");
+		double tSink = config.getDouble("t_sink");
+		double kSink = config.getDouble("k_sink");
+		double sSpreader = config.getDouble("s_spreader");
+		double tSpreader = config.getDouble("t_spreader");
+		double kSpreader = config.getDouble("k_spreader");
+		double tInterface = config.getDouble("t_interface");
+		double kInterface = config.getDouble("k_interface");
+		boolean omitLateral = config.get("block_omit_lateral") != null
+				&& config.getDouble("block_omit_lateral") != 0;
+
+		double width = floorplan.getTotalWidth();
+		double height = floorplan.getTotalHeight();
+		if (width > sSink || height > sSink || width > sSpreader
+				|| height > sSpreader) {
+			throw new IllegalArgumentException("Inordinate floorplan size!");
+		}
+
+		// the package resistances
+		double rSp1X = getR(kSpreader, (sSpreader - width) / 4.0, (sSpreader + 3 * height) / 4.0 * tSpreader);
+		double rSp1Y = getR(kSpreader, (sSpreader - height) / 4.0, (sSpreader + 3 * width) / 4.0 * tSpreader);
+		double rHs1X = getR(kSink, (sSpreader - width) / 4.0, (sSpreader + 3 * height) / 4.0 * tSink);
+		double rHs1Y = getR(kSink, (sSpreader - height) / 4.0, (sSpreader + 3 * width) / 4.0 * tSink);
+		double rHs2X = getR(kSink, (sSpreader - width) / 4.0, (3 * sSpreader + height) / 4.0 * tSink);
+		double rHs2Y = getR(kSink, (sSpreader - height) / 4.0, (3 * sSpreader + width) / 4.0 * tSink);
+		double rHs = getR(kSink, (sSink - sSpreader) / 4.0, (sSink + 3 * sSpreader) / 4.0 * tSink);
+		double rSpPerX = getR(kSpreader, tSpreader, (sSpreader + height) * (sSpreader - width) / 4.0);
+		double rSpPerY = getR(kSpreader, tSpreader, (sSpreader + width) * (sSpreader - height) / 4.0);
+		double rHsCPerX = getR(kSink, tSink, (sSpreader + height) * (sSpreader - width) / 4.0);
+		double rHsCPerY = getR(kSink, tSink, (sSpreader + width) * (sSpreader - height) / 4.0);
+		double rHsPer = getR(kSink, tSink, (sSink * sSink - sSpreader * sSpreader) / 4.0);
+		double rAmbCPerX = rConvec * (sSink * sSink) / ((sSpreader + height) * (sSpreader - width) / 4.0);
+		double rAmbCPerY = rConvec * (sSink * sSink) / ((sSpreader + width) * (sSpreader - height) / 4.0);
+		double rAmbPer = rConvec * (sSink * sSink) / ((sSink * sSink - sSpreader * sSpreader) / 4.0);
+
+		// the lateral conductances of the blocks (from their center to an edge)
+		double[] gx = new double[n];
+		double[] gy = new double[n];
+		double[] gxInt = new double[n];
+		double[] gyInt = new double[n];
+		double[] gxSp = new double[n];
+		double[] gySp = new double[n];
+		double[] gxHs = new double[n];
+		double[] gyHs = new double[n];
+		for (int i = 0; i < n; i++) {
+			double w = floorplan.getWidth(i);
+			double h = floorplan.getHeight(i);
+			if (!omitLateral) {
+				gx[i] = 1.0 / getR(kChip, w / 2.0, h * tChip);
+				gy[i] = 1.0 / getR(kChip, h / 2.0, w * tChip);
+			}
+			gxInt[i] = 1.0 / getR(kInterface, w / 2.0, h * tInterface);
+			gyInt[i] = 1.0 / getR(kInterface, h / 2.0, w * tInterface);
+			gxSp[i] = 1.0 / getR(kSpreader, w / 2.0, h * tSpreader);
+			gySp[i] = 1.0 / getR(kSpreader, h / 2.0, w * tSpreader);
+			gxHs[i] = 1.0 / getR(kSink, w / 2.0, h * tSink);
+			gyHs[i] = 1.0 / getR(kSink, h / 2.0, w * tSink);
+		}
+
+		// the blocks from the chip edges (west, east, north, south)
+		boolean[][] border = new boolean[n][4];
+		double gnSp = 0, gsSp = 0, geSp = 0, gwSp = 0;
+		double gnHs = 0, gsHs = 0, geHs = 0, gwHs = 0;
+		for (int i = 0; i < n; i++) {
+			if (eq(floorplan.getBottomY(i) + floorplan.getHeight(i), height)) {
+				gnSp += gySp[i];
+				gnHs += gyHs[i];
+				border[i][2] = true;
+			}
+			if (eq(floorplan.getBottomY(i), 0)) {
+				gsSp += gySp[i];
+				gsHs += gyHs[i];
+				border[i][3] = true;
+			}
+			if (eq(floorplan.getLeftX(i) + floorplan.getWidth(i), width)) {
+				geSp += gxSp[i];
+				geHs += gxHs[i];
+				border[i][1] = true;
+			}
+			if (eq(floorplan.getLeftX(i), 0)) {
+				gwSp += gxSp[i];
+				gwHs += gxHs[i];
+				border[i][0] = true;
+			}
+		}
+
+		double[][] g = new double[size][size];
+		int extra = LAYERS * n;
+		for (int i = 0; i < n; i++) {
+			double w = floorplan.getWidth(i);
+			double h = floorplan.getHeight(i);
+			double area = w * h;
+
+			// amongst the functional units, in each layer
+			for (int j = i + 1; j < n; j++) {
+				double[] part = null;
+				double lengthI = 0;
+				double lengthJ = 0;
+				double shared = 0;
+				if (isAdjacent(floorplan, i, j, true)) {
+					part = new double[] { gx[i] / h, gxInt[i] / h, gxSp[i] / h, gxHs[i] / h,
+							gx[j] / floorplan.getHeight(j), gxInt[j] / floorplan.getHeight(j),
+							gxSp[j] / floorplan.getHeight(j), gxHs[j] / floorplan.getHeight(j) };
+					lengthI = floorplan.getBottomY(i);
+					lengthJ = floorplan.getBottomY(j);
+					shared = Math.min(lengthI + h, lengthJ + floorplan.getHeight(j))
+							- Math.max(lengthI, lengthJ);
+				} else {
+					if (isAdjacent(floorplan, i, j, false)) {
+						part = new double[] { gy[i] / w, gyInt[i] / w, gySp[i] / w, gyHs[i] / w,
+								gy[j] / floorplan.getWidth(j), gyInt[j] / floorplan.getWidth(j),
+								gySp[j] / floorplan.getWidth(j), gyHs[j] / floorplan.getWidth(j) };
+						lengthI = floorplan.getLeftX(i);
+						lengthJ = floorplan.getLeftX(j);
+						shared = Math.min(lengthI + w, lengthJ + floorplan.getWidth(j))
+								- Math.max(lengthI, lengthJ);
+					}
+				}
+				if (part != null) {
+					for (int layer = 0; layer < LAYERS; layer++) {
+						connect(g, layer * n + i, layer * n + j,
+								part[layer] * shared, part[LAYERS + layer] * shared);
+					}
+				}
+			}
+
+			// vertically, between the layers
+			connect(g, i, INTERFACE * n + i, 2.0 / getR(kChip, tChip, area), 2.0 / getR(kChip, tChip, area));
+			connect(g, INTERFACE * n + i, SPREADER * n + i,
+					2.0 / getR(kInterface, tInterface, area), 2.0 / getR(kInterface, tInterface, area));
+			connect(g, SPREADER * n + i, SINK * n + i,
+					2.0 / getR(kSpreader, tSpreader, area), 2.0 / getR(kSpreader, tSpreader, area));
+			// from the heat sink to the ambient (r_convec is divided proportional to the area)
+			ambientConductances[i] = 1.0 / (getR(kSink, tSink, area) + rConvec * (sSink * sSink) / area);
+
+			// laterally, from the block center to the peripheral spreader and heat sink nodes
+			double conductance;
+			conductance = border[i][2] ? 2.0 / (1.0 / gySp[i] + rSp1Y * gnSp / gySp[i]) : 0;
+			connect(g, SPREADER * n + i, extra + SPREADER_NORTH, conductance, conductance);
+			conductance = border[i][3] ? 2.0 / (1.0 / gySp[i] + rSp1Y * gsSp / gySp[i]) : 0;
+			connect(g, SPREADER * n + i, extra + SPREADER_SOUTH, conductance, conductance);
+			conductance = border[i][1] ? 2.0 / (1.0 / gxSp[i] + rSp1X * geSp / gxSp[i]) : 0;
+			connect(g, SPREADER * n + i, extra + SPREADER_EAST, conductance, conductance);
+			conductance = border[i][0] ? 2.0 / (1.0 / gxSp[i] + rSp1X * gwSp / gxSp[i]) : 0;
+			connect(g, SPREADER * n + i, extra + SPREADER_WEST, conductance, conductance);
+
+			conductance = border[i][2] ? 2.0 / (1.0 / gyHs[i] + rHs1Y * gnHs / gyHs[i]) : 0;
+			connect(g, SINK * n + i, extra + SINK_CENTER_NORTH, conductance, conductance);
+			conductance = border[i][3] ? 2.0 / (1.0 / gyHs[i] + rHs1Y * gsHs / gyHs[i]) : 0;
+			connect(g, SINK * n + i, extra + SINK_CENTER_SOUTH, conductance, conductance);
+			conductance = border[i][1] ? 2.0 / (1.0 / gxHs[i] + rHs1X * geHs / gxHs[i]) : 0;
+			connect(g, SINK * n + i, extra + SINK_CENTER_EAST, conductance, conductance);
+			conductance = border[i][0] ? 2.0 / (1.0 / gxHs[i] + rHs1X * gwHs / gxHs[i]) : 0;
+			connect(g, SINK * n + i, extra + SINK_CENTER_WEST, conductance, conductance);
+		}
+
+		// between the peripheral spreader nodes and the heat sink nodes under them
+		connect(g, extra + SPREADER_NORTH, extra + SINK_CENTER_NORTH, 2.0 / rSpPerY, 2.0 / rSpPerY);
+		connect(g, extra + SPREADER_SOUTH, extra + SINK_CENTER_SOUTH, 2.0 / rSpPerY, 2.0 / rSpPerY);
+		connect(g, extra + SPREADER_EAST, extra + SINK_CENTER_EAST, 2.0 / rSpPerX, 2.0 / rSpPerX);
+		connect(g, extra + SPREADER_WEST, extra + SINK_CENTER_WEST, 2.0 / rSpPerX, 2.0 / rSpPerX);
+		// between the heat sink nodes under the spreader and the peripheral heat sink nodes
+		connect(g, extra + SINK_CENTER_NORTH, extra + SINK_NORTH, 2.0 / (rHs + rHs2Y), 2.0 / (rHs + rHs2Y));
+		connect(g, extra + SINK_CENTER_SOUTH, extra + SINK_SOUTH, 2.0 / (rHs + rHs2Y), 2.0 / (rHs + rHs2Y));
+		connect(g, extra + SINK_CENTER_EAST, extra + SINK_EAST, 2.0 / (rHs + rHs2X), 2.0 / (rHs + rHs2X));
+		connect(g, extra + SINK_CENTER_WEST, extra + SINK_WEST, 2.0 / (rHs + rHs2X), 2.0 / (rHs + rHs2X));
+		// from the peripheral heat sink nodes to the ambient
+		ambientConductances[n + SINK_CENTER_NORTH] = 1.0 / (rHsCPerY + rAmbCPerY);
+		ambientConductances[n + SINK_CENTER_SOUTH] = 1.0 / (rHsCPerY + rAmbCPerY);
+		ambientConductances[n + SINK_CENTER_EAST] = 1.0 / (rHsCPerX + rAmbCPerX);
+		ambientConductances[n + SINK_CENTER_WEST] = 1.0 / (rHsCPerX + rAmbCPerX);
+		ambientConductances[n + SINK_NORTH] = 1.0 / (rHsPer + rAmbPer);
+		ambientConductances[n + SINK_SOUTH] = 1.0 / (rHsPer + rAmbPer);
+		ambientConductances[n + SINK_EAST] = 1.0 / (rHsPer + rAmbPer);
+		ambientConductances[n + SINK_WEST] = 1.0 / (rHsPer + rAmbPer);
+
+		for (int i = 0; i < n + EXTRA; i++) {
+			g[SINK * n + i][SINK * n + i] += ambientConductances[i];
+		}
+		return g;
+	}
+
+	/**
+	 * Computes the Cholesky factorization of a symmetric positive definite
+	 * matrix (only its lower triangle is read)
+	 */
+	private static double[][] factorize(double[][] a) {
+		int size = a.length;
+		double[][] l = new double[size][];
+		for (int i = 0; i < size; i++) {
+			l[i] = new double[i + 1];
+			double[] li = l[i];
+			for (int j = 0; j <= i; j++) {
+				double[] lj = l[j];
+				double sum = a[i][j];
+				for (int k = 0; k < j; k++) {
+					sum -= li[k] * lj[k];
+				}
+				if (i == j) {
+					if (sum <= 0) {
+						throw new IllegalStateException("The thermal conductance matrix is not positive definite!");
+					}
+					li[i] = Math.sqrt(sum);
+				} else {
+					li[j] = sum / lj[j];
+				}
+			}
+		}
+		return l;
+	}
+
+	/**
+	 * @return the number of functional units of the floorplan
+	 */
+	public int getUnitCount() {
+		return n;
+	}
+
+	/**
+	 * @return the ambient temperature (Kelvin)
+	 */
+	public double getAmbientTemperature() {
+		return ambient;
+	}
+
+	/**
+	 * Computes the steady state temperatures of all the nodes of the model
+	 *
+	 * @param power
+	 *            the power dissipated by each functional unit (Watts)
+	 * @return the temperature (Kelvin) of each node: the silicon layer (one
+	 *         value for each functional unit), the interface layer, the
+	 *         spreader layer, the heat sink layer and the 12 extra nodes
+	 */
+	public double[] computeAllSteadyStateTemperatures(double[] power) {
+		return solve(power, ambient);
+	}
+
+	/**
+	 * Computes the steady state temperature rises (above the ambient) of the
+	 * functional units. This is more precise than subtracting the ambient
+	 * temperature from {@link #computeSteadyStateTemperatures(double[])}.
+	 *
+	 * @param power
+	 *            the power dissipated by each functional unit (Watts)
+	 * @return the temperature rise (Kelvin) of each functional unit
+	 */
+	public double[] computeSteadyStateTemperatureRises(double[] power) {
+		double[] rises = new double[n];
+		System.arraycopy(solve(power, 0), 0, rises, 0, n);
+		return rises;
+	}
+
+	/**
+	 * Solves G &middot; T = P, for a given ambient temperature
+	 */
+	private double[] solve(double[] power, double ambient) {
+		if (power.length != n) {
+			throw new IllegalArgumentException("Expecting " + n
+					+ " power values but got " + power.length);
+		}
+		double[] t = new double[size];
+		System.arraycopy(power, 0, t, 0, n);
+		for (int i = 0; i < n + EXTRA; i++) {
+			t[SINK * n + i] = ambient * ambientConductances[i];
+		}
+		// L y = P
+		for (int i = 0; i < size; i++) {
+			double[] li = cholesky[i];
+			double sum = t[i];
+			for (int k = 0; k < i; k++) {
+				sum -= li[k] * t[k];
+			}
+			t[i] = sum / li[i];
+		}
+		// L^T T = y
+		for (int i = size - 1; i >= 0; i--) {
+			double[] li = cholesky[i];
+			t[i] /= li[i];
+			double ti = t[i];
+			for (int k = 0; k < i; k++) {
+				t[k] -= li[k] * ti;
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Computes the steady state temperatures of the functional units
+	 *
+	 * @param power
+	 *            the power dissipated by each functional unit (Watts)
+	 * @return the temperature (Kelvin) of each functional unit (the silicon
+	 *         layer)
+	 */
+	public double[] computeSteadyStateTemperatures(double[] power) {
+		double[] temperatures = new double[n];
+		System.arraycopy(computeAllSteadyStateTemperatures(power), 0,
+				temperatures, 0, n);
+		return temperatures;
+	}
+}
@@ -0,0 +1,152 @@
+package ro.ulbsibiu.acaps.mapper.thermal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A HotSpot floorplan (.flp file). Each line of the file describes a
+ * functional unit (block): its name, its width, its height, its left x
+ * coordinate and its bottom y coordinate (all in meters). Everything after a
+ * '#' is a comment.
+ *
+ * @author cradu
+ *
+ */
+public class Floorplan {
+
+	private final String[] names;
+
+	private final double[] widths;
+
+	private final double[] heights;
+
+	private final double[] leftXs;
+
+	private final double[] bottomYs;
+
+	private Floorplan(List<String> names, List<double[]> units) {
+		int n = names.size();
+		this.names = names.toArray(new String[n]);
+		widths = new double[n];
+		heights = new double[n];
+		leftXs = new double[n];
+		bottomYs = new double[n];
+		for (int i = 0; i < n; i++) {
+			widths[i] = units.get(i)[0];
+			heights[i] = units.get(i)[1];
+			leftXs[i] = units.get(i)[2];
+			bottomYs[i] = units.get(i)[3];
+		}
+	}
+
+	/**
+	 * Reads a HotSpot floorplan file
+	 *
+	 * @param file
+	 *            the floorplan file
+	 * @return the floorplan
+	 * @throws IOException
+	 *             if the file cannot be read, it has an invalid line or it
+	 *             has no units
+	 */
+	public static Floorplan parse(File file) throws IOException {
+		List<String> names = new ArrayList<String>();
+		List<double[]> units = new ArrayList<double[]>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				int comment = line.indexOf('#');
+				if (comment >= 0) {
+					line = line.substring(0, comment);
+				}
+				line = line.trim();
+				if (line.length() == 0) {
+					continue;
+				}
+				String[] tokens = line.split("\\s+");
+				if (tokens.length != 5) {
+					throw new IOException("Invalid line " + lineNumber
+							+ " in floorplan file " + file + ": " + line);
+				}
+				double[] unit = new double[4];
+				try {
+					for (int i = 0; i < unit.length; i++) {
+						unit[i] = Double.parseDouble(tokens[i + 1]);
+					}
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid line " + lineNumber
+							+ " in floorplan file " + file + ": " + line);
+				}
+				names.add(tokens[0]);
+				units.add(unit);
+			}
+		} finally {
+			reader.close();
+		}
+		if (names.isEmpty()) {
+			throw new IOException("The floorplan file " + file
+					+ " has no units!");
+		}
+		return new Floorplan(names, units);
+	}
+
+	/**
+	 * @return the number of functional units (blocks)
+	 */
+	public int getUnitCount() {
+		return names.length;
+	}
+
+	public String getName(int unit) {
+		return names[unit];
+	}
+
+	public double getWidth(int unit) {
+		return widths[unit];
+	}
+
+	public double getHeight(int unit) {
+		return heights[unit];
+	}
+
+	public double getLeftX(int unit) {
+		return leftXs[unit];
+	}
+
+	public double getBottomY(int unit) {
+		return bottomYs[unit];
+	}
+
+	/**
+	 * @return the width of the chip (the x-axis extent of the units)
+	 */
+	public double getTotalWidth() {
+		double min = leftXs[0];
+		double max = leftXs[0] + widths[0];
+		for (int i = 1; i < names.length; i++) {
+			min = Math.min(min, leftXs[i]);
+			max = Math.max(max, leftXs[i] + widths[i]);
+		}
+		return max - min;
+	}
+
+	/**
+	 * @return the height of the chip (the y-axis extent of the units)
+	 */
+	public double getTotalHeight() {
+		double min = bottomYs[0];
+		double max = bottomYs[0] + heights[0];
+		for (int i = 1; i < names.length; i++) {
+			min = Math.min(min, bottomYs[i]);
+			max = Math.max(max, bottomYs[i] + heights[i]);
+		}
+		return max - min;
+	}
+}
@@ -0,0 +1,100 @@
+package ro.ulbsibiu.acaps.mapper.thermal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The parameters from a HotSpot configuration file (e.g., hotspot.config).
+ * Each line of the file contains a parameter name (prefixed with '-') and its
+ * value. Everything after a '#' is a comment.
+ *
+ * @author cradu
+ *
+ */
+public class HotSpotConfig {
+
+	/** the parameters, in the order from the file */
+	private final Map<String, String> parameters;
+
+	private HotSpotConfig(Map<String, String> parameters) {
+		this.parameters = parameters;
+	}
+
+	/**
+	 * Reads a HotSpot configuration file
+	 *
+	 * @param file
+	 *            the configuration file
+	 * @return the configuration
+	 * @throws IOException
+	 *             if the file cannot be read or it has an invalid line
+	 */
+	public static HotSpotConfig parse(File file) throws IOException {
+		Map<String, String> parameters = new LinkedHashMap<String, String>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				int comment = line.indexOf('#');
+				if (comment >= 0) {
+					line = line.substring(0, comment);
+				}
+				line = line.trim();
+				if (line.length() == 0) {
+					continue;
+				}
+				String[] tokens = line.split("\\s+");
+				if (tokens.length != 2 || !tokens[0].startsWith("-")) {
+					throw new IOException("Invalid line " + lineNumber
+							+ " in HotSpot configuration file " + file + ": "
+							+ line);
+				}
+				parameters.put(tokens[0].substring(1), tokens[1]);
+			}
+		} finally {
+			reader.close();
+		}
+		return new HotSpotConfig(parameters);
+	}
+
+	/**
+	 * @param name
+	 *            the parameter name (without the '-' prefix)
+	 * @return the value of the parameter, or <tt>null</tt> if it is not set
+	 */
+	public String get(String name) {
+		return parameters.get(name);
+	}
+
+	/**
+	 * @param name
+	 *            the parameter name (without the '-' prefix)
+	 * @return the numeric value of the parameter
+	 * @throws IllegalArgumentException
+	 *             if the parameter is not set or it is not a number
+	 */
+	public double getDouble(String name) {
+		String value = parameters.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("The HotSpot parameter " + name
+					+ " is not set!");
+		}
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("The HotSpot parameter " + name
+					+ " is not a number: " + value);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return parameters.toString();
+	}
+}
@@ -0,0 +1,285 @@
+package ro.ulbsibiu.acaps.mapper.thermal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs the HotSpot binary on a bounded pool of concurrent processes. Each
+ * evaluation writes its power trace into a unique temporary file, placed on a
+ * memory backed file system (/dev/shm) when one is available. The steady
+ * state temperatures are parsed while HotSpot prints them to its standard
+ * output, so no steady file is written.
+ * <p>
+ * Note that each power map needs its own HotSpot process: when the power
+ * trace has more lines, HotSpot computes the steady state temperatures of the
+ * average power, not of each line.
+ * </p>
+ * <p>
+ * An executor may be shared by more threads. It must be closed with
+ * {@link #shutdown()}.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class HotSpotExecutor {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(HotSpotExecutor.class);
+
+	/** the header HotSpot prints before the steady state temperatures */
+	private static final String STEADY_HEADER = "Unit\tSteady(Kelvin)";
+
+	/** the memory backed directory preferred for the temporary files */
+	private static final File SHARED_MEMORY_DIR = new File("/dev/shm");
+
+	private final File hotspotFile;
+
+	private final File configFile;
+
+	private final File floorplanFile;
+
+	/** the names of the functional units, in the floorplan order */
+	private final String[] unitNames;
+
+	/** maps the name of each functional unit to its index */
+	private final Map<String, Integer> unitIndexes;
+
+	/** the directory where the power traces are written */
+	private final File workDir;
+
+	private final ExecutorService executor;
+
+	/**
+	 * Constructor
+	 *
+	 * @param hotspotDir
+	 *            the directory with the HotSpot binary (named hotspot) and its
+	 *            configuration file (hotspot.config)
+	 * @param floorplanFile
+	 *            the floorplan file
+	 * @param processes
+	 *            the maximum number of concurrent HotSpot processes
+	 * @throws IOException
+	 *             if the floorplan cannot be read
+	 */
+	public HotSpotExecutor(File hotspotDir, File floorplanFile, int processes)
+			throws IOException {
+		logger.assertLog(processes > 0, "At least one HotSpot process is required!");
+		this.hotspotFile = new File(hotspotDir, "hotspot");
+		this.configFile = new File(hotspotDir, "hotspot.config");
+		this.floorplanFile = floorplanFile;
+
+		Floorplan floorplan = Floorplan.parse(floorplanFile);
+		unitNames = new String[floorplan.getUnitCount()];
+		unitIndexes = new HashMap<String, Integer>(unitNames.length * 2);
+		for (int i = 0; i < unitNames.length; i++) {
+			unitNames[i] = floorplan.getName(i);
+			unitIndexes.put(unitNames[i], i);
+		}
+
+		if (SHARED_MEMORY_DIR.isDirectory() && SHARED_MEMORY_DIR.canWrite()) {
+			workDir = SHARED_MEMORY_DIR;
+		} else {
+			workDir = new File(System.getProperty("java.io.tmpdir"));
+		}
+
+		executor = Executors.newFixedThreadPool(processes, new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "HotSpot");
+				// a forgotten executor doesn't keep the JVM alive
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		logger.info("Running up to " + processes + " HotSpot processes (power traces are written into " + workDir + ")");
+	}
+
+	/**
+	 * @return the number of functional units of the floorplan
+	 */
+	public int getUnitCount() {
+		return unitNames.length;
+	}
+
+	/**
+	 * Computes the steady state temperatures of a power map
+	 *
+	 * @param power
+	 *            the power dissipated by each functional unit (Watts)
+	 * @return the temperature (Kelvin) of each functional unit
+	 * @throws IOException
+	 *             if HotSpot could not be run or its output is invalid
+	 */
+	public double[] computeSteadyStateTemperatures(double[] power)
+			throws IOException {
+		return computeSteadyStateTemperatures(Arrays.asList(power)).get(0);
+	}
+
+	/**
+	 * Computes the steady state temperatures of more power maps, concurrently
+	 *
+	 * @param powers
+	 *            the power maps
+	 * @return the temperatures of each power map (in the same order)
+	 * @throws IOException
+	 *             if HotSpot could not be run or its output is invalid
+	 */
+	public List<double[]> computeSteadyStateTemperatures(List<double[]> powers)
+			throws IOException {
+		List<Future<double[]>> futures = new ArrayList<Future<double[]>>(powers.size());
+		for (int i = 0; i < powers.size(); i++) {
+			final double[] power = powers.get(i);
+			if (power.length != unitNames.length) {
+				throw new IllegalArgumentException("Expecting "
+						+ unitNames.length + " power values but got "
+						+ power.length);
+			}
+			futures.add(executor.submit(new Callable<double[]>() {
+
+				@Override
+				public double[] call() throws Exception {
+					return runHotSpot(power);
+				}
+			}));
+		}
+
+		List<double[]> temperatures = new ArrayList<double[]>(futures.size());
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				temperatures.add(futures.get(i).get());
+			} catch (InterruptedException e) {
+				cancel(futures);
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for HotSpot");
+			} catch (ExecutionException e) {
+				cancel(futures);
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			}
+		}
+		return temperatures;
+	}
+
+	private static void cancel(List<Future<double[]>> futures) {
+		for (int i = 0; i < futures.size(); i++) {
+			futures.get(i).cancel(true);
+		}
+	}
+
+	/**
+	 * Writes the power trace, runs HotSpot and parses its output
+	 */
+	private double[] runHotSpot(double[] power) throws IOException,
+			InterruptedException {
+		File ptraceFile = File.createTempFile(floorplanFile.getName(), ".ptrace", workDir);
+		try {
+			PrintWriter pw = new PrintWriter(ptraceFile);
+			for (int i = 0; i < unitNames.length; i++) {
+				pw.print((i == 0 ? "" : "\t") + unitNames[i]);
+			}
+			pw.println();
+			for (int i = 0; i < power.length; i++) {
+				pw.print((i == 0 ? "" : "\t") + Double.toString(power[i]));
+			}
+			pw.println();
+			pw.close();
+			if (pw.checkError()) {
+				throw new IOException("Could not write the power trace " + ptraceFile);
+			}
+
+			ProcessBuilder builder = new ProcessBuilder(hotspotFile.getPath(),
+					"-c", configFile.getPath(), "-f", floorplanFile.getPath(),
+					"-p", ptraceFile.getPath());
+			builder.redirectErrorStream(true);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Calling HotSpot with command: " + builder.command());
+			}
+			Process p = builder.start();
+			try {
+				double[] temperatures = parseSteadyStateTemperatures(p);
+				int exitValue = p.waitFor();
+				if (exitValue != 0) {
+					throw new IOException("HotSpot exited with " + exitValue + " for " + ptraceFile);
+				}
+				return temperatures;
+			} finally {
+				p.destroy();
+			}
+		} finally {
+			ptraceFile.delete();
+		}
+	}
+
+	/**
+	 * Parses the steady state temperatures from the output of HotSpot (all
+	 * the output is read, so that HotSpot never blocks on a full pipe)
+	 */
+	private double[] parseSteadyStateTemperatures(Process p) throws IOException {
+		double[] temperatures = new double[unitNames.length];
+		int parsed = 0;
+		boolean steady = false;
+		StringBuilder output = new StringBuilder();
+		BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()));
+		try {
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (!steady) {
+					steady = STEADY_HEADER.equals(line.trim());
+					if (!steady) {
+						output.append(line).append(System.getProperty("line.separator"));
+					}
+				} else if (parsed < temperatures.length) {
+					// the extra nodes (iface_..., hsp_..., hsink_...) follow
+					String[] tokens = line.split("\t");
+					Integer unit = tokens.length == 2 ? unitIndexes.get(tokens[0]) : null;
+					if (unit != null) {
+						try {
+							temperatures[unit] = Double.parseDouble(tokens[1]);
+							parsed++;
+						} catch (NumberFormatException e) {
+							throw new IOException("Invalid HotSpot output line: " + line);
+						}
+					}
+				}
+			}
+		} finally {
+			br.close();
+		}
+		if (parsed < temperatures.length) {
+			throw new IOException("HotSpot computed only " + parsed + " of "
+					+ temperatures.length + " temperatures: " + output);
+		}
+		return temperatures;
+	}
+
+	/**
+	 * Stops the HotSpot threads (the running evaluations are finished first)
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
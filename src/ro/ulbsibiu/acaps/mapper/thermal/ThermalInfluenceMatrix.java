@@ -0,0 +1,310 @@
+package ro.ulbsibiu.acaps.mapper.thermal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The thermal influence matrix R of a floorplan. The steady state temperatures
+ * are linear in the power of the functional units, so T = T<sub>amb</sub> +
+ * R &middot; P, where R[i][j] is the temperature rise of unit i determined by
+ * one Watt dissipated by unit j. R is computed once, by solving the
+ * {@link BlockThermalModel} for each unit with unit power. Then, computing the
+ * temperatures takes O(N) time for each unit that dissipates power.
+ * <p>
+ * Computing the matrix takes N solves, so the matrices are cached on disk,
+ * keyed by the contents of the HotSpot configuration file and of the
+ * floorplan file (see {@link #load(File, File, File)}).
+ * </p>
+ * <p>
+ * A matrix is immutable, so it may be shared by more threads.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class ThermalInfluenceMatrix {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(ThermalInfluenceMatrix.class);
+
+	/** identifies the cache files (the ASCII codes of "TIMX") */
+	private static final int CACHE_MAGIC = 0x54494D58;
+
+	/** the version of the cache files format */
+	private static final int CACHE_VERSION = 1;
+
+	/** the number of functional units */
+	private final int n;
+
+	/** the ambient temperature (Kelvin) */
+	private final double ambient;
+
+	/**
+	 * the columns of R: columns[j][i] is the temperature rise of unit i per
+	 * Watt dissipated by unit j
+	 */
+	private final double[][] columns;
+
+	private ThermalInfluenceMatrix(double ambient, double[][] columns) {
+		this.n = columns.length;
+		this.ambient = ambient;
+		this.columns = columns;
+	}
+
+	/**
+	 * Computes the influence matrix of a thermal model
+	 *
+	 * @param model
+	 *            the thermal model
+	 * @return the influence matrix
+	 */
+	public static ThermalInfluenceMatrix compute(BlockThermalModel model) {
+		int n = model.getUnitCount();
+		double ambient = model.getAmbientTemperature();
+		double[][] columns = new double[n][];
+		double[] power = new double[n];
+		for (int j = 0; j < n; j++) {
+			power[j] = 1;
+			columns[j] = model.computeSteadyStateTemperatureRises(power);
+			power[j] = 0;
+		}
+		return new ThermalInfluenceMatrix(ambient, columns);
+	}
+
+	/**
+	 * Loads the influence matrix of a floorplan from the cache directory. If
+	 * it is not cached, it is computed (with a {@link BlockThermalModel}) and
+	 * saved into the cache directory.
+	 *
+	 * @param configFile
+	 *            the HotSpot configuration file
+	 * @param floorplanFile
+	 *            the floorplan file
+	 * @param cacheDir
+	 *            the cache directory (it is created if needed)
+	 * @return the influence matrix
+	 * @throws IOException
+	 *             if the configuration or the floorplan cannot be read
+	 */
+	public static ThermalInfluenceMatrix load(File configFile,
+			File floorplanFile, File cacheDir) throws IOException {
+		byte[] key = computeKey(configFile, floorplanFile);
+		StringBuilder name = new StringBuilder(floorplanFile.getName().replace(".flp", ""));
+		name.append('-');
+		for (int i = 0; i < 8; i++) {
+			name.append(String.format("%02x", key[i]));
+		}
+		name.append(".tim");
+		File cacheFile = new File(cacheDir, name.toString());
+
+		if (cacheFile.exists()) {
+			try {
+				ThermalInfluenceMatrix matrix = read(cacheFile, key);
+				logger.info("Loaded the thermal influence matrix from " + cacheFile);
+				return matrix;
+			} catch (IOException e) {
+				logger.warn("Ignoring the thermal influence matrix cache file " + cacheFile, e);
+			}
+		}
+
+		long start = System.nanoTime();
+		ThermalInfluenceMatrix matrix = compute(BlockThermalModel.load(configFile, floorplanFile));
+		logger.info("Computed the thermal influence matrix of " + floorplanFile
+				+ " in " + (System.nanoTime() - start) / 1.0e6 + " ms");
+		try {
+			matrix.write(cacheFile, key);
+		} catch (IOException e) {
+			logger.warn("Could not save the thermal influence matrix into " + cacheFile, e);
+		}
+		return matrix;
+	}
+
+	/**
+	 * Computes the cache key: the SHA-1 digest of the configuration file and
+	 * of the floorplan file
+	 */
+	static byte[] computeKey(File configFile, File floorplanFile)
+			throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		File[] files = { configFile, floorplanFile };
+		byte[] buffer = new byte[8192];
+		for (int i = 0; i < files.length; i++) {
+			InputStream in = new FileInputStream(files[i]);
+			try {
+				int read;
+				while ((read = in.read(buffer)) >= 0) {
+					digest.update(buffer, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+			// separates the two files
+			digest.update((byte) 0);
+		}
+		return digest.digest();
+	}
+
+	private static ThermalInfluenceMatrix read(File file, byte[] key)
+			throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) {
+				throw new IOException("Unknown thermal influence matrix format");
+			}
+			byte[] fileKey = new byte[key.length];
+			in.readFully(fileKey);
+			if (!Arrays.equals(key, fileKey)) {
+				throw new IOException("The thermal influence matrix was computed for another floorplan or configuration");
+			}
+			int n = in.readInt();
+			double ambient = in.readDouble();
+			double[][] columns = new double[n][n];
+			for (int j = 0; j < n; j++) {
+				for (int i = 0; i < n; i++) {
+					columns[j][i] = in.readDouble();
+				}
+			}
+			return new ThermalInfluenceMatrix(ambient, columns);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the matrix into a temporary file, which then replaces the cache
+	 * file (so that concurrent runs never read a partially written file)
+	 */
+	private void write(File file, byte[] key) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		dir.mkdirs();
+		File tempFile = File.createTempFile(file.getName(), ".tmp", dir);
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeInt(CACHE_MAGIC);
+				out.writeInt(CACHE_VERSION);
+				out.write(key);
+				out.writeInt(n);
+				out.writeDouble(ambient);
+				for (int j = 0; j < n; j++) {
+					for (int i = 0; i < n; i++) {
+						out.writeDouble(columns[j][i]);
+					}
+				}
+			} finally {
+				out.close();
+			}
+			// renameTo doesn't replace an existing file on all platforms
+			if (!tempFile.renameTo(file)) {
+				file.delete();
+				if (!tempFile.renameTo(file)) {
+					throw new IOException("Could not rename " + tempFile + " to " + file);
+				}
+			}
+		} finally {
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * @return the number of functional units of the floorplan
+	 */
+	public int getUnitCount() {
+		return n;
+	}
+
+	/**
+	 * @return the ambient temperature (Kelvin)
+	 */
+	public double getAmbientTemperature() {
+		return ambient;
+	}
+
+	/**
+	 * @param i
+	 *            a functional unit
+	 * @param j
+	 *            a functional unit
+	 * @return the temperature rise of unit i determined by one Watt
+	 *         dissipated by unit j
+	 */
+	public double getInfluence(int i, int j) {
+		return columns[j][i];
+	}
+
+	/**
+	 * Computes the steady state temperatures of the functional units
+	 *
+	 * @param power
+	 *            the power dissipated by each functional unit (Watts)
+	 * @return the temperature (Kelvin) of each functional unit
+	 */
+	public double[] computeSteadyStateTemperatures(double[] power) {
+		if (power.length != n) {
+			throw new IllegalArgumentException("Expecting " + n
+					+ " power values but got " + power.length);
+		}
+		double[] temperatures = new double[n];
+		Arrays.fill(temperatures, ambient);
+		for (int j = 0; j < n; j++) {
+			if (power[j] != 0) {
+				double[] column = columns[j];
+				double p = power[j];
+				for (int i = 0; i < n; i++) {
+					temperatures[i] += column[i] * p;
+				}
+			}
+		}
+		return temperatures;
+	}
+
+	/**
+	 * Updates the temperatures of a power map after the power of two units is
+	 * swapped (e.g., the cores mapped onto two tiles are swapped). Only two
+	 * columns of the matrix are read, so this takes O(N) time.
+	 *
+	 * @param temperatures
+	 *            the temperatures computed for the power map (they are
+	 *            updated)
+	 * @param power
+	 *            the power map (it is not changed)
+	 * @param unit1
+	 *            the first unit
+	 * @param unit2
+	 *            the second unit
+	 */
+	public void updateForSwap(double[] temperatures, double[] power,
+			int unit1, int unit2) {
+		double delta = power[unit2] - power[unit1];
+		if (delta == 0) {
+			return;
+		}
+		double[] column1 = columns[unit1];
+		double[] column2 = columns[unit2];
+		for (int i = 0; i < n; i++) {
+			temperatures[i] += (column1[i] - column2[i]) * delta;
+		}
+	}
+}
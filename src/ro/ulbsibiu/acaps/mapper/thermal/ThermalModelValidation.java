@@ -0,0 +1,149 @@
+package ro.ulbsibiu.acaps.mapper.thermal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the steady state temperatures computed by {@link BlockThermalModel}
+ * with the ones computed by the HotSpot binary, for each floorplan from the
+ * HotSpot directory (flp/*.flp) and a few random power maps. The maximum
+ * absolute difference (in Kelvin) is printed for each floorplan. Note that
+ * HotSpot prints the temperatures with two decimals, so differences up to
+ * 0.005 K are expected.
+ * <p>
+ * Usage: ThermalModelValidation [HotSpot directory] (./lib/hotspot/ by
+ * default)
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class ThermalModelValidation {
+
+	private static final int POWER_MAPS = 5;
+
+	/** the maximum power of a tile (Watts) */
+	private static final double MAXIMUM_POWER = 5;
+
+	private static double[] runHotSpot(File hotspotDir, File flp,
+			Floorplan floorplan, double[] power) throws IOException,
+			InterruptedException {
+		File ptrace = File.createTempFile("validation", ".ptrace");
+		File steady = File.createTempFile("validation", ".steady");
+		try {
+			PrintWriter pw = new PrintWriter(ptrace);
+			for (int i = 0; i < floorplan.getUnitCount(); i++) {
+				pw.print((i == 0 ? "" : "\t") + floorplan.getName(i));
+			}
+			pw.println();
+			for (int i = 0; i < power.length; i++) {
+				pw.print((i == 0 ? "" : "\t") + power[i]);
+			}
+			pw.println();
+			pw.close();
+
+			Process p = Runtime.getRuntime().exec(new String[] {
+					new File(hotspotDir, "hotspot").getPath(), "-c",
+					new File(hotspotDir, "hotspot.config").getPath(), "-f",
+					flp.getPath(), "-p", ptrace.getPath(), "-steady_file",
+					steady.getPath() });
+			// HotSpot prints the temperatures to stdout too
+			InputStream stdout = p.getInputStream();
+			byte[] buffer = new byte[8192];
+			while (stdout.read(buffer) >= 0) {
+				;
+			}
+			stdout.close();
+			p.waitFor();
+			p.destroy();
+
+			Map<String, Double> temperatures = new HashMap<String, Double>();
+			BufferedReader br = new BufferedReader(new InputStreamReader(
+					new FileInputStream(steady)));
+			String line;
+			while ((line = br.readLine()) != null) {
+				String[] tokens = line.trim().split("\\s+");
+				if (tokens.length == 2) {
+					try {
+						temperatures.put(tokens[0], Double.valueOf(tokens[1]));
+					} catch (NumberFormatException e) {
+						; // the header
+					}
+				}
+			}
+			br.close();
+
+			double[] result = new double[floorplan.getUnitCount()];
+			for (int i = 0; i < result.length; i++) {
+				Double t = temperatures.get(floorplan.getName(i));
+				if (t == null) {
+					throw new IOException("HotSpot did not compute the temperature of " + floorplan.getName(i));
+				}
+				result[i] = t;
+			}
+			return result;
+		} finally {
+			ptrace.delete();
+			steady.delete();
+		}
+	}
+
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		File hotspotDir = new File(args.length > 0 ? args[0] : "./lib/hotspot/");
+		HotSpotConfig config = HotSpotConfig.parse(new File(hotspotDir, "hotspot.config"));
+		File[] flps = new File(hotspotDir, "flp").listFiles(new FileFilter() {
+
+			@Override
+			public boolean accept(File pathname) {
+				return pathname.getName().endsWith(".flp");
+			}
+		});
+		Arrays.sort(flps);
+		Random rand = new Random(0);
+
+		System.out.println("floorplan,max |T_java - T_hotspot| (K),build (ms),solve (us)");
+		for (int i = 0; i < flps.length; i++) {
+			Floorplan floorplan = Floorplan.parse(flps[i]);
+			long start = System.nanoTime();
+			BlockThermalModel model;
+			try {
+				model = new BlockThermalModel(config, floorplan);
+			} catch (IllegalArgumentException e) {
+				// HotSpot rejects such floorplans too
+				System.out.println(flps[i].getName() + "," + e.getMessage());
+				continue;
+			}
+			long build = System.nanoTime() - start;
+
+			double maxError = 0;
+			long solve = 0;
+			for (int j = 0; j < POWER_MAPS; j++) {
+				double[] power = new double[floorplan.getUnitCount()];
+				for (int k = 0; k < power.length; k++) {
+					// some tiles are idle
+					power[k] = rand.nextInt(4) == 0 ? 0 : rand.nextDouble() * MAXIMUM_POWER;
+				}
+				start = System.nanoTime();
+				double[] javaTemperatures = model.computeSteadyStateTemperatures(power);
+				solve += System.nanoTime() - start;
+				double[] hotspotTemperatures = runHotSpot(hotspotDir, flps[i], floorplan, power);
+				for (int k = 0; k < power.length; k++) {
+					maxError = Math.max(maxError, Math.abs(javaTemperatures[k] - hotspotTemperatures[k]));
+				}
+			}
+			System.out.println(flps[i].getName() + "," + maxError + ","
+					+ build / 1.0e6 + "," + solve / 1.0e3 / POWER_MAPS);
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package ro.ulbsibiu.acaps.mapper.thermal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import ro.ulbsibiu.acaps.mapper.ga.FitnessCache;
+import ro.ulbsibiu.acaps.mapper.util.MeshSymmetry;
+
+/**
+ * Bounded cache with the steady state temperatures of the already evaluated
+ * power maps. Many mappings lead to the same power map (e.g., cores with the
+ * same power, or idle tiles, swapped). A power map is identified by its
+ * quantized power values (multiples of a quantum), so the power maps which
+ * differ by less than a quantum share their temperatures.
+ * <p>
+ * Optionally, the power maps are canonicalized with the reflections of a
+ * regular grid floorplan (the temperatures of a reflected power map are the
+ * reflected temperatures). HotSpot is not exactly symmetric in floating
+ * point, so the canonicalized temperatures may differ in their last printed
+ * digit.
+ * </p>
+ * <p>
+ * The cache may be shared by more threads (see {@link FitnessCache}) and it
+ * may be saved into a file, to be reused by later runs with the same HotSpot
+ * configuration and floorplan.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class ThermalResultCache {
+
+	/** the default power quantum (Watts) */
+	public static final double DEFAULT_QUANTUM = 1.0e-6;
+
+	/** identifies the cache files (the ASCII codes of "TRCX") */
+	private static final int CACHE_MAGIC = 0x54524358;
+
+	/** the version of the cache files format */
+	private static final int CACHE_VERSION = 1;
+
+	/** the quantized power maps and their temperatures */
+	private final FitnessCache cache;
+
+	/** the power quantum (Watts) */
+	private final double quantum;
+
+	/** the symmetries of the floorplan (may be null) */
+	private final MeshSymmetry symmetry;
+
+	/**
+	 * Constructor
+	 *
+	 * @param maximumSize
+	 *            the maximum number of power maps kept by the cache
+	 * @param quantum
+	 *            the power quantum (Watts)
+	 * @param symmetry
+	 *            the symmetries of the floorplan (which keep the temperatures)
+	 *            or <tt>null</tt> (the power maps are not canonicalized)
+	 */
+	public ThermalResultCache(int maximumSize, double quantum,
+			MeshSymmetry symmetry) {
+		if (!(quantum > 0)) {
+			throw new IllegalArgumentException("The power quantum must be positive: " + quantum);
+		}
+		this.cache = new FitnessCache(maximumSize);
+		this.quantum = quantum;
+		this.symmetry = symmetry;
+	}
+
+	/**
+	 * Quantizes a power map
+	 *
+	 * @return the number of quanta of each power value, or <tt>null</tt> if
+	 *         the power map cannot be quantized (negative or too large values)
+	 */
+	private int[] quantize(double[] power) {
+		int[] quanta = new int[power.length];
+		for (int i = 0; i < power.length; i++) {
+			double q = Math.rint(power[i] / quantum);
+			if (!(q >= 0 && q <= Integer.MAX_VALUE)) {
+				return null;
+			}
+			quanta[i] = (int) q;
+		}
+		return quanta;
+	}
+
+	/**
+	 * Looks for the temperatures of a power map
+	 *
+	 * @param power
+	 *            the power map
+	 * @return a new array with the temperatures, or <tt>null</tt> if the power
+	 *         map is not cached
+	 */
+	public double[] get(double[] power) {
+		int[] quanta = quantize(power);
+		if (quanta == null) {
+			return null;
+		}
+		int g = 0;
+		if (symmetry != null) {
+			g = symmetry.getCanonicalSymmetry(quanta);
+			quanta = symmetry.apply(g, quanta);
+		}
+		double[] temperatures = cache.get(quanta);
+		if (temperatures == null) {
+			return null;
+		}
+		if (symmetry != null) {
+			return symmetry.restore(g, temperatures);
+		}
+		return Arrays.copyOf(temperatures, temperatures.length);
+	}
+
+	/**
+	 * Caches the temperatures of a power map
+	 *
+	 * @param power
+	 *            the power map
+	 * @param temperatures
+	 *            the temperatures
+	 */
+	public void put(double[] power, double[] temperatures) {
+		int[] quanta = quantize(power);
+		if (quanta == null) {
+			return;
+		}
+		if (symmetry != null) {
+			int g = symmetry.getCanonicalSymmetry(quanta);
+			quanta = symmetry.apply(g, quanta);
+			temperatures = symmetry.apply(g, temperatures);
+		}
+		cache.put(quanta, temperatures);
+	}
+
+	/**
+	 * Loads the temperatures saved by {@link #save(File, File, File)}. A file
+	 * saved for another HotSpot configuration, floorplan, quantum or symmetry
+	 * is ignored.
+	 *
+	 * @param file
+	 *            the cache file
+	 * @param configFile
+	 *            the HotSpot configuration file
+	 * @param floorplanFile
+	 *            the floorplan file
+	 * @return how many power maps were loaded
+	 * @throws IOException
+	 *             if a file cannot be read
+	 */
+	public int load(File file, File configFile, File floorplanFile)
+			throws IOException {
+		if (!file.exists()) {
+			return 0;
+		}
+		byte[] key = ThermalInfluenceMatrix.computeKey(configFile, floorplanFile);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) {
+				throw new IOException("Unknown thermal result cache format");
+			}
+			byte[] fileKey = new byte[key.length];
+			in.readFully(fileKey);
+			if (!Arrays.equals(key, fileKey) || in.readDouble() != quantum
+					|| in.readBoolean() != (symmetry != null)) {
+				return 0;
+			}
+			int units = in.readInt();
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				int[] quanta = new int[units];
+				for (int j = 0; j < units; j++) {
+					quanta[j] = in.readInt();
+				}
+				double[] temperatures = new double[units];
+				for (int j = 0; j < units; j++) {
+					temperatures[j] = in.readDouble();
+				}
+				cache.put(quanta, temperatures);
+			}
+			return size;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Saves the cached temperatures. The file is written through a temporary
+	 * file, so that concurrent runs never read a partially written file.
+	 *
+	 * @param file
+	 *            the cache file
+	 * @param configFile
+	 *            the HotSpot configuration file
+	 * @param floorplanFile
+	 *            the floorplan file
+	 * @return how many power maps were saved
+	 * @throws IOException
+	 *             if a file cannot be read or written
+	 */
+	public int save(File file, File configFile, File floorplanFile)
+			throws IOException {
+		byte[] key = ThermalInfluenceMatrix.computeKey(configFile, floorplanFile);
+		List<Map.Entry<int[], double[]>> entries = cache.entries();
+		int units = entries.isEmpty() ? 0 : entries.get(0).getKey().length;
+
+		File dir = file.getAbsoluteFile().getParentFile();
+		dir.mkdirs();
+		File tempFile = File.createTempFile(file.getName(), ".tmp", dir);
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeInt(CACHE_MAGIC);
+				out.writeInt(CACHE_VERSION);
+				out.write(key);
+				out.writeDouble(quantum);
+				out.writeBoolean(symmetry != null);
+				out.writeInt(units);
+				out.writeInt(entries.size());
+				for (int i = 0; i < entries.size(); i++) {
+					int[] quanta = entries.get(i).getKey();
+					double[] temperatures = entries.get(i).getValue();
+					for (int j = 0; j < units; j++) {
+						out.writeInt(quanta[j]);
+					}
+					for (int j = 0; j < units; j++) {
+						out.writeDouble(temperatures[j]);
+					}
+				}
+			} finally {
+				out.close();
+			}
+			// renameTo doesn't replace an existing file on all platforms
+			if (!tempFile.renameTo(file)) {
+				file.delete();
+				if (!tempFile.renameTo(file)) {
+					throw new IOException("Could not rename " + tempFile + " to " + file);
+				}
+			}
+		} finally {
+			tempFile.delete();
+		}
+		return entries.size();
+	}
+
+	/**
+	 * @return how many power maps are cached
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	@Override
+	public String toString() {
+		return "thermal result cache: " + cache.getHits() + " hits, "
+				+ cache.getMisses() + " misses (hit rate " + cache.getHitRate()
+				+ "), " + cache.getEvictions() + " evictions, " + size()
+				+ " cached power maps";
+	}
+}
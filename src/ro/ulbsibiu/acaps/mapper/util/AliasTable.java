@@ -0,0 +1,143 @@
+package ro.ulbsibiu.acaps.mapper.util;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Discrete probability distribution sampled with Walker's alias method. The
+ * table is built in O(n) time and each sample takes O(1) time, using a single
+ * uniformly distributed random number.
+ * <p>
+ * A. J. Walker, "An efficient method for generating discrete random variables
+ * with general distributions", ACM Transactions on Mathematical Software, vol.
+ * 3, no. 3, pp. 253-256, 1977.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class AliasTable {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(AliasTable.class);
+
+	/** the probability of keeping each column's own index */
+	private double[] probability;
+
+	/** the index chosen when a column's own index is not kept */
+	private int[] alias;
+
+	/** whether or not all the weights were zero */
+	private boolean empty;
+
+	/**
+	 * Constructor
+	 *
+	 * @param weights
+	 *            the (non negative, not necessarily normalized) weight of
+	 *            each index
+	 */
+	public AliasTable(double[] weights) {
+		int n = weights.length;
+		probability = new double[n];
+		alias = new int[n];
+
+		double total = 0;
+		int positiveIndex = -1;
+		for (int i = 0; i < n; i++) {
+			logger.assertLog(weights[i] >= 0, "Negative weight for index " + i);
+			total += weights[i];
+			if (weights[i] > 0) {
+				positiveIndex = i;
+			}
+		}
+		empty = !(total > 0);
+		if (empty) {
+			return;
+		}
+
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallCount = 0;
+		int largeCount = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = weights[i] * n / total;
+			if (scaled[i] < 1) {
+				small[smallCount++] = i;
+			} else {
+				large[largeCount++] = i;
+			}
+		}
+		while (smallCount > 0 && largeCount > 0) {
+			int s = small[--smallCount];
+			int l = large[--largeCount];
+			probability[s] = scaled[s];
+			alias[s] = l;
+			scaled[l] = (scaled[l] + scaled[s]) - 1;
+			if (scaled[l] < 1) {
+				small[smallCount++] = l;
+			} else {
+				large[largeCount++] = l;
+			}
+		}
+		// what remains has (up to rounding errors) a probability of 1
+		while (largeCount > 0) {
+			int l = large[--largeCount];
+			probability[l] = 1;
+			alias[l] = l;
+		}
+		while (smallCount > 0) {
+			int s = small[--smallCount];
+			probability[s] = 1;
+			alias[s] = s;
+		}
+		// an index with a zero weight must never be returned
+		for (int i = 0; i < n; i++) {
+			if (weights[i] == 0) {
+				probability[i] = 0;
+				if (alias[i] == i) {
+					alias[i] = positiveIndex;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return <tt>true</tt> if all the weights are zero (in which case no
+	 *         index can be sampled)
+	 */
+	public boolean isEmpty() {
+		return empty;
+	}
+
+	/**
+	 * @return the number of indexes of this distribution
+	 */
+	public int size() {
+		return probability.length;
+	}
+
+	/**
+	 * Samples an index
+	 *
+	 * @param u
+	 *            a random number, uniformly distributed in [0, 1)
+	 * @return the sampled index, or -1 if the table is empty
+	 */
+	public int sample(double u) {
+		if (empty) {
+			return -1;
+		}
+		double x = u * probability.length;
+		int column = (int) x;
+		if (column >= probability.length) {
+			column = probability.length - 1;
+		}
+		if (x - column < probability[column]) {
+			return column;
+		}
+		return alias[column];
+	}
+}
@@ -0,0 +1,123 @@
+package ro.ulbsibiu.acaps.mapper.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
+import ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType;
+import ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType;
+import ro.ulbsibiu.acaps.ctg.xml.ctg.CommunicationType;
+import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
+
+/**
+ * Hash indexes of an APCG and of its CTG. They are built in a single pass
+ * through the cores, the tasks and the communications, so that the core of a
+ * task and the communications of a task are found in constant time, instead
+ * of searching the whole APCG or CTG each time.
+ * <p>
+ * The indexes give the same results as the linear searches: the first core
+ * which has a task, and the communications in the CTG order.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class ApcgIndex {
+
+	/** the UID of the (first) core of each task */
+	private final Map<String, String> taskCores;
+
+	/** the UID of the (first) core which has each task as its first task */
+	private final Map<String, String> firstTaskCores;
+
+	/** the communications of each task (as source or as destination) */
+	private final Map<String, List<CommunicationType>> taskCommunications;
+
+	/**
+	 * Constructor
+	 *
+	 * @param apcg
+	 *            the APCG
+	 * @param ctg
+	 *            the CTG of the APCG (may be <tt>null</tt>, if the
+	 *            communications are not needed)
+	 */
+	public ApcgIndex(ApcgType apcg, CtgType ctg) {
+		List<CoreType> cores = apcg.getCore();
+		taskCores = new HashMap<String, String>(cores.size() * 2);
+		firstTaskCores = new HashMap<String, String>(cores.size() * 2);
+		for (int i = 0; i < cores.size(); i++) {
+			String coreUid = cores.get(i).getUid();
+			List<TaskType> tasks = cores.get(i).getTask();
+			for (int j = 0; j < tasks.size(); j++) {
+				String taskId = tasks.get(j).getId();
+				if (!taskCores.containsKey(taskId)) {
+					taskCores.put(taskId, coreUid);
+				}
+				if (j == 0 && !firstTaskCores.containsKey(taskId)) {
+					firstTaskCores.put(taskId, coreUid);
+				}
+			}
+		}
+
+		taskCommunications = new HashMap<String, List<CommunicationType>>();
+		if (ctg != null) {
+			List<CommunicationType> communications = ctg.getCommunication();
+			for (int i = 0; i < communications.size(); i++) {
+				CommunicationType communication = communications.get(i);
+				String sourceId = communication.getSource().getId();
+				String destinationId = communication.getDestination().getId();
+				addCommunication(sourceId, communication);
+				if (!destinationId.equals(sourceId)) {
+					addCommunication(destinationId, communication);
+				}
+			}
+		}
+	}
+
+	private void addCommunication(String taskId, CommunicationType communication) {
+		List<CommunicationType> communications = taskCommunications.get(taskId);
+		if (communications == null) {
+			communications = new ArrayList<CommunicationType>(2);
+			taskCommunications.put(taskId, communications);
+		}
+		communications.add(communication);
+	}
+
+	/**
+	 * @param taskId
+	 *            the task ID
+	 * @return the UID of the first core which has the task, or <tt>null</tt>
+	 *         if no core has it
+	 */
+	public String getCoreUid(String taskId) {
+		return taskCores.get(taskId);
+	}
+
+	/**
+	 * @param taskId
+	 *            the task ID
+	 * @return the UID of the first core whose first task is the given task, or
+	 *         <tt>null</tt> if there is no such core
+	 */
+	public String getFirstTaskCoreUid(String taskId) {
+		return firstTaskCores.get(taskId);
+	}
+
+	/**
+	 * @param taskId
+	 *            the task ID
+	 * @return the communications which have the task as source or as
+	 *         destination, in the CTG order (the list must not be modified)
+	 */
+	public List<CommunicationType> getCommunications(String taskId) {
+		List<CommunicationType> communications = taskCommunications.get(taskId);
+		if (communications == null) {
+			return Collections.emptyList();
+		}
+		return communications;
+	}
+}
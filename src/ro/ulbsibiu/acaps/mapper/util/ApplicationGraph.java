@@ -0,0 +1,159 @@
+package ro.ulbsibiu.acaps.mapper.util;
+
+import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper;
+
+/**
+ * Compact form of an application: an APCG together with its CTG, reduced to
+ * what the mappers need. The cores are given in the APCG order. The
+ * communications are the CTG communications translated into core
+ * communications (pairs of core indexes) and they are kept in arrays, not in
+ * an object tree.
+ * <p>
+ * The communications are ordered like the last visit of
+ * {@link BandwidthConstrainedEnergyAndPerformanceAwareMapper#parseApcg} to
+ * each of them (it goes through the tasks of each core). This way, when
+ * more communications connect the same two cores, the same communication
+ * volume is kept in the end.
+ * </p>
+ * <p>
+ * An application graph is built by {@link ApplicationGraphReader}.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class ApplicationGraph {
+
+	private final String ctgId;
+
+	private final double period;
+
+	private final String apcgId;
+
+	/** the UID of each core */
+	private final String[] coreUids;
+
+	/** the number of tasks of each core */
+	private final int[] coreTaskCounts;
+
+	/** the total power of the tasks of each core */
+	private final double[] corePowers;
+
+	/** the source core (its index) of each communication */
+	private final int[] sourceCores;
+
+	/** the destination core (its index) of each communication */
+	private final int[] destinationCores;
+
+	/** the volume of each communication */
+	private final double[] volumes;
+
+	ApplicationGraph(String ctgId, double period, String apcgId,
+			String[] coreUids, int[] coreTaskCounts, double[] corePowers,
+			int[] sourceCores, int[] destinationCores, double[] volumes) {
+		this.ctgId = ctgId;
+		this.period = period;
+		this.apcgId = apcgId;
+		this.coreUids = coreUids;
+		this.coreTaskCounts = coreTaskCounts;
+		this.corePowers = corePowers;
+		this.sourceCores = sourceCores;
+		this.destinationCores = destinationCores;
+		this.volumes = volumes;
+	}
+
+	/**
+	 * @return the CTG ID
+	 */
+	public String getCtgId() {
+		return ctgId;
+	}
+
+	/**
+	 * @return the CTG period
+	 */
+	public double getPeriod() {
+		return period;
+	}
+
+	/**
+	 * @return the APCG ID
+	 */
+	public String getApcgId() {
+		return apcgId;
+	}
+
+	/**
+	 * @return the number of cores
+	 */
+	public int getCoreCount() {
+		return coreUids.length;
+	}
+
+	/**
+	 * @param core
+	 *            the core index
+	 * @return the core UID
+	 */
+	public String getCoreUid(int core) {
+		return coreUids[core];
+	}
+
+	/**
+	 * @param core
+	 *            the core index
+	 * @return how many tasks the core has
+	 */
+	public int getCoreTaskCount(int core) {
+		return coreTaskCounts[core];
+	}
+
+	/**
+	 * @param core
+	 *            the core index
+	 * @return the total power of the tasks of the core
+	 */
+	public double getCorePower(int core) {
+		return corePowers[core];
+	}
+
+	/**
+	 * @return the number of communications
+	 */
+	public int getCommunicationCount() {
+		return volumes.length;
+	}
+
+	/**
+	 * @param communication
+	 *            the communication index
+	 * @return the index of the source core
+	 */
+	public int getSourceCore(int communication) {
+		return sourceCores[communication];
+	}
+
+	/**
+	 * @param communication
+	 *            the communication index
+	 * @return the index of the destination core
+	 */
+	public int getDestinationCore(int communication) {
+		return destinationCores[communication];
+	}
+
+	/**
+	 * @param communication
+	 *            the communication index
+	 * @return the communication volume
+	 */
+	public double getVolume(int communication) {
+		return volumes[communication];
+	}
+
+	@Override
+	public String toString() {
+		return "CTG " + ctgId + " (APCG " + apcgId + "): " + coreUids.length
+				+ " cores, " + volumes.length + " communications";
+	}
+}
@@ -0,0 +1,383 @@
+package ro.ulbsibiu.acaps.mapper.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Streaming (StAX) reader of the CTG and APCG XML files. The files are read
+ * element by element and only the data needed by the mappers is kept (see
+ * {@link ApplicationGraph}), so no JAXB object tree is built. This matters for
+ * the large generated benchmarks, whose object trees take hundreds of MB.
+ * <p>
+ * The elements are matched by their local names (the namespaces are ignored).
+ * A value (e.g., the ID of a task) may be given either as an attribute or as
+ * the text of a child element.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class ApplicationGraphReader {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(ApplicationGraphReader.class);
+
+	private static final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+	/** the tasks from the CTG communications (task ID -> task index) */
+	private final Map<String, Integer> taskIndexes = new HashMap<String, Integer>();
+
+	private String ctgId;
+
+	private double period;
+
+	/** the number of CTG communications */
+	private int communicationCount = 0;
+
+	/** the source task (its index) of each CTG communication */
+	private int[] sourceTasks = new int[16];
+
+	/** the destination task (its index) of each CTG communication */
+	private int[] destinationTasks = new int[16];
+
+	/** the volume of each CTG communication */
+	private double[] volumes = new double[16];
+
+	private String apcgId;
+
+	private final List<String> coreUids = new ArrayList<String>();
+
+	private final List<Integer> coreTaskCounts = new ArrayList<Integer>();
+
+	private final List<Double> corePowers = new ArrayList<Double>();
+
+	/** the (first) core of each task, or -1 if it is not in the APCG */
+	private int[] taskCores;
+
+	/**
+	 * the position of the (last) visit of each task, when the tasks of all
+	 * the cores are visited in order
+	 */
+	private int[] taskPositions;
+
+	private ApplicationGraphReader() {
+		;
+	}
+
+	/**
+	 * Reads an application
+	 *
+	 * @param ctgFile
+	 *            the CTG XML file
+	 * @param apcgFile
+	 *            the XML file of an APCG of the CTG
+	 * @return the application graph
+	 * @throws XMLStreamException
+	 *             if a file is not well formed
+	 * @throws IOException
+	 *             if a file cannot be read or it is not a valid CTG or APCG
+	 */
+	public static ApplicationGraph read(File ctgFile, File apcgFile)
+			throws XMLStreamException, IOException {
+		ApplicationGraphReader reader = new ApplicationGraphReader();
+		reader.readCtg(ctgFile);
+		reader.readApcg(apcgFile);
+		return reader.buildGraph(ctgFile, apcgFile);
+	}
+
+	private static String getAttribute(XMLStreamReader reader, String localName) {
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			if (localName.equals(reader.getAttributeLocalName(i))) {
+				return reader.getAttributeValue(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the text of the current element. The reader is left at the end
+	 * tag of the element.
+	 *
+	 * @return the (trimmed) text, or <tt>null</tt> if the element has child
+	 *         elements (they are skipped)
+	 */
+	private static String readText(XMLStreamReader reader)
+			throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		boolean leaf = true;
+		int depth = 1;
+		while (depth > 0) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				leaf = false;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				if (depth == 1) {
+					text.append(reader.getText());
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		return leaf ? text.toString().trim() : null;
+	}
+
+	/**
+	 * Reads the values of the current element: its attributes, its text and
+	 * the attributes and the texts of its descendants. The key of a value is
+	 * its path relative to the current element (e.g., both
+	 * <tt>&lt;source id="1"/&gt;</tt> and
+	 * <tt>&lt;source&gt;&lt;id&gt;1&lt;/id&gt;&lt;/source&gt;</tt> give
+	 * source/id = 1, and the text of the element itself has the empty key).
+	 * The reader is left at the end tag of the element.
+	 */
+	private static Map<String, String> readValues(XMLStreamReader reader)
+			throws XMLStreamException {
+		Map<String, String> values = new HashMap<String, String>();
+		List<String> paths = new ArrayList<String>();
+		List<StringBuilder> texts = new ArrayList<StringBuilder>();
+		String path = "";
+		while (true) {
+			if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+				String prefix = path.length() == 0 ? "" : path + "/";
+				for (int i = 0; i < reader.getAttributeCount(); i++) {
+					values.put(prefix + reader.getAttributeLocalName(i),
+							reader.getAttributeValue(i));
+				}
+				paths.add(path);
+				texts.add(new StringBuilder());
+			}
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String parent = paths.get(paths.size() - 1);
+				path = (parent.length() == 0 ? "" : parent + "/") + reader.getLocalName();
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				String text = texts.remove(texts.size() - 1).toString().trim();
+				String ended = paths.remove(paths.size() - 1);
+				if (text.length() > 0 && !values.containsKey(ended)) {
+					values.put(ended, text);
+				}
+				if (paths.isEmpty()) {
+					return values;
+				}
+				path = paths.get(paths.size() - 1);
+			} else if (event == XMLStreamConstants.CHARACTERS
+					|| event == XMLStreamConstants.CDATA) {
+				texts.get(texts.size() - 1).append(reader.getText());
+			}
+		}
+	}
+
+	private static XMLStreamReader openRoot(InputStream in, File file,
+			String rootName) throws XMLStreamException, IOException {
+		XMLStreamReader reader = factory.createXMLStreamReader(in);
+		reader.nextTag();
+		if (!rootName.equals(reader.getLocalName())) {
+			reader.close();
+			throw new IOException(file + " is not a " + rootName.toUpperCase()
+					+ " (its root element is " + reader.getLocalName() + ")");
+		}
+		return reader;
+	}
+
+	private int getTaskIndex(String taskId) {
+		Integer index = taskIndexes.get(taskId);
+		if (index == null) {
+			index = taskIndexes.size();
+			taskIndexes.put(taskId, index);
+		}
+		return index;
+	}
+
+	private void readCtg(File file) throws XMLStreamException, IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			XMLStreamReader reader = openRoot(in, file, "ctg");
+			try {
+				ctgId = getAttribute(reader, "id");
+				String periodValue = getAttribute(reader, "period");
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if ("communication".equals(name)) {
+						addCommunication(file, readValues(reader));
+					} else {
+						// the tasks of the CTG are not needed
+						String text = readText(reader);
+						if ("id".equals(name) && ctgId == null) {
+							ctgId = text;
+						}
+						if ("period".equals(name) && periodValue == null) {
+							periodValue = text;
+						}
+					}
+				}
+				if (periodValue == null) {
+					throw new IOException("The CTG " + file + " has no period");
+				}
+				period = Double.valueOf(periodValue);
+			} finally {
+				reader.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String getReference(Map<String, String> values, String name) {
+		String id = values.get(name + "/id");
+		return id == null ? values.get(name) : id;
+	}
+
+	private void addCommunication(File file, Map<String, String> values)
+			throws IOException {
+		String sourceId = getReference(values, "source");
+		String destinationId = getReference(values, "destination");
+		String volume = values.get("volume");
+		if (sourceId == null || destinationId == null || volume == null) {
+			throw new IOException("Incomplete communication in the CTG " + file + ": " + values);
+		}
+		if (communicationCount == volumes.length) {
+			int length = 2 * volumes.length;
+			sourceTasks = Arrays.copyOf(sourceTasks, length);
+			destinationTasks = Arrays.copyOf(destinationTasks, length);
+			volumes = Arrays.copyOf(volumes, length);
+		}
+		sourceTasks[communicationCount] = getTaskIndex(sourceId);
+		destinationTasks[communicationCount] = getTaskIndex(destinationId);
+		volumes[communicationCount] = Double.valueOf(volume);
+		communicationCount++;
+	}
+
+	private void readApcg(File file) throws XMLStreamException, IOException {
+		taskCores = new int[taskIndexes.size()];
+		Arrays.fill(taskCores, -1);
+		taskPositions = new int[taskIndexes.size()];
+		int position = 0;
+
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			XMLStreamReader reader = openRoot(in, file, "apcg");
+			try {
+				apcgId = getAttribute(reader, "id");
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if (!"core".equals(name)) {
+						String text = readText(reader);
+						if ("id".equals(name) && apcgId == null) {
+							apcgId = text;
+						}
+						continue;
+					}
+					int core = coreUids.size();
+					String uid = getAttribute(reader, "uid");
+					int tasks = 0;
+					double power = 0;
+					while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+						if ("task".equals(reader.getLocalName())) {
+							Map<String, String> values = readValues(reader);
+							Integer task = taskIndexes.get(values.get("id"));
+							if (task != null) {
+								if (taskCores[task] == -1) {
+									taskCores[task] = core;
+								}
+								taskPositions[task] = position;
+							}
+							if (values.get("power") != null) {
+								power += Double.valueOf(values.get("power"));
+							}
+							tasks++;
+							position++;
+						} else {
+							boolean uidElement = "uid".equals(reader.getLocalName());
+							String text = readText(reader);
+							if (uidElement && uid == null) {
+								uid = text;
+							}
+						}
+					}
+					if (uid == null) {
+						throw new IOException("Core without UID in the APCG " + file);
+					}
+					coreUids.add(uid);
+					coreTaskCounts.add(tasks);
+					corePowers.add(power);
+				}
+			} finally {
+				reader.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private ApplicationGraph buildGraph(File ctgFile, File apcgFile)
+			throws IOException {
+		// each communication is keyed by its last visit and by its CTG index
+		long[] keys = new long[communicationCount];
+		int count = 0;
+		for (int i = 0; i < communicationCount; i++) {
+			int source = sourceTasks[i];
+			int destination = destinationTasks[i];
+			if (taskCores[source] == -1 && taskCores[destination] == -1) {
+				// none of its tasks is mapped through this APCG
+				continue;
+			}
+			if (taskCores[source] == -1 || taskCores[destination] == -1) {
+				throw new IOException("A task of communication " + i + " from "
+						+ ctgFile + " is not assigned to any core of " + apcgFile);
+			}
+			long visit = Math.max(taskPositions[source], taskPositions[destination]);
+			keys[count++] = (visit << 32) | i;
+		}
+		Arrays.sort(keys, 0, count);
+
+		int[] sourceCores = new int[count];
+		int[] destinationCores = new int[count];
+		double[] communicationVolumes = new double[count];
+		for (int i = 0; i < count; i++) {
+			int communication = (int) (keys[i] & 0xFFFFFFFFL);
+			sourceCores[i] = taskCores[sourceTasks[communication]];
+			destinationCores[i] = taskCores[destinationTasks[communication]];
+			communicationVolumes[i] = volumes[communication];
+		}
+
+		int[] taskCounts = new int[coreUids.size()];
+		double[] powers = new double[coreUids.size()];
+		for (int i = 0; i < taskCounts.length; i++) {
+			taskCounts[i] = coreTaskCounts.get(i);
+			powers[i] = corePowers.get(i);
+		}
+		ApplicationGraph graph = new ApplicationGraph(ctgId, period, apcgId,
+				coreUids.toArray(new String[coreUids.size()]), taskCounts,
+				powers, sourceCores, destinationCores, communicationVolumes);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Read " + graph + " from " + ctgFile + " and " + apcgFile);
+		}
+		return graph;
+	}
+}
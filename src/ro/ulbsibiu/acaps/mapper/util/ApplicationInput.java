@@ -0,0 +1,104 @@
+package ro.ulbsibiu.acaps.mapper.util;
+
+import java.util.List;
+
+import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
+import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
+import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper;
+
+/**
+ * The input of a mapping: the CTGs of an application, each with its APCG.
+ * They are either unmarshalled with JAXB, or read by the streaming XML reader
+ * ({@link ApplicationGraphReader}), as one {@link ApplicationGraph} for each
+ * CTG and its APCG. The mappers read both forms with
+ * {@link BandwidthConstrainedEnergyAndPerformanceAwareMapper#parseApplication(ApplicationInput)}.
+ *
+ * @author cradu
+ *
+ */
+public class ApplicationInput {
+
+	private final List<CtgType> ctgTypes;
+
+	private final List<ApcgType> apcgTypes;
+
+	private final List<ApplicationGraph> applicationGraphs;
+
+	/**
+	 * Constructor for the input unmarshalled with JAXB
+	 *
+	 * @param ctgTypes
+	 *            the CTGs
+	 * @param apcgTypes
+	 *            the APCGs (one for each CTG, in the same order)
+	 */
+	public ApplicationInput(List<CtgType> ctgTypes, List<ApcgType> apcgTypes) {
+		this.ctgTypes = ctgTypes;
+		this.apcgTypes = apcgTypes;
+		this.applicationGraphs = null;
+	}
+
+	/**
+	 * Constructor for the input read by the streaming XML reader
+	 *
+	 * @param applicationGraphs
+	 *            the application graphs (one for each CTG)
+	 */
+	public ApplicationInput(List<ApplicationGraph> applicationGraphs) {
+		this.ctgTypes = null;
+		this.apcgTypes = null;
+		this.applicationGraphs = applicationGraphs;
+	}
+
+	/**
+	 * @return whether the input was read by the streaming XML reader (as
+	 *         application graphs) or unmarshalled with JAXB
+	 */
+	public boolean isStreamed() {
+		return applicationGraphs != null;
+	}
+
+	/**
+	 * @return the number of CTGs
+	 */
+	public int size() {
+		return isStreamed() ? applicationGraphs.size() : ctgTypes.size();
+	}
+
+	/**
+	 * @return the total number of cores, from all the APCGs
+	 */
+	public int getCoreCount() {
+		int cores = 0;
+		for (int k = 0; k < size(); k++) {
+			if (isStreamed()) {
+				cores += applicationGraphs.get(k).getCoreCount();
+			} else {
+				cores += apcgTypes.get(k).getCore().size();
+			}
+		}
+		return cores;
+	}
+
+	/**
+	 * @return the CTGs (<tt>null</tt> if the input is streamed)
+	 */
+	public List<CtgType> getCtgTypes() {
+		return ctgTypes;
+	}
+
+	/**
+	 * @return the APCGs (<tt>null</tt> if the input is streamed)
+	 */
+	public List<ApcgType> getApcgTypes() {
+		return apcgTypes;
+	}
+
+	/**
+	 * @return the application graphs (<tt>null</tt> if the input is not
+	 *         streamed)
+	 */
+	public List<ApplicationGraph> getApplicationGraphs() {
+		return applicationGraphs;
+	}
+}
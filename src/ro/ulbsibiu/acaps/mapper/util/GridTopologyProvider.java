@@ -0,0 +1,188 @@
+package ro.ulbsibiu.acaps.mapper.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ro.ulbsibiu.acaps.noc.xml.link.LinkType;
+import ro.ulbsibiu.acaps.noc.xml.node.NodeType;
+import ro.ulbsibiu.acaps.noc.xml.node.TopologyParameterType;
+
+/**
+ * Generates a 2D mesh or a 2D torus topology from its dimensions, without
+ * reading any file. The nodes are numbered row by row (node = row * columns +
+ * column) and each node knows its row and its column. Two neighbor nodes are
+ * connected by two links, one for each direction. In a torus, the first and
+ * the last node of each row and of each column are neighbors too.
+ *
+ * @author cradu
+ *
+ */
+public class GridTopologyProvider implements TopologyProvider {
+
+	/** the name of the 2D mesh topology */
+	public static final String MESH_2D = "mesh2D";
+
+	/** the name of the 2D torus topology */
+	public static final String TORUS_2D = "torus2D";
+
+	private static final String LINK_IN = "in";
+
+	private static final String LINK_OUT = "out";
+
+	private final int rows;
+
+	private final int columns;
+
+	private final boolean torus;
+
+	private final NodeType[] nodes;
+
+	private final List<LinkType> links;
+
+	/**
+	 * Constructor
+	 *
+	 * @param rows
+	 *            the number of rows
+	 * @param columns
+	 *            the number of columns (the number of nodes placed
+	 *            horizontally)
+	 * @param torus
+	 *            whether the topology is a 2D torus or a 2D mesh
+	 */
+	public GridTopologyProvider(int rows, int columns, boolean torus) {
+		if (rows < 1 || columns < 1) {
+			throw new IllegalArgumentException("Invalid topology size: "
+					+ columns + "x" + rows);
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.torus = torus;
+
+		nodes = new NodeType[rows * columns];
+		for (int i = 0; i < nodes.length; i++) {
+			NodeType node = new NodeType();
+			node.setId(Integer.toString(i));
+			node.getTopologyParameter().add(createParameter("row", i / columns));
+			node.getTopologyParameter().add(createParameter("column", i % columns));
+			nodes[i] = node;
+		}
+		links = new ArrayList<LinkType>(4 * nodes.length);
+		for (int i = 0; i < nodes.length; i++) {
+			int row = i / columns;
+			int column = i % columns;
+			// east and west, then north and south
+			connect(i, row, column + 1, columns);
+			connect(i, row, column - 1, columns);
+			connect(i, row + 1, column, rows);
+			connect(i, row - 1, column, rows);
+		}
+	}
+
+	/**
+	 * Creates a topology from its name and its size
+	 *
+	 * @param topologyName
+	 *            the topology name ({@link #MESH_2D} or {@link #TORUS_2D})
+	 * @param topologySize
+	 *            the topology size, as columns x rows (e.g., 5x4)
+	 * @return the topology, or <tt>null</tt> if the topology cannot be
+	 *         generated
+	 */
+	public static GridTopologyProvider create(String topologyName,
+			String topologySize) {
+		if (!MESH_2D.equals(topologyName) && !TORUS_2D.equals(topologyName)) {
+			return null;
+		}
+		if (topologySize == null || topologySize.lastIndexOf("x") < 0) {
+			return null;
+		}
+		try {
+			int columns = Integer.valueOf(topologySize.substring(0, topologySize.lastIndexOf("x")));
+			int rows = Integer.valueOf(topologySize.substring(topologySize.lastIndexOf("x") + 1));
+			if (rows < 1 || columns < 1) {
+				return null;
+			}
+			return new GridTopologyProvider(rows, columns, TORUS_2D.equals(topologyName));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static TopologyParameterType createParameter(String type, int value) {
+		TopologyParameterType parameter = new TopologyParameterType();
+		parameter.setType(type);
+		parameter.setValue(Integer.toString(value));
+		return parameter;
+	}
+
+	/**
+	 * Adds the link from a node to its neighbor (if it has that neighbor)
+	 *
+	 * @param node
+	 *            the node
+	 * @param row
+	 *            the row of the neighbor
+	 * @param column
+	 *            the column of the neighbor
+	 * @param size
+	 *            the size of the dimension in which the neighbor is searched
+	 */
+	private void connect(int node, int row, int column, int size) {
+		if (row < 0 || row >= rows || column < 0 || column >= columns) {
+			// a ring of two nodes is already connected without wrapping
+			if (!torus || size < 3) {
+				return;
+			}
+			row = (row + rows) % rows;
+			column = (column + columns) % columns;
+		}
+		int neighbor = row * columns + column;
+
+		LinkType link = new LinkType();
+		link.setId(Integer.toString(links.size()));
+		link.setFirstNode(Integer.toString(node));
+		link.setSecondNode(Integer.toString(neighbor));
+		links.add(link);
+
+		ro.ulbsibiu.acaps.noc.xml.node.LinkType out = new ro.ulbsibiu.acaps.noc.xml.node.LinkType();
+		out.setType(LINK_OUT);
+		out.setValue(link.getId());
+		nodes[node].getLink().add(out);
+		ro.ulbsibiu.acaps.noc.xml.node.LinkType in = new ro.ulbsibiu.acaps.noc.xml.node.LinkType();
+		in.setType(LINK_IN);
+		in.setValue(link.getId());
+		nodes[neighbor].getLink().add(in);
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of columns
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return whether the topology is a 2D torus or a 2D mesh
+	 */
+	public boolean isTorus() {
+		return torus;
+	}
+
+	@Override
+	public NodeType[] getNodes() {
+		return nodes;
+	}
+
+	@Override
+	public LinkType[] getLinks() {
+		return links.toArray(new LinkType[links.size()]);
+	}
+}
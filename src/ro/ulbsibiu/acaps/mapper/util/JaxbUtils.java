@@ -0,0 +1,225 @@
+package ro.ulbsibiu.acaps.mapper.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * JAXB helper methods. Creating a {@link JAXBContext} takes tens of
+ * milliseconds, so each context is created only once per process. A context
+ * is thread safe, but its {@link Unmarshaller}s and {@link Marshaller}s are
+ * not, so each thread reuses its own ones.
+ *
+ * @author cradu
+ *
+ */
+public class JaxbUtils {
+
+	/**
+	 * the contexts created so far, keyed by their context path (a
+	 * {@link String}) or by their bound {@link Class}
+	 */
+	private static final ConcurrentMap<Object, JAXBContext> contexts = new ConcurrentHashMap<Object, JAXBContext>();
+
+	private static final ThreadLocal<Map<Object, Unmarshaller>> unmarshallers = new ThreadLocal<Map<Object, Unmarshaller>>() {
+
+		@Override
+		protected Map<Object, Unmarshaller> initialValue() {
+			return new HashMap<Object, Unmarshaller>();
+		}
+	};
+
+	private static final ThreadLocal<Map<Object, Marshaller>> marshallers = new ThreadLocal<Map<Object, Marshaller>>() {
+
+		@Override
+		protected Map<Object, Marshaller> initialValue() {
+			return new HashMap<Object, Marshaller>();
+		}
+	};
+
+	/**
+	 * The thread pool used for unmarshalling more files (created when it is
+	 * first needed)
+	 *
+	 * @author cradu
+	 *
+	 */
+	private static class ExecutorHolder {
+
+		private static final ExecutorService executor = Executors
+				.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+						new ThreadFactory() {
+
+							@Override
+							public Thread newThread(Runnable r) {
+								Thread thread = new Thread(r, "JAXB");
+								thread.setDaemon(true);
+								return thread;
+							}
+						});
+	}
+
+	private JaxbUtils() {
+		;
+	}
+
+	/**
+	 * Gets the (shared) context for the classes from some packages
+	 *
+	 * @param contextPath
+	 *            the packages (separated by ':')
+	 * @return the context
+	 * @throws JAXBException
+	 */
+	public static JAXBContext getContext(String contextPath)
+			throws JAXBException {
+		JAXBContext context = contexts.get(contextPath);
+		if (context == null) {
+			context = JAXBContext.newInstance(contextPath);
+			JAXBContext previous = contexts.putIfAbsent(contextPath, context);
+			if (previous != null) {
+				context = previous;
+			}
+		}
+		return context;
+	}
+
+	/**
+	 * Gets the (shared) context for a class
+	 *
+	 * @param type
+	 *            the class
+	 * @return the context
+	 * @throws JAXBException
+	 */
+	public static JAXBContext getContext(Class<?> type) throws JAXBException {
+		JAXBContext context = contexts.get(type);
+		if (context == null) {
+			context = JAXBContext.newInstance(type);
+			JAXBContext previous = contexts.putIfAbsent(type, context);
+			if (previous != null) {
+				context = previous;
+			}
+		}
+		return context;
+	}
+
+	/**
+	 * Gets the {@link Unmarshaller} of the current thread for some packages
+	 *
+	 * @param contextPath
+	 *            the packages (separated by ':')
+	 * @return the unmarshaller (it must not be used by other threads)
+	 * @throws JAXBException
+	 */
+	public static Unmarshaller getUnmarshaller(String contextPath)
+			throws JAXBException {
+		Map<Object, Unmarshaller> map = unmarshallers.get();
+		Unmarshaller unmarshaller = map.get(contextPath);
+		if (unmarshaller == null) {
+			unmarshaller = getContext(contextPath).createUnmarshaller();
+			map.put(contextPath, unmarshaller);
+		}
+		return unmarshaller;
+	}
+
+	/**
+	 * Gets the {@link Marshaller} of the current thread for a class. The
+	 * marshaller produces formatted output.
+	 *
+	 * @param type
+	 *            the class
+	 * @return the marshaller (it must not be used by other threads)
+	 * @throws JAXBException
+	 */
+	public static Marshaller getMarshaller(Class<?> type) throws JAXBException {
+		Map<Object, Marshaller> map = marshallers.get();
+		Marshaller marshaller = map.get(type);
+		if (marshaller == null) {
+			marshaller = getContext(type).createMarshaller();
+			marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
+			map.put(type, marshaller);
+		}
+		return marshaller;
+	}
+
+	/**
+	 * Unmarshals the root element of an XML file
+	 *
+	 * @param contextPath
+	 *            the package of the root element
+	 * @param file
+	 *            the XML file
+	 * @return the value of the root element
+	 * @throws JAXBException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T unmarshal(String contextPath, File file)
+			throws JAXBException {
+		return ((JAXBElement<T>) getUnmarshaller(contextPath).unmarshal(file))
+				.getValue();
+	}
+
+	/**
+	 * Unmarshals more XML files concurrently (on a shared thread pool)
+	 *
+	 * @param contextPath
+	 *            the package of the root elements
+	 * @param files
+	 *            the XML files
+	 * @return the value of the root element of each file (in the order of
+	 *         the files)
+	 * @throws JAXBException
+	 */
+	public static <T> List<T> unmarshalAll(final String contextPath,
+			File[] files) throws JAXBException {
+		List<Future<T>> futures = new ArrayList<Future<T>>(files.length);
+		for (int i = 0; i < files.length; i++) {
+			final File file = files[i];
+			futures.add(ExecutorHolder.executor.submit(new Callable<T>() {
+
+				@Override
+				public T call() throws Exception {
+					return JaxbUtils.<T> unmarshal(contextPath, file);
+				}
+			}));
+		}
+		List<T> values = new ArrayList<T>(files.length);
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				values.add(futures.get(i).get());
+			} catch (InterruptedException e) {
+				for (int j = i; j < futures.size(); j++) {
+					futures.get(j).cancel(true);
+				}
+				Thread.currentThread().interrupt();
+				throw new JAXBException("Interrupted while unmarshalling " + files[i], e);
+			} catch (ExecutionException e) {
+				for (int j = i; j < futures.size(); j++) {
+					futures.get(j).cancel(true);
+				}
+				if (e.getCause() instanceof JAXBException) {
+					throw (JAXBException) e.getCause();
+				}
+				throw new JAXBException("Could not unmarshal " + files[i], e.getCause());
+			}
+		}
+		return values;
+	}
+}
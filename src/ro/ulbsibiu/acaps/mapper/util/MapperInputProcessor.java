@@ -3,15 +3,20 @@ package ro.ulbsibiu.acaps.mapper.util;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -27,6 +32,7 @@ import ro.ulbsibiu.acaps.ctg.xml.ctg.CtgType;
 import ro.ulbsibiu.acaps.mapper.Mapper;
 import ro.ulbsibiu.acaps.mapper.MapperDatabase;
 import ro.ulbsibiu.acaps.mapper.TooFewNocNodesException;
+import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper;
 import ro.ulbsibiu.acaps.mapper.BandwidthConstrainedEnergyAndPerformanceAwareMapper.LegalTurnSet;
 
 /**
@@ -46,6 +52,24 @@ public abstract class MapperInputProcessor {
 	/** command line interface options */
 	private Options cliOptions;
 	
+	/** the default minimum time between two checkpoints, in seconds */
+	private static final long DEFAULT_CHECKPOINT_INTERVAL = 600;
+	
+	/** the directory where checkpoints are kept (<tt>null</tt> if checkpointing is disabled) */
+	private File checkpointDir = null;
+	
+	/** the minimum time between two checkpoints, in seconds */
+	private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+	
+	/** whether or not the mappers must continue from their checkpoints */
+	private boolean resume = false;
+	
+	/**
+	 * whether or not the CTGs and the APCGs are read with the streaming XML
+	 * reader (see {@link ApplicationGraphReader})
+	 */
+	private boolean streaming = false;
+	
 	/**
 	 * Default constructor
 	 * 
@@ -63,7 +87,12 @@ public abstract class MapperInputProcessor {
 		cliOptions.addOption("a", "apcg", true, "the file path to the Application Characterization Graph");
 		cliOptions.addOption("r", "with-routing", true, "the algorithm generates routes using West First (WEST_FIRST) or Odd Even (ODD_EVEN) legat turn set");
 		cliOptions.addOption("l", "link-bandwidth", true, "the NoC links' bandwidth, in bits per second");
-		cliOptions.addOption("s", "seed", true, "random generator seed");
+		cliOptions.addOption("s", "seed", true, "random generator seed (more comma separated seeds map each application once for each seed)");
+		cliOptions.addOption("k", "checkpoint-dir", true, "periodically save the search state into this directory");
+		cliOptions.addOption("i", "checkpoint-interval", true, "the minimum time between two checkpoints, in seconds (default " + DEFAULT_CHECKPOINT_INTERVAL + ")");
+		cliOptions.addOption("R", "resume", false, "continue the searches from the checkpoints saved into the checkpoint directory");
+		cliOptions.addOption("X", "streaming-xml", false, "read the CTGs and the APCGs with a streaming XML reader (much less memory is needed for large benchmarks)");
+		cliOptions.addOption("P", "parallel", true, "map the applications concurrently, using this many threads (the heap memory statistics then include all the mappers)");
 		cliOptions.addOption("h", "help", false, "print this message");
 	}
 
@@ -74,12 +103,34 @@ public abstract class MapperInputProcessor {
 		return cliOptions;
 	}
 
+	/**
+	 * Enables checkpointing for the specified mapper, if the user requested
+	 * it. Mappers should call this method right before mapping.
+	 * 
+	 * @see BandwidthConstrainedEnergyAndPerformanceAwareMapper#setCheckpointing(File,
+	 *      long, boolean, Long)
+	 * 
+	 * @param mapper
+	 *            the mapper
+	 * @param seed
+	 *            the seed of the mapping (it is part of the checkpoint name)
+	 */
+	public void configureCheckpointing(
+			BandwidthConstrainedEnergyAndPerformanceAwareMapper mapper, Long seed) {
+		if (checkpointDir != null) {
+			mapper.setCheckpointing(checkpointDir, checkpointInterval, resume, seed);
+		}
+	}
+
 	/**
 	 * This abstract method must contain the code that uses the {@link Mapper}.
 	 * It is called each time a new application must be mapped. Note that the
 	 * {@link Mapper} might be required to map multiple CTGs at the same time.
 	 * Each application (benchmark) is identified by a set of CTGs and a set of
-	 * APCGs. Each CTG has exactly one corresponding APCG.
+	 * APCGs. Each CTG has exactly one corresponding APCG. They are either
+	 * unmarshalled with JAXB or read by the streaming XML reader (if the user
+	 * requested it), and the mapper reads both with
+	 * {@link BandwidthConstrainedEnergyAndPerformanceAwareMapper#parseApplication(ApplicationInput)}.
 	 * 
 	 * @param benchmarkFilePath
 	 *            the benchmark file path
@@ -89,10 +140,8 @@ public abstract class MapperInputProcessor {
 	 *            the CTG identifier
 	 * @param apcgId
 	 *            the APCG identifier
-	 * @param ctgTypes
-	 *            a list with the CTGs that represent the benchmark
-	 * @param apcgTypes
-	 *            a list with the APCGs that represent the benchmark
+	 * @param application
+	 *            the CTGs and the APCGs that represent the benchmark
 	 * @param doRouting
 	 *            whether or not the user requested the {@link Mapper} to do
 	 *            routing
@@ -109,7 +158,7 @@ public abstract class MapperInputProcessor {
 	 */
 	public abstract void useMapper(String benchmarkFilePath,
 			String benchmarkName, String ctgId, String apcgId,
-			List<CtgType> ctgTypes, List<ApcgType> apcgTypes,
+			ApplicationInput application,
 			boolean doRouting, LegalTurnSet lts, double linkBandwidth, Long seed)
 			throws JAXBException,
 			TooFewNocNodesException, FileNotFoundException;
@@ -126,10 +175,12 @@ public abstract class MapperInputProcessor {
 	 */
 	public void processInput(String[] args) throws JAXBException, TooFewNocNodesException, FileNotFoundException, ParseException {
 		HelpFormatter formatter = new HelpFormatter();
-		String helpMessage = "java <TheMapper>.class [-b E3S benchmarks] [-c ID] [-a ID] [-r] [-s seed]\n\n"
+		String helpMessage = "java <TheMapper>.class [-b E3S benchmarks] [-c ID] [-a ID] [-r] [-s seed] [-k dir [-i seconds] [-R]] [-X] [-P threads]\n\n"
 				+ "If -b is not used, all E3S benchmarks are considered."
 				+ "Note that the algorithm can do or not routing."
 				+ "The optional seed parameter can be used to control the initial mapping, which is randomly generated."
+				+ "A killed mapping job can be continued by running it again, with the same arguments and with -R."
+				+ "With -P, each CTG, APCG and seed is mapped by a separate task and the tasks run concurrently."
 				+ "Example 1 (specify the benchmarks & require routing & impose seed): java {TheMapper}.class -b ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff ../CTG-XML/xml/e3s/telecom-mocsyn.tgff -r -s 123456"
 				+ "Example 2 (map the entire E3S benchmark suite): java {TheMapper}.class";
 		
@@ -139,6 +190,86 @@ public abstract class MapperInputProcessor {
 		if (args == null || args.length < 1) {
 			formatter.printHelp(helpMessage, cliOptions);
 		} else {
+			if (cmd.hasOption("k")) {
+				checkpointDir = new File(cmd.getOptionValue("k"));
+				if (cmd.hasOption("i")) {
+					try {
+						checkpointInterval = Long.valueOf(cmd.getOptionValue("i"));
+					} catch (NumberFormatException e) {
+						logger.fatal("Checkpoint interval is not a number! Stoping...", e);
+						System.exit(0);
+					}
+				}
+				resume = cmd.hasOption("R");
+				logger.info("Saving checkpoints into " + checkpointDir
+						+ " (every " + checkpointInterval + " seconds)");
+			} else {
+				if (cmd.hasOption("R")) {
+					logger.fatal("Resuming requires a checkpoint directory (-k)! Stoping...");
+					System.exit(0);
+				}
+			}
+			streaming = cmd.hasOption("X");
+			if (streaming) {
+				logger.info("Reading the CTGs and the APCGs with the streaming XML reader");
+			}
+			int threads = 0;
+			if (cmd.hasOption("P")) {
+				try {
+					threads = Integer.valueOf(cmd.getOptionValue("P"));
+				} catch (NumberFormatException e) {
+					logger.fatal("The number of threads is not a number! Stoping...", e);
+					System.exit(0);
+				}
+				if (threads < 1) {
+					logger.fatal("At least one thread is needed! Stoping...");
+					System.exit(0);
+				}
+				logger.info("Mapping concurrently, with " + threads + " threads");
+			}
+			Long[] seeds = new Long[] {null};
+			if (cmd.hasOption("s")) {
+				String[] seedValues = cmd.getOptionValue("s").split(",");
+				seeds = new Long[seedValues.length];
+				for (int s = 0; s < seedValues.length; s++) {
+					try {
+						seeds[s] = new Long(seedValues[s].trim());
+					} catch (NumberFormatException e) {
+						logger.fatal("Seed is not a number! Stoping...", e);
+						System.exit(0);
+					}
+				}
+			}
+			boolean routing = cmd.hasOption("r");
+			LegalTurnSet legalTurnSet = LegalTurnSet.ODD_EVEN;
+			if (routing) {
+				String lts = cmd.getOptionValue("r");
+				if (LegalTurnSet.WEST_FIRST.toString().equals(lts)) {
+					legalTurnSet = LegalTurnSet.WEST_FIRST;
+				} else {
+					if (!LegalTurnSet.ODD_EVEN.toString().equals(lts)) {
+						logger.warn("Unknown legal turn set. Using ODD_EVEN!");
+					}
+				}
+			}
+			double linkBandwidth = Double.valueOf(cmd.getOptionValue("l",
+					Double.toString(256E9)));
+			
+			ExecutorService executor = null;
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			if (threads > 0) {
+				executor = Executors.newFixedThreadPool(threads,
+						new ThreadFactory() {
+
+							@Override
+							public Thread newThread(Runnable r) {
+								Thread thread = new Thread(r, "Mapper");
+								thread.setDaemon(true);
+								return thread;
+							}
+						});
+			}
+			
 			File[] tgffFiles = null;
 			String specifiedCtgId = null;
 			String specifiedApcgId = null;
@@ -194,26 +325,19 @@ public abstract class MapperInputProcessor {
 				
 				for (int j = 0; j < ctgs.length; j++) {
 					String ctgId = ctgs[j].substring("ctg-".length());
-					List<CtgType> ctgTypes = new ArrayList<CtgType>();
+					List<File> ctgFiles = new ArrayList<File>();
 					// if the ctg ID contains + => we need to map multiple CTGs in one mapping XML
 					String[] ctgIds = ctgId.split("\\+");
 					List<File> apcgsList = new ArrayList<File>();
 					for (int k = 0; k < ctgIds.length; k++) {
-						JAXBContext jaxbContext = JAXBContext
-								.newInstance("ro.ulbsibiu.acaps.ctg.xml.ctg");
-						Unmarshaller unmarshaller = jaxbContext
-								.createUnmarshaller();
-						@SuppressWarnings("unchecked")
-						CtgType ctgType = ((JAXBElement<CtgType>) unmarshaller
-								.unmarshal(new File(path + "ctg-" + ctgIds[k]
-										+ File.separator + "ctg-" + ctgIds[k]
-										+ ".xml"))).getValue();
-						ctgTypes.add(ctgType);
+						ctgFiles.add(new File(path + "ctg-" + ctgIds[k] + File.separator + "ctg-" + ctgIds[k] + ".xml"));
 						
 						File ctg = new File(path + "ctg-" + ctgIds[k]);
 						apcgsList.addAll(Arrays.asList(ctg.listFiles(new ApcgFilenameFilter(ctgIds[k], specifiedApcgId))));
 					}
 					File[] apcgFiles = apcgsList.toArray(new File[apcgsList.size()]);
+					// the CTGs are unmarshalled only once, for all their APCGs
+					List<CtgType> ctgTypes = null;
 					for (int l = 0; l < apcgFiles.length / ctgIds.length; l++) {
 						String apcgId = ctgId + "_";
 						if (specifiedApcgId == null) {
@@ -221,7 +345,7 @@ public abstract class MapperInputProcessor {
 						} else {
 							apcgId += specifiedApcgId;
 						}
-						List<ApcgType> apcgTypes = new ArrayList<ApcgType>();
+						List<File> selectedApcgFiles = new ArrayList<File>();
 						for (int k = 0; k < apcgFiles.length; k++) {
 							String id;
 							if (specifiedApcgId == null) {
@@ -230,74 +354,201 @@ public abstract class MapperInputProcessor {
 								id = specifiedApcgId;
 							}
 							if (apcgFiles[k].getName().endsWith(id + ".xml")) {
-								JAXBContext jaxbContext = JAXBContext
-										.newInstance("ro.ulbsibiu.acaps.ctg.xml.apcg");
-								Unmarshaller unmarshaller = jaxbContext
-										.createUnmarshaller();
-								@SuppressWarnings("unchecked")
-								ApcgType apcg = ((JAXBElement<ApcgType>) unmarshaller
-										.unmarshal(new File(apcgFiles[k]
-												.getAbsolutePath())))
-										.getValue();
-								apcgTypes.add(apcg);
+								selectedApcgFiles.add(new File(apcgFiles[k].getAbsolutePath()));
 							}
 						}
-						logger.assertLog(apcgTypes.size() == ctgTypes.size(), 
+						logger.assertLog(selectedApcgFiles.size() == ctgFiles.size(), 
 								"An equal number of CTGs and APCGs is expected!");
 						
-						Long seed = null;
-						if (cmd.hasOption("s")) {
-							try {
-								seed = new Long(cmd.getOptionValue("s"));
-							} catch (NumberFormatException e) {
-								logger.fatal("Seed is not a number! Stoping...", e);
-								System.exit(0);
-							}
-						}
-						boolean routing = cmd.hasOption("r");
-						if (routing) {
-							String lts = cmd.getOptionValue("r");
-							if (LegalTurnSet.ODD_EVEN.toString().equals(lts)) {
-								useMapper(path, tgffFiles[i].getName(), ctgId,
-										apcgId, ctgTypes, apcgTypes, routing,
-										LegalTurnSet.ODD_EVEN,
-										Double.valueOf(cmd.getOptionValue("l",
-												Double.toString(256E9))), seed);
+						for (int s = 0; s < seeds.length; s++) {
+							MappingTask task = new MappingTask(path,
+									tgffFiles[i].getName(), ctgId, apcgId,
+									ctgFiles, selectedApcgFiles, routing,
+									legalTurnSet, linkBandwidth, seeds[s]);
+							if (executor != null) {
+								// each task unmarshals its own CTGs, so that
+								// the mappers share nothing
+								futures.add(executor.submit(task));
 							} else {
-								if (LegalTurnSet.WEST_FIRST.toString().equals(lts)) {
-									useMapper(path, tgffFiles[i].getName(), ctgId,
-											apcgId, ctgTypes, apcgTypes, routing,
-											LegalTurnSet.WEST_FIRST,
-											Double.valueOf(cmd.getOptionValue("l",
-													Double.toString(256E9))), seed);
-								} else {
-									logger.warn("Unknown legal turn set. Using ODD_EVEN!");
-									useMapper(path, tgffFiles[i].getName(), ctgId,
-											apcgId, ctgTypes, apcgTypes, routing,
-											LegalTurnSet.ODD_EVEN,
-											Double.valueOf(cmd.getOptionValue("l",
-													Double.toString(256E9))), seed);
+								if (!streaming && ctgTypes == null) {
+									ctgTypes = unmarshalCtgs(ctgFiles);
+								}
+								task.map(ctgTypes);
+								
+								// increment the mapper database run ID after
+								// each mapped CTG, except the last one (no
+								// need to do this for the last one)
+								if (s < seeds.length - 1 || i < tgffFiles.length - 1 || j < ctgs.length - 1) {
+									MapperDatabase.getInstance().incrementRun();
 								}
 							}
-						} else {
-							useMapper(path, tgffFiles[i].getName(), ctgId,
-									apcgId, ctgTypes, apcgTypes, routing,
-									LegalTurnSet.ODD_EVEN,
-									Double.valueOf(cmd.getOptionValue("l",
-											Double.toString(256E9))), seed);
-						}
-						
-						// increment the mapper database run ID after each
-						// mapped CTG, except the last one (no need to do this
-						// for the last one)
-						if (i < tgffFiles.length - 1 || j < ctgs.length - 1) {
-							MapperDatabase.getInstance().incrementRun();
 						}
 					}
 				}
 			}
+			if (executor != null) {
+				executor.shutdown();
+				waitFor(futures);
+			}
 			MapperDatabase.getInstance().close();
 			logger.info("Done.");
 		}
 	}
+	
+	private List<CtgType> unmarshalCtgs(List<File> ctgFiles) throws JAXBException {
+		List<CtgType> ctgTypes = new ArrayList<CtgType>();
+		for (int k = 0; k < ctgFiles.size(); k++) {
+			CtgType ctgType = JaxbUtils.unmarshal("ro.ulbsibiu.acaps.ctg.xml.ctg", ctgFiles.get(k));
+			ctgTypes.add(ctgType);
+		}
+		return ctgTypes;
+	}
+	
+	/**
+	 * Waits for all the mapping tasks to finish. If some tasks failed, the
+	 * exception of the first one is thrown (after all the tasks finished).
+	 * 
+	 * @param futures
+	 *            the mapping tasks
+	 * @throws JAXBException
+	 * @throws TooFewNocNodesException
+	 * @throws FileNotFoundException
+	 */
+	private void waitFor(List<Future<Void>> futures) throws JAXBException,
+			TooFewNocNodesException, FileNotFoundException {
+		Throwable failure = null;
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).get();
+			} catch (InterruptedException e) {
+				logger.fatal("Interrupted while mapping! Stoping...", e);
+				System.exit(0);
+			} catch (ExecutionException e) {
+				logger.error("Mapping task " + i + " failed", e.getCause());
+				if (failure == null) {
+					failure = e.getCause();
+				}
+			}
+		}
+		if (failure instanceof JAXBException) {
+			throw (JAXBException) failure;
+		}
+		if (failure instanceof TooFewNocNodesException) {
+			throw (TooFewNocNodesException) failure;
+		}
+		if (failure instanceof FileNotFoundException) {
+			throw (FileNotFoundException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new RuntimeException(failure);
+		}
+	}
+	
+	/**
+	 * The mapping of an application (a CTG and its APCG, or more such pairs),
+	 * with a given seed. When the applications are mapped concurrently, each
+	 * task reads its own input and has its own mapper database run.
+	 * 
+	 * @author cradu
+	 * 
+	 */
+	private class MappingTask implements Callable<Void> {
+		
+		private final String benchmarkFilePath;
+		
+		private final String benchmarkName;
+		
+		private final String ctgId;
+		
+		private final String apcgId;
+		
+		private final List<File> ctgFiles;
+		
+		private final List<File> apcgFiles;
+		
+		private final boolean doRouting;
+		
+		private final LegalTurnSet lts;
+		
+		private final double linkBandwidth;
+		
+		private final Long seed;
+		
+		public MappingTask(String benchmarkFilePath, String benchmarkName,
+				String ctgId, String apcgId, List<File> ctgFiles,
+				List<File> apcgFiles, boolean doRouting, LegalTurnSet lts,
+				double linkBandwidth, Long seed) {
+			this.benchmarkFilePath = benchmarkFilePath;
+			this.benchmarkName = benchmarkName;
+			this.ctgId = ctgId;
+			this.apcgId = apcgId;
+			this.ctgFiles = ctgFiles;
+			this.apcgFiles = apcgFiles;
+			this.doRouting = doRouting;
+			this.lts = lts;
+			this.linkBandwidth = linkBandwidth;
+			this.seed = seed;
+		}
+		
+		@Override
+		public Void call() throws Exception {
+			MapperDatabase.getInstance().startThreadRun();
+			try {
+				map(null);
+			} finally {
+				MapperDatabase.getInstance().endThreadRun();
+			}
+			return null;
+		}
+		
+		/**
+		 * Reads the input and maps the application
+		 * 
+		 * @param ctgTypes
+		 *            the already unmarshalled CTGs (<tt>null</tt> if they must
+		 *            be read)
+		 * @throws JAXBException
+		 * @throws TooFewNocNodesException
+		 * @throws FileNotFoundException
+		 */
+		public void map(List<CtgType> ctgTypes) throws JAXBException,
+				TooFewNocNodesException, FileNotFoundException {
+			ApplicationInput application;
+			if (streaming) {
+				List<ApplicationGraph> applicationGraphs = new ArrayList<ApplicationGraph>();
+				for (int k = 0; k < ctgFiles.size(); k++) {
+					try {
+						applicationGraphs.add(ApplicationGraphReader.read(
+								ctgFiles.get(k), apcgFiles.get(k)));
+					} catch (XMLStreamException e) {
+						logger.fatal("Could not read " + ctgFiles.get(k) + " or " + apcgFiles.get(k) + "! Stoping...", e);
+						System.exit(0);
+					} catch (IOException e) {
+						logger.fatal("Could not read " + ctgFiles.get(k) + " or " + apcgFiles.get(k) + "! Stoping...", e);
+						System.exit(0);
+					}
+				}
+				application = new ApplicationInput(applicationGraphs);
+			} else {
+				if (ctgTypes == null) {
+					ctgTypes = unmarshalCtgs(ctgFiles);
+				}
+				List<ApcgType> apcgTypes = new ArrayList<ApcgType>();
+				for (int k = 0; k < apcgFiles.size(); k++) {
+					ApcgType apcg = JaxbUtils.unmarshal("ro.ulbsibiu.acaps.ctg.xml.apcg",
+							apcgFiles.get(k));
+					apcgTypes.add(apcg);
+				}
+				application = new ApplicationInput(ctgTypes, apcgTypes);
+			}
+			useMapper(benchmarkFilePath, benchmarkName, ctgId, apcgId,
+					application, doRouting, lts, linkBandwidth, seed);
+		}
+	}
 }
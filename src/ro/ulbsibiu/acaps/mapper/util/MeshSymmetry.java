@@ -0,0 +1,207 @@
+package ro.ulbsibiu.acaps.mapper.util;
+
+/**
+ * A group of symmetries of a 2D mesh NoC. The nodes are numbered row by row
+ * (node = row * columns + column). Two mappings related through a symmetry of
+ * the group are equivalent, if the cost function is invariant to the group:
+ * <ul>
+ * <li>the reflections (the identity, the horizontal and the vertical flips and
+ * their composition, i.e. the rotation by 180 degrees) keep both the hop
+ * counts and the XY routes (so also the link loads)</li>
+ * <li>the dihedral group of a square mesh (the reflections, together with the
+ * transposition and the rotations by 90 degrees) keeps only the hop counts (an
+ * XY route is transposed into a YX route)</li>
+ * </ul>
+ * <p>
+ * Each mapping has a canonical form: its lexicographically smallest image
+ * under the group. It is computed in O(N) time (for a group of at most 8
+ * symmetries).
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class MeshSymmetry {
+
+	/**
+	 * inverses[g][node] is the node sent into node by the symmetry g (the
+	 * first symmetry is the identity)
+	 */
+	private final int[][] inverses;
+
+	/** whether or not each node is the smallest node of its orbit */
+	private final boolean[] representatives;
+
+	private MeshSymmetry(int rows, int columns, boolean transpositions) {
+		int nodes = rows * columns;
+		int groupSize = transpositions && rows == columns ? 8 : 4;
+		inverses = new int[groupSize][nodes];
+		representatives = new boolean[nodes];
+		for (int node = 0; node < nodes; node++) {
+			representatives[node] = true;
+		}
+		for (int g = 0; g < groupSize; g++) {
+			for (int node = 0; node < nodes; node++) {
+				int row = node / columns;
+				int column = node % columns;
+				if ((g & 1) != 0) {
+					column = columns - 1 - column;
+				}
+				if ((g & 2) != 0) {
+					row = rows - 1 - row;
+				}
+				if ((g & 4) != 0) {
+					int temp = row;
+					row = column;
+					column = temp;
+				}
+				int image = row * columns + column;
+				inverses[g][image] = node;
+				if (image < node) {
+					representatives[node] = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the group of the reflections of a mesh (it keeps the energy and
+	 * the link loads of the mappings, with XY routing)
+	 *
+	 * @param rows
+	 *            the number of rows of the mesh
+	 * @param columns
+	 *            the number of columns of the mesh
+	 * @return the group of the reflections
+	 */
+	public static MeshSymmetry reflections(int rows, int columns) {
+		return new MeshSymmetry(rows, columns, false);
+	}
+
+	/**
+	 * Creates the dihedral group of a mesh (it keeps the hop counts between
+	 * the nodes). For a non square mesh, only the reflections are symmetries.
+	 *
+	 * @param rows
+	 *            the number of rows of the mesh
+	 * @param columns
+	 *            the number of columns of the mesh
+	 * @return the dihedral group
+	 */
+	public static MeshSymmetry dihedral(int rows, int columns) {
+		return new MeshSymmetry(rows, columns, true);
+	}
+
+	/**
+	 * @return the number of symmetries from the group
+	 */
+	public int getGroupSize() {
+		return inverses.length;
+	}
+
+	/**
+	 * Computes the canonical form of a mapping
+	 *
+	 * @param mapping
+	 *            the mapping (the core placed onto each node, or -1)
+	 * @return a new array, with the lexicographically smallest image of the
+	 *         mapping
+	 */
+	public int[] canonicalize(int[] mapping) {
+		return apply(getCanonicalSymmetry(mapping), mapping);
+	}
+
+	/**
+	 * Finds the symmetry which sends a mapping (or any other vector indexed by
+	 * the nodes) into its canonical form
+	 *
+	 * @param mapping
+	 *            the mapping
+	 * @return the index of the symmetry (0 for the identity)
+	 */
+	public int getCanonicalSymmetry(int[] mapping) {
+		int best = 0;
+		for (int g = 1; g < inverses.length; g++) {
+			int[] inverse = inverses[g];
+			int[] bestInverse = inverses[best];
+			for (int i = 0; i < mapping.length; i++) {
+				int gene = mapping[inverse[i]];
+				int bestGene = mapping[bestInverse[i]];
+				if (gene != bestGene) {
+					if (gene < bestGene) {
+						best = g;
+					}
+					break;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Computes the image of a mapping under a symmetry
+	 *
+	 * @param g
+	 *            the index of the symmetry
+	 * @param mapping
+	 *            the mapping
+	 * @return a new array, with the image of the mapping
+	 */
+	public int[] apply(int g, int[] mapping) {
+		int[] image = new int[mapping.length];
+		int[] inverse = inverses[g];
+		for (int i = 0; i < mapping.length; i++) {
+			image[i] = mapping[inverse[i]];
+		}
+		return image;
+	}
+
+	/**
+	 * Computes the image of a vector indexed by the nodes under a symmetry
+	 *
+	 * @param g
+	 *            the index of the symmetry
+	 * @param values
+	 *            a value for each node
+	 * @return a new array, with the image of the values
+	 */
+	public double[] apply(int g, double[] values) {
+		double[] image = new double[values.length];
+		int[] inverse = inverses[g];
+		for (int i = 0; i < values.length; i++) {
+			image[i] = values[inverse[i]];
+		}
+		return image;
+	}
+
+	/**
+	 * The inverse of {@link #apply(int, double[])}
+	 *
+	 * @param g
+	 *            the index of the symmetry
+	 * @param image
+	 *            the image of the values under the symmetry
+	 * @return a new array, with the values
+	 */
+	public double[] restore(int g, double[] image) {
+		double[] values = new double[image.length];
+		int[] inverse = inverses[g];
+		for (int i = 0; i < image.length; i++) {
+			values[inverse[i]] = image[i];
+		}
+		return values;
+	}
+
+	/**
+	 * Tells whether or not a node is the smallest node of its orbit. Each
+	 * mapping is equivalent to a mapping which places a given core onto such
+	 * a node.
+	 *
+	 * @param node
+	 *            the node
+	 * @return whether or not the node is the representative of its orbit
+	 */
+	public boolean isRepresentative(int node) {
+		return representatives[node];
+	}
+}
@@ -0,0 +1,32 @@
+package ro.ulbsibiu.acaps.mapper.util;
+
+import ro.ulbsibiu.acaps.noc.xml.link.LinkType;
+import ro.ulbsibiu.acaps.noc.xml.node.NodeType;
+
+/**
+ * Provides the nodes and the links of a Network-on-Chip topology. The
+ * topology may be read from XML files (see {@link TopologySnapshot}) or it
+ * may be generated (see {@link GridTopologyProvider}).
+ * <p>
+ * Each node knows its links (of type "out" or "in") and its topology
+ * parameters (e.g., its row and column). Each link goes from its first node
+ * to its second node.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public interface TopologyProvider {
+
+	/**
+	 * @return the nodes (their IDs are 0, 1, ..., but they may be given in
+	 *         any order)
+	 */
+	NodeType[] getNodes();
+
+	/**
+	 * @return the links (their IDs are 0, 1, ..., but they may be given in
+	 *         any order)
+	 */
+	LinkType[] getLinks();
+}
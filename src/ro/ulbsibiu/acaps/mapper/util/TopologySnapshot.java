@@ -0,0 +1,387 @@
+package ro.ulbsibiu.acaps.mapper.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.noc.xml.link.LinkType;
+import ro.ulbsibiu.acaps.noc.xml.node.NodeType;
+import ro.ulbsibiu.acaps.noc.xml.node.RoutingTableEntryType;
+import ro.ulbsibiu.acaps.noc.xml.node.TopologyParameterType;
+
+/**
+ * A binary snapshot of a NoC topology (the nodes and the links read from the
+ * XML files of the "nodes" and "links" subdirectories of the topology
+ * directory). The snapshot is written once, after the XML files are
+ * unmarshalled, and later it is memory mapped instead of parsing the XML
+ * files again.
+ * <p>
+ * The snapshot records the name, the size and the last modification time of
+ * each XML file, so it is automatically rebuilt when the topology changes.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class TopologySnapshot implements TopologyProvider {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(TopologySnapshot.class);
+
+	/** the default directory where the snapshots are kept */
+	public static final String DEFAULT_SNAPSHOT_PATH = "./cache/topology/";
+
+	/** identifies the snapshot files (the ASCII codes of "NOCS") */
+	private static final int SNAPSHOT_MAGIC = 0x4E4F4353;
+
+	/** the version of the snapshot files format */
+	private static final int SNAPSHOT_VERSION = 1;
+
+	private static final FileFilter XML_FILTER = new FileFilter() {
+
+		@Override
+		public boolean accept(File pathname) {
+			return pathname.getName().endsWith(".xml");
+		}
+	};
+
+	/**
+	 * a lock for each snapshot file, so that a topology loaded by more mappers
+	 * at the same time is unmarshalled and saved only once
+	 */
+	private static final ConcurrentMap<String, Object> snapshotLocks = new ConcurrentHashMap<String, Object>();
+
+	private final NodeType[] nodes;
+
+	private final LinkType[] links;
+
+	private TopologySnapshot(NodeType[] nodes, LinkType[] links) {
+		this.nodes = nodes;
+		this.links = links;
+	}
+
+	/**
+	 * @return the nodes (in the order of their XML file names)
+	 */
+	@Override
+	public NodeType[] getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the links (in the order of their XML file names)
+	 */
+	@Override
+	public LinkType[] getLinks() {
+		return links;
+	}
+
+	/**
+	 * Loads a topology. The snapshot is used if it is up to date. Otherwise,
+	 * the XML files are unmarshalled and a new snapshot is saved. Each call
+	 * returns new node and link objects. Concurrent loads of the same
+	 * topology wait for each other, so that the snapshot is written only once.
+	 *
+	 * @param topologyDir
+	 *            the topology directory
+	 * @param snapshotDir
+	 *            the directory where the snapshots are kept (it is created if
+	 *            needed)
+	 * @return the topology
+	 * @throws JAXBException
+	 *             if the XML files cannot be unmarshalled
+	 */
+	public static TopologySnapshot load(File topologyDir, File snapshotDir)
+			throws JAXBException {
+		File nodesDir = new File(topologyDir, "nodes");
+		logger.assertLog(nodesDir.isDirectory(), nodesDir.getName() + " is not a directory!");
+		File linksDir = new File(topologyDir, "links");
+		logger.assertLog(linksDir.isDirectory(), linksDir.getName() + " is not a directory!");
+		File[] nodeXmls = nodesDir.listFiles(XML_FILTER);
+		File[] linkXmls = linksDir.listFiles(XML_FILTER);
+		Arrays.sort(nodeXmls);
+		Arrays.sort(linkXmls);
+
+		File snapshotFile = getSnapshotFile(topologyDir, snapshotDir);
+		synchronized (getSnapshotLock(snapshotFile)) {
+			return load(topologyDir, snapshotFile, nodeXmls, linkXmls);
+		}
+	}
+
+	private static Object getSnapshotLock(File snapshotFile) {
+		String key = snapshotFile.getAbsolutePath();
+		Object lock = snapshotLocks.get(key);
+		if (lock == null) {
+			Object newLock = new Object();
+			lock = snapshotLocks.putIfAbsent(key, newLock);
+			if (lock == null) {
+				lock = newLock;
+			}
+		}
+		return lock;
+	}
+
+	private static TopologySnapshot load(File topologyDir, File snapshotFile,
+			File[] nodeXmls, File[] linkXmls) throws JAXBException {
+		if (snapshotFile.exists()) {
+			try {
+				TopologySnapshot snapshot = read(snapshotFile, nodeXmls, linkXmls);
+				if (snapshot != null) {
+					logger.debug("Loaded the topology " + topologyDir + " from " + snapshotFile);
+					return snapshot;
+				}
+				logger.info("The topology " + topologyDir + " changed since its snapshot was saved");
+			} catch (IOException e) {
+				logger.warn("Ignoring the topology snapshot " + snapshotFile, e);
+			} catch (BufferUnderflowException e) {
+				logger.warn("Ignoring the truncated topology snapshot " + snapshotFile);
+			}
+		}
+
+		// the XML files are unmarshalled concurrently
+		List<NodeType> nodeTypes = JaxbUtils.unmarshalAll("ro.ulbsibiu.acaps.noc.xml.node", nodeXmls);
+		List<LinkType> linkTypes = JaxbUtils.unmarshalAll("ro.ulbsibiu.acaps.noc.xml.link", linkXmls);
+		TopologySnapshot snapshot = new TopologySnapshot(
+				nodeTypes.toArray(new NodeType[nodeTypes.size()]),
+				linkTypes.toArray(new LinkType[linkTypes.size()]));
+		try {
+			snapshot.write(snapshotFile, nodeXmls, linkXmls);
+			logger.info("Saved the snapshot of topology " + topologyDir + " into " + snapshotFile);
+		} catch (IOException e) {
+			logger.warn("Could not save the topology snapshot " + snapshotFile, e);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the snapshot file of a topology (named after the last two
+	 *         directories from the topology path, e.g. mesh2D-4x4, and the
+	 *         hash of the whole path)
+	 */
+	private static File getSnapshotFile(File topologyDir, File snapshotDir) {
+		File dir = topologyDir.getAbsoluteFile();
+		String name = dir.getName();
+		if (dir.getParentFile() != null) {
+			name = dir.getParentFile().getName() + "-" + name;
+		}
+		return new File(snapshotDir, name + "-"
+				+ Integer.toHexString(dir.getPath().hashCode()) + ".snapshot");
+	}
+
+	private static String readString(MappedByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Double readDouble(MappedByteBuffer buffer) {
+		return buffer.get() == 0 ? null : buffer.getDouble();
+	}
+
+	/**
+	 * Tells whether or not the snapshot was saved from the given XML files
+	 */
+	private static boolean matches(MappedByteBuffer buffer, File[] xmls) {
+		if (buffer.getInt() != xmls.length) {
+			return false;
+		}
+		for (int i = 0; i < xmls.length; i++) {
+			if (!xmls[i].getName().equals(readString(buffer))
+					|| buffer.getLong() != xmls[i].length()
+					|| buffer.getLong() != xmls[i].lastModified()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a snapshot
+	 *
+	 * @return the topology, or <tt>null</tt> if the snapshot is out of date
+	 */
+	private static TopologySnapshot read(File file, File[] nodeXmls,
+			File[] linkXmls) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		MappedByteBuffer buffer;
+		try {
+			FileChannel channel = raf.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			// the mapping remains valid after the channel is closed
+			raf.close();
+		}
+
+		if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+			throw new IOException("Unknown topology snapshot format");
+		}
+		if (!matches(buffer, nodeXmls) || !matches(buffer, linkXmls)) {
+			return null;
+		}
+
+		NodeType[] nodes = new NodeType[nodeXmls.length];
+		for (int i = 0; i < nodes.length; i++) {
+			NodeType node = new NodeType();
+			node.setId(readString(buffer));
+			node.setCore(readString(buffer));
+			node.setCost(readDouble(buffer));
+			int count = buffer.getInt();
+			for (int j = 0; j < count; j++) {
+				TopologyParameterType parameter = new TopologyParameterType();
+				parameter.setType(readString(buffer));
+				parameter.setValue(readString(buffer));
+				node.getTopologyParameter().add(parameter);
+			}
+			count = buffer.getInt();
+			for (int j = 0; j < count; j++) {
+				ro.ulbsibiu.acaps.noc.xml.node.LinkType link = new ro.ulbsibiu.acaps.noc.xml.node.LinkType();
+				link.setType(readString(buffer));
+				link.setValue(readString(buffer));
+				node.getLink().add(link);
+			}
+			count = buffer.getInt();
+			for (int j = 0; j < count; j++) {
+				RoutingTableEntryType entry = new RoutingTableEntryType();
+				entry.setSource(readString(buffer));
+				entry.setDestination(readString(buffer));
+				entry.setLink(readString(buffer));
+				node.getRoutingTableEntry().add(entry);
+			}
+			nodes[i] = node;
+		}
+
+		LinkType[] links = new LinkType[linkXmls.length];
+		for (int i = 0; i < links.length; i++) {
+			LinkType link = new LinkType();
+			link.setId(readString(buffer));
+			link.setFirstNode(readString(buffer));
+			link.setSecondNode(readString(buffer));
+			link.setBandwidth(readDouble(buffer));
+			link.setCost(readDouble(buffer));
+			links[i] = link;
+		}
+		return new TopologySnapshot(nodes, links);
+	}
+
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = s.getBytes("UTF-8");
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static void writeDouble(DataOutputStream out, Double d)
+			throws IOException {
+		out.writeByte(d == null ? 0 : 1);
+		if (d != null) {
+			out.writeDouble(d);
+		}
+	}
+
+	private static void writeSources(DataOutputStream out, File[] xmls)
+			throws IOException {
+		out.writeInt(xmls.length);
+		for (int i = 0; i < xmls.length; i++) {
+			writeString(out, xmls[i].getName());
+			out.writeLong(xmls[i].length());
+			out.writeLong(xmls[i].lastModified());
+		}
+	}
+
+	/**
+	 * Writes the snapshot into a temporary file, which then replaces the
+	 * snapshot file (so that concurrent runs never read a partially written
+	 * file)
+	 */
+	private void write(File file, File[] nodeXmls, File[] linkXmls)
+			throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		dir.mkdirs();
+		File tempFile = File.createTempFile(file.getName(), ".tmp", dir);
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeInt(SNAPSHOT_MAGIC);
+				out.writeInt(SNAPSHOT_VERSION);
+				writeSources(out, nodeXmls);
+				writeSources(out, linkXmls);
+				for (int i = 0; i < nodes.length; i++) {
+					NodeType node = nodes[i];
+					writeString(out, node.getId());
+					writeString(out, node.getCore());
+					writeDouble(out, node.getCost());
+					List<TopologyParameterType> parameters = node.getTopologyParameter();
+					out.writeInt(parameters.size());
+					for (int j = 0; j < parameters.size(); j++) {
+						writeString(out, parameters.get(j).getType());
+						writeString(out, parameters.get(j).getValue());
+					}
+					List<ro.ulbsibiu.acaps.noc.xml.node.LinkType> nodeLinks = node.getLink();
+					out.writeInt(nodeLinks.size());
+					for (int j = 0; j < nodeLinks.size(); j++) {
+						writeString(out, nodeLinks.get(j).getType());
+						writeString(out, nodeLinks.get(j).getValue());
+					}
+					List<RoutingTableEntryType> entries = node.getRoutingTableEntry();
+					out.writeInt(entries.size());
+					for (int j = 0; j < entries.size(); j++) {
+						writeString(out, entries.get(j).getSource());
+						writeString(out, entries.get(j).getDestination());
+						writeString(out, entries.get(j).getLink());
+					}
+				}
+				for (int i = 0; i < links.length; i++) {
+					LinkType link = links[i];
+					writeString(out, link.getId());
+					writeString(out, link.getFirstNode());
+					writeString(out, link.getSecondNode());
+					writeDouble(out, link.getBandwidth());
+					writeDouble(out, link.getCost());
+				}
+			} finally {
+				out.close();
+			}
+			// renameTo doesn't replace an existing file on all platforms
+			if (!tempFile.renameTo(file)) {
+				file.delete();
+				if (!tempFile.renameTo(file)) {
+					throw new IOException("Could not rename " + tempFile + " to " + file);
+				}
+			}
+		} finally {
+			tempFile.delete();
+		}
+	}
+}